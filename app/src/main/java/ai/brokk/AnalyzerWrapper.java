@@ -48,6 +48,11 @@ public class AnalyzerWrapper implements IWatchService.Listener, IAnalyzerWrapper
     private volatile boolean wasReady = false;
     private final AtomicLong idlePollTriggeredRebuilds = new AtomicLong(0);
 
+    // On-disk snapshot bookkeeping; only touched from the analyzer executor thread
+    private static final long PERSIST_INTERVAL_MS = 60_000L;
+    private @Nullable IAnalyzer lastPersistedAnalyzer = null;
+    private long lastPersistMs = 0L;
+
     // Dedicated single-threaded executor for analyzer refresh tasks
     private final LoggingExecutorService analyzerExecutor;
     private volatile @Nullable Thread analyzerExecutorThread;
@@ -176,6 +181,13 @@ public class AnalyzerWrapper implements IWatchService.Listener, IAnalyzerWrapper
                     metrics.numberOfDeclarations(),
                     metrics.numberOfCodeUnits(),
                     durationMs);
+            metrics.memoryByLanguage()
+                    .forEach((language, usage) -> logger.debug(
+                            "Analyzer memory for {}: ~{} KB native in {} parse trees, ~{} KB heap",
+                            language.name(),
+                            usage.nativeBytes() / 1024,
+                            usage.parsedTrees(),
+                            usage.heapBytes() / 1024));
 
             return currentAnalyzer;
         });
@@ -311,23 +323,37 @@ public class AnalyzerWrapper implements IWatchService.Listener, IAnalyzerWrapper
         }
 
         /* ── 3.  Load or build the analyzer via the Language handle ─────────────────── */
-        IAnalyzer analyzer;
-        try {
-            logger.debug("Attempting to load existing analyzer");
-            analyzer = langHandle.loadAnalyzer(project);
-            logger.info(
-                    "Loaded existing analyzer: {} for directory: {}",
-                    analyzer.getClass().getSimpleName(),
-                    project.getRoot());
-        } catch (Throwable th) {
-            // cache missing or corrupt, rebuild
-            logger.warn(th);
+        IAnalyzer analyzer = null;
+        if (externalRebuildRequested) {
+            // honored by the build below; a request made while it runs stays pending for the idle poll
+            externalRebuildRequested = false;
+        } else {
+            try {
+                logger.debug("Attempting to load existing analyzer");
+                analyzer = langHandle.loadAnalyzer(project);
+                logger.info(
+                        "Loaded existing analyzer: {} for directory: {}",
+                        analyzer.getClass().getSimpleName(),
+                        project.getRoot());
+                // loadAnalyzer reconciles persisted snapshots with the working tree itself, rebuilding any
+                // language whose snapshot was unusable; write the result if what is on disk was out of date
+                if (needsRebuild) {
+                    persistAnalyzerState(analyzer);
+                }
+                needsRebuild = false;
+            } catch (Throwable th) {
+                // cache missing or corrupt, rebuild
+                logger.warn(th);
+            }
+        }
+        if (analyzer == null) {
             analyzer = langHandle.createAnalyzer(project);
             logger.info(
                     "Created new analyzer: {} for directory: {}",
                     analyzer.getClass().getSimpleName(),
                     project.getRoot());
             needsRebuild = false;
+            persistAnalyzerState(analyzer);
         }
 
         /* ── 4.  Notify listeners ───────────────────────────────────────────────────── */
@@ -451,6 +477,9 @@ public class AnalyzerWrapper implements IWatchService.Listener, IAnalyzerWrapper
             // The function is supplied the current analyzer (may be null).
             currentAnalyzer = fn.apply(currentAnalyzer);
             logger.debug("Analyzer refresh completed.");
+            if (System.currentTimeMillis() - lastPersistMs >= PERSIST_INTERVAL_MS) {
+                persistAnalyzerState(currentAnalyzer);
+            }
             if (listener != null) {
                 boolean isNowReady = (currentAnalyzer != null);
                 logger.debug(
@@ -468,6 +497,31 @@ public class AnalyzerWrapper implements IWatchService.Listener, IAnalyzerWrapper
         });
     }
 
+    /**
+     * Writes the on-disk snapshot of every tree-sitter analyzer behind {@code analyzer} so that the next startup can
+     * load it via {@link Language#loadAnalyzer(IProject)} instead of re-parsing the project. Failures are logged and
+     * otherwise ignored; the snapshot is only an optimization. Must run on the analyzer executor.
+     */
+    private void persistAnalyzerState(IAnalyzer analyzer) {
+        if (analyzer == lastPersistedAnalyzer) {
+            return;
+        }
+        var delegates = analyzer instanceof MultiAnalyzer multi
+                ? multi.getDelegates().values()
+                : List.of(analyzer);
+        for (var delegate : delegates) {
+            if (delegate instanceof TreeSitterAnalyzer tsa) {
+                try {
+                    tsa.saveState();
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Unable to persist analyzer state for {}: {}", tsa.languages(), e.toString());
+                }
+            }
+        }
+        lastPersistedAnalyzer = analyzer;
+        lastPersistMs = System.currentTimeMillis();
+    }
+
     /** Get the analyzer, showing a spinner UI while waiting if requested. */
     @Override
     public IAnalyzer get() throws InterruptedException {
@@ -538,6 +592,15 @@ public class AnalyzerWrapper implements IWatchService.Listener, IAnalyzerWrapper
     public void close() {
         watchService.close();
 
+        // Flush the latest snapshot so the next session starts from it
+        analyzerExecutor.submit(() -> {
+            var analyzer = currentAnalyzer;
+            if (analyzer != null) {
+                persistAnalyzerState(analyzer);
+            }
+            return null;
+        });
+
         try {
             // Attempt a graceful shutdown of the analyzer executor; do not propagate exceptions.
             analyzerExecutor.shutdownAndAwait(5000L, "AnalyzerWrapper");
@@ -536,6 +536,13 @@ public class ContextManager implements IContextManager, AutoCloseable {
             public void onFilesChanged(IWatchService.EventBatch batch) {
                 logger.trace("ContextManager file watch listener received events batch: {}", batch);
 
+                // Only the reported paths need a fresh git status; an overflow may have lost some, so rescan all
+                if (batch.isOverflowed) {
+                    project.getRepo().invalidateStatus();
+                } else {
+                    project.getRepo().markFilesChanged(batch.files);
+                }
+
                 // Classify the changes using helper
                 var trackedFiles = project.getRepo().getTrackedFiles();
                 var classification = helper.classifyChanges(batch, trackedFiles);
@@ -2324,6 +2331,10 @@ public class ContextManager implements IContextManager, AutoCloseable {
     }
 
     public void updateActiveSession(UUID sessionId) {
+        var previousSessionId = currentSessionId;
+        if (!previousSessionId.equals(sessionId)) {
+            project.getSessionManager().releaseSession(previousSessionId);
+        }
         currentSessionId = sessionId;
         SessionRegistry.update(project.getRoot(), sessionId);
         ((AbstractProject) project).setLastActiveSession(sessionId);
@@ -2443,6 +2454,8 @@ public class ContextManager implements IContextManager, AutoCloseable {
 
     private void switchToSession(UUID sessionId) {
         var sessionManager = project.getSessionManager();
+        // write out the session being left rather than leaving it to the debounce timer
+        sessionManager.flushHistory(currentSessionId);
 
         String sessionName = sessionManager.listSessions().stream()
                 .filter(s -> s.id().equals(sessionId))
@@ -4,6 +4,7 @@ import static ai.brokk.prompts.EditBlockUtils.DEFAULT_FENCE;
 
 import ai.brokk.analyzer.CodeUnit;
 import ai.brokk.analyzer.ProjectFile;
+import ai.brokk.analyzer.ReparseHints;
 import ai.brokk.analyzer.SourceCodeProvider;
 import com.google.common.base.Splitter;
 import java.io.IOException;
@@ -223,6 +224,11 @@ public class EditBlock {
             }
         }
 
+        // let a cached git status recheck these now rather than when the debounced watcher reports them
+        if (!originalContentsThisBatch.isEmpty()) {
+            contextManager.getRepo().markFilesWritten(originalContentsThisBatch.keySet());
+        }
+
         originalContentsThisBatch.keySet().retainAll(succeeded.values());
         return new EditResult(originalContentsThisBatch, failed);
     }
@@ -314,6 +320,8 @@ public class EditBlock {
             return; // Do not write the blank content
         }
 
+        // lets the analyzer reparse this file incrementally from its retained tree
+        ReparseHints.recordPreviousContent(file, original);
         file.write(updated);
     }
 
@@ -45,7 +45,6 @@ import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.time.LocalDateTime;
@@ -140,7 +139,8 @@ public class Llm {
     // Monotonically increasing sequence for emulated tool request IDs
     private final AtomicInteger toolRequestIdSeq = new AtomicInteger();
     // Sequence for request/response log files
-    private int requestSequence = 1;
+    private final AtomicInteger requestSequence = new AtomicInteger(1);
+    private final LlmTranscriptWriter transcripts;
 
     public Llm(
             StreamingChatModel model,
@@ -180,9 +180,10 @@ public class Llm {
                 Files.createDirectories(this.taskHistoryDir);
             } catch (IOException e) {
                 logger.error("Failed to create task history directory {}", this.taskHistoryDir, e);
-                // taskHistoryDir might be null or unusable, logRequest checks for null
+                // taskHistoryDir may be unusable; the transcript writer logs the writes it cannot make
             }
         }
+        this.transcripts = new LlmTranscriptWriter(taskHistoryDir, objectMapper);
     }
 
     /**
@@ -200,23 +201,12 @@ public class Llm {
     }
 
     /**
-     * Write the request JSON before sending to the model, to a file named "<base>-request.json".
-     * Returns the assigned sequence number so that the corresponding response can use the same number.
+     * Queue the request JSON for writing, to a file named "<base>-request.json.gz"; the write happens in the
+     * background. Returns the assigned sequence number so that the corresponding response can use the same number.
      */
-    private synchronized int logRequest(ChatRequest request) {
-        int assignedSequence = requestSequence++;
-        try {
-            var filename = "%s %03d-request.json".formatted(logFileTimestamp(), assignedSequence);
-            var requestPath = taskHistoryDir.resolve(filename);
-            var requestOptions = new StandardOpenOption[] {
-                StandardOpenOption.CREATE, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE
-            };
-            var requestJson = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(request);
-            logger.trace("Writing pre-send request JSON to {}", requestPath);
-            Files.writeString(requestPath, requestJson, requestOptions);
-        } catch (IOException e) {
-            logger.error("Failed to write pre-send request JSON", e);
-        }
+    private int logRequest(ChatRequest request) {
+        int assignedSequence = requestSequence.getAndIncrement();
+        transcripts.writeRequest(request, assignedSequence, logFileTimestamp());
         return assignedSequence;
     }
 
@@ -1349,35 +1339,13 @@ public class Llm {
     }
 
     /**
-     * Writes response history (.log) to task-specific files, pairing with pre-sent request JSON via a shared base path.
+     * Queues response history (.log) for writing to task-specific files, pairing with pre-sent request JSON via a
+     * shared base path, and shows the call's cost.
      */
-    private synchronized void logResult(
+    private void logResult(
             StreamingChatModel model, ChatRequest request, @Nullable StreamingResult result, int logSequence) {
-        try {
-            var formattedRequest = "# Request to %s:\n\n%s\n"
-                    .formatted(contextManager.getService().nameOf(model), TaskEntry.formatMessages(request.messages()));
-            var formattedTools = request.toolSpecifications() == null
-                    ? ""
-                    : "# Tools:\n\n"
-                            + request.toolSpecifications().stream()
-                                    .map(ToolSpecification::name)
-                                    .collect(Collectors.joining("\n"));
-            var formattedResponse =
-                    result == null ? "# Response:\n\nCancelled" : "# Response:\n\n%s".formatted(result.formatted());
-
-            String fileTimestamp = logFileTimestamp();
-            String shortDesc =
-                    result == null ? "Cancelled" : LogDescription.getShortDescription(result.getDescription());
-            var filePath =
-                    taskHistoryDir.resolve(String.format("%s %03d-%s.log", fileTimestamp, logSequence, shortDesc));
-            var options = new StandardOpenOption[] {
-                StandardOpenOption.CREATE, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE
-            };
-            logger.trace("Writing history to file {}", filePath);
-            Files.writeString(filePath, formattedRequest + formattedTools + formattedResponse, options);
-        } catch (IOException e) {
-            logger.error("Failed to write LLM response history file", e);
-        }
+        transcripts.writeResult(
+                contextManager.getService().nameOf(model), request, result, logSequence, logFileTimestamp());
 
         // Compute and show cost notification if usage/pricing are available
         if (result != null) {
@@ -0,0 +1,234 @@
+package ai.brokk;
+
+import ai.brokk.util.LogDescription;
+import ai.brokk.util.Messages;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Writes one {@link Llm}'s request and response transcripts into its task history directory, on a background thread
+ * shared by all of them, so serializing a large context is not part of a call's latency.
+ *
+ * <p>Request JSON is written compact and gzipped. A message of at least {@link #MIN_SHARED_MESSAGE_CHARS} that an
+ * earlier transcript of the same task already holds, typically the system prompt and workspace, is written as a
+ * reference to that file and the message's content hash instead of in full.
+ *
+ * <p>The queue is bounded: when the writer falls behind, callers wait to enqueue rather than piling up transcripts in
+ * memory.
+ */
+final class LlmTranscriptWriter {
+    private static final Logger logger = LogManager.getLogger(LlmTranscriptWriter.class);
+
+    static final int MIN_SHARED_MESSAGE_CHARS = 4096;
+    private static final int QUEUE_CAPACITY = 32;
+    private static final long SHUTDOWN_FLUSH_TIMEOUT_MS = 10_000;
+
+    private static final BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    static {
+        var writer = new Thread(LlmTranscriptWriter::drain, "llm-transcript-writer");
+        writer.setDaemon(true);
+        writer.start();
+        // The CLI calls System.exit right after a task; its last transcripts are the ones most worth keeping
+        Runtime.getRuntime()
+                .addShutdownHook(new Thread(LlmTranscriptWriter::flushOnShutdown, "llm-transcript-flush"));
+    }
+
+    private final Path taskHistoryDir;
+    private final ObjectMapper objectMapper;
+
+    // Touched only on the writer thread: message content hash -> transcript file that first held it. A hash is only
+    // recorded once its file was written, so no transcript refers to one that does not exist.
+    private final Map<String, String> firstJsonWith = new HashMap<>();
+    private final Map<String, String> firstLogWith = new HashMap<>();
+
+    LlmTranscriptWriter(Path taskHistoryDir, ObjectMapper objectMapper) {
+        this.taskHistoryDir = taskHistoryDir;
+        this.objectMapper = objectMapper;
+    }
+
+    /** Queues "<timestamp> <sequence>-request.json.gz"; waits while the queue is full. */
+    void writeRequest(ChatRequest request, int sequence, String timestamp) {
+        enqueue(() -> {
+            var filename = "%s %03d-request.json.gz".formatted(timestamp, sequence);
+            try {
+                var json = objectMapper.valueToTree(request);
+                var firstHere = new ArrayList<String>();
+                if (json.get("messages") instanceof ArrayNode messages) {
+                    for (int i = 0; i < messages.size(); i++) {
+                        var message = messages.get(i);
+                        var compact = objectMapper.writeValueAsString(message);
+                        if (compact.length() < MIN_SHARED_MESSAGE_CHARS) continue;
+                        var hash = contentHash(compact);
+                        var firstFile = firstJsonWith.get(hash);
+                        if (firstFile == null) {
+                            firstHere.add(hash);
+                        } else {
+                            messages.set(
+                                    i,
+                                    objectMapper
+                                            .createObjectNode()
+                                            .put("sameAs", hash)
+                                            .put("firstIn", firstFile));
+                        }
+                    }
+                }
+                var path = taskHistoryDir.resolve(filename);
+                logger.trace("Writing pre-send request JSON to {}", path);
+                try (OutputStream out = new GZIPOutputStream(
+                        Files.newOutputStream(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE))) {
+                    objectMapper.writeValue(out, json);
+                }
+                firstHere.forEach(hash -> firstJsonWith.putIfAbsent(hash, filename));
+            } catch (IOException e) {
+                logger.error("Failed to write pre-send request JSON", e);
+            }
+        });
+    }
+
+    /** Queues the human-readable "<timestamp> <sequence>-<description>.log"; waits while the queue is full. */
+    void writeResult(
+            String modelName,
+            ChatRequest request,
+            @Nullable Llm.StreamingResult result,
+            int sequence,
+            String timestamp) {
+        enqueue(() -> {
+            String shortDesc =
+                    result == null ? "Cancelled" : LogDescription.getShortDescription(result.getDescription());
+            var filename = String.format("%s %03d-%s.log", timestamp, sequence, shortDesc);
+            try {
+                var firstHere = new ArrayList<String>();
+                var formattedRequest = "# Request to %s:\n\n%s\n"
+                        .formatted(modelName, formatMessages(request.messages(), firstHere));
+                var formattedTools = request.toolSpecifications() == null
+                        ? ""
+                        : "# Tools:\n\n"
+                                + request.toolSpecifications().stream()
+                                        .map(ToolSpecification::name)
+                                        .collect(Collectors.joining("\n"));
+                var formattedResponse =
+                        result == null ? "# Response:\n\nCancelled" : "# Response:\n\n%s".formatted(result.formatted());
+
+                var path = taskHistoryDir.resolve(filename);
+                logger.trace("Writing history to file {}", path);
+                Files.writeString(
+                        path,
+                        formattedRequest + formattedTools + formattedResponse,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.WRITE);
+                firstHere.forEach(hash -> firstLogWith.putIfAbsent(hash, filename));
+            } catch (IOException e) {
+                logger.error("Failed to write LLM response history file", e);
+            }
+        });
+    }
+
+    /**
+     * As {@link TaskEntry#formatMessages}, with large messages an earlier log of this task holds referenced. The hashes
+     * of large messages written in full are added to {@code firstHere}.
+     */
+    private String formatMessages(List<ChatMessage> messages, List<String> firstHere) {
+        return messages.stream()
+                .map(message -> {
+                    var text = Messages.getRepr(message);
+                    if (text.length() >= MIN_SHARED_MESSAGE_CHARS) {
+                        var hash = contentHash(message.type().name() + "\n" + text);
+                        var firstFile = firstLogWith.get(hash);
+                        if (firstFile == null) {
+                            firstHere.add(hash);
+                        } else {
+                            text = "[Same as message %s in %s]".formatted(hash, firstFile);
+                        }
+                    }
+                    return (CharSequence)
+                            """
+                      <message type=%s>
+                      %s
+                      </message>
+                      """
+                                    .formatted(
+                                            message.type().name().toLowerCase(Locale.ROOT),
+                                            text.indent(2).stripTrailing());
+                })
+                .collect(Collectors.joining("\n"));
+    }
+
+    /** Waits until every transcript queued before this call has been written. */
+    static void flush() throws InterruptedException {
+        var written = new CountDownLatch(1);
+        queue.put(written::countDown);
+        written.await();
+    }
+
+    private static void flushOnShutdown() {
+        var written = new CountDownLatch(1);
+        try {
+            if (!queue.offer(written::countDown, SHUTDOWN_FLUSH_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                    || !written.await(SHUTDOWN_FLUSH_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                logger.warn("Timed out writing pending LLM transcripts at shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void enqueue(Runnable write) {
+        try {
+            queue.put(write);
+        } catch (InterruptedException e) {
+            // The call is being cancelled; losing its transcript is preferable to ignoring the interrupt
+            Thread.currentThread().interrupt();
+            logger.debug("Interrupted while queueing an LLM transcript; skipping it");
+        }
+    }
+
+    private static void drain() {
+        while (true) {
+            try {
+                queue.take().run();
+            } catch (InterruptedException e) {
+                logger.warn("LLM transcript writer interrupted; pending transcripts are lost");
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Failed to write an LLM transcript", e);
+            }
+        }
+    }
+
+    private static String contentHash(String content) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
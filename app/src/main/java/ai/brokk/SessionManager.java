@@ -6,6 +6,7 @@ import ai.brokk.context.ContextHistory;
 import ai.brokk.git.GitRepo;
 import ai.brokk.git.GitRepoFactory;
 import ai.brokk.tasks.TaskList;
+import ai.brokk.util.AtomicWrites;
 import ai.brokk.util.HistoryIo;
 import ai.brokk.util.SerialByKeyExecutor;
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -18,8 +19,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -32,8 +35,13 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.Nullable;
@@ -51,6 +59,71 @@ public class SessionManager implements AutoCloseable {
 
     private static final Logger logger = LogManager.getLogger(SessionManager.class);
 
+    /** History saves wait this long for a newer snapshot to supersede them before being written. */
+    private static final long SAVE_DEBOUNCE_MS = 200;
+    /** A session's oldest unsaved snapshot is never held back longer than this, however often it is superseded. */
+    private static final long MAX_SAVE_DELAY_MS = 2_000;
+
+    /**
+     * Write-behind statistics for history saves.
+     *
+     * @param pendingSessions sessions with a snapshot waiting to be written.
+     * @param savesRequested calls to {@link #saveHistory}.
+     * @param savesWritten snapshots actually written; the difference was superseded before reaching disk.
+     * @param lastSaveLagMs time from the first unsaved request to the end of the most recent write.
+     * @param maxSaveLagMs the largest such lag seen so far.
+     */
+    public record SaveStats(
+            int pendingSessions, long savesRequested, long savesWritten, long lastSaveLagMs, long maxSaveLagMs) {}
+
+    /** Name of the index of session metadata kept next to the session zips. */
+    static final String SESSION_INDEX_FILE = "sessions-index.json";
+
+    private static final int SESSION_INDEX_VERSION = 1;
+    /** Index rewrites are batched; a crash in between only costs re-reading the zips that changed since. */
+    private static final long INDEX_WRITE_DELAY_MS = 1_000;
+
+    /**
+     * Metadata of one session as of its files' last known state. The manifest is only read from the zip again when
+     * the zip or its segment no longer match the recorded size and modification times.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record SessionIndexEntry(
+            UUID id, String name, long created, long modified, long size, long zipModified, long segmentModified) {
+        SessionInfo info() {
+            return new SessionInfo(id, name, created, modified);
+        }
+
+        boolean matches(FileStamp stamp) {
+            return size == stamp.size()
+                    && zipModified == stamp.zipModified()
+                    && segmentModified == stamp.segmentModified();
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record SessionIndex(int version, List<SessionIndexEntry> sessions) {}
+
+    /** Combined size of a session zip and its segment, and their modification times (0 when there is no segment). */
+    record FileStamp(long size, long zipModified, long segmentModified) {}
+
+    /** The newest unsaved history of one session; superseded snapshots are simply replaced. */
+    private static final class PendingSave {
+        ContextHistory history;
+        boolean manifestChanged;
+        final long firstRequestNanos;
+        @Nullable
+        ScheduledFuture<?> timer;
+        // the write queued on the session's executor; it takes whatever history is newest when it runs
+        @Nullable
+        CompletableFuture<Void> write;
+
+        PendingSave(ContextHistory history, long firstRequestNanos) {
+            this.history = history;
+            this.firstRequestNanos = firstRequestNanos;
+        }
+    }
+
     private static class SessionExecutorThreadFactory implements ThreadFactory {
         private static final ThreadLocal<Boolean> isSessionExecutorThread = ThreadLocal.withInitial(() -> false);
         private final ThreadFactory delegate;
@@ -84,30 +157,151 @@ public class SessionManager implements AutoCloseable {
     private final SerialByKeyExecutor sessionExecutorByKey;
     private final Path sessionsDir;
     private final Map<UUID, SessionInfo> sessionsCache;
+    private final Map<UUID, HistoryIo.SessionWriter> sessionWriters = new ConcurrentHashMap<>();
+
+    // Guarded by itself. At most one pending snapshot per session, so the write-behind queue cannot grow with the
+    // rate of saves.
+    private final Map<UUID, PendingSave> pendingSaves = new HashMap<>();
+    private final ScheduledExecutorService saveScheduler;
+    private final AtomicLong savesRequested = new AtomicLong();
+    private final AtomicLong savesWritten = new AtomicLong();
+    private volatile long lastSaveLagMs;
+    private volatile long maxSaveLagMs;
+
+    private final Path indexPath;
+    // Guarded by pendingSaves, like the save timers.
+    private @Nullable ScheduledFuture<?> indexWrite;
 
     public SessionManager(Path sessionsDir) {
         this.sessionsDir = sessionsDir;
+        this.indexPath = sessionsDir.resolve(SESSION_INDEX_FILE);
         this.sessionExecutor = Executors.newFixedThreadPool(3, new SessionExecutorThreadFactory());
+        this.saveScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            var t = new Thread(r, "session-save-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
         this.sessionExecutorByKey = new SerialByKeyExecutor(sessionExecutor);
         this.sessionsCache = loadSessions();
     }
 
+    /**
+     * Reads the metadata of every session zip. Sessions whose files still match the index are taken from it; only new
+     * or changed zips are opened.
+     */
     private Map<UUID, SessionInfo> loadSessions() {
         var sessions = new ConcurrentHashMap<UUID, SessionInfo>();
+        var indexed = readIndex();
+        int reread = 0;
         try {
             Files.createDirectories(sessionsDir);
             try (var stream = Files.list(sessionsDir)) {
-                stream.filter(path -> path.toString().endsWith(".zip"))
-                        .forEach(zipPath -> readSessionInfoFromZip(zipPath).ifPresent(sessionInfo -> {
-                            sessions.put(sessionInfo.id(), sessionInfo);
-                        }));
+                for (var zipPath :
+                        stream.filter(path -> path.toString().endsWith(".zip")).toList()) {
+                    var entry = parseUuidFromFilename(zipPath).map(indexed::get).orElse(null);
+                    var stamp = stamp(zipPath);
+                    if (entry != null && stamp != null && entry.matches(stamp)) {
+                        sessions.put(entry.id(), entry.info());
+                        continue;
+                    }
+                    reread++;
+                    readSessionInfoFromZip(zipPath).ifPresent(sessionInfo -> {
+                        sessions.put(sessionInfo.id(), sessionInfo);
+                    });
+                }
             }
         } catch (IOException e) {
             logger.error("Error listing session zip files in {}: {}", sessionsDir, e.getMessage());
         }
+        logger.debug("Loaded {} sessions, {} of them from their zips", sessions.size(), reread);
+        if (reread > 0 || indexed.size() != sessions.size()) {
+            writeIndex(sessions);
+        }
         return sessions;
     }
 
+    private Map<UUID, SessionIndexEntry> readIndex() {
+        if (!Files.exists(indexPath)) {
+            return Map.of();
+        }
+        try {
+            var index = AbstractProject.objectMapper.readValue(indexPath.toFile(), SessionIndex.class);
+            if (index.version() != SESSION_INDEX_VERSION) {
+                return Map.of();
+            }
+            var result = new HashMap<UUID, SessionIndexEntry>();
+            for (var entry : index.sessions()) {
+                result.put(entry.id(), entry);
+            }
+            return result;
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable session index {}: {}", indexPath, e.getMessage());
+            return Map.of();
+        }
+    }
+
+    /**
+     * Writes the index for {@code sessions}, stamped with the current state of their files. A session whose manifest
+     * has not reached its zip yet is recorded with its newer in-memory metadata; once the write lands, the stamp no
+     * longer matches and the zip is read again on the next start.
+     */
+    private void writeIndex(Map<UUID, SessionInfo> sessions) {
+        var entries = new ArrayList<SessionIndexEntry>(sessions.size());
+        for (var info : sessions.values()) {
+            var stamp = stamp(getSessionHistoryPath(info.id()));
+            if (stamp == null) {
+                continue; // not written yet; indexed by a later write
+            }
+            entries.add(new SessionIndexEntry(
+                    info.id(),
+                    info.name(),
+                    info.created(),
+                    info.modified(),
+                    stamp.size(),
+                    stamp.zipModified(),
+                    stamp.segmentModified()));
+        }
+        try {
+            var json = AbstractProject.objectMapper.writeValueAsString(
+                    new SessionIndex(SESSION_INDEX_VERSION, entries));
+            AtomicWrites.atomicOverwrite(indexPath, json);
+        } catch (IOException e) {
+            logger.warn("Unable to write session index {}: {}", indexPath, e.getMessage());
+        }
+    }
+
+    /** Schedules an index rewrite; called after every change to a session's files or metadata. */
+    private void markIndexDirty() {
+        synchronized (pendingSaves) {
+            if (indexWrite != null && !indexWrite.isDone()) {
+                return;
+            }
+            try {
+                indexWrite = saveScheduler.schedule(
+                        () -> writeIndex(sessionsCache), INDEX_WRITE_DELAY_MS, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // closing; close() writes the index itself
+            }
+        }
+    }
+
+    static @Nullable FileStamp stamp(Path zipPath) {
+        try {
+            var zip = Files.readAttributes(zipPath, BasicFileAttributes.class);
+            var segmentPath = HistoryIo.segmentPath(zipPath);
+            long segmentSize = 0;
+            long segmentModified = 0;
+            if (Files.exists(segmentPath)) {
+                var segment = Files.readAttributes(segmentPath, BasicFileAttributes.class);
+                segmentSize = segment.size();
+                segmentModified = segment.lastModifiedTime().toMillis();
+            }
+            return new FileStamp(zip.size() + segmentSize, zip.lastModifiedTime().toMillis(), segmentModified);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
     public List<SessionInfo> listSessions() {
         var sessions = new ArrayList<>(sessionsCache.values());
         sessions.sort(Comparator.comparingLong(SessionInfo::modified).reversed());
@@ -124,12 +318,9 @@ public class SessionManager implements AutoCloseable {
             Path sessionHistoryPath = getSessionHistoryPath(sessionId);
             try {
                 Files.createDirectories(sessionHistoryPath.getParent());
-                // 1. Create the zip with empty history first. This ensures the zip file exists.
                 var emptyHistory = new ContextHistory(Context.EMPTY);
-                HistoryIo.writeZip(emptyHistory, sessionHistoryPath);
-
-                // 2. Now add/update manifest.json to the existing zip.
-                writeSessionInfoToZip(sessionHistoryPath, newSessionInfo); // Should use create="false" as zip exists.
+                sessionWriter(sessionId).save(emptyHistory, toManifestJson(newSessionInfo));
+                markIndexDirty();
                 logger.info("Created new session {} ({}) with manifest and empty history.", name, sessionId);
             } catch (IOException e) {
                 logger.error("Error creating new session files for {} ({}): {}", name, sessionId, e.getMessage());
@@ -150,8 +341,8 @@ public class SessionManager implements AutoCloseable {
             sessionsCache.put(sessionId, updatedInfo);
             sessionExecutorByKey.submit(sessionId.toString(), () -> {
                 try {
-                    Path sessionHistoryPath = getSessionHistoryPath(sessionId);
-                    writeSessionInfoToZip(sessionHistoryPath, updatedInfo);
+                    manifestWriter(sessionId).writeManifest(toManifestJson(updatedInfo));
+                    markIndexDirty();
                     logger.info("Renamed session {} to '{}'", sessionId, newName);
                 } catch (IOException e) {
                     logger.error(
@@ -165,10 +356,15 @@ public class SessionManager implements AutoCloseable {
 
     public void deleteSession(UUID sessionId) throws Exception {
         sessionsCache.remove(sessionId);
+        discardPendingSave(sessionId);
         var deleteFuture = sessionExecutorByKey.submit(sessionId.toString(), () -> {
+            sessionWriters.remove(sessionId);
             Path historyZipPath = getSessionHistoryPath(sessionId);
+            HistoryIo.releaseArchive(historyZipPath);
             try {
+                Files.deleteIfExists(HistoryIo.segmentPath(historyZipPath));
                 boolean deleted = Files.deleteIfExists(historyZipPath);
+                markIndexDirty();
                 if (deleted) {
                     logger.info("Deleted session zip: {}", historyZipPath.getFileName());
                 } else {
@@ -192,6 +388,7 @@ public class SessionManager implements AutoCloseable {
      */
     public void moveSessionToUnreadable(UUID sessionId) {
         sessionsCache.remove(sessionId);
+        discardPendingSave(sessionId);
 
         // Check for re-entrancy: if we're already on a SessionManager executor thread, execute directly
         if (SessionExecutorThreadFactory.isOnSessionExecutorThread()) {
@@ -214,12 +411,14 @@ public class SessionManager implements AutoCloseable {
      * for this session or from a context where it's safe to block on I/O.
      */
     private void moveSessionToUnreadableSync(UUID sessionId) {
+        sessionWriters.remove(sessionId);
         Path historyZipPath = getSessionHistoryPath(sessionId);
         Path unreadableDir = sessionsDir.resolve("unreadable");
+        HistoryIo.releaseArchive(historyZipPath);
         try {
             Files.createDirectories(unreadableDir);
-            Path targetPath = unreadableDir.resolve(historyZipPath.getFileName());
-            Files.move(historyZipPath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+            moveWithSegment(historyZipPath, unreadableDir);
+            markIndexDirty();
             logger.info("Moved session zip {} to {}", historyZipPath.getFileName(), unreadableDir);
         } catch (IOException e) {
             logger.error("Error moving history zip for session {} to unreadable: {}", sessionId, e.getMessage());
@@ -272,7 +471,9 @@ public class SessionManager implements AutoCloseable {
                     continue;
                 }
 
-                sessionsCache.putIfAbsent(sessionId, info.get());
+                if (sessionsCache.putIfAbsent(sessionId, info.get()) == null) {
+                    markIndexDirty();
+                }
             }
         } catch (IOException e) {
             logger.error("Error listing session zip files in {}: {}", sessionsDir, e.getMessage());
@@ -286,6 +487,7 @@ public class SessionManager implements AutoCloseable {
         var currentTime = System.currentTimeMillis();
         var newSessionInfo = new SessionInfo(newSessionId, newSessionName, currentTime, currentTime);
 
+        flushHistory(originalSessionId);
         var copyFuture = sessionExecutorByKey.submit(originalSessionId.toString(), () -> {
             try {
                 Path originalHistoryPath = getSessionHistoryPath(originalSessionId);
@@ -296,6 +498,10 @@ public class SessionManager implements AutoCloseable {
                 Path newHistoryPath = getSessionHistoryPath(newSessionId);
                 Files.createDirectories(newHistoryPath.getParent());
                 Files.copy(originalHistoryPath, newHistoryPath);
+                var originalSegment = HistoryIo.segmentPath(originalHistoryPath);
+                if (Files.exists(originalSegment)) {
+                    Files.copy(originalSegment, HistoryIo.segmentPath(newHistoryPath));
+                }
                 logger.info(
                         "Copied session zip {} to {}", originalHistoryPath.getFileName(), newHistoryPath.getFileName());
             } catch (Exception e) {
@@ -309,7 +515,8 @@ public class SessionManager implements AutoCloseable {
         sessionExecutorByKey.submit(newSessionId.toString(), () -> {
             try {
                 Path newHistoryPath = getSessionHistoryPath(newSessionId);
-                writeSessionInfoToZip(newHistoryPath, newSessionInfo);
+                manifestWriter(newSessionId).writeManifest(toManifestJson(newSessionInfo));
+                markIndexDirty();
                 logger.info(
                         "Updated manifest.json in new session zip {} for session ID {}",
                         newHistoryPath.getFileName(),
@@ -326,6 +533,46 @@ public class SessionManager implements AutoCloseable {
         return sessionsDir.resolve(sessionId.toString() + ".zip");
     }
 
+    /** The writer that persists this session's history; only used from the session's serialized executor tasks. */
+    private HistoryIo.SessionWriter sessionWriter(UUID sessionId) {
+        return sessionWriters.computeIfAbsent(
+                sessionId, id -> new HistoryIo.SessionWriter(getSessionHistoryPath(id)));
+    }
+
+    /**
+     * A writer for a manifest-only update: the session's retained writer if it has one, else a throwaway one, so that
+     * renaming or copying a session that is not being edited does not keep its history state in memory.
+     */
+    private HistoryIo.SessionWriter manifestWriter(UUID sessionId) {
+        var writer = sessionWriters.get(sessionId);
+        return writer != null ? writer : new HistoryIo.SessionWriter(getSessionHistoryPath(sessionId));
+    }
+
+    /**
+     * Writes the session's pending history and then drops its writer, and with it the record of what was already
+     * written. Call when a session stops being edited, e.g. when switching away from it; a later save simply rewrites
+     * the session's zip in full.
+     */
+    public CompletableFuture<Void> releaseSession(UUID sessionId) {
+        flushHistory(sessionId);
+        return sessionExecutorByKey.submit(sessionId.toString(), () -> {
+            sessionWriters.remove(sessionId);
+        });
+    }
+
+    private static String toManifestJson(SessionInfo sessionInfo) throws IOException {
+        return AbstractProject.objectMapper.writeValueAsString(sessionInfo);
+    }
+
+    /** Moves a session zip, and the segment of changes appended to it if there is one, into {@code targetDir}. */
+    private static void moveWithSegment(Path zipPath, Path targetDir) throws IOException {
+        var segmentPath = HistoryIo.segmentPath(zipPath);
+        if (Files.exists(segmentPath)) {
+            Files.move(segmentPath, targetDir.resolve(segmentPath.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(zipPath, targetDir.resolve(zipPath.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+    }
+
     private Optional<UUID> parseUuidFromFilename(Path zipPath) {
         var fileName = zipPath.getFileName().toString();
         if (!fileName.endsWith(".zip")) {
@@ -341,11 +588,10 @@ public class SessionManager implements AutoCloseable {
 
     private Optional<SessionInfo> readSessionInfoFromZip(Path zipPath) {
         if (!Files.exists(zipPath)) return Optional.empty();
-        try (var fs = FileSystems.newFileSystem(zipPath, Map.of())) {
-            Path manifestPath = fs.getPath("manifest.json");
-            if (Files.exists(manifestPath)) {
-                String json = Files.readString(manifestPath);
-                return Optional.of(AbstractProject.objectMapper.readValue(json, SessionInfo.class));
+        try {
+            var json = HistoryIo.readManifest(zipPath);
+            if (json.isPresent()) {
+                return Optional.of(AbstractProject.objectMapper.readValue(json.get(), SessionInfo.class));
             }
         } catch (IOException e) {
             logger.warn("Error reading manifest.json from {}: {}", zipPath.getFileName(), e.getMessage());
@@ -353,25 +599,12 @@ public class SessionManager implements AutoCloseable {
         return Optional.empty();
     }
 
-    private void writeSessionInfoToZip(Path zipPath, SessionInfo sessionInfo) throws IOException {
-        try (var fs =
-                FileSystems.newFileSystem(zipPath, Map.of("create", Files.notExists(zipPath) ? "true" : "false"))) {
-            Path manifestPath = fs.getPath("manifest.json");
-            String json = AbstractProject.objectMapper.writeValueAsString(sessionInfo);
-            Files.writeString(manifestPath, json, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-        } catch (IOException e) {
-            logger.error("Error writing manifest.json to {}: {}", zipPath.getFileName(), e.getMessage());
-            throw e;
-        }
-    }
-
     private void moveZipToUnreadable(Path zipPath) {
         var future = sessionExecutorByKey.submit(zipPath.toString(), () -> {
             Path unreadableDir = sessionsDir.resolve("unreadable");
             try {
                 Files.createDirectories(unreadableDir);
-                Path targetPath = unreadableDir.resolve(zipPath.getFileName());
-                Files.move(zipPath, targetPath, StandardCopyOption.REPLACE_EXISTING);
+                moveWithSegment(zipPath, unreadableDir);
                 logger.info("Moved unreadable session zip {} to {}", zipPath.getFileName(), unreadableDir);
             } catch (IOException e) {
                 logger.error("Error moving unreadable history zip {}: {}", zipPath.getFileName(), e.getMessage());
@@ -394,17 +627,26 @@ public class SessionManager implements AutoCloseable {
         }
     }
 
+    /**
+     * Queues {@code ch} to be written as the session's history.
+     *
+     * <p>Writes are deferred briefly and coalesced: a snapshot still waiting when the next save for the same session
+     * arrives is replaced rather than written, so bursts of context pushes cost one write. The first unsaved snapshot
+     * is written at most {@link #MAX_SAVE_DELAY_MS} after it was queued. Use {@link #flushHistory} to write
+     * immediately; {@link #loadHistory}, {@link #copySession} and {@link #close} do so implicitly.
+     */
     public void saveHistory(ContextHistory ch, UUID sessionId) {
         // ContextHistory is mutable, take a copy before passing it to an async task
         var contextHistory =
                 new ContextHistory(ch.getHistory(), ch.getResetEdges(), ch.getGitStates(), ch.getEntryInfos());
-        SessionInfo infoToSave = null;
+        boolean manifestChanged = false;
         SessionInfo currentInfo = sessionsCache.get(sessionId);
         if (currentInfo != null) {
             if (!isSessionEmpty(currentInfo, contextHistory)) {
-                infoToSave = new SessionInfo(
+                var infoToSave = new SessionInfo(
                         currentInfo.id(), currentInfo.name(), currentInfo.created(), System.currentTimeMillis());
                 sessionsCache.put(sessionId, infoToSave); // Update cache before async task
+                manifestChanged = true;
             } // else, session info is not modified, we are just adding an empty initial context (e.g. welcome message)
             // to the session
         } else {
@@ -413,50 +655,124 @@ public class SessionManager implements AutoCloseable {
                     sessionId);
         }
 
-        final SessionInfo finalInfoToSave = infoToSave;
-        sessionExecutorByKey.submit(sessionId.toString(), () -> {
+        savesRequested.incrementAndGet();
+        long now = System.nanoTime();
+        synchronized (pendingSaves) {
+            var pending = pendingSaves.get(sessionId);
+            if (pending == null) {
+                pending = new PendingSave(contextHistory, now);
+                pendingSaves.put(sessionId, pending);
+            } else {
+                pending.history = contextHistory;
+                if (pending.write != null) {
+                    // a write is already queued and will pick up this snapshot
+                    pending.manifestChanged |= manifestChanged;
+                    return;
+                }
+                if (pending.timer != null) {
+                    pending.timer.cancel(false);
+                }
+            }
+            pending.manifestChanged |= manifestChanged;
+            long waitedMs = TimeUnit.NANOSECONDS.toMillis(now - pending.firstRequestNanos);
+            long delayMs = Math.max(0, Math.min(SAVE_DEBOUNCE_MS, MAX_SAVE_DELAY_MS - waitedMs));
             try {
-                Path sessionHistoryPath = getSessionHistoryPath(sessionId);
+                pending.timer =
+                        saveScheduler.schedule(() -> submitPendingSave(sessionId), delayMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // closing: nothing will fire the timer any more, so write through
+                pending.timer = null;
+                submitPendingSave(sessionId);
+            }
+        }
+    }
 
-                // Snapshot current tasklist.json (if present) before we rewrite the zip
-                String taskListJsonSnapshot = null;
-                if (Files.exists(sessionHistoryPath)) {
-                    try {
-                        taskListJsonSnapshot = readTaskListJson(sessionHistoryPath);
-                    } catch (IOException ioe) {
-                        logger.warn(
-                                "Could not snapshot existing tasklist.json for session {}: {}",
-                                sessionId,
-                                ioe.getMessage());
-                    }
-                }
+    /**
+     * Writes the session's pending history snapshot now instead of after its debounce delay. Reads and writes queued
+     * for the session after this call observe the flushed history.
+     *
+     * @return completes once the snapshot, if any, has been written.
+     */
+    public CompletableFuture<Void> flushHistory(UUID sessionId) {
+        synchronized (pendingSaves) {
+            var pending = pendingSaves.get(sessionId);
+            if (pending == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (pending.timer != null) {
+                pending.timer.cancel(false);
+            }
+            return submitPendingSave(sessionId);
+        }
+    }
 
-                // Rewrite history zip
-                HistoryIo.writeZip(contextHistory, sessionHistoryPath);
+    /** Flushes the pending history of every session; see {@link #flushHistory}. */
+    public CompletableFuture<Void> flushAllHistories() {
+        List<UUID> sessionIds;
+        synchronized (pendingSaves) {
+            sessionIds = List.copyOf(pendingSaves.keySet());
+        }
+        return CompletableFuture.allOf(
+                sessionIds.stream().map(this::flushHistory).toArray(CompletableFuture[]::new));
+    }
 
-                // Write manifest after the rewrite
-                if (finalInfoToSave != null) {
-                    writeSessionInfoToZip(sessionHistoryPath, finalInfoToSave);
-                }
+    public SaveStats getSaveStats() {
+        int pending;
+        synchronized (pendingSaves) {
+            pending = pendingSaves.size();
+        }
+        return new SaveStats(pending, savesRequested.get(), savesWritten.get(), lastSaveLagMs, maxSaveLagMs);
+    }
 
-                // Restore tasklist.json if we had one
-                if (taskListJsonSnapshot != null) {
-                    try {
-                        writeTaskListJson(sessionHistoryPath, taskListJsonSnapshot);
-                    } catch (IOException ioe) {
-                        logger.warn(
-                                "Failed restoring tasklist.json for session {} after history save: {}",
-                                sessionId,
-                                ioe.getMessage());
-                    }
-                }
-            } catch (IOException e) {
-                logger.error(
-                        "Error saving context history or updating manifest for session {}: {}",
-                        sessionId,
-                        e.getMessage());
+    /** Queues the session's pending snapshot for writing, unless a write for it is already queued. */
+    private CompletableFuture<Void> submitPendingSave(UUID sessionId) {
+        synchronized (pendingSaves) {
+            var pending = pendingSaves.get(sessionId);
+            if (pending == null) {
+                return CompletableFuture.completedFuture(null);
             }
-        });
+            if (pending.write == null) {
+                pending.write = sessionExecutorByKey.submit(sessionId.toString(), () -> writePendingSave(sessionId));
+            }
+            return pending.write;
+        }
+    }
+
+    /** Runs on the session's serialized executor; takes whatever snapshot is newest at that moment. */
+    private void writePendingSave(UUID sessionId) {
+        PendingSave pending;
+        synchronized (pendingSaves) {
+            pending = pendingSaves.remove(sessionId);
+        }
+        if (pending == null) {
+            return; // already written by an earlier flush
+        }
+        try {
+            var info = pending.manifestChanged ? sessionsCache.get(sessionId) : null;
+            var manifestJson = info != null ? toManifestJson(info) : null;
+            // Appends only what changed since the last save; the manifest and tasklist.json are preserved when
+            // the zip itself has to be rewritten.
+            sessionWriter(sessionId).save(pending.history, manifestJson);
+            markIndexDirty();
+        } catch (IOException e) {
+            logger.error(
+                    "Error saving context history or updating manifest for session {}: {}", sessionId, e.getMessage());
+            return;
+        }
+        long lagMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pending.firstRequestNanos);
+        lastSaveLagMs = lagMs;
+        maxSaveLagMs = Math.max(maxSaveLagMs, lagMs);
+        savesWritten.incrementAndGet();
+        logger.trace("Saved history of session {} {} ms after it was first requested", sessionId, lagMs);
+    }
+
+    private void discardPendingSave(UUID sessionId) {
+        synchronized (pendingSaves) {
+            var pending = pendingSaves.remove(sessionId);
+            if (pending != null && pending.timer != null) {
+                pending.timer.cancel(false);
+            }
+        }
     }
 
     /**
@@ -486,6 +802,7 @@ public class SessionManager implements AutoCloseable {
 
     @Nullable
     public ContextHistory loadHistory(UUID sessionId, IContextManager contextManager) {
+        flushHistory(sessionId);
         var future = sessionExecutorByKey.submit(
                 sessionId.toString(), () -> loadHistoryOrQuarantine(sessionId, contextManager));
 
@@ -544,7 +861,8 @@ public class SessionManager implements AutoCloseable {
     }
 
     // Internal helpers for synchronous tasklist read/write. These avoid re-entrancy issues when called
-    // inside the per-session serialized executor and allow saveHistory to preserve exact JSON.
+    // inside the per-session serialized executor. tasklist.json is rewritten in place; history saves append to the
+    // session's segment and carry the entry over whenever they rewrite the zip.
     private @Nullable String readTaskListJson(Path zipPath) throws IOException {
         if (!Files.exists(zipPath)) {
             return null;
@@ -595,6 +913,7 @@ public class SessionManager implements AutoCloseable {
                 var normalized = new TaskList.TaskListData(List.copyOf(data.tasks()));
                 String json = AbstractProject.objectMapper.writeValueAsString(normalized);
                 writeTaskListJson(zipPath, json);
+                markIndexDirty();
             } catch (IOException e) {
                 throw new UncheckedIOException("Failed to write task list for session " + sessionId, e);
             }
@@ -681,11 +1000,10 @@ public class SessionManager implements AutoCloseable {
             logger.trace("Session zip not found at {} for session ID {}", sessionZip, sessionId);
             return Optional.empty();
         }
-        try (var fs = FileSystems.newFileSystem(sessionZip, Map.of())) {
-            Path manifestPath = fs.getPath("manifest.json");
-            if (Files.exists(manifestPath)) {
-                String json = Files.readString(manifestPath);
-                var sessionInfo = AbstractProject.objectMapper.readValue(json, SessionInfo.class);
+        try {
+            var json = HistoryIo.readManifest(sessionZip);
+            if (json.isPresent()) {
+                var sessionInfo = AbstractProject.objectMapper.readValue(json.get(), SessionInfo.class);
                 return Optional.of(sessionInfo.name());
             }
         } catch (IOException e) {
@@ -696,6 +1014,14 @@ public class SessionManager implements AutoCloseable {
 
     @Override
     public void close() {
+        try {
+            flushAllHistories().get(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            logger.warn("Could not flush pending session histories on close: {}", e.getMessage());
+        }
+        saveScheduler.shutdownNow();
         sessionExecutor.shutdown();
         try {
             if (!sessionExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
@@ -706,5 +1032,6 @@ public class SessionManager implements AutoCloseable {
             sessionExecutor.shutdownNow();
             Thread.currentThread().interrupt();
         }
+        writeIndex(sessionsCache);
     }
 }
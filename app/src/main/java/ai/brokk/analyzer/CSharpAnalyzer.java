@@ -47,7 +47,7 @@ public final class CSharpAnalyzer extends TreeSitterAnalyzer {
         log.debug("CSharpAnalyzer: Constructor called for project: {}", project);
     }
 
-    private CSharpAnalyzer(IProject project, AnalyzerState prebuiltState) {
+    CSharpAnalyzer(IProject project, AnalyzerState prebuiltState) {
         super(project, Languages.C_SHARP, prebuiltState);
     }
 
@@ -68,6 +68,11 @@ public final class CSharpAnalyzer extends TreeSitterAnalyzer {
         return resource;
     }
 
+    @Override
+    protected String getCallQueryResource() {
+        return "treesitter/calls/c_sharp.scm";
+    }
+
     @Override
     protected @Nullable CodeUnit createCodeUnit(
             ProjectFile file, String captureName, String simpleName, String packageName, String classChain) {
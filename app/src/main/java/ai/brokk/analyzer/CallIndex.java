@@ -0,0 +1,126 @@
+package ai.brokk.analyzer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.jetbrains.annotations.Nullable;
+import org.pcollections.HashTreePMap;
+import org.pcollections.PMap;
+
+/**
+ * Immutable index of the call sites found in each analyzed file, kept as forward (by calling code unit) and reverse (by
+ * called name) adjacency lists.
+ *
+ * <p>Calls are stored unresolved, as the name the source invokes plus an optional receiver, and are resolved against
+ * the symbol index when the graph is walked. That keeps the index exact under incremental updates: adding or removing
+ * a definition elsewhere changes how an unchanged file's calls resolve without touching its entries. Every structure is
+ * a persistent map keyed so that {@link #withFile} only rewrites the entries of the file being replaced.
+ */
+final class CallIndex {
+
+    /**
+     * An unresolved call.
+     *
+     * @param caller the innermost named code unit containing the call.
+     * @param callee the invoked identifier, e.g. {@code bar} for {@code foo.bar(x)}.
+     * @param receiver the receiver when it is a plain identifier ({@code foo} above), otherwise null.
+     * @param line zero-based line of the call in the caller's file.
+     */
+    record CallRef(CodeUnit caller, String callee, @Nullable String receiver, int line) {}
+
+    static final CallIndex EMPTY = new CallIndex(HashTreePMap.empty(), HashTreePMap.empty(), HashTreePMap.empty());
+
+    private final PMap<ProjectFile, List<CallRef>> byFile;
+    private final PMap<CodeUnit, List<CallRef>> byCaller;
+    private final PMap<String, PMap<ProjectFile, List<CallRef>>> byCallee;
+
+    private CallIndex(
+            PMap<ProjectFile, List<CallRef>> byFile,
+            PMap<CodeUnit, List<CallRef>> byCaller,
+            PMap<String, PMap<ProjectFile, List<CallRef>>> byCallee) {
+        this.byFile = byFile;
+        this.byCaller = byCaller;
+        this.byCallee = byCallee;
+    }
+
+    static CallIndex of(Map<ProjectFile, List<CallRef>> callsByFile) {
+        var byFile = new HashMap<ProjectFile, List<CallRef>>(callsByFile.size() * 2);
+        var byCaller = new HashMap<CodeUnit, List<CallRef>>();
+        var byCallee = new HashMap<String, Map<ProjectFile, List<CallRef>>>();
+        callsByFile.forEach((file, refs) -> {
+            if (refs.isEmpty()) return;
+            byFile.put(file, List.copyOf(refs));
+            for (var ref : refs) {
+                byCaller.computeIfAbsent(ref.caller(), c -> new ArrayList<>()).add(ref);
+                byCallee.computeIfAbsent(ref.callee(), c -> new HashMap<>())
+                        .computeIfAbsent(file, f -> new ArrayList<>())
+                        .add(ref);
+            }
+        });
+        var frozenCallers = new HashMap<CodeUnit, List<CallRef>>(byCaller.size() * 2);
+        byCaller.forEach((caller, refs) -> frozenCallers.put(caller, List.copyOf(refs)));
+        var frozenCallees = new HashMap<String, PMap<ProjectFile, List<CallRef>>>(byCallee.size() * 2);
+        byCallee.forEach((callee, perFile) -> {
+            var frozen = new HashMap<ProjectFile, List<CallRef>>(perFile.size() * 2);
+            perFile.forEach((file, refs) -> frozen.put(file, List.copyOf(refs)));
+            frozenCallees.put(callee, HashTreePMap.from(frozen));
+        });
+        return new CallIndex(
+                HashTreePMap.from(byFile), HashTreePMap.from(frozenCallers), HashTreePMap.from(frozenCallees));
+    }
+
+    /** Returns an index in which {@code file}'s calls are replaced by {@code refs} (empty to drop the file). */
+    CallIndex withFile(ProjectFile file, List<CallRef> refs) {
+        var previous = byFile.getOrDefault(file, List.of());
+        if (previous.isEmpty() && refs.isEmpty()) {
+            return this;
+        }
+        var nextByFile = byFile;
+        var nextByCaller = byCaller;
+        var nextByCallee = byCallee;
+        for (var ref : previous) {
+            nextByCaller = nextByCaller.minus(ref.caller());
+            var perFile = nextByCallee.get(ref.callee());
+            if (perFile != null) {
+                perFile = perFile.minus(file);
+                nextByCallee =
+                        perFile.isEmpty() ? nextByCallee.minus(ref.callee()) : nextByCallee.plus(ref.callee(), perFile);
+            }
+        }
+        nextByFile = nextByFile.minus(file);
+
+        if (!refs.isEmpty()) {
+            var added = CallIndex.of(Map.of(file, refs));
+            nextByFile = nextByFile.plus(file, added.byFile.get(file));
+            nextByCaller = nextByCaller.plusAll(added.byCaller);
+            for (var entry : added.byCallee.entrySet()) {
+                var perFile = nextByCallee.getOrDefault(entry.getKey(), HashTreePMap.empty());
+                nextByCallee = nextByCallee.plus(entry.getKey(), perFile.plusAll(entry.getValue()));
+            }
+        }
+        return new CallIndex(nextByFile, nextByCaller, nextByCallee);
+    }
+
+    /** Calls made from within {@code caller}. */
+    List<CallRef> callsFrom(CodeUnit caller) {
+        return byCaller.getOrDefault(caller, List.of());
+    }
+
+    /** Calls anywhere in the project that invoke the identifier {@code callee}. */
+    Stream<CallRef> callsTo(String callee) {
+        return byCallee.getOrDefault(callee, HashTreePMap.empty()).values().stream()
+                .flatMap(Collection::stream);
+    }
+
+    /** All calls, grouped by the file they appear in. */
+    Map<ProjectFile, List<CallRef>> byFile() {
+        return byFile;
+    }
+
+    int size() {
+        return byFile.values().stream().mapToInt(List::size).sum();
+    }
+}
@@ -1,3 +1,36 @@
 package ai.brokk.analyzer;
 
-public record CodeBaseMetrics(int numberOfCodeUnits, int numberOfDeclarations) {}
+import java.util.Map;
+
+/**
+ * Size of the analyzed code base, plus an estimate of the memory the analyzer holds for each language (empty for
+ * analyzers that do not track it).
+ */
+public record CodeBaseMetrics(
+        int numberOfCodeUnits, int numberOfDeclarations, Map<Language, MemoryUsage> memoryByLanguage) {
+
+    public CodeBaseMetrics(int numberOfCodeUnits, int numberOfDeclarations) {
+        this(numberOfCodeUnits, numberOfDeclarations, Map.of());
+    }
+
+    public CodeBaseMetrics withMemoryUsage(Map<Language, MemoryUsage> memoryByLanguage) {
+        return new CodeBaseMetrics(numberOfCodeUnits, numberOfDeclarations, Map.copyOf(memoryByLanguage));
+    }
+
+    public long nativeBytes() {
+        return memoryByLanguage.values().stream().mapToLong(MemoryUsage::nativeBytes).sum();
+    }
+
+    public long heapBytes() {
+        return memoryByLanguage.values().stream().mapToLong(MemoryUsage::heapBytes).sum();
+    }
+
+    /**
+     * Estimated memory held by one language's analyzer.
+     *
+     * @param parsedTrees number of tree-sitter trees currently held, retained or re-parsed on demand.
+     * @param nativeBytes estimated off-heap bytes of those trees.
+     * @param heapBytes estimated on-heap bytes of the declaration state and its indexes.
+     */
+    public record MemoryUsage(int parsedTrees, long nativeBytes, long heapBytes) {}
+}
@@ -84,7 +84,7 @@ public class CppAnalyzer extends TreeSitterAnalyzer {
         this.namespaceProcessor = new NamespaceProcessor(templateParser);
     }
 
-    private CppAnalyzer(IProject project, AnalyzerState state) {
+    CppAnalyzer(IProject project, AnalyzerState state) {
         super(project, Languages.CPP_TREESITTER, state);
         this.parserCache = ThreadLocal.withInitial(() -> {
             var parser = new TSParser();
@@ -112,6 +112,11 @@ public class CppAnalyzer extends TreeSitterAnalyzer {
         return "treesitter/cpp.scm";
     }
 
+    @Override
+    protected String getCallQueryResource() {
+        return "treesitter/calls/cpp.scm";
+    }
+
     @Override
     protected LanguageSyntaxProfile getLanguageSyntaxProfile() {
         return CPP_SYNTAX_PROFILE;
@@ -309,8 +314,8 @@ public class CppAnalyzer extends TreeSitterAnalyzer {
             String fileContent = getCachedFileContent(file);
             TSTree tree = treeOf(file);
             if (tree == null) {
-                // Fallback: parse the file if tree is not cached (should rarely happen)
-                log.warn("Tree not found in cache for {}. Parsing on-demand - this may indicate a bug.", file);
+                // Fallback: parse the file if tree is not cached (e.g. after clearCaches or a snapshot restored from disk)
+                log.debug("Tree not found in cache for {}. Parsing on-demand.", file);
                 var parser = getSharedParser();
                 tree = Objects.requireNonNull(parser.parseString(null, fileContent), "Failed to parse file: " + file);
             }
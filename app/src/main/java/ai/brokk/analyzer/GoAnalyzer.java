@@ -74,7 +74,7 @@ public final class GoAnalyzer extends TreeSitterAnalyzer {
         this.packageQuery = createGoNamespaceQuery();
     }
 
-    private GoAnalyzer(IProject project, AnalyzerState state) {
+    GoAnalyzer(IProject project, AnalyzerState state) {
         super(project, Languages.GO, state);
         this.packageQuery = createGoNamespaceQuery();
     }
@@ -94,6 +94,11 @@ public final class GoAnalyzer extends TreeSitterAnalyzer {
         return "treesitter/go.scm";
     }
 
+    @Override
+    protected String getCallQueryResource() {
+        return "treesitter/calls/go.scm";
+    }
+
     @Override
     protected LanguageSyntaxProfile getLanguageSyntaxProfile() {
         return GO_SYNTAX_PROFILE;
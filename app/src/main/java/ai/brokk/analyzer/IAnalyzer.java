@@ -114,6 +114,20 @@ public interface IAnalyzer {
         return getDefinition(cu.fqName());
     }
 
+    /**
+     * Batch form of {@link #getDefinition(String)} for callers that resolve many names at once.
+     *
+     * @param fqNames the exact, case-sensitive FQ names to resolve.
+     * @return the names that resolved, mapped to their definitions; names with no definition are absent.
+     */
+    default Map<String, CodeUnit> getDefinitions(Collection<String> fqNames) {
+        var result = new HashMap<String, CodeUnit>();
+        for (var fqName : fqNames) {
+            getDefinition(fqName).ifPresent(cu -> result.put(fqName, cu));
+        }
+        return result;
+    }
+
     /**
      * Searches for a (Java) regular expression in the defined identifiers. We manipulate the provided pattern as
      * follows: val preparedPattern = if pattern.contains(".*") then pattern else s".*${Regex.quote(pattern)}.*"val
@@ -315,6 +329,14 @@ public interface IAnalyzer {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Batch form of {@link #enclosingCodeUnit(ProjectFile, Range)}: the nearest enclosing code unit of each range, in
+     * order. Implementations may share the per-file work across ranges.
+     */
+    default List<Optional<CodeUnit>> enclosingCodeUnits(ProjectFile file, List<Range> ranges) {
+        return ranges.stream().map(range -> enclosingCodeUnit(file, range)).toList();
+    }
+
     record Range(int startByte, int endByte, int startLine, int endLine, int commentStartByte) {
         public boolean isEmpty() {
             return startLine == endLine && startByte == endByte;
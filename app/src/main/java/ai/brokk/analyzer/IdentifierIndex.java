@@ -0,0 +1,147 @@
+package ai.brokk.analyzer;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.pcollections.HashTreePMap;
+import org.pcollections.HashTreePSet;
+import org.pcollections.PMap;
+import org.pcollections.PSet;
+import org.pcollections.PSortedMap;
+import org.pcollections.TreePMap;
+
+/**
+ * Immutable index of the identifier-like tokens each analyzed file contains, used to find the files a usage search has
+ * to read instead of scanning the whole project.
+ *
+ * <p>A token is a maximal run of ASCII word characters ({@code [A-Za-z0-9_]}) that does not start with a digit, which
+ * is exactly what a regex anchored with {@code \b} in front of an identifier can start matching at. Lookups are by
+ * prefix, so a file is a candidate for {@code \bfoo} iff one of its tokens starts with {@code foo}; the caller still
+ * confirms with the regex.
+ *
+ * <p>Each file's tokens are kept as a sorted array of interned strings, and a persistent sorted map from token to the
+ * files containing it answers a prefix lookup as one range scan, independent of the number of files. Updating a file
+ * retracts its previous tokens' postings and adds the new ones.
+ */
+final class IdentifierIndex {
+
+    static final IdentifierIndex EMPTY = new IdentifierIndex(HashTreePMap.empty(), TreePMap.empty());
+
+    static final String[] NO_TOKENS = new String[0];
+
+    private static final Interner<String> TOKENS = Interners.newWeakInterner();
+
+    private final PMap<ProjectFile, String[]> tokensByFile;
+    private final PSortedMap<String, PSet<ProjectFile>> filesByToken;
+
+    private IdentifierIndex(
+            PMap<ProjectFile, String[]> tokensByFile, PSortedMap<String, PSet<ProjectFile>> filesByToken) {
+        this.tokensByFile = tokensByFile;
+        this.filesByToken = filesByToken;
+    }
+
+    static IdentifierIndex of(Map<ProjectFile, String[]> tokensByFile) {
+        var postings = new TreeMap<String, Set<ProjectFile>>();
+        tokensByFile.forEach((file, tokens) -> {
+            for (var token : tokens) postings.computeIfAbsent(token, t -> new HashSet<>()).add(file);
+        });
+        var frozen = new TreeMap<String, PSet<ProjectFile>>();
+        postings.forEach((token, files) -> frozen.put(token, HashTreePSet.from(files)));
+        return new IdentifierIndex(HashTreePMap.from(tokensByFile), TreePMap.fromSortedMap(frozen));
+    }
+
+    /** Distinct tokens of the given UTF-8 source, sorted and interned. */
+    static String[] tokenize(byte[] utf8) {
+        var tokens = new TreeSet<String>();
+        int i = 0;
+        while (i < utf8.length) {
+            if (!isWordByte(utf8[i])) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < utf8.length && isWordByte(utf8[i])) i++;
+            if (!isDigit(utf8[start])) {
+                tokens.add(new String(utf8, start, i - start, StandardCharsets.US_ASCII));
+            }
+        }
+        return intern(tokens);
+    }
+
+    static String[] intern(Set<String> sortedTokens) {
+        if (sortedTokens.isEmpty()) return NO_TOKENS;
+        var result = new String[sortedTokens.size()];
+        int n = 0;
+        for (var token : sortedTokens) result[n++] = TOKENS.intern(token);
+        return result;
+    }
+
+    /** Whether {@code identifier} can be looked up: a non-empty token that does not start with a digit. */
+    static boolean isIndexable(String identifier) {
+        if (identifier.isEmpty()) return false;
+        for (int i = 0; i < identifier.length(); i++) {
+            char c = identifier.charAt(i);
+            if (c >= 0x80 || !isWordByte((byte) c)) return false;
+        }
+        return !isDigit((byte) identifier.charAt(0));
+    }
+
+    /** Returns an index in which {@code file}'s tokens are replaced by {@code tokens}. */
+    IdentifierIndex withFile(ProjectFile file, String[] tokens) {
+        var postings = retract(file);
+        for (var token : tokens) {
+            postings = postings.plus(token, postings.getOrDefault(token, HashTreePSet.empty()).plus(file));
+        }
+        return new IdentifierIndex(tokensByFile.plus(file, tokens), postings);
+    }
+
+    IdentifierIndex withoutFile(ProjectFile file) {
+        return tokensByFile.containsKey(file) ? new IdentifierIndex(tokensByFile.minus(file), retract(file)) : this;
+    }
+
+    /** The postings with {@code file} removed from the entries of its current tokens. */
+    private PSortedMap<String, PSet<ProjectFile>> retract(ProjectFile file) {
+        var postings = filesByToken;
+        for (var token : tokensByFile.getOrDefault(file, NO_TOKENS)) {
+            var files = postings.get(token);
+            if (files == null) continue;
+            files = files.minus(file);
+            postings = files.isEmpty() ? postings.minus(token) : postings.plus(token, files);
+        }
+        return postings;
+    }
+
+    boolean contains(ProjectFile file) {
+        return tokensByFile.containsKey(file);
+    }
+
+    /** Indexed files with at least one token starting with {@code prefix}. */
+    Set<ProjectFile> filesWithPrefix(String prefix) {
+        // tokens are ASCII, so every token starting with prefix sorts before prefix + '\uffff'
+        var matching = filesByToken.subMap(prefix, true, prefix + '\uffff', false);
+        var result = new HashSet<ProjectFile>();
+        matching.values().forEach(result::addAll);
+        return result;
+    }
+
+    Map<ProjectFile, String[]> byFile() {
+        return tokensByFile;
+    }
+
+    long tokenCount() {
+        return tokensByFile.values().stream().mapToLong(tokens -> tokens.length).sum();
+    }
+
+    private static boolean isWordByte(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || isDigit(b) || b == '_';
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+}
@@ -0,0 +1,16 @@
+package ai.brokk.analyzer;
+
+import java.util.Set;
+
+/** Capability for analyzers that index the identifiers occurring in each analyzed file. */
+public interface IdentifierIndexProvider extends CapabilityProvider {
+
+    /**
+     * Narrows {@code files} to those a word-boundary search for {@code identifier} has to read: files this analyzer has
+     * indexed and that contain a token starting with {@code identifier}, plus every file it has not indexed. Returns
+     * {@code files} unchanged when the identifier is not a plain ASCII word.
+     *
+     * <p>The answer is as fresh as the analyzer's last update.
+     */
+    Set<ProjectFile> filesToSearch(String identifier, Set<ProjectFile> files);
+}
@@ -21,7 +21,7 @@ public class JavaAnalyzer extends TreeSitterAnalyzer {
         super(project, Languages.JAVA);
     }
 
-    private JavaAnalyzer(IProject project, AnalyzerState state) {
+    JavaAnalyzer(IProject project, AnalyzerState state) {
         super(project, Languages.JAVA, state);
     }
 
@@ -45,6 +45,11 @@ public class JavaAnalyzer extends TreeSitterAnalyzer {
         return "treesitter/java.scm";
     }
 
+    @Override
+    protected String getCallQueryResource() {
+        return "treesitter/calls/java.scm";
+    }
+
     private static final LanguageSyntaxProfile JAVA_SYNTAX_PROFILE = new LanguageSyntaxProfile(
             Set.of(
                     CLASS_DECLARATION,
@@ -52,8 +52,7 @@ public class JavaLanguage implements Language {
 
     @Override
     public IAnalyzer loadAnalyzer(IProject project) {
-        // the LSP server component will handle loading in the cache
-        return createAnalyzer(project);
+        return TreeSitterAnalyzer.loadState(project, this, JavaAnalyzer::new);
     }
 
     @Override
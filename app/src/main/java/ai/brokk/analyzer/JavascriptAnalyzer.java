@@ -39,7 +39,7 @@ public class JavascriptAnalyzer extends TreeSitterAnalyzer {
         super(project, Languages.JAVASCRIPT);
     }
 
-    private JavascriptAnalyzer(IProject project, AnalyzerState state) {
+    JavascriptAnalyzer(IProject project, AnalyzerState state) {
         super(project, Languages.JAVASCRIPT, state);
     }
 
@@ -63,6 +63,11 @@ public class JavascriptAnalyzer extends TreeSitterAnalyzer {
         return "treesitter/javascript.scm";
     }
 
+    @Override
+    protected String getCallQueryResource() {
+        return "treesitter/calls/javascript.scm";
+    }
+
     @Override
     protected @Nullable CodeUnit createCodeUnit(
             ProjectFile file, String captureName, String simpleName, String packageName, String classChain) {
@@ -4,6 +4,7 @@ import ai.brokk.AbstractProject;
 import ai.brokk.IProject;
 import ai.brokk.gui.Chrome;
 import ai.brokk.gui.dependencies.DependenciesPanel;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -177,18 +178,28 @@ public interface Language {
 
         @Override
         public IAnalyzer loadAnalyzer(IProject project) {
+            // Anything but an unusable snapshot fails the whole load, so the caller falls back to a full build
             var delegates = new HashMap<Language, IAnalyzer>();
             for (var lang : languages) {
-                try {
-                    var analyzer = lang.loadAnalyzer(project);
-                    if (!analyzer.isEmpty()) delegates.put(lang, analyzer);
-                } catch (Throwable t) {
-                    logger.error("Error loading analyzer for {}", lang.name(), t);
-                }
+                var analyzer = loadOrCreate(lang, project);
+                if (!analyzer.isEmpty()) delegates.put(lang, analyzer);
             }
             return delegates.size() == 1 ? delegates.values().iterator().next() : new MultiAnalyzer(delegates);
         }
 
+        /**
+         * A missing or obsolete snapshot for one language must not drop that language from the composite, so fall back
+         * to a full build per language rather than letting the whole load fail.
+         */
+        private static IAnalyzer loadOrCreate(Language lang, IProject project) {
+            try {
+                return lang.loadAnalyzer(project);
+            } catch (UncheckedIOException e) {
+                logger.debug("No usable persisted analyzer for {}, rebuilding: {}", lang.name(), e.toString());
+                return lang.createAnalyzer(project);
+            }
+        }
+
         @Override
         public List<Path> getDependencyCandidates(IProject project) {
             throw new UnsupportedOperationException(); // should only be called on single languages
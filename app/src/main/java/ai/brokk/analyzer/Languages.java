@@ -42,7 +42,7 @@ public class Languages {
 
         @Override
         public IAnalyzer loadAnalyzer(IProject project) {
-            return createAnalyzer(project);
+            return TreeSitterAnalyzer.loadState(project, this, CSharpAnalyzer::new);
         }
 
         @Override
@@ -81,7 +81,7 @@ public class Languages {
 
         @Override
         public IAnalyzer loadAnalyzer(IProject project) {
-            return createAnalyzer(project);
+            return TreeSitterAnalyzer.loadState(project, this, JavascriptAnalyzer::new);
         }
 
         @Override
@@ -143,7 +143,8 @@ public class Languages {
 
         @Override
         public IAnalyzer loadAnalyzer(IProject project) {
-            return createAnalyzer(project);
+            // CppAnalyzer always reports CPP_TREESITTER, so that is where its snapshot lives
+            return TreeSitterAnalyzer.loadState(project, CPP_TREESITTER, CppAnalyzer::new);
         }
 
         @Override
@@ -181,7 +182,7 @@ public class Languages {
 
         @Override
         public IAnalyzer loadAnalyzer(IProject project) {
-            return createAnalyzer(project);
+            return TreeSitterAnalyzer.loadState(project, this, GoAnalyzer::new);
         }
 
         // TODO
@@ -220,7 +221,7 @@ public class Languages {
 
         @Override
         public IAnalyzer loadAnalyzer(IProject project) {
-            return createAnalyzer(project);
+            return TreeSitterAnalyzer.loadState(project, this, CppAnalyzer::new);
         }
 
         @Override
@@ -292,7 +293,7 @@ public class Languages {
 
         @Override
         public IAnalyzer loadAnalyzer(IProject project) {
-            return createAnalyzer(project);
+            return TreeSitterAnalyzer.loadState(project, this, (p, state) -> new PhpAnalyzer(p, this, state));
         }
 
         // TODO: Implement getDependencyCandidates for PHP (e.g. composer's vendor directory)
@@ -384,7 +385,7 @@ public class Languages {
 
         @Override
         public IAnalyzer loadAnalyzer(IProject project) {
-            return createAnalyzer(project);
+            return TreeSitterAnalyzer.loadState(project, this, TypescriptAnalyzer::new);
         }
 
         @Override
@@ -9,7 +9,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class MultiAnalyzer
-        implements IAnalyzer, CallGraphProvider, SkeletonProvider, SourceCodeProvider, TypeAliasProvider {
+        implements IAnalyzer,
+                CallGraphProvider,
+                IdentifierIndexProvider,
+                SkeletonProvider,
+                SourceCodeProvider,
+                TypeAliasProvider {
     private static final Logger log = LoggerFactory.getLogger(MultiAnalyzer.class);
     private final Map<Language, IAnalyzer> delegates;
 
@@ -80,6 +85,20 @@ public class MultiAnalyzer
         return delegates.keySet();
     }
 
+    @Override
+    public CodeBaseMetrics getMetrics() {
+        int codeUnits = 0;
+        int declarations = 0;
+        var memory = new HashMap<Language, CodeBaseMetrics.MemoryUsage>();
+        for (var delegate : delegates.values()) {
+            var metrics = delegate.getMetrics();
+            codeUnits += metrics.numberOfCodeUnits();
+            declarations += metrics.numberOfDeclarations();
+            memory.putAll(metrics.memoryByLanguage());
+        }
+        return new CodeBaseMetrics(codeUnits, declarations, Map.copyOf(memory));
+    }
+
     @Override
     public List<String> importStatementsOf(ProjectFile file) {
         return delegates.values().stream()
@@ -94,6 +113,23 @@ public class MultiAnalyzer
                 .findFirst();
     }
 
+    @Override
+    public List<Optional<CodeUnit>> enclosingCodeUnits(ProjectFile file, List<Range> ranges) {
+        var result = new ArrayList<Optional<CodeUnit>>(Collections.nCopies(ranges.size(), Optional.empty()));
+        for (var delegate : delegates.values()) {
+            if (result.stream().allMatch(Optional::isPresent)) {
+                break;
+            }
+            var found = delegate.enclosingCodeUnits(file, ranges);
+            for (int i = 0; i < ranges.size(); i++) {
+                if (result.get(i).isEmpty()) {
+                    result.set(i, found.get(i));
+                }
+            }
+        }
+        return result;
+    }
+
     @Override
     public IProject getProject() {
         return findFirst(analyzer -> Optional.of(analyzer.getProject())).orElseThrow();
@@ -196,6 +232,24 @@ public class MultiAnalyzer
         return findFirst(analyzer -> analyzer.getDefinition(fqName));
     }
 
+    @Override
+    public Map<String, CodeUnit> getDefinitions(Collection<String> fqNames) {
+        var result = new HashMap<String, CodeUnit>();
+        var remaining = new LinkedHashSet<>(fqNames);
+        // same precedence as getDefinition: the first delegate that knows a name wins
+        for (var delegate : delegates.values()) {
+            if (remaining.isEmpty()) break;
+            try {
+                var found = delegate.getDefinitions(remaining);
+                result.putAll(found);
+                remaining.removeAll(found.keySet());
+            } catch (UnsupportedOperationException ignored) {
+                // This delegate doesn't support the operation
+            }
+        }
+        return result;
+    }
+
     @Override
     public List<CodeUnit> searchDefinitions(String pattern) {
         return delegates.values().stream()
@@ -266,6 +320,19 @@ public class MultiAnalyzer
         return findFirst(analyzer -> analyzer.extractClassName(reference));
     }
 
+    @Override
+    public Set<ProjectFile> filesToSearch(String identifier, Set<ProjectFile> files) {
+        // each delegate only drops files it has indexed, so the narrowing composes across languages
+        var result = files;
+        for (var delegate : delegates.values()) {
+            var provider = delegate.as(IdentifierIndexProvider.class);
+            if (provider.isPresent()) {
+                result = provider.get().filesToSearch(identifier, result);
+            }
+        }
+        return result;
+    }
+
     @Override
     public boolean isTypeAlias(CodeUnit cu) {
         for (var delegate : delegates.values()) {
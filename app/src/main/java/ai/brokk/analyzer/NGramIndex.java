@@ -0,0 +1,292 @@
+package ai.brokk.analyzer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+import org.jetbrains.annotations.Nullable;
+import org.pcollections.HashTreePMap;
+import org.pcollections.PMap;
+
+/**
+ * Immutable n-gram index over a set of string keys, used to pre-filter substring and regex searches.
+ *
+ * <p>Each key is mapped to its grams (by default the trigrams of the lower-cased key) and every distinct gram points
+ * back to the key. A lookup returns the posting list of the rarest gram of the needle, which is taken apart by the same
+ * function; that is a superset of the matching keys, so callers must still run their exact predicate over the
+ * candidates. Needles with no grams cannot be answered from the index and {@link #candidates} returns {@code null} to
+ * signal a full scan.
+ *
+ * <p>Posting lists are kept as compact immutable lists inside a persistent map, so {@link #withChanges} only rewrites
+ * the lists of the n-grams the changed keys contain.
+ */
+final class NGramIndex {
+
+    private final Function<String, Set<String>> gramsOf;
+    private final PMap<String, List<String>> postings;
+
+    private NGramIndex(Function<String, Set<String>> gramsOf, PMap<String, List<String>> postings) {
+        this.gramsOf = gramsOf;
+        this.postings = postings;
+    }
+
+    /** Trigram index over the lower-cased keys. */
+    static NGramIndex trigrams(Collection<String> keys) {
+        return build(key -> grams(lower(key), 3), keys);
+    }
+
+    /**
+     * Index of the ordered letter pairs within each identifier run of the keys, for camel-hump queries: a key matching
+     * {@code F[a-z0-9_]*B} case-insensitively has an f before a b in one run, so it is listed under "fb".
+     */
+    static NGramIndex letterPairs(Collection<String> keys) {
+        return build(NGramIndex::letterPairs, keys);
+    }
+
+    static NGramIndex build(Function<String, Set<String>> gramsOf, Collection<String> keys) {
+        var lists = new HashMap<String, List<String>>();
+        for (var key : keys) {
+            for (var gram : gramsOf.apply(key)) {
+                lists.computeIfAbsent(gram, g -> new ArrayList<>()).add(key);
+            }
+        }
+        var frozen = new HashMap<String, List<String>>(lists.size() * 2);
+        lists.forEach((gram, list) -> frozen.put(gram, List.copyOf(list)));
+        return new NGramIndex(gramsOf, HashTreePMap.from(frozen));
+    }
+
+    /**
+     * Returns an index with {@code removed} keys dropped and {@code added} keys inserted. Callers pass net changes:
+     * removed keys that are present and added keys that are not.
+     */
+    NGramIndex withChanges(Collection<String> removed, Collection<String> added) {
+        if (removed.isEmpty() && added.isEmpty()) {
+            return this;
+        }
+        var removedByGram = new HashMap<String, Set<String>>();
+        for (var key : removed) {
+            for (var gram : gramsOf.apply(key)) {
+                removedByGram.computeIfAbsent(gram, g -> new HashSet<>()).add(key);
+            }
+        }
+        var addedByGram = new HashMap<String, List<String>>();
+        for (var key : added) {
+            for (var gram : gramsOf.apply(key)) {
+                addedByGram.computeIfAbsent(gram, g -> new ArrayList<>()).add(key);
+            }
+        }
+
+        var touched = new HashSet<String>(removedByGram.keySet());
+        touched.addAll(addedByGram.keySet());
+        var next = postings;
+        for (var gram : touched) {
+            var gone = removedByGram.getOrDefault(gram, Set.of());
+            var list = new ArrayList<String>();
+            for (var key : postings.getOrDefault(gram, List.of())) {
+                if (!gone.contains(key)) list.add(key);
+            }
+            list.addAll(addedByGram.getOrDefault(gram, List.of()));
+            next = list.isEmpty() ? next.minus(gram) : next.plus(gram, List.copyOf(list));
+        }
+        return new NGramIndex(gramsOf, next);
+    }
+
+    /**
+     * Candidate keys whose text may contain {@code needle}, or {@code null} if the needle is too short to use the
+     * index.
+     */
+    @Nullable
+    Collection<String> candidates(String needle) {
+        return candidates(List.of(needle));
+    }
+
+    /**
+     * Candidate keys whose text may contain every one of {@code needles}, or {@code null} if none of them is long
+     * enough to use the index.
+     */
+    @Nullable
+    Collection<String> candidates(Collection<String> needles) {
+        List<String> best = null;
+        for (var needle : needles) {
+            for (var gram : gramsOf.apply(needle)) {
+                var list = postings.getOrDefault(gram, List.of());
+                if (best == null || list.size() < best.size()) {
+                    best = list;
+                }
+                if (best.isEmpty()) {
+                    return best;
+                }
+            }
+        }
+        return best;
+    }
+
+    static String lower(String s) {
+        return s.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Every lower-cased letter paired with each letter after it in the same run of ASCII letters, digits and _.
+     * Characters that lower-case to ASCII (the Kelvin sign) count as well, so substring matches are never missed.
+     */
+    static Set<String> letterPairs(String text) {
+        var pairs = new HashSet<String>();
+        var run = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? Character.toLowerCase(text.charAt(i)) : ' ';
+            if (c < 128 && (Character.isLetterOrDigit(c) || c == '_')) {
+                if (Character.isLetter(c)) {
+                    for (int j = 0; j < run.length(); j++) {
+                        pairs.add(new String(new char[] {run.charAt(j), c}));
+                    }
+                    if (run.indexOf(String.valueOf(c)) < 0) run.append(c);
+                }
+            } else {
+                run.setLength(0);
+            }
+        }
+        return pairs;
+    }
+
+    private static Set<String> grams(String text, int n) {
+        if (text.length() < n) {
+            return Set.of();
+        }
+        var grams = new LinkedHashSet<String>();
+        for (int i = 0; i + n <= text.length(); i++) {
+            grams.add(text.substring(i, i + n));
+        }
+        return grams;
+    }
+
+    /**
+     * Lower-cased literal substrings that every match of {@code regex} must contain, for use as index needles. The
+     * analysis is deliberately conservative: alternation and groups yield no literals, and characters made optional by
+     * a following quantifier are dropped.
+     */
+    static List<String> requiredLiterals(String regex) {
+        var pattern = regex.startsWith("(?i)") ? regex.substring(4) : regex;
+        if (pattern.indexOf('|') >= 0 || pattern.indexOf('(') >= 0) {
+            return List.of();
+        }
+
+        var literals = new ArrayList<String>();
+        var run = new StringBuilder();
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            if (c == '\\' && i + 1 < pattern.length()) {
+                char next = pattern.charAt(i + 1);
+                if (next == 'Q') {
+                    int end = pattern.indexOf("\\E", i + 2);
+                    run.append(end < 0 ? pattern.substring(i + 2) : pattern.substring(i + 2, end));
+                    i = end < 0 ? pattern.length() : end + 2;
+                } else if (!Character.isLetterOrDigit(next)) {
+                    run.append(next);
+                    i += 2;
+                } else {
+                    // a class (\d), a code (\x41, \u0041, \0101, \cA), a property (\p{L}) or a backreference: not
+                    // taken as a literal, and none of its parameter characters are either
+                    flush(run, literals);
+                    i = escapeEnd(pattern, i);
+                }
+                continue;
+            }
+            switch (c) {
+                case '?', '*', '{' -> {
+                    // the preceding character is optional or repeated: drop it from the required run
+                    if (!run.isEmpty()) run.setLength(run.length() - 1);
+                    flush(run, literals);
+                    if (c == '{') {
+                        int close = pattern.indexOf('}', i);
+                        i = close < 0 ? pattern.length() : close + 1;
+                        continue;
+                    }
+                }
+                case '[' -> {
+                    flush(run, literals);
+                    i = classEnd(pattern, i + 1);
+                    if (i < 0) {
+                        return List.of(); // unterminated: leave it to the regex itself, over every candidate
+                    }
+                    // a quantifier on the class is harmless; the class itself is not a literal
+                    continue;
+                }
+                case '.', '^', '$', '+' -> flush(run, literals);
+                default -> run.append(c);
+            }
+            i++;
+        }
+        flush(run, literals);
+        return literals;
+    }
+
+    /** The index just past the escape sequence starting with the backslash at {@code start}. */
+    private static int escapeEnd(String pattern, int start) {
+        int i = start + 1;
+        char kind = pattern.charAt(i++);
+        int end = switch (kind) {
+            case 'x' -> i < pattern.length() && pattern.charAt(i) == '{' ? closing(pattern, i, '}') : i + 2;
+            case 'u' -> i + 4;
+            case 'c' -> i + 1;
+            case 'p', 'P' -> i < pattern.length() && pattern.charAt(i) == '{' ? closing(pattern, i, '}') : i + 1;
+            case 'N' -> closing(pattern, i, '}');
+            case 'k' -> closing(pattern, i, '>');
+            case '0' -> {
+                // up to three octal digits, the first of three at most 3
+                int digits = 0;
+                int max = i < pattern.length() && pattern.charAt(i) <= '3' ? 3 : 2;
+                while (digits < max && i + digits < pattern.length() && isOctal(pattern.charAt(i + digits))) {
+                    digits++;
+                }
+                yield i + digits;
+            }
+            default -> {
+                if (Character.isDigit(kind)) {
+                    // backreference: Java reads as many digits as could name a group
+                    while (i < pattern.length() && Character.isDigit(pattern.charAt(i))) i++;
+                }
+                yield i;
+            }
+        };
+        return Math.min(end, pattern.length());
+    }
+
+    /**
+     * The index just past the character class whose body starts at {@code i}, honouring escapes and nested classes,
+     * or -1 if the class is never closed.
+     */
+    private static int classEnd(String pattern, int i) {
+        int nesting = 1;
+        if (i < pattern.length() && pattern.charAt(i) == '^') i++;
+        if (i < pattern.length() && pattern.charAt(i) == ']') i++; // a leading ] is literal
+        while (i < pattern.length() && nesting > 0) {
+            char c = pattern.charAt(i++);
+            if (c == '\\') i++;
+            else if (c == '[') nesting++;
+            else if (c == ']') nesting--;
+        }
+        return nesting == 0 ? i : -1;
+    }
+
+    private static int closing(String pattern, int from, char close) {
+        int index = pattern.indexOf(close, from);
+        return index < 0 ? pattern.length() : index + 1;
+    }
+
+    private static boolean isOctal(char c) {
+        return c >= '0' && c <= '7';
+    }
+
+    private static void flush(StringBuilder run, List<String> literals) {
+        if (!run.isEmpty()) {
+            literals.add(lower(run.toString()));
+            run.setLength(0);
+        }
+    }
+}
@@ -68,7 +68,7 @@ public final class PhpAnalyzer extends TreeSitterAnalyzer {
         this.phpNamespaceQuery = createPhpNamespaceQuery();
     }
 
-    private PhpAnalyzer(IProject project, Language language, AnalyzerState state) {
+    PhpAnalyzer(IProject project, Language language, AnalyzerState state) {
         super(project, language, state);
         this.phpNamespaceQuery = createPhpNamespaceQuery();
     }
@@ -88,6 +88,11 @@ public final class PhpAnalyzer extends TreeSitterAnalyzer {
         return "treesitter/php.scm";
     }
 
+    @Override
+    protected String getCallQueryResource() {
+        return "treesitter/calls/php.scm";
+    }
+
     @Override
     protected LanguageSyntaxProfile getLanguageSyntaxProfile() {
         return PHP_SYNTAX_PROFILE;
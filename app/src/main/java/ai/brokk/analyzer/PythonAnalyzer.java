@@ -48,7 +48,7 @@ public final class PythonAnalyzer extends TreeSitterAnalyzer {
         super(project, Languages.PYTHON);
     }
 
-    private PythonAnalyzer(IProject project, AnalyzerState state) {
+    PythonAnalyzer(IProject project, AnalyzerState state) {
         super(project, Languages.PYTHON, state);
     }
 
@@ -67,6 +67,11 @@ public final class PythonAnalyzer extends TreeSitterAnalyzer {
         return "treesitter/python.scm";
     }
 
+    @Override
+    protected String getCallQueryResource() {
+        return "treesitter/calls/python.scm";
+    }
+
     @Override
     protected @Nullable CodeUnit createCodeUnit(
             ProjectFile file, String captureName, String simpleName, String packageName, String classChain) {
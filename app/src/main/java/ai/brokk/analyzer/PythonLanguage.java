@@ -57,7 +57,7 @@ public class PythonLanguage implements Language {
 
     @Override
     public IAnalyzer loadAnalyzer(IProject project) {
-        return createAnalyzer(project);
+        return TreeSitterAnalyzer.loadState(project, this, PythonAnalyzer::new);
     }
 
     @Override
@@ -0,0 +1,118 @@
+package ai.brokk.analyzer;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.zip.CRC32C;
+import org.jetbrains.annotations.Nullable;
+import org.treesitter.TSInputEdit;
+import org.treesitter.TSPoint;
+
+/**
+ * Remembers the content a file had just before Brokk rewrote it (agent edit blocks, the preview editor), so the next
+ * analyzer update can express the change as a tree-sitter {@link TSInputEdit} and reparse against the retained tree
+ * instead of from scratch.
+ *
+ * <p>Only the first recorded content per file is kept until an update consumes it, so several writes between two
+ * updates still diff against the content the analyzer last parsed. Hints are keyed by absolute path, so projects
+ * do not share them. The registry is bounded both in entries and in total characters, evicting the oldest hints first;
+ * a missing or stale hint (detected by comparing {@link #contentHash} with the analyzed content) simply means a full
+ * parse.
+ */
+public final class ReparseHints {
+    private static final int MAX_ENTRIES = 256;
+    private static final long MAX_TOTAL_CHARS = 8L * 1024 * 1024;
+
+    // Insertion order, so the oldest hints are evicted first; guarded by itself, as is totalChars
+    private static final LinkedHashMap<Path, String> previousContent = new LinkedHashMap<>();
+    private static long totalChars;
+
+    private ReparseHints() {}
+
+    /** Records {@code content} as what {@code file} contained before the write that is about to happen. */
+    public static void recordPreviousContent(ProjectFile file, String content) {
+        if (content.length() > MAX_TOTAL_CHARS) {
+            return;
+        }
+        var key = file.absPath().toAbsolutePath().normalize();
+        synchronized (previousContent) {
+            if (previousContent.putIfAbsent(key, content) != null) {
+                return;
+            }
+            totalChars += content.length();
+            var oldest = previousContent.entrySet().iterator();
+            while (previousContent.size() > MAX_ENTRIES || totalChars > MAX_TOTAL_CHARS) {
+                totalChars -= oldest.next().getValue().length();
+                oldest.remove();
+            }
+        }
+    }
+
+    /** Removes and returns the recorded previous content of {@code file}, if any. */
+    static @Nullable String take(ProjectFile file) {
+        var key = file.absPath().toAbsolutePath().normalize();
+        synchronized (previousContent) {
+            var content = previousContent.remove(key);
+            if (content != null) {
+                totalChars -= content.length();
+            }
+            return content;
+        }
+    }
+
+    /** Length-qualified CRC32C of the (BOM-stripped) bytes an analysis was run on. */
+    static long contentHash(byte[] bytes) {
+        var crc = new CRC32C();
+        crc.update(bytes);
+        return ((long) bytes.length << 32) | crc.getValue();
+    }
+
+    /**
+     * Describes the change from {@code oldBytes} to {@code newBytes} as a single edit spanning everything between their
+     * common prefix and common suffix, or {@code null} if the contents are identical.
+     */
+    static @Nullable TSInputEdit computeEdit(byte[] oldBytes, byte[] newBytes) {
+        int max = Math.min(oldBytes.length, newBytes.length);
+        int prefix = 0;
+        while (prefix < max && oldBytes[prefix] == newBytes[prefix]) prefix++;
+        if (prefix == oldBytes.length && prefix == newBytes.length) {
+            return null;
+        }
+        // keep edit boundaries on UTF-8 character boundaries
+        while (prefix > 0 && isContinuationByte(oldBytes, prefix)) prefix--;
+
+        int suffix = 0;
+        int maxSuffix = max - prefix;
+        while (suffix < maxSuffix
+                && oldBytes[oldBytes.length - 1 - suffix] == newBytes[newBytes.length - 1 - suffix]) {
+            suffix++;
+        }
+        while (suffix > 0 && isContinuationByte(oldBytes, oldBytes.length - suffix)) suffix--;
+
+        int oldEnd = oldBytes.length - suffix;
+        int newEnd = newBytes.length - suffix;
+        return new TSInputEdit(
+                prefix,
+                oldEnd,
+                newEnd,
+                pointAt(oldBytes, prefix),
+                pointAt(oldBytes, oldEnd),
+                pointAt(newBytes, newEnd));
+    }
+
+    private static boolean isContinuationByte(byte[] bytes, int index) {
+        return index < bytes.length && (bytes[index] & 0xC0) == 0x80;
+    }
+
+    /** Row and byte column of {@code offset}, as tree-sitter counts them. */
+    private static TSPoint pointAt(byte[] bytes, int offset) {
+        int row = 0;
+        int lineStart = 0;
+        for (int i = 0; i < offset; i++) {
+            if (bytes[i] == '\n') {
+                row++;
+                lineStart = i + 1;
+            }
+        }
+        return new TSPoint(row, offset - lineStart);
+    }
+}
@@ -44,7 +44,7 @@ public final class RustAnalyzer extends TreeSitterAnalyzer {
         super(project, Languages.RUST);
     }
 
-    private RustAnalyzer(IProject project, AnalyzerState state) {
+    RustAnalyzer(IProject project, AnalyzerState state) {
         super(project, Languages.RUST, state);
     }
 
@@ -63,6 +63,11 @@ public final class RustAnalyzer extends TreeSitterAnalyzer {
         return "treesitter/rust.scm";
     }
 
+    @Override
+    protected String getCallQueryResource() {
+        return "treesitter/calls/rust.scm";
+    }
+
     @Override
     protected LanguageSyntaxProfile getLanguageSyntaxProfile() {
         return RS_SYNTAX_PROFILE;
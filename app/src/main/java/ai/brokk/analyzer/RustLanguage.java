@@ -61,7 +61,7 @@ public class RustLanguage implements Language {
 
     @Override
     public IAnalyzer loadAnalyzer(IProject project) {
-        return createAnalyzer(project);
+        return TreeSitterAnalyzer.loadState(project, this, RustAnalyzer::new);
     }
 
     @Override
@@ -15,7 +15,7 @@ public class ScalaAnalyzer extends TreeSitterAnalyzer {
         super(project, Languages.SCALA);
     }
 
-    private ScalaAnalyzer(IProject project, AnalyzerState state) {
+    ScalaAnalyzer(IProject project, AnalyzerState state) {
         super(project, Languages.SCALA, state);
     }
 
@@ -24,6 +24,11 @@ public class ScalaAnalyzer extends TreeSitterAnalyzer {
         return new ScalaAnalyzer(getProject(), state);
     }
 
+    /** Entry point for {@link ai.brokk.analyzer.scala.ScalaLanguage}, which lives outside this package. */
+    public static IAnalyzer loadState(IProject project) {
+        return loadState(project, Languages.SCALA, ScalaAnalyzer::new);
+    }
+
     @Override
     protected TSLanguage createTSLanguage() {
         return new TreeSitterScala();
@@ -39,6 +44,11 @@ public class ScalaAnalyzer extends TreeSitterAnalyzer {
         return "treesitter/scala.scm";
     }
 
+    @Override
+    protected String getCallQueryResource() {
+        return "treesitter/calls/scala.scm";
+    }
+
     @Override
     protected @Nullable CodeUnit createCodeUnit(
             ProjectFile file, String captureName, String simpleName, String packageName, String classChain) {
@@ -15,18 +15,20 @@ import java.nio.file.Path;
 import java.time.Instant;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.NavigableSet;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
@@ -36,6 +38,7 @@ import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
@@ -44,6 +47,8 @@ import java.util.stream.Stream;
 import org.jetbrains.annotations.Nullable;
 import org.pcollections.HashTreePMap;
 import org.pcollections.PMap;
+import org.pcollections.PSortedSet;
+import org.pcollections.TreePSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.treesitter.*;
@@ -55,7 +60,13 @@ import org.treesitter.*;
  * <p>Subclasses provide the language–specific bits: which Tree-sitter grammar, which file extensions, which query, and
  * how to map a capture to a {@link CodeUnit}.
  */
-public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider, SourceCodeProvider, TypeAliasProvider {
+public abstract class TreeSitterAnalyzer
+        implements IAnalyzer,
+                CallGraphProvider,
+                IdentifierIndexProvider,
+                SkeletonProvider,
+                SourceCodeProvider,
+                TypeAliasProvider {
     protected static final Logger log = LoggerFactory.getLogger(TreeSitterAnalyzer.class);
     // Native library loading is assumed automatic by the io.github.bonede.tree_sitter library.
 
@@ -93,6 +104,7 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
         return parser;
     });
     private final ThreadLocal<TSQuery> query;
+    private final ThreadLocal<Optional<TSQuery>> callQuery = ThreadLocal.withInitial(this::createCallQuery);
 
     /**
      * Gets the thread-local query for use in subclass overrides.
@@ -111,9 +123,19 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
      * @param topLevelCodeUnits the top-level code units.
      * @param parsedTree the corresponding parse tree.
      * @param importStatements imports found on this file.
+     * @param contentHash {@link ReparseHints#contentHash} of the content the file was analyzed from, used to check
+     *     that a tree can serve as the base of an incremental reparse; 0 when unknown (e.g. restored from disk).
      */
     public record FileProperties(
-            List<CodeUnit> topLevelCodeUnits, @Nullable TSTree parsedTree, List<String> importStatements) {
+            List<CodeUnit> topLevelCodeUnits,
+            @Nullable TSTree parsedTree,
+            List<String> importStatements,
+            long contentHash) {
+
+        public FileProperties(
+                List<CodeUnit> topLevelCodeUnits, @Nullable TSTree parsedTree, List<String> importStatements) {
+            this(topLevelCodeUnits, parsedTree, importStatements, 0L);
+        }
 
         public static FileProperties empty() {
             return new FileProperties(Collections.emptyList(), null, Collections.emptyList());
@@ -121,12 +143,37 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
     }
 
     /**
-     * Read-only index of symbol keys with efficient prefix scan.
+     * Read-only index of symbol keys with efficient prefix scan. Keys are ordered case-insensitively (ties broken by
+     * natural order, so keys differing only in case are all retained) and held in a persistent set so that incremental
+     * updates only touch the keys that changed.
      */
-    record SymbolKeyIndex(NavigableSet<String> keys) {
+    record SymbolKeyIndex(PSortedSet<String> keys) {
+
+        static final Comparator<String> ORDER =
+                String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+        static SymbolKeyIndex of(Collection<String> keys) {
+            return new SymbolKeyIndex(TreePSet.from(ORDER, keys));
+        }
+
+        SymbolKeyIndex minusAll(Collection<String> removed) {
+            return removed.isEmpty() ? this : new SymbolKeyIndex(keys.minusAll(removed));
+        }
+
+        SymbolKeyIndex plusAll(Collection<String> added) {
+            return added.isEmpty() ? this : new SymbolKeyIndex(keys.plusAll(added));
+        }
 
         Iterable<String> tailFrom(String fromInclusive) {
-            return () -> keys.tailSet(fromInclusive, true).iterator();
+            // step back over keys that equal fromInclusive ignoring case but sort before it in natural order
+            String start = fromInclusive;
+            for (String prev = keys.lower(start);
+                    prev != null && String.CASE_INSENSITIVE_ORDER.compare(prev, fromInclusive) == 0;
+                    prev = keys.lower(prev)) {
+                start = prev;
+            }
+            var from = start;
+            return () -> keys.tailSet(from, true).iterator();
         }
 
         Iterable<String> all() {
@@ -138,12 +185,127 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
         }
     }
 
+    /**
+     * N-gram indexes that pre-filter searches: trigrams over fqNames (regex and substring search), trigrams over symbol
+     * keys (autocomplete substrings) and ordered letter pairs within symbol keys (all-caps CamelCase autocomplete).
+     */
+    record SearchIndex(NGramIndex fqNames, NGramIndex symbolKeys, NGramIndex symbolLetterPairs) {
+
+        static SearchIndex of(Collection<String> fqNames, Collection<String> symbolKeys) {
+            return new SearchIndex(
+                    NGramIndex.trigrams(fqNames),
+                    NGramIndex.trigrams(symbolKeys),
+                    NGramIndex.letterPairs(symbolKeys));
+        }
+
+        SearchIndex withChanges(
+                Collection<String> removedFqNames,
+                Collection<String> addedFqNames,
+                Collection<String> removedKeys,
+                Collection<String> addedKeys) {
+            return new SearchIndex(
+                    fqNames.withChanges(removedFqNames, addedFqNames),
+                    symbolKeys.withChanges(removedKeys, addedKeys),
+                    symbolLetterPairs.withChanges(removedKeys, addedKeys));
+        }
+    }
+
+    /**
+     * Immutable analyzer snapshot.
+     *
+     * <p>{@code codeUnitsByFile} and {@code symbolsByFile} form a reverse index from each file to the
+     * {@code codeUnitState} keys and {@code symbolIndex} keys that its analysis contributed to, so that an incremental
+     * update can retract a file's contributions without scanning the whole project. {@code codeUnitsByFile} includes
+     * parents declared in other files whose children lists contain units from the file.
+     *
+     * <p>{@code definitionsByFqName} maps every known fqName (declarations and children alike) to its code units, so
+     * exact lookups do not have to scan the project.
+     */
     protected record AnalyzerState(
             PMap<String, List<CodeUnit>> symbolIndex,
             PMap<CodeUnit, CodeUnitProperties> codeUnitState,
             PMap<ProjectFile, FileProperties> fileState,
+            PMap<ProjectFile, Set<CodeUnit>> codeUnitsByFile,
+            PMap<ProjectFile, Set<String>> symbolsByFile,
+            PMap<String, List<CodeUnit>> definitionsByFqName,
             SymbolKeyIndex symbolKeyIndex,
-            long snapshotEpochNanos) {}
+            SearchIndex searchIndex,
+            CallIndex callIndex,
+            IdentifierIndex identifierIndex,
+            long snapshotEpochNanos) {
+
+        /** Builds a state from its primary maps, deriving the per-file reverse index and the symbol key index. */
+        static AnalyzerState of(
+                Map<String, List<CodeUnit>> symbolIndex,
+                Map<CodeUnit, CodeUnitProperties> codeUnitState,
+                Map<ProjectFile, FileProperties> fileState,
+                Map<ProjectFile, List<CallIndex.CallRef>> callsByFile,
+                Map<ProjectFile, String[]> identifiersByFile,
+                long snapshotEpochNanos) {
+            var codeUnitsByFile = new HashMap<ProjectFile, Set<CodeUnit>>();
+            codeUnitState.forEach((cu, props) -> {
+                codeUnitsByFile.computeIfAbsent(cu.source(), f -> new HashSet<>()).add(cu);
+                for (var child : props.children()) {
+                    if (!child.source().equals(cu.source())) {
+                        codeUnitsByFile
+                                .computeIfAbsent(child.source(), f -> new HashSet<>())
+                                .add(cu);
+                    }
+                }
+            });
+            var symbolsByFile = new HashMap<ProjectFile, Set<String>>();
+            symbolIndex.forEach((symbol, cus) -> {
+                for (var cu : cus) {
+                    symbolsByFile.computeIfAbsent(cu.source(), f -> new HashSet<>()).add(symbol);
+                }
+            });
+            var definitions = new HashMap<String, Set<CodeUnit>>();
+            codeUnitState.forEach((cu, props) -> {
+                definitions.computeIfAbsent(cu.fqName(), n -> new LinkedHashSet<>()).add(cu);
+                for (var child : props.children()) {
+                    definitions
+                            .computeIfAbsent(child.fqName(), n -> new LinkedHashSet<>())
+                            .add(child);
+                }
+            });
+            var definitionsByFqName = new HashMap<String, List<CodeUnit>>(definitions.size() * 2);
+            definitions.forEach((fqName, cus) -> definitionsByFqName.put(fqName, List.copyOf(cus)));
+
+            return new AnalyzerState(
+                    HashTreePMap.from(symbolIndex),
+                    HashTreePMap.from(codeUnitState),
+                    HashTreePMap.from(fileState),
+                    HashTreePMap.from(freezeValues(codeUnitsByFile)),
+                    HashTreePMap.from(freezeValues(symbolsByFile)),
+                    HashTreePMap.from(definitionsByFqName),
+                    SymbolKeyIndex.of(symbolIndex.keySet()),
+                    SearchIndex.of(definitionsByFqName.keySet(), symbolIndex.keySet()),
+                    CallIndex.of(callsByFile),
+                    IdentifierIndex.of(identifiersByFile),
+                    snapshotEpochNanos);
+        }
+
+        AnalyzerState withFileState(PMap<ProjectFile, FileProperties> newFileState) {
+            return new AnalyzerState(
+                    symbolIndex,
+                    codeUnitState,
+                    newFileState,
+                    codeUnitsByFile,
+                    symbolsByFile,
+                    definitionsByFqName,
+                    symbolKeyIndex,
+                    searchIndex,
+                    callIndex,
+                    identifierIndex,
+                    snapshotEpochNanos);
+        }
+
+        private static <K, V> Map<K, Set<V>> freezeValues(Map<K, Set<V>> map) {
+            var frozen = new HashMap<K, Set<V>>(map.size() * 2);
+            map.forEach((k, v) -> frozen.put(k, Set.copyOf(v)));
+            return frozen;
+        }
+    }
 
     // Timestamp of the last successful full-project update (epoch nanos)
     private final AtomicLong lastUpdateEpochNanos = new AtomicLong(0L);
@@ -154,6 +316,30 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
     private final Language language;
     protected final Set<Path> normalizedExcludedPaths;
 
+    /**
+     * When set to {@code true}, analyzers drop each parse tree once its captures have been processed and re-parse files
+     * on demand (see {@link #treeOf}) instead, trading CPU for native memory on very large projects.
+     */
+    public static final String TREELESS_PROPERTY = "brokk.analyzer.treeless";
+
+    private static final int REPARSED_TREE_CACHE_SIZE = Integer.getInteger("brokk.analyzer.treeCacheSize", 64);
+    // Rough native footprint of a tree-sitter tree per byte of source it was parsed from
+    static final int ESTIMATED_TREE_BYTES_PER_SOURCE_BYTE = 8;
+
+    private final boolean retainTrees = !Boolean.getBoolean(TREELESS_PROPERTY);
+
+    /** A tree parsed on demand for a file whose tree is not retained in the state. */
+    private record ReparsedTree(TSTree tree, long contentHash) {}
+
+    // Bounded LRU of on-demand parses; the state of a snapshot never changes, so entries stay valid for its lifetime
+    private final Map<ProjectFile, ReparsedTree> reparsedTrees =
+            Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ProjectFile, ReparsedTree> eldest) {
+                    return size() > REPARSED_TREE_CACHE_SIZE;
+                }
+            });
+
     /**
      * Stores information about a definition found by a query match, including associated modifier keywords and
      * decorators.
@@ -181,7 +367,10 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
             Map<CodeUnit, CodeUnitProperties> codeUnitState,
             Map<String, List<CodeUnit>> codeUnitsBySymbol,
             List<String> importStatements,
-            TSTree parsedTree) {}
+            TSTree parsedTree,
+            long contentHash,
+            List<CallIndex.CallRef> calls,
+            String[] identifiers) {}
 
     // Timing metrics for constructor-run analysis are tracked via a local Timing record instance.
     private record ConstructionTiming(
@@ -239,9 +428,10 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
 
         // Debug log using SLF4J
         log.debug(
-                "Initializing TreeSitterAnalyzer for language: {}, query resource: {}",
+                "Initializing TreeSitterAnalyzer for language: {}, query resource: {}, retain trees: {}",
                 this.language,
-                getQueryResource());
+                getQueryResource(),
+                retainTrees);
 
         var validExtensions = this.language.getExtensions();
         log.trace("Filtering project files for extensions: {}", validExtensions);
@@ -275,6 +465,8 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
         var localSymbolIndex = new ConcurrentHashMap<String, List<CodeUnit>>();
         var localCodeUnitState = new ConcurrentHashMap<CodeUnit, CodeUnitProperties>();
         var localFileState = new ConcurrentHashMap<ProjectFile, FileProperties>();
+        var localCalls = new ConcurrentHashMap<ProjectFile, List<CallIndex.CallRef>>();
+        var localIdentifiers = new ConcurrentHashMap<ProjectFile, String[]>();
         List<CompletableFuture<?>> futures = new ArrayList<>();
         // Executors: virtual threads for I/O/parsing, single-thread for ingestion
         try (var ioExecutor = ExecutorServiceUtil.newVirtualThreadExecutor("ts-io-", IO_VT_CAP);
@@ -297,7 +489,9 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
                                         timing,
                                         localSymbolIndex,
                                         localCodeUnitState,
-                                        localFileState),
+                                        localFileState,
+                                        localCalls,
+                                        localIdentifiers),
                                 ingestExecutor)
                         .whenComplete((ignored, ex) -> {
                             if (ex == null) {
@@ -333,17 +527,8 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
         var snapshotInstant = Instant.now();
         long snapshotNanos = snapshotInstant.getEpochSecond() * 1_000_000_000L + snapshotInstant.getNano();
 
-        // Precompute a read-only navigable index of symbol keys for efficient prefix scans
-        var keySet = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
-        keySet.addAll(localSymbolIndex.keySet());
-        var symbolKeyIndex = new SymbolKeyIndex(Collections.unmodifiableNavigableSet(keySet));
-
-        this.state = new AnalyzerState(
-                HashTreePMap.from(localSymbolIndex),
-                HashTreePMap.from(localCodeUnitState),
-                HashTreePMap.from(localFileState),
-                symbolKeyIndex,
-                snapshotNanos);
+        this.state = AnalyzerState.of(
+                localSymbolIndex, localCodeUnitState, localFileState, localCalls, localIdentifiers, snapshotNanos);
 
         // Log summary of file processing results
         int totalAttempted = totalFilesAttempted.get();
@@ -448,13 +633,36 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
                         e -> new FileProperties(
                                 e.getValue().topLevelCodeUnits(),
                                 null,
-                                e.getValue().importStatements())));
-        this.state = new AnalyzerState(
-                current.symbolIndex(),
-                current.codeUnitState(),
-                HashTreePMap.from(newFileState),
-                current.symbolKeyIndex(),
-                current.snapshotEpochNanos());
+                                e.getValue().importStatements(),
+                                e.getValue().contentHash())));
+        this.state = current.withFileState(HashTreePMap.from(newFileState));
+        reparsedTrees.clear();
+    }
+
+    /**
+     * Writes the current snapshot (minus parse trees) to {@link Language#getStoragePath(IProject)} so the next session
+     * can start from it instead of re-parsing the whole project.
+     */
+    public void saveState() throws IOException {
+        TreeSitterStateIO.save(this.state, language, language.getStoragePath(project));
+    }
+
+    /**
+     * Restores the snapshot written by {@link #saveState()} and brings it up to date through the mtime-based
+     * {@link #update()}. Like {@link Language#loadAnalyzer(IProject)}, this throws when there is no usable snapshot
+     * (missing, corrupt, or an obsolete format), and the caller is expected to fall back to a full build.
+     */
+    protected static IAnalyzer loadState(
+            IProject project,
+            Language language,
+            BiFunction<IProject, AnalyzerState, ? extends TreeSitterAnalyzer> snapshotFactory) {
+        AnalyzerState persisted;
+        try {
+            persisted = TreeSitterStateIO.load(language.getStoragePath(project), language, project.getRoot());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return snapshotFactory.apply(project, persisted).update();
     }
 
     /**
@@ -525,8 +733,115 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
         return fileProperties(file).importStatements();
     }
 
+    /**
+     * The parse tree of an analyzed file, or null if the file is not part of this analysis. When the tree is not
+     * retained (tree-less mode, {@link #clearCaches()}, or a snapshot restored from disk) the file is re-parsed from
+     * disk and kept in a small LRU. A re-parse only stands in for the analyzed content: if the file has changed since
+     * this snapshot analyzed it, its byte ranges would not match the tree, so the result is null until the next update.
+     */
     protected @Nullable TSTree treeOf(ProjectFile file) {
-        return fileProperties(file).parsedTree();
+        var current = this.state;
+        var props = current.fileState().get(file);
+        if (props == null) {
+            return null;
+        }
+        var retained = props.parsedTree();
+        return retained != null ? retained : reparsedTree(file, props, current.snapshotEpochNanos());
+    }
+
+    private @Nullable TSTree reparsedTree(ProjectFile file, FileProperties props, long snapshotEpochNanos) {
+        var cached = reparsedTrees.get(file);
+        if (cached != null && (props.contentHash() == 0L || cached.contentHash() == props.contentHash())) {
+            return cached.tree();
+        }
+        byte[] bytes;
+        try {
+            if (props.contentHash() == 0L) {
+                // restored from disk without a hash; trust only a file untouched since the snapshot was taken
+                long mtimeNanos = Files.getLastModifiedTime(file.absPath()).to(TimeUnit.NANOSECONDS);
+                if (mtimeNanos > snapshotEpochNanos - MTIME_EPSILON_NANOS) {
+                    log.debug("{} changed since it was analyzed; not re-parsing it for this snapshot", file);
+                    return null;
+                }
+            }
+            bytes = TextCanonicalizer.stripUtf8Bom(Files.readAllBytes(file.absPath()));
+        } catch (IOException e) {
+            log.debug("Unable to re-parse {}: {}", file, e.getMessage());
+            return null;
+        }
+        long contentHash = ReparseHints.contentHash(bytes);
+        if (props.contentHash() != 0L && contentHash != props.contentHash()) {
+            log.debug("{} changed since it was analyzed; not re-parsing it for this snapshot", file);
+            return null;
+        }
+        var tree = getTSParser().parseString(null, new String(bytes, StandardCharsets.UTF_8));
+        reparsedTrees.put(file, new ReparsedTree(tree, contentHash));
+        return tree;
+    }
+
+    /**
+     * Whether this analyzer keeps every file's parse tree in its state. False when {@link #TREELESS_PROPERTY} was set
+     * at construction.
+     */
+    public boolean retainsTrees() {
+        return retainTrees;
+    }
+
+    /**
+     * Estimates the memory this analyzer holds: parse trees off-heap (from the size of the source they were parsed
+     * from) and the declaration state with its indexes on-heap. Cheap enough for logging, but not exact.
+     */
+    public CodeBaseMetrics.MemoryUsage memoryUsage() {
+        var current = this.state;
+        int trees = 0;
+        long treeSourceBytes = 0;
+        for (var props : current.fileState().values()) {
+            if (props.parsedTree() != null) {
+                trees++;
+                treeSourceBytes += props.contentHash() >>> 32;
+            }
+        }
+        synchronized (reparsedTrees) {
+            for (var reparsed : reparsedTrees.values()) {
+                trees++;
+                treeSourceBytes += reparsed.contentHash() >>> 32;
+            }
+        }
+        return new CodeBaseMetrics.MemoryUsage(
+                trees, treeSourceBytes * ESTIMATED_TREE_BYTES_PER_SOURCE_BYTE, estimateHeapBytes(current));
+    }
+
+    private static long estimateHeapBytes(AnalyzerState state) {
+        // per-object overheads are ballpark figures for a 64-bit JVM with compressed oops
+        final long entry = 48; // persistent map node plus key/value references
+        final long codeUnit = 96; // CodeUnit with its cached fqName
+        long bytes = 0;
+        for (var e : state.codeUnitState().entrySet()) {
+            var props = e.getValue();
+            bytes += entry + codeUnit + 3 * 32 + 8L * props.children().size() + 40L * props.ranges().size();
+            for (var signature : props.signatures()) bytes += stringBytes(signature);
+        }
+        for (var e : state.symbolIndex().entrySet()) {
+            bytes += 2 * entry + stringBytes(e.getKey()) + 8L * e.getValue().size();
+        }
+        for (var e : state.fileState().entrySet()) {
+            var props = e.getValue();
+            bytes += 2 * entry + 8L * props.topLevelCodeUnits().size();
+            for (var imp : props.importStatements()) bytes += stringBytes(imp);
+        }
+        for (var e : state.definitionsByFqName().entrySet()) {
+            bytes += entry + 8L * e.getValue().size();
+        }
+        // key index, n-gram postings and the per-file reverse index hold only references to the entries above
+        bytes += entry * ((long) state.symbolKeyIndex().size() * 4 + state.codeUnitState().size());
+        // identifier tokens are interned across files, so count one array slot per token and the map entry per file
+        bytes += 4 * state.identifierIndex().tokenCount()
+                + (long) entry * state.identifierIndex().byFile().size();
+        return bytes;
+    }
+
+    private static long stringBytes(String s) {
+        return 40L + s.length();
     }
 
     /* ---------- IAnalyzer ---------- */
@@ -535,6 +850,11 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
         return Set.of(language);
     }
 
+    @Override
+    public CodeBaseMetrics getMetrics() {
+        return IAnalyzer.super.getMetrics().withMemoryUsage(Map.of(language, memoryUsage()));
+    }
+
     @Override
     public Optional<String> getSkeletonHeader(CodeUnit cu) {
         return Optional.of(reconstructFullSkeleton(cu, true));
@@ -544,15 +864,22 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
     public Optional<CodeUnit> getDefinition(String fqName) {
         final String normalizedFqName = normalizeFullName(fqName);
 
-        List<CodeUnit> matches = uniqueCodeUnitList().stream()
-                .filter(cu -> cu.fqName().equals(normalizedFqName))
-                .toList();
+        return lookupDefinition(this.state, normalizedFqName);
+    }
 
-        if (matches.isEmpty()) {
-            return Optional.empty();
+    @Override
+    public Map<String, CodeUnit> getDefinitions(Collection<String> fqNames) {
+        var current = this.state;
+        var result = new HashMap<String, CodeUnit>();
+        for (var fqName : fqNames) {
+            lookupDefinition(current, normalizeFullName(fqName)).ifPresent(cu -> result.put(fqName, cu));
         }
+        return result;
+    }
 
-        return matches.stream().sorted(DEFINITION_COMPARATOR).findFirst();
+    private Optional<CodeUnit> lookupDefinition(AnalyzerState current, String normalizedFqName) {
+        return current.definitionsByFqName().getOrDefault(normalizedFqName, List.of()).stream()
+                .min(DEFINITION_COMPARATOR);
     }
 
     @Override
@@ -572,33 +899,45 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
         if (originalPattern.equals(".*")) {
             return uniqueCodeUnitList();
         }
-        var anonPredicate = new Predicate<CodeUnit>() {
-            @Override
-            public boolean test(CodeUnit codeUnit) {
-                return !isAnonymousStructure(codeUnit.fqName());
-            }
-        };
+        var current = this.state;
+        var fqNameIndex = current.searchIndex().fqNames();
 
         if (fallbackPattern != null) {
             // Fallback to simple case-insensitive substring matching
-            return uniqueCodeUnitList().stream()
-                    .filter(cu -> cu.fqName().toLowerCase(Locale.ROOT).contains(fallbackPattern))
-                    .filter(anonPredicate)
-                    .toList();
+            return matchDefinitions(
+                    current,
+                    fqNameIndex.candidates(fallbackPattern),
+                    fqName -> fqName.toLowerCase(Locale.ROOT).contains(fallbackPattern));
         } else if (compiledPattern != null) {
-            // Primary search using compiled regex pattern
-            return uniqueCodeUnitList().stream()
-                    .filter(cu -> compiledPattern.matcher(cu.fqName()).find())
-                    .filter(anonPredicate)
-                    .toList();
+            // Primary search using compiled regex pattern, pre-filtered by the literals every match must contain
+            boolean literalSafe = (compiledPattern.flags() & (Pattern.COMMENTS | Pattern.LITERAL)) == 0;
+            var candidates = literalSafe
+                    ? fqNameIndex.candidates(NGramIndex.requiredLiterals(compiledPattern.pattern()))
+                    : null;
+            return matchDefinitions(current, candidates, fqName -> compiledPattern.matcher(fqName).find());
         } else {
-            return uniqueCodeUnitList().stream()
-                    .filter(cu -> cu.fqName().toLowerCase(Locale.ROOT).contains(originalPattern))
-                    .filter(anonPredicate)
-                    .toList();
+            return matchDefinitions(
+                    current,
+                    fqNameIndex.candidates(originalPattern.toLowerCase(Locale.ROOT)),
+                    fqName -> fqName.toLowerCase(Locale.ROOT).contains(originalPattern));
         }
     }
 
+    /**
+     * Code units whose fqName satisfies {@code matches}, testing only {@code candidateFqNames} when the n-gram index
+     * produced them and every known fqName otherwise.
+     */
+    private List<CodeUnit> matchDefinitions(
+            AnalyzerState current, @Nullable Collection<String> candidateFqNames, Predicate<String> matches) {
+        var definitions = current.definitionsByFqName();
+        Collection<String> fqNames = candidateFqNames != null ? candidateFqNames : definitions.keySet();
+        return fqNames.stream()
+                .filter(matches)
+                .filter(fqName -> !isAnonymousStructure(fqName))
+                .flatMap(fqName -> definitions.getOrDefault(fqName, List.of()).stream())
+                .toList();
+    }
+
     @Override
     public List<CodeUnit> autocompleteDefinitions(String query) {
         if (query.isEmpty()) {
@@ -639,29 +978,33 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
             }
         }
 
-        // Generic scan: accept substring or CamelCase camel-hump matches.
-        // Skip symbols already covered by the prefix optimization to avoid duplicate work.
-        Iterable<String> allKeysIterable = current.symbolKeyIndex().all();
-        for (String symbol : allKeysIterable) {
+        // Generic matches: substrings via the symbol-key trigram index (full scan for queries shorter than a trigram),
+        // and for all-caps ASCII queries CamelCase matches via the letter-pair index, whose candidates include every
+        // substring match too. Symbols already covered by the prefix optimization are skipped; the rest are visited
+        // in key order.
+        var matchedSymbols = new TreeSet<>(SymbolKeyIndex.ORDER);
+        Collection<String> candidates;
+        if (camelCasePattern == null) {
+            candidates = current.searchIndex().symbolKeys().candidates(lowerCaseQuery);
+        } else if (query.chars().allMatch(c -> c < 128)) {
+            candidates = current.searchIndex().symbolLetterPairs().candidates(lowerCaseQuery);
+        } else {
+            candidates = null; // a non-ASCII capital breaks the runs the pairs are taken from
+        }
+        Iterable<String> scan = candidates != null ? candidates : current.symbolKeyIndex().all();
+        for (String symbol : scan) {
             String symbolLower = symbol.toLowerCase(Locale.ROOT);
-
             if (usePrefixOptimization && symbolLower.startsWith(lowerCaseQuery)) {
                 continue; // already collected by prefix scan
             }
-
-            boolean matches = false;
-            if (symbolLower.contains(lowerCaseQuery)) {
-                matches = true;
-            } else if (isAllUpper
-                    && camelCasePattern != null
-                    && camelCasePattern.matcher(symbol).find()) {
-                matches = true;
-            }
-
-            if (matches) {
-                results.addAll(current.symbolIndex().getOrDefault(symbol, List.of()));
+            if (symbolLower.contains(lowerCaseQuery)
+                    || (camelCasePattern != null && camelCasePattern.matcher(symbol).find())) {
+                matchedSymbols.add(symbol);
             }
         }
+        for (String symbol : matchedSymbols) {
+            results.addAll(current.symbolIndex().getOrDefault(symbol, List.of()));
+        }
 
         // Fallback for very short queries (single letter): include any declarations with FQNs containing the query.
         if (query.length() == 1) {
@@ -977,6 +1320,28 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
      */
     protected abstract String getQueryResource();
 
+    /**
+     * Class-path resource for the call-site query (e.g. {@code "treesitter/calls/python.scm"}), or null if call sites
+     * are not extracted for this language. The query captures the invoked identifier as {@code @call.name} and, where
+     * it is a plain identifier, the receiver as {@code @call.receiver}.
+     */
+    protected @Nullable String getCallQueryResource() {
+        return null;
+    }
+
+    private Optional<TSQuery> createCallQuery() {
+        var resource = getCallQueryResource();
+        if (resource == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new TSQuery(getTSLanguage(), loadResource(resource)));
+        } catch (RuntimeException e) {
+            log.warn("Unable to load call query {}; call graph disabled for {}", resource, language.name(), e);
+            return Optional.empty();
+        }
+    }
+
     /**
      * Defines the general type of skeleton that should be built for a given capture.
      */
@@ -1274,15 +1639,31 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
             byte[] fileBytes,
             TSParser localParser,
             @Nullable TreeSitterAnalyzer.ConstructionTiming timing) {
+        return analyzeFileContent(file, fileBytes, localParser, timing, null);
+    }
+
+    /**
+     * Analyzes a single file from the provided bytes. When {@code editedTree} is given (a copy of the previous tree
+     * with the edit describing the change to {@code fileBytes} already applied), tree-sitter reparses incrementally,
+     * reusing every subtree outside the edited range.
+     */
+    private FileAnalysisResult analyzeFileContent(
+            ProjectFile file,
+            byte[] fileBytes,
+            TSParser localParser,
+            @Nullable TreeSitterAnalyzer.ConstructionTiming timing,
+            @Nullable TSTree editedTree) {
         log.trace("analyzeFileContent: Parsing file: {}", file);
         fileBytes = TextCanonicalizer.stripUtf8Bom(fileBytes);
+        long contentHash = ReparseHints.contentHash(fileBytes);
 
         String src = new String(fileBytes, StandardCharsets.UTF_8);
 
         // Check if file is binary early and skip processing if so
         if (BrokkFile.isBinary(src)) {
             log.debug("Skipping binary file: {}", file);
-            return new FileAnalysisResult(List.of(), Map.of(), Map.of(), List.of(), null);
+            return new FileAnalysisResult(
+                    List.of(), Map.of(), Map.of(), List.of(), null, 0L, List.of(), IdentifierIndex.NO_TOKENS);
         }
 
         final byte[] finalFileBytes = fileBytes; // For use in lambdas
@@ -1296,7 +1677,7 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
         List<String> localImportStatements = new ArrayList<>(); // For collecting import lines
 
         long __parseStart = System.nanoTime();
-        TSTree tree = localParser.parseString(null, src);
+        TSTree tree = localParser.parseString(editedTree, src);
         long __parseEnd = System.nanoTime();
         if (timing != null) {
             timing.parseStageNanos().addAndGet(__parseEnd - __parseStart);
@@ -1313,7 +1694,15 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
                 timing.processStageFirstStartNanos().accumulateAndGet(__processStart, Math::min);
                 timing.processStageLastEndNanos().accumulateAndGet(__processEnd, Math::max);
             }
-            return new FileAnalysisResult(List.of(), Map.of(), Map.of(), List.of(), tree);
+            return new FileAnalysisResult(
+                    List.of(),
+                    Map.of(),
+                    Map.of(),
+                    List.of(),
+                    tree,
+                    contentHash,
+                    List.of(),
+                    IdentifierIndex.tokenize(fileBytes));
         }
         // Log root node type
         String rootNodeType = rootNode.getType();
@@ -1732,6 +2121,9 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
         }
         var finalLocalTopLevelCUs = localTopLevelCUs.stream().distinct().toList();
 
+        var calls = extractCalls(rootNode, fileBytes, finalLocalSourceRanges);
+        var identifiers = IdentifierIndex.tokenize(fileBytes);
+
         long __processEnd = System.nanoTime();
         if (timing != null) {
             timing.processStageNanos().addAndGet(__processEnd - __processStart);
@@ -1743,7 +2135,85 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
                 Collections.unmodifiableMap(localStates),
                 localCodeUnitsBySymbol,
                 Collections.unmodifiableList(localImportStatements),
-                tree);
+                tree,
+                contentHash,
+                calls,
+                identifiers);
+    }
+
+    /**
+     * Runs the call-site query over a parsed file and attributes each call to the innermost named code unit that
+     * contains it, preferring functions over the classes and fields around them. Calls outside any code unit (e.g.
+     * module-level script code) are not recorded.
+     */
+    private List<CallIndex.CallRef> extractCalls(
+            TSNode rootNode, byte[] fileBytes, Map<CodeUnit, List<Range>> rangesByCodeUnit) {
+        var maybeQuery = callQuery.get();
+        if (maybeQuery.isEmpty() || rangesByCodeUnit.isEmpty()) {
+            return List.of();
+        }
+        var callQuery = maybeQuery.get();
+        var containers = rangesByCodeUnit.entrySet().stream()
+                .filter(e -> !e.getKey().isModule() && !isAnonymousStructure(e.getKey().fqName()))
+                .toList();
+
+        // name node start byte -> call, so overlapping patterns for the same call collapse into one entry
+        var callsByStart = new TreeMap<Integer, CallIndex.CallRef>();
+        var cursor = new TSQueryCursor();
+        cursor.exec(callQuery, rootNode);
+        var match = new TSQueryMatch();
+        while (cursor.nextMatch(match)) {
+            TSNode nameNode = null;
+            TSNode receiverNode = null;
+            for (var capture : match.getCaptures()) {
+                var node = capture.getNode();
+                if (node == null || node.isNull()) continue;
+                switch (callQuery.getCaptureNameForId(capture.getIndex())) {
+                    case "call.name" -> nameNode = node;
+                    case "call.receiver" -> receiverNode = node;
+                    case "call.super" -> {
+                        if (SUPER_RECEIVERS.contains(textSlice(node, fileBytes).strip())) receiverNode = node;
+                    }
+                    default -> {}
+                }
+            }
+            if (nameNode == null) continue;
+            int start = nameNode.getStartByte();
+            var existing = callsByStart.get(start);
+            if (existing != null && (existing.receiver() != null || receiverNode == null)) continue;
+
+            var caller = innermostContainer(containers, start);
+            if (caller == null) continue;
+            var callee = textSlice(nameNode, fileBytes).strip();
+            if (callee.isEmpty()) continue;
+            var receiver = receiverNode == null ? null : textSlice(receiverNode, fileBytes).strip();
+            callsByStart.put(
+                    start,
+                    new CallIndex.CallRef(
+                            caller, callee, receiver, nameNode.getStartPoint().getRow()));
+        }
+        return List.copyOf(callsByStart.values());
+    }
+
+    private static @Nullable CodeUnit innermostContainer(
+            List<Map.Entry<CodeUnit, List<Range>>> containers, int offset) {
+        CodeUnit best = null;
+        int bestSize = Integer.MAX_VALUE;
+        boolean bestIsFunction = false;
+        for (var entry : containers) {
+            var cu = entry.getKey();
+            for (var range : entry.getValue()) {
+                if (offset < range.startByte() || offset >= range.endByte()) continue;
+                int size = range.endByte() - range.startByte();
+                boolean better = cu.isFunction() != bestIsFunction ? cu.isFunction() : size < bestSize;
+                if (best == null || better) {
+                    best = cu;
+                    bestSize = size;
+                    bestIsFunction = cu.isFunction();
+                }
+            }
+        }
+        return best;
     }
 
     /**
@@ -2709,7 +3179,11 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
             @Nullable ConstructionTiming timing,
             Map<String, List<CodeUnit>> targetSymbolIndex,
             Map<CodeUnit, CodeUnitProperties> targetCodeUnitState,
-            Map<ProjectFile, FileProperties> targetFileState) {
+            Map<ProjectFile, FileProperties> targetFileState,
+            Map<ProjectFile, List<CallIndex.CallRef>> targetCalls,
+            Map<ProjectFile, String[]> targetIdentifiers) {
+        // identifiers are indexed even for files without declarations, since those can still contain usages
+        targetIdentifiers.put(pf, analysisResult.identifiers());
         if (analysisResult.topLevelCUs().isEmpty()
                 && analysisResult.codeUnitState().isEmpty()) {
             log.trace("analyzeFileDeclarations returned empty result for file: {}", pf);
@@ -2718,60 +3192,28 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
         long __mergeStart = System.nanoTime();
 
         // Merge symbol index
-        analysisResult.codeUnitsBySymbol().forEach((symbol, cus) -> {
-            targetSymbolIndex.compute(symbol, (s, existing) -> {
-                if (existing == null || existing.isEmpty()) {
-                    return List.copyOf(cus);
-                }
-                if (cus.isEmpty()) return existing;
-                var merged = new ArrayList<CodeUnit>(existing.size() + cus.size());
-                merged.addAll(existing);
-                for (CodeUnit cu : cus) {
-                    if (!merged.contains(cu)) merged.add(cu);
-                }
-                return List.copyOf(merged);
-            });
-        });
+        analysisResult
+                .codeUnitsBySymbol()
+                .forEach((symbol, cus) ->
+                        targetSymbolIndex.compute(symbol, (s, existing) -> mergeSymbolEntries(existing, cus)));
 
         // Merge code unit state
-        analysisResult.codeUnitState().forEach((cu, newState) -> {
-            targetCodeUnitState.compute(cu, (k, existing) -> {
-                if (existing == null) {
-                    return new CodeUnitProperties(newState.children(), newState.signatures(), newState.ranges());
-                }
-                List<CodeUnit> mergedKids = existing.children();
-                var newKids = newState.children();
-                if (!newKids.isEmpty()) {
-                    var tmp = new ArrayList<CodeUnit>(existing.children().size() + newKids.size());
-                    tmp.addAll(existing.children());
-                    for (var kid : newKids) if (!tmp.contains(kid)) tmp.add(kid);
-                    mergedKids = List.copyOf(tmp);
-                }
-                List<String> mergedSigs = existing.signatures();
-                var newSigs = newState.signatures();
-                if (!newSigs.isEmpty()) {
-                    var tmp = new ArrayList<String>(existing.signatures().size() + newSigs.size());
-                    tmp.addAll(existing.signatures());
-                    for (var s : newSigs) if (!tmp.contains(s)) tmp.add(s);
-                    mergedSigs = List.copyOf(tmp);
-                }
-                List<Range> mergedRanges = existing.ranges();
-                var newRngs = newState.ranges();
-                if (!newRngs.isEmpty()) {
-                    var tmp = new ArrayList<Range>(existing.ranges().size() + newRngs.size());
-                    tmp.addAll(existing.ranges());
-                    for (var r : newRngs) if (!tmp.contains(r)) tmp.add(r);
-                    mergedRanges = List.copyOf(tmp);
-                }
-                return new CodeUnitProperties(mergedKids, mergedSigs, mergedRanges);
-            });
-        });
+        analysisResult
+                .codeUnitState()
+                .forEach((cu, newState) ->
+                        targetCodeUnitState.compute(cu, (k, existing) -> mergeCodeUnitProperties(existing, newState)));
 
         // Update file state
         targetFileState.put(
                 pf,
                 new FileProperties(
-                        analysisResult.topLevelCUs(), analysisResult.parsedTree(), analysisResult.importStatements()));
+                        analysisResult.topLevelCUs(),
+                        retainTrees ? analysisResult.parsedTree() : null,
+                        analysisResult.importStatements(),
+                        analysisResult.contentHash()));
+        if (!analysisResult.calls().isEmpty()) {
+            targetCalls.put(pf, analysisResult.calls());
+        }
 
         long __mergeEnd = System.nanoTime();
         if (timing != null) {
@@ -2781,6 +3223,51 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
         }
     }
 
+    private static List<CodeUnit> mergeSymbolEntries(@Nullable List<CodeUnit> existing, List<CodeUnit> cus) {
+        if (existing == null || existing.isEmpty()) {
+            return List.copyOf(cus);
+        }
+        if (cus.isEmpty()) return existing;
+        var merged = new ArrayList<CodeUnit>(existing.size() + cus.size());
+        merged.addAll(existing);
+        for (CodeUnit cu : cus) {
+            if (!merged.contains(cu)) merged.add(cu);
+        }
+        return List.copyOf(merged);
+    }
+
+    private static CodeUnitProperties mergeCodeUnitProperties(
+            @Nullable CodeUnitProperties existing, CodeUnitProperties newState) {
+        if (existing == null) {
+            return new CodeUnitProperties(newState.children(), newState.signatures(), newState.ranges());
+        }
+        List<CodeUnit> mergedKids = existing.children();
+        var newKids = newState.children();
+        if (!newKids.isEmpty()) {
+            var tmp = new ArrayList<CodeUnit>(existing.children().size() + newKids.size());
+            tmp.addAll(existing.children());
+            for (var kid : newKids) if (!tmp.contains(kid)) tmp.add(kid);
+            mergedKids = List.copyOf(tmp);
+        }
+        List<String> mergedSigs = existing.signatures();
+        var newSigs = newState.signatures();
+        if (!newSigs.isEmpty()) {
+            var tmp = new ArrayList<String>(existing.signatures().size() + newSigs.size());
+            tmp.addAll(existing.signatures());
+            for (var s : newSigs) if (!tmp.contains(s)) tmp.add(s);
+            mergedSigs = List.copyOf(tmp);
+        }
+        List<Range> mergedRanges = existing.ranges();
+        var newRngs = newState.ranges();
+        if (!newRngs.isEmpty()) {
+            var tmp = new ArrayList<Range>(existing.ranges().size() + newRngs.size());
+            tmp.addAll(existing.ranges());
+            for (var r : newRngs) if (!tmp.contains(r)) tmp.add(r);
+            mergedRanges = List.copyOf(tmp);
+        }
+        return new CodeUnitProperties(mergedKids, mergedSigs, mergedRanges);
+    }
+
     /* ---------- incremental updates ---------- */
 
     /**
@@ -2801,15 +3288,13 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
 
         int total = relevantFiles.size();
         var reanalyzedCount = new AtomicInteger(0);
+        var incrementalCount = new AtomicInteger(0);
         var deletedCount = new AtomicInteger(0);
-        var cleanupNanos = new AtomicLong(0L);
         var reanalyzeNanos = new AtomicLong(0L);
-
         final var base = this.state;
-        var newSymbolIndex = new ConcurrentHashMap<>(base.symbolIndex());
-        var newCodeUnitState = new ConcurrentHashMap<>(base.codeUnitState());
-        var newFileState = new ConcurrentHashMap<>(base.fileState());
 
+        // Re-analyze surviving files in parallel; parsing dominates the cost of an update.
+        var results = new ConcurrentHashMap<ProjectFile, FileAnalysisResult>();
         int parallelism = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), total));
         List<CompletableFuture<Void>> futures = new ArrayList<>();
 
@@ -2817,54 +3302,25 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
             for (var file : relevantFiles) {
                 futures.add(CompletableFuture.runAsync(
                         () -> {
-                            long cleanupStart = System.nanoTime();
-
-                            // Remove old entries for this file
-                            Predicate<CodeUnit> fromFile = cu -> cu.source().equals(file);
-                            newFileState.remove(file);
-                            // Purge CodeUnitState entries for this file and prune children lists
-                            newCodeUnitState.keySet().removeIf(fromFile);
-                            newCodeUnitState.replaceAll((parent, state) -> {
-                                var filteredKids = state.children().stream()
-                                        .filter(fromFile.negate())
-                                        .toList();
-                                return filteredKids.equals(state.children())
-                                        ? state
-                                        : new CodeUnitProperties(
-                                                List.copyOf(filteredKids), state.signatures(), state.ranges());
-                            });
-                            // Purge from symbol index
-                            var symbolsToRemove = new ArrayList<String>();
-                            newSymbolIndex.replaceAll((symbol, cus) -> {
-                                var remaining =
-                                        cus.stream().filter(fromFile.negate()).toList();
-                                if (remaining.isEmpty()) symbolsToRemove.add(symbol);
-                                return remaining;
-                            });
-                            for (var s : symbolsToRemove) newSymbolIndex.remove(s);
-
-                            cleanupNanos.addAndGet(System.nanoTime() - cleanupStart);
-
-                            // Re-analyze if file still exists
-                            if (Files.exists(file.absPath())) {
-                                long reanStart = System.nanoTime();
-                                try {
-                                    var parser = getTSParser();
-                                    byte[] bytes = readFileBytes(file, null);
-                                    var analysisResult = analyzeFileContent(file, bytes, parser, null);
-                                    mergeAnalysisResultIntoMaps(
-                                            file, analysisResult, null, newSymbolIndex, newCodeUnitState, newFileState);
-                                    reanalyzedCount.incrementAndGet();
-                                } catch (UncheckedIOException e) {
-                                    log.warn("IO error re-analysing {}: {}", file, e.getMessage());
-                                } catch (RuntimeException e) {
-                                    log.error("Runtime error re-analysing {}: {}", file, e.getMessage(), e);
-                                } finally {
-                                    reanalyzeNanos.addAndGet(System.nanoTime() - reanStart);
-                                }
-                            } else {
+                            if (!Files.exists(file.absPath())) {
                                 deletedCount.incrementAndGet();
                                 log.debug("File {} deleted; state cleaned.", file);
+                                return;
+                            }
+                            long reanStart = System.nanoTime();
+                            try {
+                                var parser = getTSParser();
+                                byte[] bytes = readFileBytes(file, null);
+                                var editedTree = editedPreviousTree(base, file, bytes);
+                                if (editedTree != null) incrementalCount.incrementAndGet();
+                                results.put(file, analyzeFileContent(file, bytes, parser, null, editedTree));
+                                reanalyzedCount.incrementAndGet();
+                            } catch (UncheckedIOException e) {
+                                log.warn("IO error re-analysing {}: {}", file, e.getMessage());
+                            } catch (RuntimeException e) {
+                                log.error("Runtime error re-analysing {}: {}", file, e.getMessage(), e);
+                            } finally {
+                                reanalyzeNanos.addAndGet(System.nanoTime() - reanStart);
                             }
                         },
                         executor));
@@ -2874,37 +3330,243 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
                         .join();
         }
 
-        // Build new immutable snapshot and return a new analyzer instance
+        // Apply the changes as structural edits on the persistent maps: only entries reachable from the
+        // changed files through the reverse index are touched.
+        long applyStart = System.nanoTime();
+        var edit = new StateEdit(base, retainTrees);
+        for (var file : relevantFiles) {
+            edit.retract(file);
+            var analysisResult = results.get(file);
+            if (analysisResult != null) {
+                edit.contribute(file, analysisResult);
+            }
+        }
+        long applyNanos = System.nanoTime() - applyStart;
+
         var snapshotInstant = Instant.now();
         long snapshotNanos = snapshotInstant.getEpochSecond() * 1_000_000_000L + snapshotInstant.getNano();
-
-        var nextKeySet = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
-        nextKeySet.addAll(newSymbolIndex.keySet());
-        var nextSymbolKeyIndex = new SymbolKeyIndex(Collections.unmodifiableNavigableSet(nextKeySet));
-
-        var nextState = new AnalyzerState(
-                HashTreePMap.from(newSymbolIndex),
-                HashTreePMap.from(newCodeUnitState),
-                HashTreePMap.from(newFileState),
-                nextSymbolKeyIndex,
-                snapshotNanos);
+        var nextState = edit.build(snapshotNanos);
 
         long totalMs = System.currentTimeMillis() - overallStartMs;
-        long cleanupMs = TimeUnit.NANOSECONDS.toMillis(cleanupNanos.get());
+        long applyMs = TimeUnit.NANOSECONDS.toMillis(applyNanos);
         long reanalyzeMs = TimeUnit.NANOSECONDS.toMillis(reanalyzeNanos.get());
         log.debug(
-                "[{}] TreeSitter incremental update: relevantFiles={}, reanalyzed={}, deleted={}, cleanup={} ms, reanalyze={} ms, total={} ms",
+                "[{}] TreeSitter incremental update: relevantFiles={}, reanalyzed={} (incremental parse={}), deleted={}, apply={} ms, reanalyze={} ms, total={} ms",
                 language.name(),
                 total,
                 reanalyzedCount.get(),
+                incrementalCount.get(),
                 deletedCount.get(),
-                cleanupMs,
+                applyMs,
                 reanalyzeMs,
                 totalMs);
 
         return newSnapshot(nextState);
     }
 
+    /**
+     * If Brokk recorded what {@code file} contained before its last write and that content is exactly what the
+     * retained tree was parsed from, returns a copy of that tree with the change applied as a {@link TSInputEdit};
+     * otherwise null, meaning a full parse. The snapshot's own tree is never mutated.
+     */
+    private @Nullable TSTree editedPreviousTree(AnalyzerState base, ProjectFile file, byte[] newBytes) {
+        var previousContent = ReparseHints.take(file);
+        if (previousContent == null) return null;
+        var props = base.fileState().get(file);
+        if (props == null) return null;
+        var previousTree = props.parsedTree();
+        if (previousTree == null) {
+            // tree-less mode: an on-demand parse of the same content is just as good a base
+            var reparsed = reparsedTrees.get(file);
+            if (reparsed == null || reparsed.contentHash() != props.contentHash()) return null;
+            previousTree = reparsed.tree();
+        }
+
+        var oldBytes = TextCanonicalizer.stripUtf8Bom(previousContent.getBytes(StandardCharsets.UTF_8));
+        if (ReparseHints.contentHash(oldBytes) != props.contentHash()) {
+            log.trace("Reparse hint for {} does not match the analyzed content; parsing from scratch", file);
+            return null;
+        }
+        var editedTree = previousTree.copy();
+        var inputEdit = ReparseHints.computeEdit(oldBytes, TextCanonicalizer.stripUtf8Bom(newBytes));
+        if (inputEdit != null) {
+            editedTree.edit(inputEdit);
+        }
+        return editedTree;
+    }
+
+    /**
+     * Accumulates incremental changes to an {@link AnalyzerState}. Each operation is proportional to the number of
+     * entries the affected file contributed, never to the size of the project.
+     */
+    private static final class StateEdit {
+        private PMap<String, List<CodeUnit>> symbolIndex;
+        private PMap<CodeUnit, CodeUnitProperties> codeUnitState;
+        private PMap<ProjectFile, FileProperties> fileState;
+        private PMap<ProjectFile, Set<CodeUnit>> codeUnitsByFile;
+        private PMap<ProjectFile, Set<String>> symbolsByFile;
+        private CallIndex callIndex;
+        private IdentifierIndex identifierIndex;
+        private final Set<String> removedKeys = new HashSet<>();
+        private final Set<String> addedKeys = new HashSet<>();
+        private final PMap<String, List<CodeUnit>> baseSymbolIndex;
+        private final SymbolKeyIndex baseKeyIndex;
+        private final PMap<String, List<CodeUnit>> baseDefinitions;
+        private final SearchIndex baseSearchIndex;
+        // fqNames whose definitions may have changed, with any code units newly contributed under them
+        private final Map<String, Set<CodeUnit>> touchedDefinitions = new HashMap<>();
+        private final boolean retainTrees;
+
+        StateEdit(AnalyzerState base, boolean retainTrees) {
+            this.retainTrees = retainTrees;
+            this.symbolIndex = base.symbolIndex();
+            this.codeUnitState = base.codeUnitState();
+            this.fileState = base.fileState();
+            this.codeUnitsByFile = base.codeUnitsByFile();
+            this.symbolsByFile = base.symbolsByFile();
+            this.callIndex = base.callIndex();
+            this.identifierIndex = base.identifierIndex();
+            this.baseSymbolIndex = base.symbolIndex();
+            this.baseKeyIndex = base.symbolKeyIndex();
+            this.baseDefinitions = base.definitionsByFqName();
+            this.baseSearchIndex = base.searchIndex();
+        }
+
+        /** Removes everything the given file previously contributed. */
+        void retract(ProjectFile file) {
+            fileState = fileState.minus(file);
+            callIndex = callIndex.withFile(file, List.of());
+            identifierIndex = identifierIndex.withoutFile(file);
+
+            for (var cu : codeUnitsByFile.getOrDefault(file, Set.of())) {
+                var props = codeUnitState.get(cu);
+                touchDefinition(cu, false);
+                if (props != null) props.children().forEach(kid -> touchDefinition(kid, false));
+                if (cu.source().equals(file)) {
+                    codeUnitState = codeUnitState.minus(cu);
+                    continue;
+                }
+                // parent declared elsewhere: prune the children that came from this file
+                if (props == null) continue;
+                var filteredKids = props.children().stream()
+                        .filter(kid -> !kid.source().equals(file))
+                        .toList();
+                if (filteredKids.size() != props.children().size()) {
+                    codeUnitState = codeUnitState.plus(
+                            cu, new CodeUnitProperties(List.copyOf(filteredKids), props.signatures(), props.ranges()));
+                }
+            }
+            codeUnitsByFile = codeUnitsByFile.minus(file);
+
+            for (var symbol : symbolsByFile.getOrDefault(file, Set.of())) {
+                var cus = symbolIndex.get(symbol);
+                if (cus == null) continue;
+                var remaining =
+                        cus.stream().filter(cu -> !cu.source().equals(file)).toList();
+                if (remaining.isEmpty()) {
+                    symbolIndex = symbolIndex.minus(symbol);
+                    addedKeys.remove(symbol);
+                    removedKeys.add(symbol);
+                } else if (remaining.size() != cus.size()) {
+                    symbolIndex = symbolIndex.plus(symbol, remaining);
+                }
+            }
+            symbolsByFile = symbolsByFile.minus(file);
+        }
+
+        /** Merges a fresh analysis of the given file, mirroring {@code mergeAnalysisResultIntoMaps}. */
+        void contribute(ProjectFile file, FileAnalysisResult analysisResult) {
+            identifierIndex = identifierIndex.withFile(file, analysisResult.identifiers());
+            if (analysisResult.topLevelCUs().isEmpty()
+                    && analysisResult.codeUnitState().isEmpty()) {
+                log.trace("analyzeFileDeclarations returned empty result for file: {}", file);
+                return;
+            }
+
+            var symbols = new HashSet<String>();
+            analysisResult.codeUnitsBySymbol().forEach((symbol, cus) -> {
+                var existing = symbolIndex.get(symbol);
+                if (existing == null) {
+                    removedKeys.remove(symbol);
+                    addedKeys.add(symbol);
+                }
+                symbolIndex = symbolIndex.plus(symbol, mergeSymbolEntries(existing, cus));
+                if (!cus.isEmpty()) symbols.add(symbol);
+            });
+
+            analysisResult.codeUnitState().forEach((cu, newState) -> {
+                codeUnitState = codeUnitState.plus(cu, mergeCodeUnitProperties(codeUnitState.get(cu), newState));
+                touchDefinition(cu, true);
+                newState.children().forEach(kid -> touchDefinition(kid, true));
+            });
+
+            fileState = fileState.plus(
+                    file,
+                    new FileProperties(
+                            analysisResult.topLevelCUs(),
+                            retainTrees ? analysisResult.parsedTree() : null,
+                            analysisResult.importStatements(),
+                            analysisResult.contentHash()));
+            codeUnitsByFile =
+                    codeUnitsByFile.plus(file, Set.copyOf(analysisResult.codeUnitState().keySet()));
+            symbolsByFile = symbolsByFile.plus(file, Set.copyOf(symbols));
+            callIndex = callIndex.withFile(file, analysisResult.calls());
+        }
+
+        private void touchDefinition(CodeUnit cu, boolean contributed) {
+            var pending = touchedDefinitions.computeIfAbsent(cu.fqName(), n -> new LinkedHashSet<>());
+            if (contributed) pending.add(cu);
+        }
+
+        /** Whether the unit is still reachable as a codeUnitState key or as a child of one. */
+        private boolean isLive(CodeUnit cu) {
+            if (codeUnitState.containsKey(cu)) return true;
+            // children are contributed by the analysis of their own file, so only that file's parents can hold them
+            for (var parent : codeUnitsByFile.getOrDefault(cu.source(), Set.of())) {
+                var props = codeUnitState.get(parent);
+                if (props != null && props.children().contains(cu)) return true;
+            }
+            return false;
+        }
+
+        AnalyzerState build(long snapshotEpochNanos) {
+            var definitions = baseDefinitions;
+            var removedFqNames = new ArrayList<String>();
+            var addedFqNames = new ArrayList<String>();
+            for (var entry : touchedDefinitions.entrySet()) {
+                var fqName = entry.getKey();
+                boolean existed = baseDefinitions.containsKey(fqName);
+                var candidates = new LinkedHashSet<>(baseDefinitions.getOrDefault(fqName, List.of()));
+                candidates.addAll(entry.getValue());
+                var live = candidates.stream().filter(this::isLive).toList();
+                if (live.isEmpty()) {
+                    definitions = definitions.minus(fqName);
+                    if (existed) removedFqNames.add(fqName);
+                } else {
+                    definitions = definitions.plus(fqName, live);
+                    if (!existed) addedFqNames.add(fqName);
+                }
+            }
+            // net symbol key changes relative to the base snapshot
+            var netRemovedKeys =
+                    removedKeys.stream().filter(baseSymbolIndex::containsKey).toList();
+            var netAddedKeys =
+                    addedKeys.stream().filter(k -> !baseSymbolIndex.containsKey(k)).toList();
+            return new AnalyzerState(
+                    symbolIndex,
+                    codeUnitState,
+                    fileState,
+                    codeUnitsByFile,
+                    symbolsByFile,
+                    definitions,
+                    baseKeyIndex.minusAll(netRemovedKeys).plusAll(netAddedKeys),
+                    baseSearchIndex.withChanges(removedFqNames, addedFqNames, netRemovedKeys, netAddedKeys),
+                    callIndex,
+                    identifierIndex,
+                    snapshotEpochNanos);
+        }
+    }
+
     /**
      * Full-project incremental update: detect created/modified/deleted files using filesystem mtimes (nanos precision,
      * with a 300ms over-approximation buffer), then delegate to {@link #update(Set)}.
@@ -3135,6 +3797,189 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
         return false;
     }
 
+    /* ---------- IdentifierIndexProvider ---------- */
+
+    @Override
+    public Set<ProjectFile> filesToSearch(String identifier, Set<ProjectFile> files) {
+        if (!IdentifierIndex.isIndexable(identifier)) {
+            return files;
+        }
+        var index = this.state.identifierIndex();
+        var matching = index.filesWithPrefix(identifier);
+        return files.stream()
+                .filter(file -> matching.contains(file) || !index.contains(file))
+                .collect(Collectors.toSet());
+    }
+
+    /* ---------- CallGraphProvider ---------- */
+
+    // receivers that denote the caller's own class rather than another type
+    private static final Set<String> SELF_RECEIVERS = Set.of("this", "self", "cls");
+    // receivers that denote the caller's supertypes
+    private static final Set<String> SUPER_RECEIVERS = Set.of("super", "base");
+    // how many levels of supertypes a super call is resolved through
+    private static final int MAX_SUPERTYPE_DEPTH = 8;
+    private static final Pattern HEADER_IDENTIFIER = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+    // an unqualified name defined in more places than this, none of them near the caller, is left unresolved
+    private static final int MAX_AMBIGUOUS_TARGETS = 4;
+
+    @Override
+    public Map<String, List<CallSite>> getCallgraphTo(CodeUnit method, int depth) {
+        var current = this.state;
+        var lines = new HashMap<ProjectFile, List<String>>();
+        return walkCallGraph(method, depth, fqName -> {
+            var targets = current.definitionsByFqName().getOrDefault(fqName, List.of());
+            return targets.stream()
+                    .map(CodeUnit::identifier)
+                    .distinct()
+                    .flatMap(identifier -> current.callIndex().callsTo(identifier))
+                    .filter(ref -> resolveCall(current, ref).stream().anyMatch(cu -> cu.fqName().equals(fqName)))
+                    .map(ref -> new CallSite(ref.caller(), sourceLine(lines, ref)))
+                    .distinct()
+                    .toList();
+        });
+    }
+
+    @Override
+    public Map<String, List<CallSite>> getCallgraphFrom(CodeUnit method, int depth) {
+        var current = this.state;
+        var lines = new HashMap<ProjectFile, List<String>>();
+        return walkCallGraph(method, depth, fqName -> current.definitionsByFqName().getOrDefault(fqName, List.of())
+                .stream()
+                .flatMap(caller -> current.callIndex().callsFrom(caller).stream())
+                .flatMap(ref -> {
+                    var line = sourceLine(lines, ref);
+                    return resolveCall(current, ref).stream().map(target -> new CallSite(target, line));
+                })
+                .distinct()
+                .toList());
+    }
+
+    /**
+     * Breadth-first walk of up to {@code depth} levels from {@code method}, keyed by fqName so that overloads are
+     * treated together. Each visited method maps to its call sites; the far end of each site is visited next.
+     */
+    private static Map<String, List<CallSite>> walkCallGraph(
+            CodeUnit method, int depth, Function<String, List<CallSite>> edges) {
+        var result = new HashMap<String, List<CallSite>>();
+        var visited = new HashSet<String>();
+        List<String> frontier = List.of(method.fqName());
+        for (int level = 0; level < depth && !frontier.isEmpty(); level++) {
+            var next = new ArrayList<String>();
+            for (var fqName : frontier) {
+                if (!visited.add(fqName)) continue;
+                var sites = edges.apply(fqName);
+                if (sites.isEmpty()) continue;
+                result.put(fqName, sites);
+                sites.forEach(site -> next.add(site.target().fqName()));
+            }
+            frontier = next;
+        }
+        return result;
+    }
+
+    /**
+     * Resolves a call by name against the symbol index: a receiver naming a known type selects that type's methods and
+     * a super receiver the nearest supertype's; otherwise methods of the caller's own class win, then functions in the
+     * caller's file, then any function of that name as long as the name is not too ambiguous.
+     */
+    private static List<CodeUnit> resolveCall(AnalyzerState state, CallIndex.CallRef ref) {
+        var candidates = state.symbolIndex().getOrDefault(ref.callee(), List.of()).stream()
+                .filter(cu -> cu.isFunction() && cu.identifier().equals(ref.callee()))
+                .toList();
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+        var receiver = ref.receiver();
+        if (receiver != null && SUPER_RECEIVERS.contains(receiver)) {
+            return onSupertypes(state, ownerOf(ref.caller()), candidates);
+        }
+        if (receiver != null && !SELF_RECEIVERS.contains(receiver)) {
+            var onReceiverType = candidates.stream()
+                    .filter(cu -> receiver.equals(simpleOwnerName(cu)))
+                    .toList();
+            if (!onReceiverType.isEmpty()) return onReceiverType;
+        }
+        var callerOwner = ownerOf(ref.caller());
+        var sameOwner = candidates.stream()
+                .filter(cu -> callerOwner.equals(ownerOf(cu)))
+                .toList();
+        if (!sameOwner.isEmpty()) return sameOwner;
+        var sameFile = candidates.stream()
+                .filter(cu -> cu.source().equals(ref.caller().source()))
+                .toList();
+        if (!sameFile.isEmpty()) return sameFile;
+        return candidates.size() <= MAX_AMBIGUOUS_TARGETS ? candidates : List.of();
+    }
+
+    /**
+     * Walks the supertypes of {@code ownerFqName} breadth-first and returns the candidates declared on the nearest level
+     * that declares any. Supertypes are read off the class headers by simple name, so a super call into a type outside
+     * the project resolves to nothing rather than to the caller's own override.
+     */
+    private static List<CodeUnit> onSupertypes(AnalyzerState state, String ownerFqName, List<CodeUnit> candidates) {
+        var visited = new HashSet<String>();
+        List<CodeUnit> level = state.definitionsByFqName().getOrDefault(ownerFqName, List.of()).stream()
+                .filter(CodeUnit::isClass)
+                .toList();
+        for (int depth = 0; depth < MAX_SUPERTYPE_DEPTH && !level.isEmpty(); depth++) {
+            var names = new LinkedHashSet<String>();
+            for (var cls : level) {
+                if (visited.add(cls.fqName())) names.addAll(supertypeNames(state, cls));
+            }
+            var declared = candidates.stream()
+                    .filter(cu -> names.contains(simpleOwnerName(cu)))
+                    .toList();
+            if (!declared.isEmpty()) return declared;
+            level = names.stream()
+                    .flatMap(name -> state.symbolIndex().getOrDefault(name, List.of()).stream())
+                    .filter(cu -> cu.isClass() && names.contains(simpleOwnerName(cu)))
+                    .distinct()
+                    .toList();
+        }
+        return List.of();
+    }
+
+    /**
+     * Identifiers in a class header after the class's own name, e.g. {@code Base} and {@code Api} in
+     * {@code class A extends Base implements Api}.
+     */
+    private static Set<String> supertypeNames(AnalyzerState state, CodeUnit cls) {
+        var props = state.codeUnitState().get(cls);
+        if (props == null || props.signatures().isEmpty()) return Set.of();
+        var header = props.signatures().getFirst();
+        int brace = header.indexOf('{');
+        if (brace >= 0) header = header.substring(0, brace);
+        var ownName = simpleOwnerName(cls);
+        var names = new LinkedHashSet<String>();
+        boolean afterName = false;
+        var matcher = HEADER_IDENTIFIER.matcher(header);
+        while (matcher.find()) {
+            var token = matcher.group();
+            if (afterName && !token.equals(ownName)) names.add(token);
+            afterName |= token.equals(ownName);
+        }
+        return names;
+    }
+
+    /** The fqName of the class a code unit belongs to (the unit itself for classes). */
+    private static String ownerOf(CodeUnit cu) {
+        return cu.isClass() ? cu.fqName() : CodeUnit.toClassname(cu.fqName());
+    }
+
+    private static String simpleOwnerName(CodeUnit cu) {
+        var owner = cu.isClass() ? cu.shortName() : CodeUnit.toClassname(cu.shortName());
+        int cut = Math.max(owner.lastIndexOf('.'), owner.lastIndexOf('$'));
+        return owner.substring(cut + 1);
+    }
+
+    private static String sourceLine(Map<ProjectFile, List<String>> linesByFile, CallIndex.CallRef ref) {
+        var lines = linesByFile.computeIfAbsent(ref.caller().source(), file -> file.read()
+                .map(content -> content.lines().toList())
+                .orElse(List.of()));
+        return ref.line() < lines.size() ? lines.get(ref.line()).strip() : "";
+    }
+
     // Helper container to track depth alongside the matching CodeUnit
     private static final class CUWithDepth {
         final CodeUnit cu;
@@ -3165,6 +4010,64 @@ public abstract class TreeSitterAnalyzer implements IAnalyzer, SkeletonProvider,
         return Optional.ofNullable(best);
     }
 
+    /**
+     * Resolves every range against one flattened copy of the file's declarations, visited in the same pre-order as
+     * {@link #enclosingCodeUnit} so that ties resolve identically. A declaration that does not contain the range is
+     * skipped together with its subtree.
+     */
+    @Override
+    public List<Optional<CodeUnit>> enclosingCodeUnits(ProjectFile file, List<Range> ranges) {
+        var units = new ArrayList<CodeUnit>();
+        var unitRanges = new ArrayList<List<Range>>();
+        var depths = new ArrayList<Integer>();
+        var subtreeEnds = new ArrayList<Integer>();
+        for (var top : getTopLevelDeclarations(file)) {
+            flattenDeclarations(top, 0, units, unitRanges, depths, subtreeEnds);
+        }
+
+        var result = new ArrayList<Optional<CodeUnit>>(ranges.size());
+        for (var range : ranges) {
+            if (range.isEmpty()) {
+                result.add(Optional.empty());
+                continue;
+            }
+            CodeUnit best = null;
+            int bestDepth = -1;
+            int i = 0;
+            while (i < units.size()) {
+                if (unitRanges.get(i).stream().anyMatch(range::isContainedWithin)) {
+                    if (depths.get(i) > bestDepth) {
+                        best = units.get(i);
+                        bestDepth = depths.get(i);
+                    }
+                    i++;
+                } else {
+                    i = subtreeEnds.get(i);
+                }
+            }
+            result.add(Optional.ofNullable(best));
+        }
+        return result;
+    }
+
+    private void flattenDeclarations(
+            CodeUnit current,
+            int depth,
+            List<CodeUnit> units,
+            List<List<Range>> unitRanges,
+            List<Integer> depths,
+            List<Integer> subtreeEnds) {
+        int index = units.size();
+        units.add(current);
+        unitRanges.add(rangesOf(current));
+        depths.add(depth);
+        subtreeEnds.add(-1);
+        for (var child : childrenOf(current)) {
+            flattenDeclarations(child, depth + 1, units, unitRanges, depths, subtreeEnds);
+        }
+        subtreeEnds.set(index, units.size());
+    }
+
     private @Nullable CUWithDepth findDeepestEnclosing(CodeUnit current, Range range, int depth) {
         // If the range is not contained within this CU, skip
         boolean containsCurrent = rangesOf(current).stream().anyMatch(range::isContainedWithin);
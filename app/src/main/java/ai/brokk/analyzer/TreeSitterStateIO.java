@@ -0,0 +1,418 @@
+package ai.brokk.analyzer;
+
+import ai.brokk.util.AtomicWrites;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compact, versioned binary persistence for {@link TreeSitterAnalyzer.AnalyzerState}.
+ *
+ * <p>Everything except the native {@code TSTree}s is written: strings, files and code units are interned into tables
+ * and referenced by index, so a snapshot is a small fraction of the size of the equivalent JSON. Parse trees are not
+ * persisted; analyzers restored from disk behave as if {@link TreeSitterAnalyzer#clearCaches()} had been called.
+ *
+ * <p>The format is private to this class. Bump {@link #FORMAT_VERSION} whenever the layout or the semantics of the
+ * persisted state change; snapshots with any other version are rejected and the caller rebuilds from source.
+ */
+public final class TreeSitterStateIO {
+    private static final Logger log = LoggerFactory.getLogger(TreeSitterStateIO.class);
+
+    private static final int MAGIC = 0x42544153; // "BTAS"
+    static final int FORMAT_VERSION = 3;
+
+    private TreeSitterStateIO() {}
+
+    /**
+     * Atomically writes the given state to {@code target}.
+     *
+     * @param language the language the state belongs to; recorded so a snapshot is never loaded by the wrong analyzer
+     */
+    static void save(TreeSitterAnalyzer.AnalyzerState state, Language language, Path target) throws IOException {
+        long start = System.currentTimeMillis();
+        AtomicWrites.atomicSave(target, out -> {
+            var header = new DataOutputStream(out);
+            header.writeInt(MAGIC);
+            header.writeInt(FORMAT_VERSION);
+            header.writeUTF(language.internalName());
+            header.writeLong(state.snapshotEpochNanos());
+            header.flush();
+
+            var gzip = new GZIPOutputStream(out, 1 << 16);
+            var data = new DataOutputStream(new BufferedOutputStream(gzip, 1 << 16));
+            new Writer(data).write(state);
+            data.flush();
+            gzip.finish();
+        });
+        log.debug(
+                "[{}] Persisted analyzer snapshot to {} ({} files, {} code units) in {} ms",
+                language.name(),
+                target,
+                state.fileState().size(),
+                state.codeUnitState().size(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Reads a snapshot previously written by {@link #save}. Fails loudly when the file is missing, truncated, written
+     * for a different language or project root, or uses another format version.
+     */
+    static TreeSitterAnalyzer.AnalyzerState load(Path source, Language language, Path projectRoot)
+            throws IOException {
+        long start = System.currentTimeMillis();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(source), 1 << 16)) {
+            var header = new DataInputStream(in);
+            if (header.readInt() != MAGIC) {
+                throw new IOException("Not an analyzer snapshot: " + source);
+            }
+            int version = header.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported analyzer snapshot version %d (expected %d) in %s"
+                        .formatted(version, FORMAT_VERSION, source));
+            }
+            String persistedLanguage = header.readUTF();
+            if (!persistedLanguage.equals(language.internalName())) {
+                throw new IOException("Analyzer snapshot %s belongs to %s, not %s"
+                        .formatted(source, persistedLanguage, language.internalName()));
+            }
+            long snapshotEpochNanos = header.readLong();
+
+            var data = new DataInputStream(new BufferedInputStream(new GZIPInputStream(in, 1 << 16), 1 << 16));
+            var state = new Reader(data, projectRoot).read(snapshotEpochNanos);
+            log.debug(
+                    "[{}] Loaded analyzer snapshot from {} ({} files, {} code units) in {} ms",
+                    language.name(),
+                    source,
+                    state.fileState().size(),
+                    state.codeUnitState().size(),
+                    System.currentTimeMillis() - start);
+            return state;
+        }
+    }
+
+    /* ---------- writer ---------- */
+
+    private static final class Writer {
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final List<String> stringTable = new ArrayList<>();
+        private final Map<ProjectFile, Integer> files = new HashMap<>();
+        private final List<ProjectFile> fileTable = new ArrayList<>();
+        private final Map<CodeUnit, Integer> codeUnits = new HashMap<>();
+        private final List<CodeUnit> codeUnitTable = new ArrayList<>();
+
+        Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void write(TreeSitterAnalyzer.AnalyzerState state) throws IOException {
+            // First pass: intern everything so the tables can be written ahead of the sections that reference them.
+            state.fileState().forEach((file, props) -> {
+                internFile(file);
+                props.topLevelCodeUnits().forEach(this::internCodeUnit);
+                props.importStatements().forEach(this::internString);
+            });
+            state.codeUnitState().forEach((cu, props) -> {
+                internCodeUnit(cu);
+                props.children().forEach(this::internCodeUnit);
+                props.signatures().forEach(this::internString);
+            });
+            state.symbolIndex().forEach((symbol, cus) -> {
+                internString(symbol);
+                cus.forEach(this::internCodeUnit);
+            });
+            state.callIndex().byFile().forEach((file, calls) -> {
+                internFile(file);
+                for (var call : calls) {
+                    internCodeUnit(call.caller());
+                    internString(call.callee());
+                    if (call.receiver() != null) internString(call.receiver());
+                }
+            });
+            state.identifierIndex().byFile().forEach((file, tokens) -> {
+                internFile(file);
+                for (var token : tokens) internString(token);
+            });
+
+            // String table
+            out.writeInt(stringTable.size());
+            for (var s : stringTable) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            // File table
+            out.writeInt(fileTable.size());
+            for (var file : fileTable) {
+                out.writeInt(ref(strings, file.getRoot().toString()));
+                out.writeInt(ref(strings, file.getRelPath().toString()));
+            }
+
+            // Code unit table
+            out.writeInt(codeUnitTable.size());
+            for (var cu : codeUnitTable) {
+                out.writeInt(ref(files, cu.source()));
+                out.writeByte(cu.kind().ordinal());
+                out.writeInt(ref(strings, cu.packageName()));
+                out.writeInt(ref(strings, cu.shortName()));
+            }
+
+            // fileState
+            out.writeInt(state.fileState().size());
+            for (var entry : state.fileState().entrySet()) {
+                out.writeInt(ref(files, entry.getKey()));
+                writeCodeUnitRefs(entry.getValue().topLevelCodeUnits());
+                writeStringRefs(entry.getValue().importStatements());
+            }
+
+            // codeUnitState
+            out.writeInt(state.codeUnitState().size());
+            for (var entry : state.codeUnitState().entrySet()) {
+                var props = entry.getValue();
+                out.writeInt(ref(codeUnits, entry.getKey()));
+                writeCodeUnitRefs(props.children());
+                writeStringRefs(props.signatures());
+                out.writeInt(props.ranges().size());
+                for (var range : props.ranges()) {
+                    out.writeInt(range.startByte());
+                    out.writeInt(range.endByte());
+                    out.writeInt(range.startLine());
+                    out.writeInt(range.endLine());
+                    out.writeInt(range.commentStartByte());
+                }
+            }
+
+            // symbolIndex
+            out.writeInt(state.symbolIndex().size());
+            for (var entry : state.symbolIndex().entrySet()) {
+                out.writeInt(ref(strings, entry.getKey()));
+                writeCodeUnitRefs(entry.getValue());
+            }
+
+            // call sites, per file; a missing receiver is written as -1
+            var callsByFile = state.callIndex().byFile();
+            out.writeInt(callsByFile.size());
+            for (var entry : callsByFile.entrySet()) {
+                out.writeInt(ref(files, entry.getKey()));
+                out.writeInt(entry.getValue().size());
+                for (var call : entry.getValue()) {
+                    out.writeInt(ref(codeUnits, call.caller()));
+                    out.writeInt(ref(strings, call.callee()));
+                    var receiver = call.receiver();
+                    out.writeInt(receiver == null ? -1 : ref(strings, receiver));
+                    out.writeInt(call.line());
+                }
+            }
+
+            // identifier tokens, per file, in their sorted order
+            var identifiersByFile = state.identifierIndex().byFile();
+            out.writeInt(identifiersByFile.size());
+            for (var entry : identifiersByFile.entrySet()) {
+                out.writeInt(ref(files, entry.getKey()));
+                out.writeInt(entry.getValue().length);
+                for (var token : entry.getValue()) out.writeInt(ref(strings, token));
+            }
+        }
+
+        private void writeCodeUnitRefs(List<CodeUnit> cus) throws IOException {
+            out.writeInt(cus.size());
+            for (var cu : cus) out.writeInt(ref(codeUnits, cu));
+        }
+
+        private void writeStringRefs(List<String> values) throws IOException {
+            out.writeInt(values.size());
+            for (var s : values) out.writeInt(ref(strings, s));
+        }
+
+        private static <K> int ref(Map<K, Integer> table, K key) {
+            return Objects.requireNonNull(table.get(key), "value was not interned");
+        }
+
+        private void internString(String s) {
+            strings.computeIfAbsent(s, k -> {
+                stringTable.add(k);
+                return stringTable.size() - 1;
+            });
+        }
+
+        private void internFile(ProjectFile file) {
+            if (files.containsKey(file)) return;
+            internString(file.getRoot().toString());
+            internString(file.getRelPath().toString());
+            fileTable.add(file);
+            files.put(file, fileTable.size() - 1);
+        }
+
+        private void internCodeUnit(CodeUnit cu) {
+            if (codeUnits.containsKey(cu)) return;
+            internFile(cu.source());
+            internString(cu.packageName());
+            internString(cu.shortName());
+            codeUnitTable.add(cu);
+            codeUnits.put(cu, codeUnitTable.size() - 1);
+        }
+    }
+
+    /* ---------- reader ---------- */
+
+    private static final class Reader {
+        private static final CodeUnitType[] KINDS = CodeUnitType.values();
+
+        private final DataInputStream in;
+        private final Path projectRoot;
+        private String[] stringTable = new String[0];
+        private ProjectFile[] fileTable = new ProjectFile[0];
+        private CodeUnit[] codeUnitTable = new CodeUnit[0];
+
+        Reader(DataInputStream in, Path projectRoot) {
+            this.in = in;
+            this.projectRoot = projectRoot;
+        }
+
+        TreeSitterAnalyzer.AnalyzerState read(long snapshotEpochNanos) throws IOException {
+            stringTable = new String[readCount()];
+            for (int i = 0; i < stringTable.length; i++) {
+                byte[] bytes = new byte[readCount()];
+                in.readFully(bytes);
+                stringTable[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            fileTable = new ProjectFile[readCount()];
+            for (int i = 0; i < fileTable.length; i++) {
+                var root = Path.of(string(in.readInt()));
+                if (!root.equals(projectRoot)) {
+                    // The project was moved or the snapshot was copied from elsewhere; every entry would be stale.
+                    throw new IOException("Analyzer snapshot was written for " + root + ", not " + projectRoot);
+                }
+                var relPath = Path.of(string(in.readInt()));
+                fileTable[i] = new ProjectFile(root, relPath);
+            }
+
+            codeUnitTable = new CodeUnit[readCount()];
+            for (int i = 0; i < codeUnitTable.length; i++) {
+                var source = file(in.readInt());
+                int kind = in.readUnsignedByte();
+                if (kind >= KINDS.length) {
+                    throw new IOException("Corrupt analyzer snapshot: unknown code unit kind " + kind);
+                }
+                codeUnitTable[i] = new CodeUnit(source, KINDS[kind], string(in.readInt()), string(in.readInt()));
+            }
+
+            int fileCount = readCount();
+            var fileState = new HashMap<ProjectFile, TreeSitterAnalyzer.FileProperties>(fileCount * 2);
+            for (int i = 0; i < fileCount; i++) {
+                var file = file(in.readInt());
+                var topLevel = readCodeUnitRefs();
+                var imports = readStringRefs();
+                fileState.put(file, new TreeSitterAnalyzer.FileProperties(topLevel, null, imports));
+            }
+
+            int cuCount = readCount();
+            var codeUnitState = new HashMap<CodeUnit, CodeUnitProperties>(cuCount * 2);
+            for (int i = 0; i < cuCount; i++) {
+                var cu = codeUnitTable[in.readInt()];
+                var children = readCodeUnitRefs();
+                var signatures = readStringRefs();
+                int rangeCount = readCount();
+                var ranges = new ArrayList<IAnalyzer.Range>(rangeCount);
+                for (int r = 0; r < rangeCount; r++) {
+                    ranges.add(new IAnalyzer.Range(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt()));
+                }
+                codeUnitState.put(cu, new CodeUnitProperties(children, signatures, List.copyOf(ranges)));
+            }
+
+            int symbolCount = readCount();
+            var symbolIndex = new HashMap<String, List<CodeUnit>>(symbolCount * 2);
+            for (int i = 0; i < symbolCount; i++) {
+                symbolIndex.put(string(in.readInt()), readCodeUnitRefs());
+            }
+
+            int callFileCount = readCount();
+            var callsByFile = new HashMap<ProjectFile, List<CallIndex.CallRef>>(callFileCount * 2);
+            for (int i = 0; i < callFileCount; i++) {
+                var file = file(in.readInt());
+                int callCount = readCount();
+                var calls = new ArrayList<CallIndex.CallRef>(callCount);
+                for (int c = 0; c < callCount; c++) {
+                    var caller = codeUnit(in.readInt());
+                    var callee = string(in.readInt());
+                    int receiverIdx = in.readInt();
+                    var receiver = receiverIdx < 0 ? null : string(receiverIdx);
+                    calls.add(new CallIndex.CallRef(caller, callee, receiver, in.readInt()));
+                }
+                callsByFile.put(file, calls);
+            }
+
+            int identifierFileCount = readCount();
+            var identifiersByFile = new HashMap<ProjectFile, String[]>(identifierFileCount * 2);
+            for (int i = 0; i < identifierFileCount; i++) {
+                var file = file(in.readInt());
+                int tokenCount = readCount();
+                var tokens = new TreeSet<String>();
+                for (int t = 0; t < tokenCount; t++) tokens.add(string(in.readInt()));
+                identifiersByFile.put(file, IdentifierIndex.intern(tokens));
+            }
+
+            return TreeSitterAnalyzer.AnalyzerState.of(
+                    symbolIndex, codeUnitState, fileState, callsByFile, identifiersByFile, snapshotEpochNanos);
+        }
+
+        private int readCount() throws IOException {
+            int n = in.readInt();
+            if (n < 0) throw new IOException("Corrupt analyzer snapshot: negative count " + n);
+            return n;
+        }
+
+        private String string(int idx) throws IOException {
+            if (idx < 0 || idx >= stringTable.length) {
+                throw new IOException("Corrupt analyzer snapshot: string index " + idx + " out of range");
+            }
+            return stringTable[idx];
+        }
+
+        private ProjectFile file(int idx) throws IOException {
+            if (idx < 0 || idx >= fileTable.length) {
+                throw new IOException("Corrupt analyzer snapshot: file index " + idx + " out of range");
+            }
+            return fileTable[idx];
+        }
+
+        private List<CodeUnit> readCodeUnitRefs() throws IOException {
+            int n = readCount();
+            var result = new ArrayList<CodeUnit>(n);
+            for (int i = 0; i < n; i++) result.add(codeUnit(in.readInt()));
+            return List.copyOf(result);
+        }
+
+        private CodeUnit codeUnit(int idx) throws IOException {
+            if (idx < 0 || idx >= codeUnitTable.length) {
+                throw new IOException("Corrupt analyzer snapshot: code unit index " + idx + " out of range");
+            }
+            return codeUnitTable[idx];
+        }
+
+        private List<String> readStringRefs() throws IOException {
+            int n = readCount();
+            var result = new ArrayList<String>(n);
+            for (int i = 0; i < n; i++) result.add(string(in.readInt()));
+            return List.copyOf(result);
+        }
+    }
+}
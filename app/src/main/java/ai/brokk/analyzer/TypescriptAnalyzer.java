@@ -119,7 +119,7 @@ public final class TypescriptAnalyzer extends TreeSitterAnalyzer {
         super(project, Languages.TYPESCRIPT);
     }
 
-    private TypescriptAnalyzer(IProject project, AnalyzerState state) {
+    TypescriptAnalyzer(IProject project, AnalyzerState state) {
         super(project, Languages.TYPESCRIPT, state);
     }
 
@@ -142,6 +142,11 @@ public final class TypescriptAnalyzer extends TreeSitterAnalyzer {
         return "treesitter/typescript.scm";
     }
 
+    @Override
+    protected String getCallQueryResource() {
+        return "treesitter/calls/typescript.scm";
+    }
+
     @Override
     protected LanguageSyntaxProfile getLanguageSyntaxProfile() {
         return TS_SYNTAX_PROFILE;
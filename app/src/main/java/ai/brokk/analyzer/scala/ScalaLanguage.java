@@ -32,7 +32,7 @@ public class ScalaLanguage implements Language {
 
     @Override
     public IAnalyzer loadAnalyzer(IProject project) {
-        return createAnalyzer(project);
+        return ScalaAnalyzer.loadState(project);
     }
 
     @Override
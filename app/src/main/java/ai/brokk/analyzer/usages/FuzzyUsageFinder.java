@@ -8,17 +8,17 @@ import ai.brokk.agents.RelevanceClassifier;
 import ai.brokk.agents.RelevanceTask;
 import ai.brokk.analyzer.CodeUnit;
 import ai.brokk.analyzer.IAnalyzer;
+import ai.brokk.analyzer.IdentifierIndexProvider;
 import ai.brokk.analyzer.ProjectFile;
 import ai.brokk.tools.SearchTools;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jetbrains.annotations.Nullable;
@@ -81,8 +81,8 @@ public final class FuzzyUsageFinder {
                 .filter(cu -> cu.shortName().equals(identifier))
                 .collect(Collectors.toSet());
         var isUnique = matchingCodeUnits.size() == 1;
-        final Set<ProjectFile> candidateFiles = SearchTools.searchSubstrings(
-                List.of(searchPattern), analyzer.getProject().getAllFiles());
+        final Set<ProjectFile> candidateFiles =
+                SearchTools.searchSubstrings(List.of(searchPattern), filesToSearch(identifier));
 
         if (maxFiles < candidateFiles.size()) {
             // Case 1: Too many call sites
@@ -167,15 +167,31 @@ public final class FuzzyUsageFinder {
         return new FuzzyResult.Ambiguous(target.shortName(), matchingCodeUnits, finalHits);
     }
 
+    /**
+     * Files that can match a word-boundary search for {@code identifier}. When the analyzer indexes identifiers, files
+     * it has indexed without a matching token are skipped; everything else is still read and regex-confirmed.
+     */
+    private Set<ProjectFile> filesToSearch(String identifier) {
+        var allFiles = analyzer.getProject().getAllFiles();
+        return analyzer.as(IdentifierIndexProvider.class)
+                .map(index -> index.filesToSearch(identifier, allFiles))
+                .orElse(allFiles);
+    }
+
     /**
      * Extract raw usage hits from the given files by applying the Java regex searchPattern.
      *
      * <ul>
-     *   <li>Emits one UsageHit per regex match occurrence.
+     *   <li>Emits one UsageHit per enclosing code unit; hits are equal by enclosing unit, so only the first match in
+     *       each unit is kept.
      *   <li>Line numbers are 1-based.
      *   <li>Snippet contains 3 lines above and 3 lines below the matched line (when available).
      *   <li>Confidence is 1.0 by default; LLM will adjust if needed later.
      * </ul>
+     *
+     * <p>Each file is scanned once: match offsets are mapped to bytes and lines by a forward-only {@link
+     * OffsetScanner}, all matches are resolved with one {@link IAnalyzer#enclosingCodeUnits} call, and snippets are
+     * only built for the hits that are kept.
      */
     private Set<UsageHit> extractUsageHits(Set<ProjectFile> candidateFiles, String searchPattern) {
         var hits = new ConcurrentHashMap<UsageHit, Boolean>(); // no ConcurrentHashSet exists
@@ -195,55 +211,46 @@ public final class FuzzyUsageFinder {
                     return;
                 }
 
-                // Precompute line starts for fast offset->line mapping
-                var lines = content.split("\\R", -1); // keep trailing empty lines if present
-                int[] lineStarts = new int[lines.length];
-                int running = 0;
-                for (int i = 0; i < lines.length; i++) {
-                    lineStarts[i] = running;
-                    running += lines[i].length() + 1; // +1 for the '\n' separator
-                }
-
+                var scanner = new OffsetScanner(content);
+                var ranges = new ArrayList<IAnalyzer.Range>();
+                var charRanges = new ArrayList<int[]>();
                 var matcher = pattern.matcher(content);
                 while (matcher.find()) {
-                    int start = matcher.start();
-                    int end = matcher.end();
-
-                    // Get the substring before the match and find its byte length
-                    int startByte = content.substring(0, start).getBytes(StandardCharsets.UTF_8).length;
-                    int endByte = startByte + matcher.group().getBytes(StandardCharsets.UTF_8).length;
-
-                    // Binary search for the line index such that lineStarts[idx] <= start < next
-                    int lo = 0, hi = lineStarts.length - 1, lineIdx = 0;
-                    while (lo <= hi) {
-                        int mid = (lo + hi) >>> 1;
-                        if (lineStarts[mid] <= start) {
-                            lineIdx = mid;
-                            lo = mid + 1;
-                        } else {
-                            hi = mid - 1;
-                        }
-                    }
-
-                    int startLine = Math.max(0, lineIdx - 3);
-                    int endLine = Math.min(lines.length - 1, lineIdx + 3);
-                    var snippet = IntStream.rangeClosed(startLine, endLine)
-                            .mapToObj(i -> lines[i])
-                            .collect(Collectors.joining("\n"));
-
-                    var range = new IAnalyzer.Range(startByte, endByte, lineIdx, lineIdx, lineIdx);
-                    var enclosingCodeUnit = analyzer.enclosingCodeUnit(file, range);
+                    int startByte = scanner.advanceTo(matcher.start());
+                    int lineIdx = scanner.line();
+                    int endByte = scanner.advanceTo(matcher.end());
+                    ranges.add(new IAnalyzer.Range(startByte, endByte, lineIdx, lineIdx, lineIdx));
+                    charRanges.add(new int[] {matcher.start(), matcher.end()});
+                }
+                if (ranges.isEmpty()) {
+                    return;
+                }
 
-                    if (enclosingCodeUnit.isPresent()) {
-                        hits.put(
-                                new UsageHit(file, lineIdx + 1, start, end, enclosingCodeUnit.get(), 1.0, snippet),
-                                true);
-                    } else {
+                var enclosingUnits = analyzer.enclosingCodeUnits(file, ranges);
+                var seen = new HashSet<CodeUnit>();
+                for (int i = 0; i < ranges.size(); i++) {
+                    var enclosingCodeUnit = enclosingUnits.get(i);
+                    if (enclosingCodeUnit.isEmpty()) {
                         logger.warn(
                                 "Unable to find enclosing code unit for {} in {}. Not registering hit.",
                                 searchPattern,
                                 file);
+                        continue;
+                    }
+                    if (!seen.add(enclosingCodeUnit.get())) {
+                        continue;
                     }
+                    int lineIdx = ranges.get(i).startLine();
+                    hits.putIfAbsent(
+                            new UsageHit(
+                                    file,
+                                    lineIdx + 1,
+                                    charRanges.get(i)[0],
+                                    charRanges.get(i)[1],
+                                    enclosingCodeUnit.get(),
+                                    1.0,
+                                    scanner.snippet(lineIdx, 3)),
+                            true);
                 }
             } catch (Exception e) {
                 logger.warn("Failed to extract usage hits from {}: {}", file, e.toString());
@@ -253,6 +260,100 @@ public final class FuzzyUsageFinder {
         return Set.copyOf(hits.keySet());
     }
 
+    /**
+     * Maps increasing char offsets within one file's content to UTF-8 byte offsets and zero-based line indexes in a
+     * single forward pass. Line breaks are the ones {@code \R} recognizes, with CRLF counted once.
+     */
+    static final class OffsetScanner {
+        private final String content;
+        private int pos;
+        private int bytes;
+        private int line;
+        // char offset at which each line seen so far starts
+        private int[] lineStarts = new int[64];
+
+        OffsetScanner(String content) {
+            this.content = content;
+        }
+
+        /** Advances to {@code offset}, which must not precede the previous one, and returns its UTF-8 byte offset. */
+        int advanceTo(int offset) {
+            while (pos < offset) {
+                char c = content.charAt(pos);
+                if (c < 0x80) {
+                    bytes++;
+                } else if (c < 0x800) {
+                    bytes += 2;
+                } else if (Character.isHighSurrogate(c)
+                        && pos + 1 < content.length()
+                        && Character.isLowSurrogate(content.charAt(pos + 1))) {
+                    bytes += 4;
+                    pos++;
+                } else if (Character.isSurrogate(c)) {
+                    bytes++; // unpaired surrogates encode as '?'
+                } else {
+                    bytes += 3;
+                }
+                pos++;
+                int breakLength = lineBreakLength(pos - 1);
+                if (breakLength > 0) {
+                    if (breakLength == 2) {
+                        bytes++;
+                        pos++;
+                    }
+                    startLine(pos);
+                }
+            }
+            return bytes;
+        }
+
+        /** Line index of the position last advanced to. */
+        int line() {
+            return line;
+        }
+
+        /**
+         * The lines from {@code context} above to {@code context} below {@code lineIdx}, joined by {@code \n}.
+         * {@code lineIdx} must not be past the line last advanced to.
+         */
+        String snippet(int lineIdx, int context) {
+            int first = Math.max(0, lineIdx - context);
+            int remaining = lineIdx - first + context + 1;
+            var sb = new StringBuilder();
+            int i = lineStarts[first];
+            while (i < content.length()) {
+                int breakLength = lineBreakLength(i);
+                if (breakLength == 0) {
+                    sb.append(content.charAt(i++));
+                    continue;
+                }
+                if (--remaining == 0) {
+                    break;
+                }
+                sb.append('\n');
+                i += breakLength;
+            }
+            return sb.toString();
+        }
+
+        private void startLine(int start) {
+            line++;
+            if (line == lineStarts.length) {
+                lineStarts = Arrays.copyOf(lineStarts, line * 2);
+            }
+            lineStarts[line] = start;
+        }
+
+        /** Length of the line break starting at {@code i}, or 0 if there is none. */
+        private int lineBreakLength(int i) {
+            return switch (content.charAt(i)) {
+                case '\r' -> i + 1 < content.length() && content.charAt(i + 1) == '\n' ? 2 : 1;
+                case '\n', '\u000B', '\u000C', '\u0085', '\u2028', '\u2029' -> 1;
+                default -> 0;
+            };
+        }
+    }
+
     /**
      * Find usages by fully-qualified name.
      *
@@ -15,6 +15,7 @@ import ai.brokk.git.IGitRepo;
 import ai.brokk.gui.ActivityTableRenderers;
 import ai.brokk.tools.WorkspaceTools;
 import ai.brokk.util.ContentDiffUtils;
+import ai.brokk.util.ExecutorServiceUtil;
 import ai.brokk.util.HtmlToMarkdown;
 import ai.brokk.util.Json;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -33,8 +34,12 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -53,6 +58,10 @@ public class Context {
     // Cache diffs per "other" context id; contexts are immutable so diffs won't change
     private final transient Map<UUID, List<DiffEntry>> diffCache = new ConcurrentHashMap<>();
 
+    // Shared by all contexts, so scrolling through history never runs more diffs at once than this
+    private static final ExecutorService DIFF_EXECUTOR = ExecutorServiceUtil.newFixedThreadExecutor(
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)), "context-diff-");
+
     public static final int MAX_AUTO_CONTEXT_FILES = 100;
     private static final String WELCOME_ACTION = "Session Start";
     public static final String SUMMARIZING = "(Summarizing)";
@@ -1010,64 +1019,83 @@ public class Context {
             return cached;
         }
 
-        var diffs = fragments.stream()
-                .flatMap(cf -> cf instanceof FrozenFragment ff ? Stream.of(ff) : Stream.empty())
-                .map(ff -> {
-                    var ff2 = other.fragments.stream()
-                            .filter(ff::hasSameSource)
-                            .findFirst()
-                            .orElse(null);
-                    if (ff2 == null) {
-                        // No matching fragment in 'other'; if this represents a new, untracked file in Git, diff
-                        // against empty
-                        if (isNewFileInGit(ff) && ff.isText()) {
-                            var newContent = ff.text();
-                            var result = ContentDiffUtils.computeDiffResult(
-                                    "", newContent, "old/" + ff.shortDescription(), "new/" + ff.shortDescription());
-                            if (result.diff().isEmpty()) {
-                                return null;
-                            }
-                            return new DiffEntry(ff, result.diff(), result.added(), result.deleted(), "", newContent);
-                        }
-                        return null;
-                    }
+        // The first fragment in 'other' with a given source is the match, as with a linear scan
+        var othersBySource = new HashMap<FrozenFragment.SourceKey, FrozenFragment>();
+        for (var cf : other.fragments) {
+            if (cf instanceof FrozenFragment ff) {
+                othersBySource.putIfAbsent(ff.sourceKey(), ff);
+            }
+        }
 
-                    var oldContent = ff2.text();
-                    var newContent = ff.text();
-
-                    int oldLineCount =
-                            oldContent.isEmpty() ? 0 : (int) oldContent.lines().count();
-                    int newLineCount =
-                            newContent.isEmpty() ? 0 : (int) newContent.lines().count();
-                    logger.trace(
-                            "getDiff: fragment='{}' id={} oldLines={} newLines={}",
-                            ff.shortDescription(),
-                            id,
-                            oldLineCount,
-                            newLineCount);
-
-                    var result = ContentDiffUtils.computeDiffResult(
-                            oldContent, newContent, "old/" + ff.shortDescription(), "new/" + ff.shortDescription());
-
-                    logger.trace(
-                            "getDiff: fragment='{}' added={} deleted={} diffEmpty={}",
-                            ff.shortDescription(),
-                            result.added(),
-                            result.deleted(),
-                            result.diff().isEmpty());
-
-                    if (result.diff().isEmpty()) {
-                        return null;
-                    }
-                    return new DiffEntry(ff, result.diff(), result.added(), result.deleted(), oldContent, newContent);
-                })
-                .filter(Objects::nonNull)
-                .toList();
+        var tasks = new ArrayList<Callable<@Nullable DiffEntry>>();
+        for (var cf : fragments) {
+            if (!(cf instanceof FrozenFragment ff)) {
+                continue;
+            }
+            var ff2 = othersBySource.get(ff.sourceKey());
+            if (ff2 == null) {
+                // No matching fragment in 'other'; if this represents a new, untracked file in Git, diff against empty
+                if (isNewFileInGit(ff) && ff.isText()) {
+                    tasks.add(() -> diffEntry(ff, "", ff.text()));
+                }
+            } else if (!ff2.id().equals(ff.id())) {
+                // Equal ids are equal content hashes, so only fragments whose content changed are diffed
+                tasks.add(() -> diffEntry(ff, ff2.text(), ff.text()));
+            }
+        }
 
+        var diffs = runDiffTasks(tasks).stream().filter(Objects::nonNull).toList();
         diffCache.put(other.id(), diffs);
         return diffs;
     }
 
+    /** Runs the diffs on the bounded diff pool, keeping their order. */
+    private static List<@Nullable DiffEntry> runDiffTasks(List<Callable<@Nullable DiffEntry>> tasks) {
+        var results = new ArrayList<@Nullable DiffEntry>(tasks.size());
+        try {
+            for (var future : DIFF_EXECUTOR.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException(e.getMessage());
+        } catch (ExecutionException e) {
+            var cause = Objects.requireNonNullElse(e.getCause(), e);
+            throw cause instanceof RuntimeException re ? re : new RuntimeException(cause);
+        }
+        return results;
+    }
+
+    private @Nullable DiffEntry diffEntry(FrozenFragment ff, String oldContent, String newContent) {
+        if (oldContent.equals(newContent)) {
+            return null;
+        }
+
+        int oldLineCount = oldContent.isEmpty() ? 0 : (int) oldContent.lines().count();
+        int newLineCount = newContent.isEmpty() ? 0 : (int) newContent.lines().count();
+        logger.trace(
+                "getDiff: fragment='{}' id={} oldLines={} newLines={}",
+                ff.shortDescription(),
+                id,
+                oldLineCount,
+                newLineCount);
+
+        var result = ContentDiffUtils.computeDiffResult(
+                oldContent, newContent, "old/" + ff.shortDescription(), "new/" + ff.shortDescription());
+
+        logger.trace(
+                "getDiff: fragment='{}' added={} deleted={} diffEmpty={}",
+                ff.shortDescription(),
+                result.added(),
+                result.deleted(),
+                result.diff().isEmpty());
+
+        if (result.diff().isEmpty()) {
+            return null;
+        }
+        return new DiffEntry(ff, result.diff(), result.added(), result.deleted(), oldContent, newContent);
+    }
+
     /**
      * Compute the set of ProjectFile objects that differ between this (new/right) context and {@code other} (old/left).
      * This is a convenience wrapper around {@link #getDiff(Context)} which returns per-fragment diffs.
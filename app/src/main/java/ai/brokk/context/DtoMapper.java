@@ -108,7 +108,6 @@ public class DtoMapper {
             Map<String, VirtualFragmentDto> virtualDtos,
             Map<String, TaskFragmentDto> taskDtos,
             IContextManager mgr,
-            @Nullable Map<String, byte[]> imageBytesMap,
             Map<String, ContextFragment> fragmentCacheForRecursion,
             ContentReader contentReader) {
         if (referencedDtos.containsKey(idToResolve)) {
@@ -117,7 +116,7 @@ public class DtoMapper {
                 logger.info("Skipping deprecated BuildFragment during deserialization: {}", idToResolve);
                 return null;
             }
-            return _buildReferencedFragment(castNonNull(dto), mgr, imageBytesMap, contentReader);
+            return _buildReferencedFragment(castNonNull(dto), mgr, contentReader);
         }
         if (virtualDtos.containsKey(idToResolve)) {
             var dto = virtualDtos.get(idToResolve);
@@ -128,7 +127,6 @@ public class DtoMapper {
             return _buildVirtualFragment(
                     castNonNull(dto),
                     mgr,
-                    imageBytesMap,
                     fragmentCacheForRecursion,
                     referencedDtos,
                     virtualDtos,
@@ -143,10 +141,7 @@ public class DtoMapper {
     }
 
     private static ContextFragment _buildReferencedFragment(
-            ReferencedFragmentDto dto,
-            IContextManager mgr,
-            @Nullable Map<String, byte[]> imageBytesMap,
-            ContentReader reader) {
+            ReferencedFragmentDto dto, IContextManager mgr, ContentReader reader) {
         return switch (dto) {
             case ProjectFileDto pfd ->
                 ContextFragment.ProjectPathFragment.withId(
@@ -164,14 +159,16 @@ public class DtoMapper {
                         reader.readContent(gfd.contentId()),
                         gfd.id());
             case FrozenFragmentDto ffd -> {
-                yield FrozenFragment.fromDto(
+                yield FrozenFragment.fromDtoLazy(
                         ffd.id(),
                         mgr,
                         ContextFragment.FragmentType.valueOf(ffd.originalType()),
                         ffd.description(),
                         ffd.shortDescription(),
-                        ffd.isTextFragment() ? reader.readContent(Objects.requireNonNull(ffd.contentId())) : null,
-                        imageBytesMap != null ? imageBytesMap.get(ffd.id()) : null,
+                        ffd.isTextFragment()
+                                ? reader.lazyContent(Objects.requireNonNull(ffd.contentId()))
+                                : () -> null,
+                        ffd.isTextFragment() ? () -> null : reader.lazyImage(ffd.id()),
                         ffd.isTextFragment(),
                         ffd.syntaxStyle(),
                         ffd.files().stream().map(DtoMapper::fromProjectFileDto).collect(Collectors.toSet()),
@@ -194,7 +191,6 @@ public class DtoMapper {
     private static @Nullable ContextFragment.VirtualFragment _buildVirtualFragment(
             @Nullable VirtualFragmentDto dto,
             IContextManager mgr,
-            @Nullable Map<String, byte[]> imageBytesMap,
             Map<String, ContextFragment> fragmentCacheForRecursion,
             Map<String, ReferencedFragmentDto> allReferencedDtos,
             Map<String, VirtualFragmentDto> allVirtualDtos,
@@ -207,7 +203,7 @@ public class DtoMapper {
                     logger.info("Skipping deprecated BuildFragment during deserialization: {}", ffd.id());
                     yield null;
                 }
-                yield (FrozenFragment) _buildReferencedFragment(ffd, mgr, imageBytesMap, reader);
+                yield (FrozenFragment) _buildReferencedFragment(ffd, mgr, reader);
             }
             case SearchFragmentDto searchDto -> {
                 var sources = searchDto.sources().stream()
@@ -251,11 +247,7 @@ public class DtoMapper {
                                 requireNonNullElse(pasteTextDto.syntaxStyle(), SyntaxConstants.SYNTAX_STYLE_MARKDOWN)));
             case PasteImageFragmentDto pasteImageDto -> {
                 try {
-                    if (imageBytesMap == null) {
-                        logger.error("imageBytesMap is null, cannot load image for {}", pasteImageDto.id());
-                        yield null;
-                    }
-                    byte[] imageBytes = imageBytesMap.get(pasteImageDto.id());
+                    byte[] imageBytes = reader.readImage(pasteImageDto.id());
                     if (imageBytes == null) {
                         logger.error("Image bytes not found for fragment: {}", pasteImageDto.id());
                         yield null;
@@ -549,7 +541,6 @@ public class DtoMapper {
                             allVirtualDtos,
                             allTaskDtos,
                             mgr,
-                            null,
                             fragmentCacheForRecursion,
                             reader));
             return new TaskEntry(dto.sequence(), taskFragment, null);
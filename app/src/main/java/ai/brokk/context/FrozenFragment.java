@@ -8,6 +8,7 @@ import ai.brokk.analyzer.BrokkFile;
 import ai.brokk.analyzer.CodeUnit;
 import ai.brokk.analyzer.CodeUnitType;
 import ai.brokk.analyzer.ExternalFile;
+import ai.brokk.analyzer.IAnalyzer;
 import ai.brokk.analyzer.ProjectFile;
 import ai.brokk.util.FragmentUtils;
 import java.awt.*;
@@ -16,15 +17,21 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 import javax.imageio.ImageIO;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -43,6 +50,25 @@ public final class FrozenFragment extends ContextFragment.VirtualFragment {
 
     private static final ConcurrentMap<String, FrozenFragment> INTERN_POOL = new ConcurrentHashMap<>();
 
+    /**
+     * What an analyzer-derived fragment was last frozen from: the analyzer snapshot its text was computed against and
+     * the files it read. Analyzer snapshots are immutable and replaced on every reanalysis, so the snapshot identity
+     * serves as the analyzer epoch; a change to any file outside {@code files} reaches the fragment only through one.
+     */
+    private record FreezeInputs(
+            WeakReference<ContextFragment> live,
+            WeakReference<IAnalyzer> analyzer,
+            Map<ProjectFile, FileStamp> files,
+            FrozenFragment frozen) {}
+
+    private record FileStamp(long modifiedMillis, long size) {
+        static final FileStamp MISSING = new FileStamp(-1L, -1L);
+    }
+
+    // Keyed by live fragment; entries go when the fragment does
+    private static final Map<ContextFragment, FreezeInputs> FREEZE_INPUTS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
     // Captured fragment state for behavior and unfreezing
     private final ContextFragment.FragmentType originalType;
 
@@ -52,11 +78,11 @@ public final class FrozenFragment extends ContextFragment.VirtualFragment {
     @Nullable
     private final String shortDescriptionContent; // Short description
 
-    @Nullable
-    private final String textContent; // Null if image fragment
+    // Supplies null for image fragments. Deserialized fragments page their text in from the session archive and hold
+    // it softly, so the text of fragments nobody looks at is never held in memory.
+    private final Supplier<@Nullable String> textContent;
 
-    @Nullable
-    private final byte[] imageBytesContent; // Null if text fragment
+    private final Supplier<byte @Nullable []> imageBytesContent; // Supplies null if text fragment
 
     private final boolean isTextFragment;
 
@@ -82,8 +108,8 @@ public final class FrozenFragment extends ContextFragment.VirtualFragment {
             ContextFragment.FragmentType originalType,
             @Nullable String description,
             @Nullable String shortDescription,
-            @Nullable String textContent,
-            @Nullable byte[] imageBytesContent,
+            Supplier<@Nullable String> textContent,
+            Supplier<byte @Nullable []> imageBytesContent,
             boolean isTextFragment,
             @Nullable String syntaxStyle,
             Set<ProjectFile> files,
@@ -122,7 +148,7 @@ public final class FrozenFragment extends ContextFragment.VirtualFragment {
     @Override
     public String text() {
         if (isTextFragment) {
-            return requireNonNullElse(textContent, "");
+            return requireNonNullElse(textContent.get(), "");
         } else {
             return "[Image content]";
         }
@@ -134,7 +160,7 @@ public final class FrozenFragment extends ContextFragment.VirtualFragment {
             throw new UnsupportedOperationException("This fragment does not contain image content");
         }
         try {
-            return bytesToImage(requireNonNull(imageBytesContent));
+            return bytesToImage(requireNonNull(imageBytesContent.get()));
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -214,7 +240,7 @@ public final class FrozenFragment extends ContextFragment.VirtualFragment {
      */
     @Nullable
     public byte[] imageBytesContent() {
-        return imageBytesContent;
+        return imageBytesContent.get();
     }
 
     /**
@@ -260,8 +286,8 @@ public final class FrozenFragment extends ContextFragment.VirtualFragment {
                         originalType,
                         description,
                         shortDescription,
-                        textContent,
-                        imageBytesContent,
+                        () -> textContent,
+                        () -> imageBytesContent,
                         isTextFragment,
                         syntaxStyle,
                         files,
@@ -270,6 +296,49 @@ public final class FrozenFragment extends ContextFragment.VirtualFragment {
                         repr));
     }
 
+    /**
+     * Like {@link #fromDto}, but the text and image bytes are fetched on every use rather than held. Loading a session
+     * then skips materializing the content of fragments that are never opened, and of those already in the intern
+     * pool; the suppliers are expected to cache.
+     *
+     * <p>A new instance is not interned: its suppliers read from one session's archive, and sharing it would tie
+     * other sessions to that archive.
+     */
+    public static FrozenFragment fromDtoLazy(
+            String idFromDto,
+            IContextManager contextManager,
+            ContextFragment.FragmentType originalType,
+            @Nullable String description,
+            @Nullable String shortDescription,
+            Supplier<@Nullable String> textContent,
+            Supplier<byte @Nullable []> imageBytesContent,
+            boolean isTextFragment,
+            @Nullable String syntaxStyle,
+            Set<ProjectFile> files,
+            String originalClassName,
+            Map<String, String> meta,
+            @Nullable String repr) {
+        // idFromDto is the contentHash, so an interned instance holds the same content
+        var interned = INTERN_POOL.get(idFromDto);
+        if (interned != null) {
+            return interned;
+        }
+        return new FrozenFragment(
+                idFromDto,
+                contextManager,
+                originalType,
+                description,
+                shortDescription,
+                textContent,
+                imageBytesContent,
+                isTextFragment,
+                syntaxStyle,
+                files,
+                originalClassName,
+                meta,
+                repr);
+    }
+
     // Backwards-compatible overload used by migration code (V2_DtoMapper) and older DTOs.
     public static FrozenFragment fromDto(
             String idFromDto,
@@ -301,7 +370,9 @@ public final class FrozenFragment extends ContextFragment.VirtualFragment {
     }
 
     /**
-     * Creates a frozen, potentially interned, representation of the given live Fragment.
+     * Creates a frozen, potentially interned, representation of the given live Fragment. A fragment computed from the
+     * analyzer gets back its previous frozen form, without recomputing, while neither the analyzer snapshot nor the
+     * files it read have changed.
      *
      * @param liveFragment The live fragment to freeze
      * @param contextManagerForFrozenFragment The context manager for the frozen fragment
@@ -321,6 +392,15 @@ public final class FrozenFragment extends ContextFragment.VirtualFragment {
         }
 
         try {
+            // Usage searches, call graphs and skeletons are only recomputed when their inputs changed
+            var analyzer = isAnalyzerDerived(liveFragment) ? liveAnalyzer(liveFragment) : null;
+            if (analyzer != null) {
+                var unchanged = frozenFromSameInputs(liveFragment, analyzer);
+                if (unchanged != null) {
+                    return unchanged;
+                }
+            }
+
             var type = liveFragment.getType();
             String fullDescription = liveFragment.description();
             String shortDescription = liveFragment.shortDescription();
@@ -420,7 +500,7 @@ public final class FrozenFragment extends ContextFragment.VirtualFragment {
             final Map<String, String> finalMeta = meta;
             final String finalRepr = repr;
 
-            return INTERN_POOL.computeIfAbsent(
+            var frozen = INTERN_POOL.computeIfAbsent(
                     contentHash,
                     k -> new FrozenFragment(
                             k, // k is contentHash, used as ID
@@ -428,14 +508,24 @@ public final class FrozenFragment extends ContextFragment.VirtualFragment {
                             type,
                             finalFullDescription,
                             finalShortDescription,
-                            finalTextContent,
-                            finalImageBytesContent,
+                            () -> finalTextContent,
+                            () -> finalImageBytesContent,
                             isText,
                             syntaxStyle,
                             files,
                             originalClassName,
                             finalMeta,
                             finalRepr));
+            if (analyzer != null) {
+                FREEZE_INPUTS.put(
+                        liveFragment,
+                        new FreezeInputs(
+                                new WeakReference<>(liveFragment),
+                                new WeakReference<>(analyzer),
+                                stampFiles(files),
+                                frozen));
+            }
+            return frozen;
         } catch (UncheckedIOException e) {
             throw new IOException(e.getCause() != null ? e.getCause() : e);
         } catch (CancellationException e) {
@@ -445,6 +535,48 @@ public final class FrozenFragment extends ContextFragment.VirtualFragment {
         }
     }
 
+    /** Fragments whose content is a function of the analyzer snapshot and the files they report. */
+    private static boolean isAnalyzerDerived(ContextFragment fragment) {
+        return fragment instanceof UsageFragment
+                || fragment instanceof CallGraphFragment
+                || fragment instanceof SkeletonFragment
+                || fragment instanceof SummaryFragment
+                || fragment instanceof CodeFragment;
+    }
+
+    /** The analyzer snapshot the fragment computes its content from, read before computing so a racing update shows. */
+    private static @Nullable IAnalyzer liveAnalyzer(ContextFragment fragment) {
+        var cm = fragment.getContextManager();
+        return cm == null ? null : cm.getAnalyzerUninterrupted();
+    }
+
+    private static @Nullable FrozenFragment frozenFromSameInputs(ContextFragment liveFragment, IAnalyzer analyzer) {
+        var inputs = FREEZE_INPUTS.get(liveFragment);
+        if (inputs == null || inputs.live().get() != liveFragment || inputs.analyzer().get() != analyzer) {
+            return null;
+        }
+        if (!inputs.files().equals(stampFiles(inputs.files().keySet()))) {
+            return null;
+        }
+        logger.trace("Reusing frozen {} as its inputs are unchanged", liveFragment.shortDescription());
+        return inputs.frozen();
+    }
+
+    private static Map<ProjectFile, FileStamp> stampFiles(Set<ProjectFile> files) {
+        var stamps = new HashMap<ProjectFile, FileStamp>(files.size() * 2);
+        for (var file : files) {
+            FileStamp stamp;
+            try {
+                var attrs = Files.readAttributes(file.absPath(), BasicFileAttributes.class);
+                stamp = new FileStamp(attrs.lastModifiedTime().toMillis(), attrs.size());
+            } catch (IOException e) {
+                stamp = FileStamp.MISSING;
+            }
+            stamps.put(file, stamp);
+        }
+        return stamps;
+    }
+
     /**
      * Recreates a live fragment from this frozen representation.
      *
@@ -583,6 +715,7 @@ public final class FrozenFragment extends ContextFragment.VirtualFragment {
     /** Clears the internal intern pool. For testing purposes only. */
     public static void clearInternPoolForTesting() {
         INTERN_POOL.clear();
+        FREEZE_INPUTS.clear();
     }
 
     /**
@@ -627,6 +760,13 @@ public final class FrozenFragment extends ContextFragment.VirtualFragment {
         }
     }
 
+    /** Identifies the live fragment this was frozen from, across freezes of differing content. */
+    record SourceKey(String originalClassName, Map<String, String> meta) {}
+
+    SourceKey sourceKey() {
+        return new SourceKey(originalClassName, meta);
+    }
+
     public boolean hasSameSource(ContextFragment other) {
         if (!(other instanceof FrozenFragment ff)) {
             return false;
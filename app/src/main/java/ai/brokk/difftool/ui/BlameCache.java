@@ -0,0 +1,251 @@
+package ai.brokk.difftool.ui;
+
+import ai.brokk.difftool.ui.BlameService.BlameInfo;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.jgit.blame.BlameResult;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Blame of committed file versions, keyed by (commit, path) and shared by all {@link BlameService}s of one repository.
+ * Each result is an array of indexes into one commit table, so a commit's author and date are stored once however many
+ * lines and files it is blamed for. Results are appended to a log under the project's {@code .brokk} directory, so
+ * reopening a file in a later session does not run blame again; only the most recently used ones are kept in memory.
+ */
+final class BlameCache {
+    private static final Logger logger = LogManager.getLogger(BlameCache.class);
+
+    private static final int MAGIC = 0x42424c4d; // "BBLM"
+    private static final int FORMAT_VERSION = 1;
+    static final String LOG_FILE = "git-blame.log";
+
+    /** Past this size the log mostly holds blame for old HEADs; it is started over on the next load. */
+    private static final long MAX_LOG_BYTES = 16L * 1024 * 1024;
+
+    /** Blamed lines kept in memory per repository; evicted blame is read back from the log in a later session. */
+    private static final long MAX_CACHED_LINES = 1L << 20;
+
+    /** Marks a line no commit is known for in {@link Blame#lineCommits}. */
+    static final int UNCOMMITTED = -1;
+
+    /** Keyed by git directory; a repository's cache goes away once none of its services are left. */
+    private static final Cache<Path, BlameCache> shared = CacheBuilder.newBuilder().weakValues().build();
+
+    /** A committed file version's blob and, per 0-based line, the index of its commit in the table. */
+    record Blame(ObjectId blobId, int[] lineCommits) {}
+
+    private final @Nullable Path logPath;
+
+    // Guarded by this
+    private final List<BlameInfo> commitTable = new ArrayList<>();
+    private final List<String> commitShas = new ArrayList<>();
+    private final Map<String, Integer> commitIndexes = new HashMap<>();
+    private final Cache<String, Blame> blames = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_CACHED_LINES)
+            .weigher((String key, Blame blame) -> blame.lineCommits().length + 1)
+            .build();
+    private int persistedCommits; // commit table entries already in the log
+    private boolean loaded;
+
+    BlameCache(@Nullable Path logPath) {
+        this.logPath = logPath;
+    }
+
+    /** The cache of the repository in {@code gitDir}, persisted in {@code brokkDir} and shared with its other users. */
+    static BlameCache persistentIn(Path gitDir, Path brokkDir) {
+        var logPath = brokkDir.resolve(LOG_FILE).toAbsolutePath().normalize();
+        return shared.asMap().computeIfAbsent(gitDir.toAbsolutePath().normalize(), k -> new BlameCache(logPath));
+    }
+
+    static BlameCache inMemory() {
+        return new BlameCache(null);
+    }
+
+    synchronized @Nullable Blame get(ObjectId commitId, String path) {
+        ensureLoaded();
+        return blames.getIfPresent(key(commitId, path));
+    }
+
+    /** Records the blame of {@code path} at {@code commitId}; returns the copy already cached if there is one. */
+    synchronized Blame put(ObjectId commitId, String path, ObjectId blobId, BlameResult result) {
+        ensureLoaded();
+        var key = key(commitId, path);
+        var existing = blames.getIfPresent(key);
+        if (existing != null) return existing;
+
+        var lineCommits = new int[result.getResultContents().size()];
+        for (int i = 0; i < lineCommits.length; i++) {
+            var commit = result.getSourceCommit(i);
+            lineCommits[i] = commit == null ? UNCOMMITTED : commitIndex(commit);
+        }
+        var blame = new Blame(blobId.copy(), lineCommits);
+        blames.put(key, blame);
+        append(commitId, path, blame);
+        return blame;
+    }
+
+    synchronized BlameInfo commit(int index) {
+        return commitTable.get(index);
+    }
+
+    private int commitIndex(RevCommit commit) {
+        var sha = commit.getName();
+        var index = commitIndexes.get(sha);
+        if (index != null) return index;
+        PersonIdent author = commit.getAuthorIdent();
+        var info = author == null
+                ? new BlameInfo(BlameService.NOT_COMMITTED_YET, shortSha(sha), 0L)
+                : new BlameInfo(author.getName(), shortSha(sha), author.getWhenAsInstant().getEpochSecond());
+        return addCommit(sha, info);
+    }
+
+    private int addCommit(String sha, BlameInfo info) {
+        int index = commitTable.size();
+        commitTable.add(info);
+        commitShas.add(sha);
+        commitIndexes.put(sha, index);
+        return index;
+    }
+
+    private static String shortSha(String sha) {
+        return sha.length() >= 8 ? sha.substring(0, 8) : sha;
+    }
+
+    private static String key(ObjectId commitId, String path) {
+        return commitId.getName() + ":" + path;
+    }
+
+    /* ---------- persistence ---------- */
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        loaded = true;
+        if (logPath == null || !Files.exists(logPath)) return;
+
+        long validLength = 0;
+        try {
+            if (Files.size(logPath) > MAX_LOG_BYTES) {
+                logger.debug("Starting over with blame cache {}, which outgrew {} bytes", logPath, MAX_LOG_BYTES);
+                Files.delete(logPath);
+                return;
+            }
+            try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logPath)))) {
+                if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                    logger.info("Discarding blame cache {} written in an unknown format", logPath);
+                    Files.delete(logPath);
+                    return;
+                }
+                validLength = 8;
+                while (true) {
+                    int length;
+                    try {
+                        length = in.readInt();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    var record = new byte[length];
+                    in.readFully(record);
+                    readRecord(record);
+                    validLength += 4 + length;
+                }
+            }
+        } catch (EOFException e) {
+            // a record was cut short by an interrupted append; drop it below
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Unable to read blame cache {}; rebuilding it: {}", logPath, e.toString());
+            commitTable.clear();
+            commitShas.clear();
+            commitIndexes.clear();
+            blames.invalidateAll();
+            validLength = 0;
+        }
+
+        try (var channel = FileChannel.open(logPath, StandardOpenOption.WRITE)) {
+            if (channel.size() > validLength) {
+                channel.truncate(validLength);
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to truncate blame cache {}: {}", logPath, e.toString());
+        }
+        persistedCommits = commitTable.size();
+        logger.debug("Loaded blame of {} file versions from {}", blames.size(), logPath);
+    }
+
+    /** A record holds the commits not logged before, then one blame, so it never refers to a commit not yet read. */
+    private void readRecord(byte[] record) throws IOException {
+        var in = new DataInputStream(new ByteArrayInputStream(record));
+        int newCommits = in.readInt();
+        for (int i = 0; i < newCommits; i++) {
+            var sha = in.readUTF();
+            var info = new BlameInfo(in.readUTF(), shortSha(sha), in.readLong());
+            addCommit(sha, info);
+        }
+        var commitId = ObjectId.fromString(in.readUTF());
+        var path = in.readUTF();
+        var blobId = ObjectId.fromString(in.readUTF());
+        var lineCommits = new int[in.readInt()];
+        for (int i = 0; i < lineCommits.length; i++) {
+            lineCommits[i] = in.readInt();
+            if (lineCommits[i] >= commitTable.size()) throw new IOException("Blame refers to an unknown commit");
+        }
+        blames.put(key(commitId, path), new Blame(blobId, lineCommits));
+    }
+
+    private void append(ObjectId commitId, String path, Blame blame) {
+        if (logPath == null) return;
+        try {
+            var bytes = new ByteArrayOutputStream();
+            var out = new DataOutputStream(bytes);
+            out.writeInt(commitTable.size() - persistedCommits);
+            for (int i = persistedCommits; i < commitTable.size(); i++) {
+                var info = commitTable.get(i);
+                out.writeUTF(commitShas.get(i));
+                out.writeUTF(info.author());
+                out.writeLong(info.authorTime());
+            }
+            out.writeUTF(commitId.getName());
+            out.writeUTF(path);
+            out.writeUTF(blame.blobId().getName());
+            out.writeInt(blame.lineCommits().length);
+            for (int line : blame.lineCommits()) out.writeInt(line);
+            out.flush();
+            var record = bytes.toByteArray();
+
+            Files.createDirectories(logPath.getParent());
+            boolean fresh = !Files.exists(logPath) || Files.size(logPath) == 0;
+            try (var file = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+                    logPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)))) {
+                if (fresh) {
+                    file.writeInt(MAGIC);
+                    file.writeInt(FORMAT_VERSION);
+                }
+                file.writeInt(record.length);
+                file.write(record);
+            }
+            persistedCommits = commitTable.size();
+        } catch (IOException e) {
+            logger.warn("Unable to append to blame cache {}: {}", logPath, e.toString());
+        }
+    }
+}
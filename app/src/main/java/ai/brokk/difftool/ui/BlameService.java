@@ -1,18 +1,29 @@
 package ai.brokk.difftool.ui;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.stream.IntStream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.blame.BlameResult;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
-import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.treewalk.TreeWalk;
@@ -21,6 +32,10 @@ import org.jspecify.annotations.Nullable;
 /**
  * Async blame fetcher using JGit with per-path caching. Runs off-EDT; callers must use SwingUtilities.invokeLater for
  * UI updates. Failures return empty maps.
+ *
+ * <p>Blame of committed versions comes from a {@link BlameCache}, persisted when given the project's .brokk
+ * directory. Working tree blame is the HEAD blame carried over the lines a diff against HEAD leaves unchanged, so
+ * after an edit only that diff is recomputed.
  */
 public final class BlameService {
     private static final Logger logger = LogManager.getLogger(BlameService.class);
@@ -29,8 +44,52 @@ public final class BlameService {
 
     public static final record BlameInfo(String author, String shortSha, long authorTime) {}
 
+    private static final BlameInfo UNCOMMITTED_LINE = new BlameInfo(NOT_COMMITTED_YET, "", 0L);
+
+    /** Read-only map of 1-based line numbers over an array, without a boxed entry per line. */
+    public static final class BlameLines extends AbstractMap<Integer, BlameInfo> {
+        private final BlameInfo[] lines;
+
+        private BlameLines(BlameInfo[] lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public int size() {
+            return lines.length;
+        }
+
+        @Override
+        public boolean containsKey(@Nullable Object key) {
+            return key instanceof Integer line && line >= 1 && line <= lines.length;
+        }
+
+        @Override
+        public @Nullable BlameInfo get(@Nullable Object key) {
+            return key instanceof Integer line && line >= 1 && line <= lines.length ? lines[line - 1] : null;
+        }
+
+        @Override
+        public Set<Entry<Integer, BlameInfo>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return lines.length;
+                }
+
+                @Override
+                public Iterator<Entry<Integer, BlameInfo>> iterator() {
+                    return IntStream.range(0, lines.length)
+                            .<Entry<Integer, BlameInfo>>mapToObj(i -> new SimpleImmutableEntry<>(i + 1, lines[i]))
+                            .iterator();
+                }
+            };
+        }
+    }
+
     private final Git git;
     private final Path repositoryRoot;
+    private final BlameCache blameCache;
 
     // Cache keyed by "absolutePath" for current file or "absolutePath@@revision" for specific revisions
     private final ConcurrentMap<String, CompletableFuture<Map<Integer, BlameInfo>>> cache = new ConcurrentHashMap<>();
@@ -38,10 +97,23 @@ public final class BlameService {
     // Track last error message per cache key for user feedback
     private final ConcurrentMap<String, String> lastErrors = new ConcurrentHashMap<>();
 
-    /** Creates a BlameService using the provided Git instance. */
+    /** Creates a BlameService using the provided Git instance, caching committed blame in memory only. */
     public BlameService(Git git) {
+        this(git, BlameCache.inMemory());
+    }
+
+    /**
+     * Creates a BlameService whose committed blame is persisted in {@code brokkDir} and shared with every other service
+     * for the same repository.
+     */
+    public BlameService(Git git, Path brokkDir) {
+        this(git, BlameCache.persistentIn(git.getRepository().getDirectory().toPath(), brokkDir));
+    }
+
+    private BlameService(Git git, BlameCache blameCache) {
         this.git = git;
         this.repositoryRoot = git.getRepository().getWorkTree().toPath();
+        this.blameCache = blameCache;
     }
 
     /**
@@ -126,42 +198,39 @@ public final class BlameService {
                     return Map.<Integer, BlameInfo>of();
                 }
 
-                // Run JGit blame command with rename detection
-                BlameResult blameResult = git.blame()
-                        .setFilePath(relativePath)
-                        .setFollowFileRenames(true)
-                        .call();
-
-                if (blameResult == null) {
-                    logger.warn("Blame returned null for file: {}", filePath);
-                    lastErrors.put(cacheKey, "Blame returned no results");
-                    return Map.<Integer, BlameInfo>of();
-                }
-
-                // Convert BlameResult to Map<Integer, BlameInfo>
-                Map<Integer, BlameInfo> result = new HashMap<>();
-                int lineCount = blameResult.getResultContents().size();
-
-                for (int i = 0; i < lineCount; i++) {
-                    RevCommit commit = blameResult.getSourceCommit(i);
-
-                    if (commit == null) {
-                        // Uncommitted line
-                        result.put(i + 1, new BlameInfo(NOT_COMMITTED_YET, "", 0L));
-                    } else {
-                        PersonIdent author = commit.getAuthorIdent();
-                        String authorName = author != null ? author.getName() : NOT_COMMITTED_YET;
-                        String fullSha = commit.getName();
-                        String shortSha = fullSha.length() >= 8 ? fullSha.substring(0, 8) : fullSha;
-                        long authorTime =
-                                author != null ? author.getWhenAsInstant().getEpochSecond() : 0L;
-
-                        result.put(i + 1, new BlameInfo(authorName, shortSha, authorTime));
+                var repository = git.getRepository();
+                ObjectId headId = repository.resolve(Constants.HEAD);
+                var working = new RawText(Files.readAllBytes(filePath.toAbsolutePath()));
+                var lines = new BlameInfo[working.size()];
+                Arrays.fill(lines, UNCOMMITTED_LINE);
+
+                // Lines unchanged since HEAD keep HEAD's blame; only the edited regions are "not committed yet"
+                var committed = headId == null ? null : committedBlame(headId, relativePath, cacheKey);
+                if (committed != null) {
+                    var head = new RawText(repository.open(committed.blobId()).getBytes());
+                    // Line endings converted on either side of the checkout must not count as edits
+                    if (RawText.isCrLfText(head.getRawContent()) || RawText.isCrLfText(working.getRawContent())) {
+                        head = withoutCr(head);
+                        working = withoutCr(working);
+                    }
+                    var edits = DiffAlgorithm.getAlgorithm(DiffAlgorithm.SupportedAlgorithm.HISTOGRAM)
+                            .diff(RawTextComparator.DEFAULT, head, working);
+                    int headLine = 0;
+                    int workingLine = 0;
+                    for (var edit : edits) {
+                        while (workingLine < edit.getBeginB()) {
+                            lines[workingLine++] = committedLine(committed, headLine++);
+                        }
+                        headLine = edit.getEndA();
+                        workingLine = edit.getEndB();
+                    }
+                    while (workingLine < lines.length && headLine < committed.lineCommits().length) {
+                        lines[workingLine++] = committedLine(committed, headLine++);
                     }
                 }
 
                 lastErrors.remove(cacheKey); // Clear any previous error on success
-                return Map.copyOf(result);
+                return new BlameLines(lines);
 
             } catch (GitAPIException e) {
                 logger.error("Git blame failed for {}: {}", filePath, e.getMessage(), e);
@@ -185,51 +254,23 @@ public final class BlameService {
                     return Map.<Integer, BlameInfo>of();
                 }
 
-                // Resolve revision to ObjectId
-                ObjectId revisionId = git.getRepository().resolve(revision);
+                // Resolve revision to the commit it names
+                ObjectId revisionId = git.getRepository().resolve(revision + "^{commit}");
                 if (revisionId == null) {
                     logger.warn("Could not resolve revision {} for file: {}", revision, filePath);
                     lastErrors.put(cacheKey, "Could not resolve revision: " + revision);
                     return Map.<Integer, BlameInfo>of();
                 }
 
-                // Run JGit blame command for the specified revision with rename detection
-                BlameResult blameResult = git.blame()
-                        .setFilePath(relativePath)
-                        .setStartCommit(revisionId)
-                        .setFollowFileRenames(true)
-                        .call();
-
-                if (blameResult == null) {
-                    logger.warn("Blame returned null for revision {} of file: {}", revision, filePath);
-                    lastErrors.put(cacheKey, "Blame returned no results for " + revision);
+                var committed = committedBlame(revisionId, relativePath, cacheKey);
+                if (committed == null) {
                     return Map.<Integer, BlameInfo>of();
                 }
-
-                // Convert BlameResult to Map<Integer, BlameInfo>
-                Map<Integer, BlameInfo> result = new HashMap<>();
-                int lineCount = blameResult.getResultContents().size();
-
-                for (int i = 0; i < lineCount; i++) {
-                    RevCommit commit = blameResult.getSourceCommit(i);
-
-                    if (commit == null) {
-                        // Uncommitted line
-                        result.put(i + 1, new BlameInfo(NOT_COMMITTED_YET, "", 0L));
-                    } else {
-                        PersonIdent author = commit.getAuthorIdent();
-                        String authorName = author != null ? author.getName() : NOT_COMMITTED_YET;
-                        String fullSha = commit.getName();
-                        String shortSha = fullSha.length() >= 8 ? fullSha.substring(0, 8) : fullSha;
-                        long authorTime =
-                                author != null ? author.getWhenAsInstant().getEpochSecond() : 0L;
-
-                        result.put(i + 1, new BlameInfo(authorName, shortSha, authorTime));
-                    }
-                }
+                var lines = new BlameInfo[committed.lineCommits().length];
+                for (int i = 0; i < lines.length; i++) lines[i] = committedLine(committed, i);
 
                 lastErrors.remove(cacheKey); // Clear any previous error on success
-                return Map.copyOf(result);
+                return new BlameLines(lines);
 
             } catch (GitAPIException e) {
                 logger.error("Git blame for revision {} failed for {}: {}", revision, filePath, e.getMessage(), e);
@@ -246,7 +287,58 @@ public final class BlameService {
         });
     }
 
-    /** Clears cached blame for working tree file. Call after file modification to force refresh. */
+    /**
+     * Blame of {@code relativePath} as committed in {@code commitId}, from the blame cache or else from JGit blame with
+     * rename detection. Returns null, recording why, when the file is not in that commit.
+     */
+    private BlameCache.@Nullable Blame committedBlame(ObjectId commitId, String relativePath, String cacheKey)
+            throws GitAPIException, IOException {
+        var cached = blameCache.get(commitId, relativePath);
+        if (cached != null) {
+            return cached;
+        }
+
+        ObjectId blobId;
+        try (var revWalk = new RevWalk(git.getRepository());
+                var treeWalk = TreeWalk.forPath(
+                        git.getRepository(), relativePath, revWalk.parseCommit(commitId).getTree())) {
+            if (treeWalk == null) {
+                lastErrors.put(cacheKey, "File is not in " + commitId.abbreviate(8).name());
+                return null;
+            }
+            blobId = treeWalk.getObjectId(0);
+        }
+
+        BlameResult blameResult = git.blame()
+                .setFilePath(relativePath)
+                .setStartCommit(commitId)
+                .setFollowFileRenames(true)
+                .call();
+        if (blameResult == null) {
+            logger.warn("Blame returned null for {} at {}", relativePath, commitId.name());
+            lastErrors.put(cacheKey, "Blame returned no results");
+            return null;
+        }
+        blameResult.computeAll();
+        return blameCache.put(commitId, relativePath, blobId, blameResult);
+    }
+
+    /** Same lines with CRLF endings turned into LF; the line count does not change. */
+    private static RawText withoutCr(RawText text) {
+        return new RawText(new String(text.getRawContent(), StandardCharsets.UTF_8)
+                .replace("\r\n", "\n")
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    private BlameInfo committedLine(BlameCache.Blame blame, int line) {
+        int commit = blame.lineCommits()[line];
+        return commit == BlameCache.UNCOMMITTED ? UNCOMMITTED_LINE : blameCache.commit(commit);
+    }
+
+    /**
+     * Clears cached blame for working tree file. Call after file modification to force refresh; committed blame stays
+     * cached, so the refresh only diffs the file against HEAD.
+     */
     public void clearCacheFor(Path filePath) {
         cache.remove(filePath.toAbsolutePath().toString());
     }
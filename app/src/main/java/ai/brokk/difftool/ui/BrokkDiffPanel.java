@@ -1,5 +1,6 @@
 package ai.brokk.difftool.ui;
 
+import ai.brokk.AbstractProject;
 import ai.brokk.ContextManager;
 import ai.brokk.IConsoleIO;
 import ai.brokk.TaskResult;
@@ -163,7 +164,8 @@ public class BrokkDiffPanel extends JPanel implements ThemeAware, EditorFontSize
 
         // Initialize blame service if we have a git repo
         if (contextManager.getProject().getRepo() instanceof GitRepo gitRepo) {
-            this.blameService = new BlameService(gitRepo.getGit());
+            this.blameService = new BlameService(
+                    gitRepo.getGit(), contextManager.getProject().getRoot().resolve(AbstractProject.BROKK_DIR));
         } else {
             this.blameService = null;
         }
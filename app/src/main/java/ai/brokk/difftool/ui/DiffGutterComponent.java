@@ -289,8 +289,10 @@ public class DiffGutterComponent extends JComponent {
      */
     public void setBlameLines(Map<Integer, BlameInfo> lines) {
         assert SwingUtilities.isEventDispatchThread() : "setBlameLines must be called on EDT";
-        // Atomic replacement with immutable map ensures paint thread sees coherent state
-        rightBlameLines = lines.isEmpty() ? Map.of() : Map.copyOf(lines);
+        // Atomic replacement with immutable map ensures paint thread sees coherent state; BlameLines already is one
+        rightBlameLines = lines.isEmpty()
+                ? Map.of()
+                : lines instanceof BlameService.BlameLines ? lines : Map.copyOf(lines);
         blameStale = false; // Fresh data, clear stale flag
         invalidate();
         if (getParent() != null) {
@@ -309,8 +311,10 @@ public class DiffGutterComponent extends JComponent {
      */
     public void setLeftBlameLines(Map<Integer, BlameInfo> lines) {
         assert SwingUtilities.isEventDispatchThread() : "setLeftBlameLines must be called on EDT";
-        // Atomic replacement with immutable map ensures paint thread sees coherent state
-        leftBlameLines = lines.isEmpty() ? Map.of() : Map.copyOf(lines);
+        // Atomic replacement with immutable map ensures paint thread sees coherent state; BlameLines already is one
+        leftBlameLines = lines.isEmpty()
+                ? Map.of()
+                : lines instanceof BlameService.BlameLines ? lines : Map.copyOf(lines);
         blameStale = false; // Fresh data, clear stale flag
         invalidate();
         if (getParent() != null) {
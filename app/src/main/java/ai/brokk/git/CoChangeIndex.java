@@ -0,0 +1,380 @@
+package ai.brokk.git;
+
+import ai.brokk.AbstractProject;
+import ai.brokk.analyzer.ProjectFile;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Incremental co-change index backing {@link GitDistance}.
+ *
+ * <p>The files each commit changed, and the renames it made, are computed once per commit id and appended to a log
+ * under the project's {@code .brokk} directory, so a commit's tree diff is never repeated across calls or sessions. On
+ * top of that, {@link #matrix} builds a sparse commit x file matrix for the newest commits of the current branch, with
+ * paths canonicalized to their names at the branch tip. The matrix is cached until the tip or the window changes; as
+ * HEAD moves forward only the new commits are diffed, and the previous matrix is carried forward through their renames.
+ *
+ * <p>Diffing runs without holding the index's lock, which only guards the in-memory log and its file; concurrent
+ * callers that race on the same new commits may both diff them, but each commit is recorded once.
+ */
+final class CoChangeIndex {
+    private static final Logger logger = LogManager.getLogger(CoChangeIndex.class);
+
+    private static final int MAGIC = 0x42434349; // "BCCI"
+    private static final int FORMAT_VERSION = 1;
+    static final String LOG_FILE = "git-cochange.log";
+
+    /** Files changed by one commit against its first parent, as named at that commit, and the renames it made. */
+    record CommitChanges(List<ProjectFile> files, List<RenameEdge> renames) {}
+
+    /** A single rename observed in a commit's diff (old -> new). */
+    record RenameEdge(ProjectFile old, ProjectFile newPath) {}
+
+    private final GitRepo repo;
+    private final Path logPath;
+    private final Map<String, CommitChanges> changesByCommit = new ConcurrentHashMap<>();
+    private boolean loaded;
+    private volatile @Nullable Matrix matrix;
+
+    CoChangeIndex(GitRepo repo, Path projectRoot) {
+        this.repo = repo;
+        this.logPath = projectRoot.resolve(AbstractProject.BROKK_DIR).resolve(LOG_FILE);
+    }
+
+    /**
+     * Returns the changes of every given commit, diffing (in parallel) and persisting only those not seen before.
+     * Commits whose diff fails are left out of the result.
+     */
+    Map<String, CommitChanges> changes(List<CommitInfo> commits) throws InterruptedException {
+        var commitIds = commits.stream().map(CommitInfo::id).toList();
+        List<String> missing;
+        synchronized (this) {
+            ensureLoaded();
+            missing = commitIds.stream()
+                    .filter(id -> !changesByCommit.containsKey(id))
+                    .distinct()
+                    .toList();
+        }
+        if (!missing.isEmpty()) {
+            var computed = new ConcurrentHashMap<String, CommitChanges>();
+            try (var pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors())) {
+                pool.submit(() -> missing.parallelStream().forEach(id -> {
+                            try {
+                                computed.put(id, repo.commitChanges(id));
+                            } catch (GitAPIException e) {
+                                throw new RuntimeException("Error processing commit: " + id, e);
+                            }
+                        }))
+                        .get();
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Error computing commit changes in parallel", e);
+            }
+            synchronized (this) {
+                // another caller may have recorded some of these while we were diffing
+                var fresh = missing.stream()
+                        .filter(id -> computed.containsKey(id) && !changesByCommit.containsKey(id))
+                        .toList();
+                append(fresh, computed);
+                fresh.forEach(id -> changesByCommit.put(id, computed.get(id)));
+                logger.debug("Indexed {} new commits for co-change analysis", fresh.size());
+            }
+        }
+
+        var result = new HashMap<String, CommitChanges>(commitIds.size() * 2);
+        for (var id : commitIds) {
+            var changes = changesByCommit.get(id);
+            if (changes != null) result.put(id, changes);
+        }
+        return result;
+    }
+
+    /**
+     * The co-change matrix over the newest {@code window} commits of the current branch. Rebuilt only when the branch
+     * tip or the window changes; commits already indexed are not diffed again. Concurrent rebuilds are not serialized,
+     * the last one to finish is cached.
+     */
+    Matrix matrix(int window) throws GitAPIException, InterruptedException {
+        var branch = repo.getCurrentBranch();
+        var tip = repo.resolveToCommit(branch).getName();
+        var current = matrix;
+        if (current != null && current.tip().equals(tip) && current.window() == window) {
+            return current;
+        }
+        var commits = repo.listCommitsDetailed(branch, window);
+        var built = Matrix.build(tip, window, commits, changes(commits), current);
+        matrix = built;
+        return built;
+    }
+
+    /* ---------- persistence ---------- */
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        loaded = true;
+        if (!Files.exists(logPath)) return;
+
+        long validLength = 0;
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logPath)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                logger.info("Discarding co-change log {} written in an unknown format", logPath);
+                Files.delete(logPath);
+                return;
+            }
+            validLength = 8;
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                var record = new byte[length];
+                in.readFully(record);
+                readRecord(record);
+                validLength += 4 + length;
+            }
+        } catch (EOFException e) {
+            // a record was cut short by an interrupted append; drop it below
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Unable to read co-change log {}; rebuilding it: {}", logPath, e.toString());
+            changesByCommit.clear();
+            validLength = 0;
+        }
+
+        try (var channel = FileChannel.open(logPath, StandardOpenOption.WRITE)) {
+            if (channel.size() > validLength) {
+                channel.truncate(validLength);
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to truncate co-change log {}: {}", logPath, e.toString());
+        }
+        logger.debug("Loaded co-change data for {} commits from {}", changesByCommit.size(), logPath);
+    }
+
+    private void readRecord(byte[] record) throws IOException {
+        var root = repo.getProjectRoot();
+        var in = new DataInputStream(new ByteArrayInputStream(record));
+        var id = in.readUTF();
+        int fileCount = in.readInt();
+        var files = new ArrayList<ProjectFile>(fileCount);
+        for (int i = 0; i < fileCount; i++) files.add(new ProjectFile(root, in.readUTF()));
+        int renameCount = in.readInt();
+        var renames = new ArrayList<RenameEdge>(renameCount);
+        for (int i = 0; i < renameCount; i++) {
+            renames.add(new RenameEdge(new ProjectFile(root, in.readUTF()), new ProjectFile(root, in.readUTF())));
+        }
+        changesByCommit.put(id, new CommitChanges(List.copyOf(files), List.copyOf(renames)));
+    }
+
+    /** Appends one length-prefixed record per commit, so a torn final record is detected and dropped on load. */
+    private void append(List<String> ids, Map<String, CommitChanges> computed) {
+        try {
+            Files.createDirectories(logPath.getParent());
+            boolean fresh = !Files.exists(logPath) || Files.size(logPath) == 0;
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+                    logPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)))) {
+                if (fresh) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(FORMAT_VERSION);
+                }
+                for (var id : ids) {
+                    var changes = computed.get(id);
+                    if (changes == null) continue;
+                    var record = encode(id, changes);
+                    out.writeInt(record.length);
+                    out.write(record);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to append to co-change log {}: {}", logPath, e.toString());
+        }
+    }
+
+    private static byte[] encode(String id, CommitChanges changes) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+        out.writeUTF(id);
+        out.writeInt(changes.files().size());
+        for (var file : changes.files()) out.writeUTF(file.getRelPath().toString());
+        out.writeInt(changes.renames().size());
+        for (var edge : changes.renames()) {
+            out.writeUTF(edge.old().getRelPath().toString());
+            out.writeUTF(edge.newPath().getRelPath().toString());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /* ---------- matrix ---------- */
+
+    /**
+     * Sparse commit x file incidence over a window of commits (index 0 = newest), with paths canonicalized to their
+     * names at the tip. Whether a file still exists is checked when the matrix is queried, not when it is built, so a
+     * file deleted or restored later is seen as it is now.
+     */
+    static final class Matrix {
+        private final String tip;
+        private final int window;
+        private final List<String> commitIds;
+        private final List<List<ProjectFile>> filesByCommit;
+        private final Map<ProjectFile, int[]> commitsByFile;
+        // every path renamed between the oldest commit ever folded into this matrix and the tip -> its name at the tip
+        private final Map<ProjectFile, ProjectFile> renamedTo;
+
+        private Matrix(
+                String tip,
+                int window,
+                List<String> commitIds,
+                List<List<ProjectFile>> filesByCommit,
+                Map<ProjectFile, int[]> commitsByFile,
+                Map<ProjectFile, ProjectFile> renamedTo) {
+            this.tip = tip;
+            this.window = window;
+            this.commitIds = commitIds;
+            this.filesByCommit = filesByCommit;
+            this.commitsByFile = commitsByFile;
+            this.renamedTo = renamedTo;
+        }
+
+        /**
+         * Builds the matrix for {@code commits} (newest first). When {@code previous} was built for an older tip whose
+         * window continues in {@code commits}, only the commits after that tip are walked; the previous rows and rename
+         * map are carried forward through their renames instead of being rebuilt.
+         */
+        static Matrix build(
+                String tip,
+                int window,
+                List<CommitInfo> commits,
+                Map<String, CommitChanges> changesByCommit,
+                @Nullable Matrix previous) {
+            int reusedFrom = previous == null ? -1 : previous.continuedAt(commits);
+            int walked = reusedFrom < 0 ? commits.size() : reusedFrom;
+
+            // Walk from newest to oldest, so that when a commit is reached the map holds exactly the renames made
+            // after it, already resolved to their final names.
+            var renamedTo = new HashMap<ProjectFile, ProjectFile>();
+            var filesByCommit = new ArrayList<List<ProjectFile>>(commits.size());
+            for (int i = 0; i < walked; i++) {
+                var changes = changesByCommit.get(commits.get(i).id());
+                var canonical = new LinkedHashSet<ProjectFile>();
+                if (changes != null) {
+                    for (var file : changes.files()) {
+                        canonical.add(renamedTo.getOrDefault(file, file));
+                    }
+                    for (var edge : changes.renames()) {
+                        renamedTo.put(edge.old(), renamedTo.getOrDefault(edge.newPath(), edge.newPath()));
+                    }
+                }
+                filesByCommit.add(List.copyOf(canonical));
+            }
+            if (previous != null && reusedFrom >= 0) {
+                var since = Map.copyOf(renamedTo);
+                // a new commit can still touch a path renamed before this window (e.g. on a merged branch); follow the
+                // carried renames for such paths unless the path was reused and exists again
+                for (int i = 0; i < walked; i++) {
+                    var row = filesByCommit.get(i);
+                    if (row.stream().noneMatch(previous.renamedTo::containsKey)) continue;
+                    var canonical = new LinkedHashSet<ProjectFile>();
+                    for (var file : row) {
+                        var earlier = previous.renamedTo.get(file);
+                        canonical.add(earlier == null || file.exists() ? file : since.getOrDefault(earlier, earlier));
+                    }
+                    filesByCommit.set(i, List.copyOf(canonical));
+                }
+                // the older rows are named at the previous tip; move them through the renames made since
+                for (int i = reusedFrom; i < commits.size(); i++) {
+                    var canonical = new LinkedHashSet<ProjectFile>();
+                    for (var file : previous.filesByCommit.get(i - reusedFrom)) {
+                        canonical.add(since.getOrDefault(file, file));
+                    }
+                    filesByCommit.add(List.copyOf(canonical));
+                }
+                previous.renamedTo.forEach((old, name) -> renamedTo.putIfAbsent(old, since.getOrDefault(name, name)));
+            }
+
+            var postings = new HashMap<ProjectFile, List<Integer>>();
+            for (int index = 0; index < filesByCommit.size(); index++) {
+                for (var file : filesByCommit.get(index)) {
+                    postings.computeIfAbsent(file, f -> new ArrayList<>()).add(index);
+                }
+            }
+            var commitsByFile = new HashMap<ProjectFile, int[]>(postings.size() * 2);
+            postings.forEach((file, indexes) -> commitsByFile.put(
+                    file, indexes.stream().mapToInt(Integer::intValue).toArray()));
+            return new Matrix(
+                    tip,
+                    window,
+                    commits.stream().map(CommitInfo::id).toList(),
+                    List.copyOf(filesByCommit),
+                    commitsByFile,
+                    Map.copyOf(renamedTo));
+        }
+
+        /**
+         * Index in {@code commits} at which this matrix's tip appears with this matrix's rows covering everything from
+         * there to the end, or -1 if the new window does not continue this one.
+         */
+        private int continuedAt(List<CommitInfo> commits) {
+            for (int k = 0; k < commits.size(); k++) {
+                if (!commits.get(k).id().equals(tip)) continue;
+                if (commits.size() - k > commitIds.size()) return -1;
+                for (int i = k; i < commits.size(); i++) {
+                    if (!commits.get(i).id().equals(commitIds.get(i - k))) return -1;
+                }
+                return k;
+            }
+            return -1;
+        }
+
+        String tip() {
+            return tip;
+        }
+
+        int window() {
+            return window;
+        }
+
+        /** Number of commits in the window, including those that changed no surviving file. */
+        int commitCount() {
+            return commitIds.size();
+        }
+
+        /** Indexes of the commits that changed {@code file}; none if the file no longer exists. */
+        int[] commitsContaining(ProjectFile file) {
+            var commits = commitsByFile.get(file);
+            return commits == null || !file.exists() ? new int[0] : commits;
+        }
+
+        /** Distinct canonical files changed by the commit at {@code index} that still exist. */
+        List<ProjectFile> filesIn(int index) {
+            return filesByCommit.get(index).stream().filter(ProjectFile::exists).toList();
+        }
+
+        /** Number of commits in the window that changed {@code file}. */
+        int documentFrequency(ProjectFile file) {
+            return commitsContaining(file).length;
+        }
+    }
+}
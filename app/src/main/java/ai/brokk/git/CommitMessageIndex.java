@@ -0,0 +1,494 @@
+package ai.brokk.git;
+
+import ai.brokk.AbstractProject;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Persistent word index over commit messages and authors, backing {@link GitRepo#searchCommits}.
+ *
+ * <p>Each commit is split into lower-cased words once, the first time it is reachable from a HEAD the index is asked
+ * about, and appended to a log under the project's {@code .brokk} directory; a later HEAD only walks the commits not
+ * indexed yet. A query is reduced to the word fragments every match must contain (see {@link #requiredWords}), and
+ * only the commits that have all of them are handed back to be read and checked against the query itself. The
+ * vocabulary is indexed by character bigrams, so the indexed words containing a fragment are found from the rarest
+ * bigram of the fragment instead of by scanning every word.
+ */
+final class CommitMessageIndex {
+    private static final Logger logger = LogManager.getLogger(CommitMessageIndex.class);
+
+    private static final int MAGIC = 0x42434d49; // "BCMI"
+    private static final int FORMAT_VERSION = 1;
+    static final String LOG_FILE = "git-messages.log";
+
+    /** Fragments shorter than this match too many words to narrow anything down. */
+    private static final int MIN_WORD_LENGTH = 2;
+
+    /** Inline flag groups that turn on comments mode, in which pattern whitespace is not literal. */
+    private static final Pattern COMMENTS_FLAG = Pattern.compile("\\(\\?[a-zA-Z]*x");
+
+    private static final int[] NO_ORDINALS = {0};
+
+    private record Entry(String id, List<String> parents, int commitTime, List<String> words) {}
+
+    private final Repository repository;
+    private final Path logPath;
+
+    // Guarded by this. Commits are numbered in the order they were indexed, which is newest first per walk.
+    private final List<String> ids = new ArrayList<>();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final List<List<String>> parents = new ArrayList<>();
+    private int[] commitTimes = new int[256];
+    private int[] walkNumbers = new int[256]; // later walks hold the descendants of earlier ones
+    private int walkCount;
+    private final Map<String, int[]> postings = new HashMap<>(); // word -> ordinals, with the count in slot 0
+    private final Map<String, List<String>> wordsByBigram = new HashMap<>(); // over the keys of postings
+    private final Set<String> referencedParents = new HashSet<>();
+    private final BitSet hasIndexedChild = new BitSet(); // clear bits are the tips of the indexed history
+    private boolean loaded;
+
+    private @Nullable String ancestryHead;
+    private BitSet ancestry = new BitSet();
+
+    CommitMessageIndex(Repository repository, Path projectRoot) {
+        this.repository = repository;
+        this.logPath = projectRoot.resolve(AbstractProject.BROKK_DIR).resolve(LOG_FILE);
+    }
+
+    /**
+     * Ids of the commits reachable from {@code head} whose message, author name, or author e-mail has every one of
+     * {@code words} (lower case) inside one of its words, newest first. Commits not indexed yet are indexed first.
+     */
+    synchronized List<String> candidates(ObjectId head, Set<String> words) throws GitAPIException {
+        ensureLoaded();
+        ensureIndexed(head);
+        var result = (BitSet) ancestry(head.getName()).clone();
+        for (var word : words) {
+            var matching = new BitSet(ids.size());
+            for (var indexed : wordsContaining(word)) {
+                var ordinalList = postings.getOrDefault(indexed, NO_ORDINALS);
+                for (int i = 1; i <= ordinalList[0]; i++) matching.set(ordinalList[i]);
+            }
+            result.and(matching);
+            if (result.isEmpty()) return List.of();
+        }
+        return result.stream()
+                .boxed()
+                .sorted(Comparator.comparingInt((Integer ordinal) -> -commitTimes[ordinal])
+                        .thenComparingInt(ordinal -> -walkNumbers[ordinal])
+                        .thenComparingInt(ordinal -> ordinal))
+                .map(ids::get)
+                .toList();
+    }
+
+    /** Indexed words that contain {@code fragment}, looked up through the rarest of its bigrams. */
+    private Collection<String> wordsContaining(String fragment) {
+        if (fragment.length() < 2) {
+            return postings.keySet().stream().filter(w -> w.contains(fragment)).toList();
+        }
+        var rarest = wordsByBigram.getOrDefault(fragment.substring(0, 2), List.of());
+        for (int i = 1; i + 2 <= fragment.length() && !rarest.isEmpty(); i++) {
+            var words = wordsByBigram.getOrDefault(fragment.substring(i, i + 2), List.of());
+            if (words.size() < rarest.size()) rarest = words;
+        }
+        return rarest.stream().filter(w -> w.contains(fragment)).toList();
+    }
+
+    synchronized int size() {
+        ensureLoaded();
+        return ids.size();
+    }
+
+    /* ---------- query analysis ---------- */
+
+    /**
+     * The lower-cased word fragments that any text found by {@code regex} must contain, or an empty set when none can
+     * be derived (alternation, comments mode, or nothing but classes and wildcards). Only literals outside groups and
+     * not made optional by a quantifier count, so the result is conservative: it never rules out a real match.
+     */
+    static Set<String> requiredWords(String regex) {
+        if (COMMENTS_FLAG.matcher(regex).find()) {
+            return Set.of();
+        }
+        var words = new LinkedHashSet<String>();
+        var run = new StringBuilder();
+        int depth = 0;
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i++);
+            switch (c) {
+                case '\\' -> {
+                    if (i >= regex.length()) break;
+                    char next = regex.charAt(i++);
+                    if (next == 'Q') {
+                        int end = regex.indexOf("\\E", i);
+                        var quoted = end < 0 ? regex.substring(i) : regex.substring(i, end);
+                        if (depth == 0) run.append(quoted);
+                        i = end < 0 ? regex.length() : end + 2;
+                    } else if (Character.isLetterOrDigit(next)) {
+                        addWords(run, words);
+                        i = skipEscapeArguments(regex, i, next);
+                    } else if (depth == 0) {
+                        run.append(next);
+                    }
+                }
+                case '|' -> {
+                    if (depth == 0) return Set.of(); // inside a group it only affects literals already ignored
+                }
+                case '[' -> {
+                    addWords(run, words);
+                    i = skipCharacterClass(regex, i);
+                }
+                case '(' -> {
+                    addWords(run, words);
+                    depth++;
+                }
+                case ')' -> {
+                    addWords(run, words);
+                    depth = Math.max(0, depth - 1);
+                }
+                case '*', '?' -> {
+                    dropLast(run);
+                    addWords(run, words);
+                }
+                case '{' -> {
+                    dropLast(run);
+                    addWords(run, words);
+                    int close = regex.indexOf('}', i);
+                    i = close < 0 ? regex.length() : close + 1;
+                }
+                case '+', '.', '^', '$' -> addWords(run, words);
+                default -> {
+                    if (depth == 0) run.append(c);
+                }
+            }
+        }
+        addWords(run, words);
+        return words;
+    }
+
+    /** The lower-cased word fragments of a plain substring query. */
+    static Set<String> literalWords(String text) {
+        var words = new LinkedHashSet<String>();
+        addWords(new StringBuilder(text), words);
+        return words;
+    }
+
+    private static void addWords(StringBuilder run, Set<String> words) {
+        for (var word : split(run)) {
+            if (word.length() >= MIN_WORD_LENGTH) words.add(word);
+        }
+        run.setLength(0);
+    }
+
+    private static void dropLast(StringBuilder run) {
+        if (!run.isEmpty()) {
+            run.setLength(run.length() - Character.charCount(run.codePointBefore(run.length())));
+        }
+    }
+
+    /** Skips what follows an escape such as {@code A}, {@code \x{41}}, {@code \p{Alpha}} or {@code \k<name>}. */
+    private static int skipEscapeArguments(String regex, int i, char escape) {
+        return switch (escape) {
+            case 'u' -> Math.min(regex.length(), i + 4);
+            case 'c' -> Math.min(regex.length(), i + 1);
+            case 'x', 'p', 'P', 'N' -> {
+                if (i < regex.length() && regex.charAt(i) == '{') {
+                    int close = regex.indexOf('}', i);
+                    yield close < 0 ? regex.length() : close + 1;
+                }
+                yield Math.min(regex.length(), i + (escape == 'x' ? 2 : 1));
+            }
+            case 'k' -> {
+                int close = regex.indexOf('>', i);
+                yield close < 0 ? regex.length() : close + 1;
+            }
+            default -> {
+                // octal (\0nn) and back references (\1, \12) continue with digits
+                if (Character.isDigit(escape)) {
+                    while (i < regex.length() && Character.isDigit(regex.charAt(i))) i++;
+                }
+                yield i;
+            }
+        };
+    }
+
+    private static int skipCharacterClass(String regex, int i) {
+        int nesting = 1;
+        if (i < regex.length() && regex.charAt(i) == '^') i++;
+        if (i < regex.length() && regex.charAt(i) == ']') i++; // a leading ] is literal
+        while (i < regex.length() && nesting > 0) {
+            char c = regex.charAt(i++);
+            if (c == '\\') i++;
+            else if (c == '[') nesting++;
+            else if (c == ']') nesting--;
+        }
+        return Math.min(i, regex.length());
+    }
+
+    /** Maximal runs of letters and digits, lower-cased one char at a time so the folding does not depend on context. */
+    private static List<String> split(CharSequence text) {
+        var words = new ArrayList<String>();
+        var word = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if (!word.isEmpty()) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (!word.isEmpty()) words.add(word.toString());
+        return words;
+    }
+
+    /* ---------- indexing ---------- */
+
+    /** Indexes the commits reachable from {@code head} that are not yet indexed. */
+    private void ensureIndexed(ObjectId head) throws GitAPIException {
+        if (ordinals.containsKey(head.getName())) return;
+
+        var added = new ArrayList<Entry>();
+        try (var walk = new RevWalk(repository)) {
+            walk.markStart(walk.parseCommit(head));
+            // Everything behind an indexed tip is indexed too, so the walk stops at the tips
+            for (int i = hasIndexedChild.nextClearBit(0); i < ids.size(); i = hasIndexedChild.nextClearBit(i + 1)) {
+                try {
+                    walk.markUninteresting(walk.parseCommit(ObjectId.fromString(ids.get(i))));
+                } catch (MissingObjectException e) {
+                    // pruned since it was indexed, e.g. after a rebase; it is no longer anyone's ancestor
+                }
+            }
+            for (RevCommit commit = walk.next(); commit != null; commit = walk.next()) {
+                if (!ordinals.containsKey(commit.getName())) added.add(toEntry(commit));
+            }
+        } catch (IOException e) {
+            throw new GitRepo.GitWrappedIOException(e);
+        }
+        // Nothing is added until the walk is complete, so an indexed commit always has its ancestors indexed
+        walkCount++;
+        added.forEach(this::add);
+        if (!added.isEmpty()) {
+            append(added);
+            logger.debug("Indexed messages of {} new commits ({} total)", added.size(), ids.size());
+        }
+    }
+
+    private static Entry toEntry(RevCommit commit) {
+        var author = commit.getAuthorIdent();
+        var text = commit.getFullMessage() + "\n" + author.getName() + "\n" + author.getEmailAddress();
+        var parentIds = Arrays.stream(commit.getParents()).map(RevCommit::getName).toList();
+        var words = List.copyOf(new LinkedHashSet<>(split(text)));
+        return new Entry(commit.getName(), parentIds, commit.getCommitTime(), words);
+    }
+
+    private void add(Entry entry) {
+        int ordinal = ids.size();
+        ids.add(entry.id());
+        ordinals.put(entry.id(), ordinal);
+        parents.add(entry.parents());
+        if (ordinal == commitTimes.length) {
+            commitTimes = Arrays.copyOf(commitTimes, ordinal * 2);
+            walkNumbers = Arrays.copyOf(walkNumbers, ordinal * 2);
+        }
+        commitTimes[ordinal] = entry.commitTime();
+        walkNumbers[ordinal] = walkCount;
+        for (var word : entry.words()) {
+            var list = postings.get(word);
+            if (list == null) {
+                list = new int[4];
+                postings.put(word, list);
+                addToVocabulary(word);
+            }
+            int count = list[0] + 1;
+            if (count == list.length) {
+                list = Arrays.copyOf(list, list.length * 2);
+                postings.put(word, list);
+            }
+            list[count] = ordinal;
+            list[0] = count;
+        }
+        for (var parent : entry.parents()) {
+            referencedParents.add(parent);
+            var parentOrdinal = ordinals.get(parent);
+            if (parentOrdinal != null) hasIndexedChild.set(parentOrdinal);
+        }
+        if (referencedParents.contains(entry.id())) hasIndexedChild.set(ordinal);
+        ancestryHead = null;
+    }
+
+    private void addToVocabulary(String word) {
+        var seen = new HashSet<String>();
+        for (int i = 0; i + 2 <= word.length(); i++) {
+            var bigram = word.substring(i, i + 2);
+            if (seen.add(bigram)) {
+                wordsByBigram.computeIfAbsent(bigram, b -> new ArrayList<>()).add(word);
+            }
+        }
+    }
+
+    /** Commits reachable from {@code head} over the indexed parent links, cached until HEAD or the index changes. */
+    private BitSet ancestry(String head) {
+        if (head.equals(ancestryHead)) return ancestry;
+        var reachable = new BitSet(ids.size());
+        var pending = new ArrayDeque<Integer>();
+        var start = ordinals.get(head);
+        if (start != null) pending.push(start);
+        while (!pending.isEmpty()) {
+            int ordinal = pending.pop();
+            if (reachable.get(ordinal)) continue;
+            reachable.set(ordinal);
+            for (var parent : parents.get(ordinal)) {
+                var parentOrdinal = ordinals.get(parent);
+                if (parentOrdinal != null && !reachable.get(parentOrdinal)) pending.push(parentOrdinal);
+            }
+        }
+        ancestryHead = head;
+        ancestry = reachable;
+        return reachable;
+    }
+
+    /* ---------- persistence ---------- */
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        loaded = true;
+        if (!Files.exists(logPath)) return;
+
+        long validLength = 0;
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logPath)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                logger.info("Discarding commit message index {} written in an unknown format", logPath);
+                Files.delete(logPath);
+                return;
+            }
+            validLength = 8;
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                var record = new byte[length];
+                in.readFully(record);
+                walkCount++;
+                for (var entry : decode(record)) {
+                    if (!ordinals.containsKey(entry.id())) add(entry);
+                }
+                validLength += 4 + length;
+            }
+        } catch (EOFException e) {
+            // a record was cut short by an interrupted append; drop it below
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Unable to read commit message index {}; rebuilding it: {}", logPath, e.toString());
+            ids.clear();
+            ordinals.clear();
+            parents.clear();
+            postings.clear();
+            wordsByBigram.clear();
+            referencedParents.clear();
+            hasIndexedChild.clear();
+            validLength = 0;
+        }
+
+        try (var channel = FileChannel.open(logPath, StandardOpenOption.WRITE)) {
+            if (channel.size() > validLength) {
+                channel.truncate(validLength);
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to truncate commit message index {}: {}", logPath, e.toString());
+        }
+        logger.debug("Loaded message index of {} commits from {}", ids.size(), logPath);
+    }
+
+    /**
+     * Appends the commits of one walk as a single length-prefixed record. A torn final record is detected and dropped
+     * on load as a whole, so a commit is never loaded without the ancestors indexed along with it.
+     */
+    private void append(List<Entry> entries) {
+        try {
+            Files.createDirectories(logPath.getParent());
+            boolean fresh = !Files.exists(logPath) || Files.size(logPath) == 0;
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+                    logPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)))) {
+                if (fresh) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(FORMAT_VERSION);
+                }
+                var record = encode(entries);
+                out.writeInt(record.length);
+                out.write(record);
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to append to commit message index {}: {}", logPath, e.toString());
+        }
+    }
+
+    private static byte[] encode(List<Entry> entries) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+        out.writeInt(entries.size());
+        for (var entry : entries) {
+            out.writeUTF(entry.id());
+            out.writeInt(entry.commitTime());
+            out.writeInt(entry.parents().size());
+            for (var parent : entry.parents()) out.writeUTF(parent);
+            out.writeInt(entry.words().size());
+            for (var word : entry.words()) out.writeUTF(word);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static List<Entry> decode(byte[] record) throws IOException {
+        var in = new DataInputStream(new ByteArrayInputStream(record));
+        int count = in.readInt();
+        var entries = new ArrayList<Entry>(count);
+        for (int e = 0; e < count; e++) {
+            var id = in.readUTF();
+            int commitTime = in.readInt();
+            int parentCount = in.readInt();
+            var parentIds = new ArrayList<String>(parentCount);
+            for (int i = 0; i < parentCount; i++) parentIds.add(in.readUTF());
+            int wordCount = in.readInt();
+            var words = new ArrayList<String>(wordCount);
+            for (int i = 0; i < wordCount; i++) words.add(in.readUTF());
+            entries.add(new Entry(id, List.copyOf(parentIds), commitTime, List.copyOf(words)));
+        }
+        return entries;
+    }
+}
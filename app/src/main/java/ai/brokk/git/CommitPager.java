@@ -0,0 +1,152 @@
+package ai.brokk.git;
+
+import ai.brokk.git.GitRepo.CommitPage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Pages through branch histories for the commit log views.
+ *
+ * <p>The {@link RevWalk} behind each recently paged branch stays open, so asking for the page after the one just
+ * returned resumes the walk where it stopped. Only a cursor the walk has not just produced (another branch in between
+ * evicted it, or the branch tip moved) walks again from the tip; a cursor that walk does not reach, because the branch
+ * was rewritten, is reported as stale rather than answered with an empty page.
+ */
+final class CommitPager {
+    private static final Logger logger = LogManager.getLogger(CommitPager.class);
+
+    private static final int MAX_OPEN_WALKS = 4;
+    private static final long CURSOR_TIME_SLACK_SECONDS = 24 * 60 * 60;
+
+    private static final class OpenWalk {
+        final RevWalk walk;
+        final ObjectId tip;
+        @Nullable
+        String lastCommitId;
+
+        OpenWalk(RevWalk walk, ObjectId tip) {
+            this.walk = walk;
+            this.tip = tip;
+        }
+    }
+
+    private final GitRepo repo;
+    private final Repository repository;
+
+    // Guarded by this; access-ordered so the least recently paged branch is closed first
+    private final LinkedHashMap<String, OpenWalk> walks = new LinkedHashMap<>(8, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, OpenWalk> eldest) {
+            if (size() <= MAX_OPEN_WALKS) return false;
+            eldest.getValue().walk.close();
+            return true;
+        }
+    };
+
+    CommitPager(GitRepo repo, Repository repository) {
+        this.repo = repo;
+        this.repository = repository;
+    }
+
+    synchronized CommitPage page(String branchName, @Nullable String afterCommitId, int pageSize)
+            throws GitAPIException {
+        var tip = repo.resolveToCommit(branchName.isEmpty() ? "HEAD" : branchName);
+        var open = walks.get(branchName);
+        if (open == null
+                || afterCommitId == null
+                || !open.tip.equals(tip)
+                || !Objects.equals(open.lastCommitId, afterCommitId)) {
+            if (open != null) {
+                walks.remove(branchName);
+                open.walk.close();
+            }
+            open = startWalk(branchName, tip, afterCommitId);
+            walks.put(branchName, open);
+        }
+
+        try {
+            var commits = new ArrayList<CommitInfo>(Math.min(pageSize, 1024));
+            while (commits.size() < pageSize) {
+                var commit = open.walk.next();
+                if (commit == null) break;
+                commits.add(repo.fromRevCommit(commit));
+            }
+            if (commits.size() < pageSize) {
+                walks.remove(branchName);
+                open.walk.close();
+                return new CommitPage(commits, null);
+            }
+            open.lastCommitId = commits.getLast().id();
+            return new CommitPage(commits, open.lastCommitId);
+        } catch (IOException e) {
+            walks.remove(branchName);
+            open.walk.close();
+            throw new GitRepo.GitWrappedIOException(e);
+        }
+    }
+
+    /**
+     * Starts a walk at {@code tip}, skipped past {@code afterCommitId} when resuming from a cursor.
+     *
+     * @throws GitRepo.StaleCursorException if the cursor commit does not exist or is not reachable from the tip.
+     */
+    private OpenWalk startWalk(String branchName, ObjectId tip, @Nullable String afterCommitId)
+            throws GitAPIException {
+        ObjectId cursorId = null;
+        if (afterCommitId != null) {
+            if (!ObjectId.isId(afterCommitId)) throw staleCursor(branchName, afterCommitId);
+            cursorId = ObjectId.fromString(afterCommitId);
+        }
+        var walk = new RevWalk(repository);
+        boolean started = false;
+        try {
+            // a commit dropped by a rebase or force-push may already be gone; fail before walking anything
+            if (cursorId != null && !repository.getObjectDatabase().has(cursorId)) {
+                throw staleCursor(branchName, afterCommitId);
+            }
+            walk.markStart(walk.parseCommit(tip));
+            var open = new OpenWalk(walk, tip);
+            if (cursorId != null) {
+                logger.debug("Re-walking history from {} to resume after {}", tip.getName(), afterCommitId);
+                var cursor = walk.parseCommit(cursorId);
+                // the walk yields commits newest first by commit time, so once it is well past the cursor's time the
+                // cursor is not in this history; the slack absorbs clock skew between committers
+                long giveUpBefore = (long) cursor.getCommitTime() - CURSOR_TIME_SLACK_SECONDS;
+                var commit = walk.next();
+                while (commit != null && !commit.equals(cursor) && commit.getCommitTime() >= giveUpBefore) {
+                    commit = walk.next();
+                }
+                if (commit == null || !commit.equals(cursor)) {
+                    throw staleCursor(branchName, afterCommitId);
+                }
+                open.lastCommitId = afterCommitId;
+            }
+            started = true;
+            return open;
+        } catch (IOException e) {
+            throw new GitRepo.GitWrappedIOException(e);
+        } finally {
+            if (!started) walk.close();
+        }
+    }
+
+    private static GitRepo.StaleCursorException staleCursor(String branchName, @Nullable String afterCommitId) {
+        return new GitRepo.StaleCursorException("Commit " + afterCommitId + " is no longer in the history of "
+                + (branchName.isEmpty() ? "HEAD" : branchName));
+    }
+
+    synchronized void close() {
+        walks.values().forEach(open -> open.walk.close());
+        walks.clear();
+    }
+}
@@ -8,10 +8,6 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ForkJoinPool;
-import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.eclipse.jgit.api.errors.GitAPIException;
@@ -20,13 +16,17 @@ import org.jetbrains.annotations.VisibleForTesting;
 /** Provides the logic to perform a Git-centric distance calculations for given type declarations. */
 public final class GitDistance {
     private static final Logger logger = LogManager.getLogger(GitDistance.class);
-    private static final int COMMITS_TO_PROCESS = 1_000;
+
+    /** System property overriding how many of the newest commits the history analyses consider. */
+    public static final String COMMIT_WINDOW_PROPERTY = "brokk.git.commitWindow";
+
+    private static final int DEFAULT_COMMIT_WINDOW = 1_000;
 
     /** Represents an edge between two CodeUnits in the co-occurrence graph. */
     public record FileEdge(ProjectFile src, ProjectFile dst) {}
 
     /**
-     * Given seed files and weights, return related files from the most recent COMMITS_TO_PROCESS commits ranked by:
+     * Given seed files and weights, return related files from the most recent {@link #commitWindow()} commits ranked by:
      *   score(y) = sum_over_seeds [ weight(seed) * P(y|seed) * idf(y) ]
      *
      * where:
@@ -37,6 +37,8 @@ public final class GitDistance {
      *
      * Notes:
      *   - 'reversed' flips sort order only.
+     *   - per-commit change sets come from the repository's persistent co-change index, so only commits not seen
+     *     before are diffed, and the window matrix is reused until the branch tip moves.
      */
     public static List<IAnalyzer.FileRelevance> getRelatedFiles(
             GitRepo repo, Map<ProjectFile, Double> seedWeights, int k, boolean reversed) throws InterruptedException {
@@ -54,73 +56,33 @@ public final class GitDistance {
             GitRepo repo, Map<ProjectFile, Double> seedWeights, int k, boolean reversed)
             throws GitAPIException, InterruptedException {
 
-        // Baseline universe: recent commits on the current branch
-        var baselineCommits = repo.listCommitsDetailed(repo.getCurrentBranch(), COMMITS_TO_PROCESS);
-        final int N = baselineCommits.size();
+        // Baseline universe: recent commits on the current branch, canonicalized to current paths
+        var matrix = repo.coChangeIndex().matrix(commitWindow());
+        final int N = matrix.commitCount();
         if (N == 0) return List.of();
 
-        // Canonicalize paths within this baseline window
-        var canonicalizer = repo.buildCanonicalizer(baselineCommits);
-
-        // Unweighted doc frequency per file: in how many baseline commits did file appear?
-        var fileDocFreq = new ConcurrentHashMap<ProjectFile, Integer>();
-
         // For conditional numerator: joint mass across (seed -> target),
         // where each commit contributes 1/numFilesChanged to *every* pair in that commit that involves a seed.
-        var jointMass = new ConcurrentHashMap<FileEdge, Double>();
+        var jointMass = new HashMap<FileEdge, Double>();
 
         // For conditional denominator: how many baseline commits contain the seed (unweighted)
-        var seedCommitCount = new ConcurrentHashMap<ProjectFile, Integer>();
-
-        try (var pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors())) {
-            pool.submit(() -> baselineCommits.parallelStream().forEach(commit -> {
-                        List<IGitRepo.ModifiedFile> changed;
-                        try {
-                            changed = repo.listFilesChangedInCommit(commit.id());
-                        } catch (GitAPIException e) {
-                            throw new RuntimeException("Error processing commit: " + commit.id(), e);
-                        }
-                        if (changed.isEmpty()) return;
-
-                        // Canonicalize "as-of-commit" paths to current names; drop non-existing
-                        var changedFiles = changed.stream()
-                                .map(IGitRepo.ModifiedFile::file)
-                                .map(pf -> canonicalizer.canonicalize(commit.id(), pf))
-                                .distinct()
-                                .filter(ProjectFile::exists)
-                                .toList();
-
-                        if (changedFiles.isEmpty()) return;
-
-                        // Unweighted docfreq for IDF
-                        for (var f : changedFiles) {
-                            fileDocFreq.merge(f, 1, Integer::sum);
-                        }
-
-                        // Seeds present in this commit
-                        var seedsInCommit = changedFiles.stream()
-                                .filter(seedWeights::containsKey)
-                                .collect(Collectors.toSet());
-                        if (seedsInCommit.isEmpty()) return;
-
-                        // Denominator for P(y|seed): count baseline commits containing the seed (unweighted)
-                        for (var seed : seedsInCommit) {
-                            seedCommitCount.merge(seed, 1, Integer::sum);
-                        }
-
-                        // Size-aware contribution: each commit contributes 1/|Δ| to any (seed, target) it contains
-                        final double commitPairMass = 1.0 / changedFiles.size();
-
-                        for (var seed : seedsInCommit) {
-                            for (var target : changedFiles) {
-                                if (target.equals(seed)) continue;
-                                jointMass.merge(new FileEdge(seed, target), commitPairMass, Double::sum);
-                            }
-                        }
-                    }))
-                    .get();
-        } catch (ExecutionException e) {
-            throw new RuntimeException("Error computing conditional scores in parallel", e);
+        var seedCommitCount = new HashMap<ProjectFile, Integer>();
+
+        // Only the commits that touch a seed contribute, so walk the seeds' postings instead of the whole window
+        for (var seed : seedWeights.keySet()) {
+            var seedCommits = matrix.commitsContaining(seed);
+            if (seedCommits.length == 0) continue;
+            seedCommitCount.put(seed, seedCommits.length);
+
+            for (int commit : seedCommits) {
+                var changedFiles = matrix.filesIn(commit);
+                // Size-aware contribution: each commit contributes 1/|Δ| to any (seed, target) it contains
+                final double commitPairMass = 1.0 / changedFiles.size();
+                for (var target : changedFiles) {
+                    if (target.equals(seed)) continue;
+                    jointMass.merge(new FileEdge(seed, target), commitPairMass, Double::sum);
+                }
+            }
         }
 
         if (jointMass.isEmpty()) return List.of();
@@ -139,7 +101,7 @@ public final class GitDistance {
             double p_y_given_seed = joint / seedsDenom;
 
             // IDF using unweighted doc frequency (avoid divide-by-zero via guard)
-            int dfTarget = Math.max(1, fileDocFreq.getOrDefault(target, 0));
+            int dfTarget = Math.max(1, matrix.documentFrequency(target));
             double idfTarget = Math.log1p((double) N / (double) dfTarget);
 
             double wSeed = seedWeights.getOrDefault(seed, 0.0);
@@ -163,7 +125,7 @@ public final class GitDistance {
     @VisibleForTesting
     public static List<IAnalyzer.FileRelevance> getMostImportantFilesScored(GitRepo repo, int k)
             throws GitAPIException, InterruptedException {
-        var commits = repo.listCommitsDetailed(repo.getCurrentBranch(), COMMITS_TO_PROCESS);
+        var commits = repo.listCommitsDetailed(repo.getCurrentBranch(), commitWindow());
         var scores = computeImportanceScores(repo, commits);
         logger.trace("Computed importance scores for getMostImportantFilesScored: {}", scores);
 
@@ -244,38 +206,33 @@ public final class GitDistance {
         var halfLife = Duration.ofDays(30);
         double halfLifeMillis = halfLife.toMillis();
 
-        var scores = new ConcurrentHashMap<ProjectFile, Double>();
-
-        try (var pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors())) {
-            pool.submit(() -> commits.parallelStream().forEach(commit -> {
-                        List<IGitRepo.ModifiedFile> changedModifiedFiles;
-                        try {
-                            changedModifiedFiles = repo.listFilesChangedInCommit(commit.id());
-                        } catch (GitAPIException e) {
-                            throw new RuntimeException("Error processing commit: " + commit.id(), e);
-                        }
-                        if (changedModifiedFiles.isEmpty()) {
-                            return;
-                        }
-
-                        var t_c = commit.date();
-                        var age = Duration.between(t_c, t_latest);
-                        double ageMillis = age.toMillis();
-
-                        double weight = Math.pow(2, -(ageMillis / halfLifeMillis));
-
-                        for (var modifiedFile : changedModifiedFiles) {
-                            scores.merge(modifiedFile.file(), weight, Double::sum);
-                        }
-                    }))
-                    .get();
-        } catch (ExecutionException e) {
-            throw new RuntimeException("Error computing file importance scores in parallel", e);
+        var scores = new HashMap<ProjectFile, Double>();
+        var changesByCommit = repo.coChangeIndex().changes(commits);
+        for (var commit : commits) {
+            var changes = changesByCommit.get(commit.id());
+            if (changes == null || changes.files().isEmpty()) {
+                continue;
+            }
+
+            var t_c = commit.date();
+            var age = Duration.between(t_c, t_latest);
+            double ageMillis = age.toMillis();
+
+            double weight = Math.pow(2, -(ageMillis / halfLifeMillis));
+
+            for (var file : changes.files()) {
+                scores.merge(file, weight, Double::sum);
+            }
         }
 
         return scores;
     }
 
+    /** How many of the newest commits to analyze; see {@link #COMMIT_WINDOW_PROPERTY}. */
+    static int commitWindow() {
+        return Math.max(1, Integer.getInteger(COMMIT_WINDOW_PROPERTY, DEFAULT_COMMIT_WINDOW));
+    }
+
     public static void main(String[] args) throws GitAPIException, InterruptedException {
         if (args.length < 1 || args[0].isBlank()) {
             System.err.println("Usage: GitDistance <path-to-git-repo>");
@@ -64,6 +64,18 @@ public class GitRepo implements Closeable, IGitRepo {
     // New field holding data/workers helper
     private final GitRepoData data;
 
+    // Per-commit change sets for GitDistance, persisted across sessions
+    private final CoChangeIndex coChangeIndex;
+
+    // Working-tree status, refreshed from file watcher events
+    private final GitStatusCache statusCache;
+
+    // Open history walks behind the paged commit log
+    private final CommitPager commitPager;
+
+    // Word index over commit messages and authors for searchCommits, persisted across sessions
+    private final CommitMessageIndex commitMessageIndex;
+
     public GitRepoRemote remote() {
         return remote;
     }
@@ -76,6 +88,18 @@ public class GitRepo implements Closeable, IGitRepo {
         return data;
     }
 
+    CoChangeIndex coChangeIndex() {
+        return coChangeIndex;
+    }
+
+    GitStatusCache statusCache() {
+        return statusCache;
+    }
+
+    CommitMessageIndex commitMessageIndex() {
+        return commitMessageIndex;
+    }
+
     /**
      * Sanitizes a proposed branch name and ensures it is unique by appending a numerical suffix if necessary. If the
      * initial sanitization results in an empty string, "branch" is used as the base.
@@ -221,6 +245,10 @@ public class GitRepo implements Closeable, IGitRepo {
 
             // Initialize data helper
             this.data = new GitRepoData(this);
+            this.coChangeIndex = new CoChangeIndex(this, projectRoot);
+            this.statusCache = new GitStatusCache(repository, git);
+            this.commitPager = new CommitPager(this, repository);
+            this.commitMessageIndex = new CommitMessageIndex(repository, projectRoot);
 
             logger.trace(
                     "Git dir for {} is {}, gitTopLevel is {}", projectRoot, repository.getDirectory(), gitTopLevel);
@@ -415,6 +443,28 @@ public class GitRepo implements Closeable, IGitRepo {
         trackedFilesCache = null;
     }
 
+    @Override
+    public void markFilesChanged(Collection<ProjectFile> changedFiles) {
+        statusCache.markChanged(toRepoRelativePaths(changedFiles));
+    }
+
+    @Override
+    public void markFilesWritten(Collection<ProjectFile> writtenFiles) {
+        statusCache.markWritten(toRepoRelativePaths(writtenFiles));
+    }
+
+    private List<String> toRepoRelativePaths(Collection<ProjectFile> files) {
+        return files.stream()
+                .map(this::toRepoRelativePath)
+                .filter(path -> !path.startsWith(".."))
+                .toList();
+    }
+
+    @Override
+    public void invalidateStatus() {
+        statusCache.invalidate();
+    }
+
     /** Adds files to staging. */
     @Override
     public synchronized void add(Collection<ProjectFile> files) throws GitAPIException {
@@ -508,9 +558,9 @@ public class GitRepo implements Closeable, IGitRepo {
                 }
             }
             // Staged/modified/added/removed
-            var status = git.status().call();
+            var status = statusCache.status();
             Path workingTreeRoot = repository.getWorkTree().toPath().normalize();
-            Stream.of(status.getChanged(), status.getModified(), status.getAdded(), status.getRemoved())
+            Stream.of(status.changed(), status.modified(), status.added(), status.removed())
                     .flatMap(Collection::stream)
                     .filter(gitPath -> {
                         Path absoluteFilePathInWorktree = workingTreeRoot.resolve(gitPath);
@@ -568,17 +618,17 @@ public class GitRepo implements Closeable, IGitRepo {
     /** Returns a set of uncommitted files with their status (new, modified, deleted). */
     @Override
     public Set<ModifiedFile> getModifiedFiles() throws GitAPIException {
-        var statusResult = git.status().call();
+        var statusResult = statusCache.status();
         var uncommittedFilesWithStatus = new HashSet<ModifiedFile>();
 
         // Collect all unique paths from the statuses we are interested in, including conflicts
         var allRelevantPaths = new HashSet<String>();
-        allRelevantPaths.addAll(statusResult.getAdded());
-        allRelevantPaths.addAll(statusResult.getRemoved());
-        allRelevantPaths.addAll(statusResult.getMissing());
-        allRelevantPaths.addAll(statusResult.getModified());
-        allRelevantPaths.addAll(statusResult.getChanged());
-        allRelevantPaths.addAll(statusResult.getConflicting());
+        allRelevantPaths.addAll(statusResult.added());
+        allRelevantPaths.addAll(statusResult.removed());
+        allRelevantPaths.addAll(statusResult.missing());
+        allRelevantPaths.addAll(statusResult.modified());
+        allRelevantPaths.addAll(statusResult.changed());
+        allRelevantPaths.addAll(statusResult.conflicting());
         logger.trace("Raw modified files (including conflicts): {}", allRelevantPaths);
 
         for (var path : allRelevantPaths) {
@@ -590,15 +640,15 @@ public class GitRepo implements Closeable, IGitRepo {
 
             // Priority: conflicts first, then added/missing, then general modifications
             ModificationType determinedStatus;
-            if (statusResult.getConflicting().contains(path)) {
+            if (statusResult.conflicting().contains(path)) {
                 determinedStatus = ModificationType.CONFLICT;
-            } else if (statusResult.getAdded().contains(path)) {
+            } else if (statusResult.added().contains(path)) {
                 determinedStatus = ModificationType.NEW;
-            } else if (statusResult.getMissing().contains(path)) {
+            } else if (statusResult.missing().contains(path)) {
                 determinedStatus = ModificationType.DELETED;
-            } else if (statusResult.getModified().contains(path)
-                    || statusResult.getChanged().contains(path)
-                    || statusResult.getRemoved().contains(path)) {
+            } else if (statusResult.modified().contains(path)
+                    || statusResult.changed().contains(path)
+                    || statusResult.removed().contains(path)) {
                 // If removed from index but present in WT, it's a modification for "commit -a"
                 determinedStatus = ModificationType.MODIFIED;
             } else {
@@ -1403,6 +1453,21 @@ public class GitRepo implements Closeable, IGitRepo {
     public List<CommitInfo> listCommitsDetailed(String branchName) throws GitAPIException {
         return listCommitsDetailed(branchName, Integer.MAX_VALUE);
     }
+
+    /** One page of a branch's history; {@code nextCursor} is null once the history is exhausted. */
+    public record CommitPage(List<CommitInfo> commits, @Nullable String nextCursor) {}
+
+    /**
+     * Lists up to {@code pageSize} commits of a branch (HEAD when empty), newest first, starting after the commit
+     * {@code afterCommitId} (from the start when null). Passing back the {@code nextCursor} of the previous page
+     * resumes the same history walk, so each page costs only its own commits.
+     *
+     * @throws StaleCursorException if {@code afterCommitId} is no longer in the branch's history; page from the start.
+     */
+    public CommitPage listCommitsPage(String branchName, @Nullable String afterCommitId, int pageSize)
+            throws GitAPIException {
+        return commitPager.page(branchName, afterCommitId, pageSize);
+    }
     /**
      * Lists files changed in a specific commit compared to its primary parent. For an initial commit, lists all files
      * in that commit. This is implemented in terms of listFilesChangedBetweenCommits to ensure consistent handling
@@ -1437,6 +1502,44 @@ public class GitRepo implements Closeable, IGitRepo {
         }
     }
 
+    /**
+     * The files a commit changed against its primary parent, exactly as {@link #listFilesChangedInCommit} lists them,
+     * together with the renames that diff detected. Both come from a single tree diff.
+     */
+    CoChangeIndex.CommitChanges commitChanges(String commitId) throws GitAPIException {
+        var commitObjectId = resolveToCommit(commitId);
+        try (var revWalk = new RevWalk(repository)) {
+            var commit = revWalk.parseCommit(commitObjectId);
+            if (commit.getParentCount() == 0) {
+                var files = listFilesChangedInCommit(commitId).stream()
+                        .map(ModifiedFile::file)
+                        .toList();
+                return new CoChangeIndex.CommitChanges(files, List.of());
+            }
+            var parent = revWalk.parseCommit(commit.getParent(0));
+            try (var df = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+                df.setRepository(repository);
+                df.setDetectRenames(true);
+                var diffs = df.scan(parent.getTree(), commit.getTree());
+                var files = data.extractFilesFromDiffEntries(diffs).stream()
+                        .map(ModifiedFile::file)
+                        .toList();
+                var renames = new ArrayList<CoChangeIndex.RenameEdge>();
+                for (var de : diffs) {
+                    if (de.getChangeType() != DiffEntry.ChangeType.RENAME) continue;
+                    var oldOpt = toProjectFile(de.getOldPath());
+                    var newOpt = toProjectFile(de.getNewPath());
+                    if (oldOpt.isPresent() && newOpt.isPresent()) {
+                        renames.add(new CoChangeIndex.RenameEdge(oldOpt.get(), newOpt.get()));
+                    }
+                }
+                return new CoChangeIndex.CommitChanges(files, List.copyOf(renames));
+            }
+        } catch (IOException e) {
+            throw new GitWrappedIOException(e);
+        }
+    }
+
     /** Lists files changed between two commit SHAs (from oldCommitId to newCommitId). */
     @Override
     public List<ModifiedFile> listFilesChangedBetweenCommits(String newCommitId, String oldCommitId)
@@ -1583,6 +1686,7 @@ public class GitRepo implements Closeable, IGitRepo {
                 .map(Optional::get)
                 .collect(Collectors.toSet());
 
+        invalidateStatus();
         var allUncommittedFilesWithStatus = getModifiedFiles();
         var allUncommittedProjectFiles =
                 allUncommittedFilesWithStatus.stream().map(ModifiedFile::file).collect(Collectors.toSet());
@@ -1995,33 +2099,59 @@ public class GitRepo implements Closeable, IGitRepo {
             }
         }
         final String fallbackPattern = query.toLowerCase(Locale.ROOT);
+        final @Nullable Pattern regex = regexValid ? pattern : null;
 
-        for (var commit : git.log().call()) {
-            var msg = commit.getFullMessage();
-            var author = commit.getAuthorIdent();
-            var name = author.getName();
-            var email = author.getEmailAddress();
-
-            boolean match;
-            if (regexValid && pattern != null) {
-                match = pattern.matcher(msg).find()
-                        || pattern.matcher(name).find()
-                        || pattern.matcher(email).find();
-            } else {
-                match = msg.toLowerCase(Locale.ROOT).contains(fallbackPattern)
-                        || name.toLowerCase(Locale.ROOT).contains(fallbackPattern)
-                        || email.toLowerCase(Locale.ROOT).contains(fallbackPattern);
+        // Only commits containing every word the query requires need to be read; without such words, scan them all
+        var words = regex != null
+                ? CommitMessageIndex.requiredWords(regex.pattern())
+                : CommitMessageIndex.literalWords(query);
+        @Nullable ObjectId head;
+        try {
+            head = words.isEmpty() ? null : repository.resolve("HEAD");
+        } catch (IOException e) {
+            throw new GitWrappedIOException(e);
+        }
+        if (head == null) {
+            for (var commit : git.log().call()) {
+                if (commitMatches(commit, regex, fallbackPattern)) {
+                    matches.add(this.fromRevCommit(commit));
+                }
             }
+            return matches;
+        }
 
-            if (match) {
-                matches.add(this.fromRevCommit(commit));
+        try (var revWalk = new RevWalk(repository)) {
+            for (var id : commitMessageIndex.candidates(head, words)) {
+                var commit = revWalk.parseCommit(ObjectId.fromString(id));
+                if (commitMatches(commit, regex, fallbackPattern)) {
+                    matches.add(this.fromRevCommit(commit));
+                }
             }
+        } catch (IOException e) {
+            throw new GitWrappedIOException(e);
         }
         return matches;
     }
 
+    private static boolean commitMatches(RevCommit commit, @Nullable Pattern pattern, String fallbackPattern) {
+        var msg = commit.getFullMessage();
+        var author = commit.getAuthorIdent();
+        var name = author.getName();
+        var email = author.getEmailAddress();
+
+        if (pattern != null) {
+            return pattern.matcher(msg).find()
+                    || pattern.matcher(name).find()
+                    || pattern.matcher(email).find();
+        }
+        return msg.toLowerCase(Locale.ROOT).contains(fallbackPattern)
+                || name.toLowerCase(Locale.ROOT).contains(fallbackPattern)
+                || email.toLowerCase(Locale.ROOT).contains(fallbackPattern);
+    }
+
     @Override
     public void close() {
+        commitPager.close();
         git.close();
         repository.close();
     }
@@ -2050,6 +2180,13 @@ public class GitRepo implements Closeable, IGitRepo {
         }
     }
 
+    /** A paging cursor that is no longer part of the branch's history, e.g. after a rebase or force-push. */
+    public static class StaleCursorException extends GitStateException {
+        public StaleCursorException(String message) {
+            super(message);
+        }
+    }
+
     public static class GitPushRejectedException extends GitAPIException {
         public GitPushRejectedException(String message) {
             super(message);
@@ -2480,134 +2617,4 @@ public class GitRepo implements Closeable, IGitRepo {
         // 5. No branches found
         throw new NoDefaultBranchException("Repository has no local branches and no default can be determined.");
     }
-
-    // Add near other small helper types/records
-    public static final class Canonicalizer {
-        private final Map<String, Integer> indexByCommit; // commitId -> index in window (0 = newest)
-        private final NavigableMap<Integer, List<RenameEdge>> renamesByIndex; // commitIndex -> renames at that commit
-
-        private Canonicalizer(
-                Map<String, Integer> indexByCommit, NavigableMap<Integer, List<RenameEdge>> renamesByIndex) {
-            this.indexByCommit = indexByCommit;
-            this.renamesByIndex = renamesByIndex;
-        }
-
-        /**
-         * Returns the canonical (current-as-of-HEAD) ProjectFile for {@code pathAtCommit},
-         * by applying any renames that occur AFTER {@code commitId} within the window.
-         */
-        public ProjectFile canonicalize(String commitId, ProjectFile pathAtCommit) {
-            Integer startIdx = indexByCommit.get(commitId);
-            if (startIdx == null) {
-                // Commit not in window (should not happen for our PMI caller); return as-is
-                return pathAtCommit;
-            }
-
-            var current = pathAtCommit;
-            // Iterate renames from oldest to newest (highest to lowest index within the range)
-            // to correctly follow the rename chain in chronological order
-            for (var entry :
-                    renamesByIndex.headMap(startIdx, false).descendingMap().entrySet()) {
-                for (var edge : entry.getValue()) {
-                    if (edge.old().equals(current)) {
-                        current = edge.newPath();
-                    }
-                }
-            }
-            return current;
-        }
-
-        // A single rename observed in a commit's diff (old -> new)
-        public record RenameEdge(ProjectFile old, ProjectFile newPath) {}
-    }
-
-    /**
-     * Builds a per-commit rename canonicalizer scoped to the minimal window that covers all
-     * {@code commits} (i.e., the PMI sample). We walk from HEAD back until we have encountered
-     * every commit in {@code commits}, recording rename edges (with rename detection enabled)
-     * at each visited commit. COPYs are ignored; only true RENAME entries are recorded.
-     *
-     * This allows callers to canonicalize a ProjectFile "as it was at commit X" to its "current" path
-     * by walking forward through renames that occur AFTER X in this window, avoiding path-recycling
-     * ambiguities.
-     */
-    public Canonicalizer buildCanonicalizer(List<CommitInfo> commits) throws GitAPIException, InterruptedException {
-        if (commits.isEmpty()) {
-            return new Canonicalizer(Map.of(), new TreeMap<>());
-        }
-
-        var remaining = commits.stream().map(CommitInfo::id).collect(Collectors.toCollection(HashSet::new));
-        var indexByCommit = new HashMap<String, Integer>();
-        var renamesByIndex = new HashMap<Integer, List<Canonicalizer.RenameEdge>>();
-
-        try (var revWalk = new RevWalk(repository);
-                var df = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
-            df.setRepository(repository);
-            df.setDetectRenames(true);
-
-            var headId = resolveToCommit("HEAD");
-            var head = revWalk.parseCommit(headId);
-            revWalk.setRetainBody(false);
-            revWalk.sort(RevSort.COMMIT_TIME_DESC, true);
-            revWalk.markStart(head);
-
-            int idx = -1;
-            boolean foundAllCommits = false;
-            for (var commit : revWalk) {
-                if (Thread.interrupted()) {
-                    throw new InterruptedException();
-                }
-                idx++;
-                var commitId = commit.getName();
-                indexByCommit.put(commitId, idx);
-
-                // Record rename edges (first-parent diff is sufficient for our canonicalization)
-                if (commit.getParentCount() > 0) {
-                    RevCommit parent;
-                    try {
-                        parent = revWalk.parseCommit(commit.getParent(0));
-                    } catch (IOException e) {
-                        throw new GitWrappedIOException(e);
-                    }
-
-                    List<DiffEntry> diffs;
-                    try {
-                        diffs = df.scan(parent.getTree(), commit.getTree());
-                    } catch (IOException e) {
-                        throw new GitWrappedIOException(e);
-                    }
-
-                    List<Canonicalizer.RenameEdge> edgesForThisCommit = null;
-                    for (var de : diffs) {
-                        if (de.getChangeType() != DiffEntry.ChangeType.RENAME) continue;
-
-                        var oldOpt = toProjectFile(de.getOldPath());
-                        var newOpt = toProjectFile(de.getNewPath());
-                        if (oldOpt.isEmpty() || newOpt.isEmpty()) continue;
-
-                        if (edgesForThisCommit == null) {
-                            edgesForThisCommit = new ArrayList<>();
-                        }
-                        edgesForThisCommit.add(new Canonicalizer.RenameEdge(oldOpt.get(), newOpt.get()));
-                    }
-                    if (edgesForThisCommit != null && !edgesForThisCommit.isEmpty()) {
-                        renamesByIndex.put(idx, edgesForThisCommit);
-                    }
-                }
-
-                // Check if we've found all the required commits
-                remaining.remove(commitId);
-                if (remaining.isEmpty() && !foundAllCommits) {
-                    foundAllCommits = true;
-                    // Continue walking to record any renames that occur after the sampled commits
-                }
-            }
-        } catch (IOException e) {
-            throw new GitWrappedIOException(e);
-        }
-
-        // Sort rename indices for efficient forward walking
-        var sorted = new TreeMap<>(renamesByIndex);
-        return new Canonicalizer(indexByCommit, sorted);
-    }
 }
@@ -0,0 +1,176 @@
+package ai.brokk.git;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Working-tree status of a repository, kept current from file watcher events instead of a full status walk per call.
+ *
+ * <p>A full {@code git status} hashes every modified-looking file in the working tree. Here it runs only on the first
+ * request, when the index or HEAD changed (commits, checkouts, staging, external git commands), or when the watcher
+ * lost track of events. Otherwise only the paths the watcher reported since the last request are checked again,
+ * with a path-filtered status, and merged into the previous result.
+ *
+ * <p>The result is only reused once a watcher reports to this cache; a repository nobody watches, e.g. in a headless
+ * run, gets a full status every time. Watcher events arrive debounced, so code that acts on the status right after
+ * writing files, such as committing, must report its own writes or {@link #invalidate} first.
+ */
+final class GitStatusCache {
+    private static final Logger logger = LogManager.getLogger(GitStatusCache.class);
+
+    /** Past this many changed paths, one full walk is cheaper than a filter that large. */
+    private static final int MAX_INCREMENTAL_PATHS = 1_000;
+
+    /** The parts of a JGit {@link Status} that callers use, as repo-relative paths. */
+    record Snapshot(
+            Set<String> added,
+            Set<String> changed,
+            Set<String> removed,
+            Set<String> missing,
+            Set<String> modified,
+            Set<String> conflicting) {
+        static Snapshot of(Status status) {
+            return new Snapshot(
+                    Set.copyOf(status.getAdded()),
+                    Set.copyOf(status.getChanged()),
+                    Set.copyOf(status.getRemoved()),
+                    Set.copyOf(status.getMissing()),
+                    Set.copyOf(status.getModified()),
+                    Set.copyOf(status.getConflicting()));
+        }
+
+        /** Replaces everything known about {@code paths} (and anything under them) with {@code status}. */
+        Snapshot merge(Collection<String> paths, Status status) {
+            return new Snapshot(
+                    merge(added, paths, status.getAdded()),
+                    merge(changed, paths, status.getChanged()),
+                    merge(removed, paths, status.getRemoved()),
+                    merge(missing, paths, status.getMissing()),
+                    merge(modified, paths, status.getModified()),
+                    merge(conflicting, paths, status.getConflicting()));
+        }
+
+        private static Set<String> merge(Set<String> previous, Collection<String> paths, Set<String> rechecked) {
+            var result = new HashSet<String>(previous.size() + rechecked.size());
+            for (var path : previous) {
+                if (!isUnderAny(path, paths)) result.add(path);
+            }
+            result.addAll(rechecked);
+            return Set.copyOf(result);
+        }
+
+        private static boolean isUnderAny(String path, Collection<String> prefixes) {
+            for (var prefix : prefixes) {
+                if (path.equals(prefix) || (path.startsWith(prefix) && path.charAt(prefix.length()) == '/')) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /** What a cached snapshot was computed against; a different index or HEAD means it may be wrong anywhere. */
+    private record RepoStamp(long indexModified, long indexSize, @Nullable ObjectId head) {}
+
+    private final Repository repository;
+    private final Git git;
+
+    // Guarded by this
+    private @Nullable Snapshot snapshot;
+    private @Nullable RepoStamp stamp;
+    private final Set<String> dirtyPaths = new HashSet<>();
+    private boolean watched;
+    private long fullScans;
+    private long incrementalScans;
+
+    GitStatusCache(Repository repository, Git git) {
+        this.repository = repository;
+        this.git = git;
+    }
+
+    /** Records working-tree paths, relative to the repository top level, that changed since the last status. */
+    synchronized void markChanged(Collection<String> repoRelativePaths) {
+        watched = true;
+        markWritten(repoRelativePaths);
+    }
+
+    /**
+     * Records paths this process just wrote. Unlike {@link #markChanged}, this does not make the cache trust that
+     * every other change will be reported too.
+     */
+    synchronized void markWritten(Collection<String> repoRelativePaths) {
+        if (snapshot == null) return;
+        for (var path : repoRelativePaths) {
+            if (path.isEmpty() || path.equals(".git") || path.startsWith(".git/")) continue;
+            dirtyPaths.add(path);
+        }
+    }
+
+    /** Forgets the cached status, e.g. after the watcher overflowed; the next request walks the whole tree. */
+    synchronized void invalidate() {
+        snapshot = null;
+        dirtyPaths.clear();
+    }
+
+    synchronized Snapshot status() throws GitAPIException {
+        var current = repoStamp();
+        var cached = snapshot;
+        if (!watched
+                || cached == null
+                || !current.equals(stamp)
+                || dirtyPaths.size() > MAX_INCREMENTAL_PATHS) {
+            var full = Snapshot.of(git.status().call());
+            fullScans++;
+            logger.trace("Full git status scan ({} so far)", fullScans);
+            return remember(full, current);
+        }
+        if (dirtyPaths.isEmpty()) {
+            return cached;
+        }
+
+        var paths = List.copyOf(dirtyPaths);
+        var command = git.status();
+        paths.forEach(command::addPath);
+        var merged = cached.merge(paths, command.call());
+        incrementalScans++;
+        logger.trace("Rechecked git status of {} paths ({} incremental scans so far)", paths.size(), incrementalScans);
+        return remember(merged, current);
+    }
+
+    private Snapshot remember(Snapshot result, RepoStamp current) {
+        snapshot = result;
+        stamp = current;
+        dirtyPaths.clear();
+        return result;
+    }
+
+    private RepoStamp repoStamp() {
+        var indexFile = repository.getIndexFile();
+        @Nullable ObjectId head;
+        try {
+            head = repository.resolve("HEAD");
+        } catch (IOException e) {
+            head = null; // e.g. an unborn branch; the index stamp still applies
+        }
+        return new RepoStamp(indexFile.lastModified(), indexFile.length(), head);
+    }
+
+    synchronized long fullScans() {
+        return fullScans;
+    }
+
+    synchronized long incrementalScans() {
+        return incrementalScans;
+    }
+}
@@ -104,7 +104,8 @@ public final class GitWorkflow {
         boolean canPush = hasUpstream
                 && !unpushedCommitIds.isEmpty(); // Can only push if there's an upstream and unpushed commits
         // or if no upstream but local commits exist (handled in push method)
-        if (!hasUpstream && !repo.listCommitsDetailed(branch).isEmpty()) { // local branch with commits but no upstream
+        // local branch with commits but no upstream
+        if (!hasUpstream && !repo.listCommitsDetailed(branch, 1).isEmpty()) {
             canPush = true;
         }
 
@@ -127,7 +128,7 @@ public final class GitWorkflow {
             // This avoids an empty push -N "origin" "branch:branch" if the branch is empty or fully pushed.
             // However, listCommitsDetailed includes all commits, not just unpushed.
             // For a new branch, any commit is "unpushed" relative to a non-existent remote.
-            if (repo.listCommitsDetailed(branch).isEmpty()) {
+            if (repo.listCommitsDetailed(branch, 1).isEmpty()) {
                 return "Branch " + branch + " is empty. Nothing to push.";
             }
             repo.remote().pushAndSetRemoteTracking(branch, "origin");
@@ -289,6 +290,8 @@ public final class GitWorkflow {
             throws GitAPIException, InterruptedException {
         var io = cm.getIo();
         Set<GitRepo.ModifiedFile> modified;
+        // the task's writes may not have reached the status cache through the debounced watcher yet
+        repo.invalidateStatus();
         modified = repo.getModifiedFiles();
 
         if (modified.isEmpty()) {
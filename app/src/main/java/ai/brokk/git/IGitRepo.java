@@ -42,6 +42,15 @@ public interface IGitRepo {
     /** Invalidate refs and tracked-files caches */
     default void invalidateCaches() {}
 
+    /** Records working-tree files reported changed by the file watcher, so the next status rechecks just those. */
+    default void markFilesChanged(Collection<ProjectFile> files) {}
+
+    /** Records files Brokk itself just wrote, ahead of the debounced watcher reporting them. */
+    default void markFilesWritten(Collection<ProjectFile> files) {}
+
+    /** Drops any cached working-tree status, so the next status walks the whole tree. */
+    default void invalidateStatus() {}
+
     /**
      * Resolves any Git rev-spec (branch, tag, SHA, ref expression) to a Git object id without enforcing type.
      *
@@ -269,6 +269,8 @@ public class MergeDialogPanel extends JDialog {
         }
 
         try {
+            // gates a merge, so don't trust a status the debounced watcher may not have caught up with
+            gitRepo.invalidateStatus();
             var modifiedFiles = gitRepo.getModifiedFiles();
             if (!modifiedFiles.isEmpty()) {
                 var fileCount = modifiedFiles.size();
@@ -495,7 +495,7 @@ public class WorkspaceItemsChipPanel extends JPanel implements ThemeAware, Scrol
             if (fragment.isText() || fragment.getType().isOutput()) {
                 String text = fragment.text();
                 int loc = text.split("\\r?\\n", -1).length;
-                int tokens = Messages.getApproximateTokens(text);
+                int tokens = Messages.getDisplayTokens(text);
                 return String.format("<div>%s LOC \u2022 ~%s tokens</div><br/>", formatCount(loc), formatCount(tokens));
             }
         } catch (Exception ignored) {
@@ -521,7 +521,7 @@ public class WorkspaceItemsChipPanel extends JPanel implements ThemeAware, Scrol
             for (var summary : summaries) {
                 String text = summary.text();
                 totalLoc += text.split("\\r?\\n", -1).length;
-                totalTokens += Messages.getApproximateTokens(text);
+                totalTokens += Messages.getDisplayTokens(text);
             }
             body.append("<div>")
                     .append(formatCount(totalLoc))
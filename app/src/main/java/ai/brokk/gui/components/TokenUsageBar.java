@@ -266,8 +266,9 @@ public class TokenUsageBar extends JComponent implements ThemeAware {
                 for (var f : frags) {
                     try {
                         if (f.isText() || f.getType().isOutput()) {
-                            // This will compute and cache the token count for the fragment
-                            tokensForFragment(f);
+                            // Recount rather than trust the id-keyed entry: a dynamic fragment's content changes
+                            // under the same id. Unchanged content is answered by the global token cache.
+                            tokenCache.put(f.id(), Messages.getApproximateTokens(f.text()));
                         }
                     } catch (Exception ignore) {
                         // Best-effort pre-warm; failures are non-fatal and will be handled lazily
@@ -839,20 +840,18 @@ public class TokenUsageBar extends JComponent implements ThemeAware {
     }
 
     private int tokensForFragment(ContextFragment f) {
+        var counted = tokenCache.get(f.id());
+        if (counted != null) {
+            return counted;
+        }
         try {
-            return tokenCache.computeIfAbsent(f.id(), id -> {
-                if (f.isText() || f.getType().isOutput()) {
-                    try {
-                        return Messages.getApproximateTokens(f.text());
-                    } catch (Exception e) {
-                        logger.trace("Failed to compute token count for fragment", e);
-                        return 0;
-                    }
-                }
+            if (!f.isText() && !f.getType().isOutput()) {
                 return 0;
-            });
+            }
+            // Paint-time miss: show an estimate without caching it, so only the pre-warm's exact counts are kept
+            return Messages.getDisplayTokens(f.text());
         } catch (Exception e) {
-            logger.trace("Failed to cache token count for fragment", e);
+            logger.trace("Failed to compute token count for fragment", e);
             return 0;
         }
     }
@@ -903,7 +902,7 @@ public class TokenUsageBar extends JComponent implements ThemeAware {
             if (fragment.isText() || fragment.getType().isOutput()) {
                 String text = fragment.text();
                 int loc = text.split("\\r?\\n", -1).length;
-                int tokens = Messages.getApproximateTokens(text);
+                int tokens = Messages.getDisplayTokens(text);
                 return String.format("<div>%s LOC \u2022 ~%s tokens</div><br/>", formatCount(loc), formatCount(tokens));
             }
         } catch (Exception e) {
@@ -979,7 +978,7 @@ public class TokenUsageBar extends JComponent implements ThemeAware {
                 try {
                     String text = f.text();
                     totalLoc += text.split("\\r?\\n", -1).length;
-                    totalTokens += Messages.getApproximateTokens(text);
+                    totalTokens += Messages.getDisplayTokens(text);
                 } catch (Exception e) {
                     logger.trace("Failed to compute metrics for tooltip", e);
                 }
@@ -1029,7 +1028,7 @@ public class TokenUsageBar extends JComponent implements ThemeAware {
             for (var summary : summaries) {
                 String text = summary.text();
                 totalLoc += text.split("\\r?\\n", -1).length;
-                totalTokens += Messages.getApproximateTokens(text);
+                totalTokens += Messages.getDisplayTokens(text);
             }
             body.append("<div>")
                     .append(formatCount(totalLoc))
@@ -1182,7 +1182,9 @@ public class PreviewTextPanel extends JPanel implements ThemeAware, EditorFontSi
         var newContent = textArea.getText();
         return cm.withFileChangeNotificationsPaused(() -> {
             try {
-                // Write the new content to the file first
+                // Write the new content to the file first. The reparse hint is what is on disk now, which after an
+                // earlier save from this panel is no longer the content it opened with.
+                file.read().ifPresent(onDisk -> ReparseHints.recordPreviousContent(file, onDisk));
                 file.write(newContent);
 
                 // Then, add a history entry for the change.
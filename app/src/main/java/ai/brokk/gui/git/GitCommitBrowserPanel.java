@@ -46,6 +46,7 @@ import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.IntConsumer;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -74,6 +75,9 @@ public class GitCommitBrowserPanel extends JPanel implements SettingsChangeListe
     private static final int COL_UNPUSHED = 4;
     private static final int COL_COMMIT_OBJ = 5;
 
+    /** Commits fetched per page for branch views; further pages load as the table is scrolled near its end. */
+    public static final int COMMIT_PAGE_SIZE = 200;
+
     private final Chrome chrome;
     private final ContextManager contextManager;
     private final CommitContextReloader reloader;
@@ -96,6 +100,17 @@ public class GitCommitBrowserPanel extends JPanel implements SettingsChangeListe
 
     private JTable commitsTable;
     private DefaultTableModel commitsTableModel;
+    private JScrollPane commitsScrollPane;
+
+    // Paging state of a branch view (EDT only); pagedBranch is null when the view has no further pages
+    @Nullable
+    private String pagedBranch;
+
+    @Nullable
+    private String nextPageCursor;
+
+    private Set<String> pagedUnpushedIds = Set.of();
+    private boolean loadingPage;
     private JTree changesTree;
     private DefaultTreeModel changesTreeModel;
     private DefaultMutableTreeNode changesRootNode;
@@ -225,7 +240,9 @@ public class GitCommitBrowserPanel extends JPanel implements SettingsChangeListe
         }
 
         setupCommitsTable();
-        commitsPanel.add(new JScrollPane(commitsTable), BorderLayout.CENTER);
+        commitsScrollPane = new JScrollPane(commitsTable);
+        commitsScrollPane.getVerticalScrollBar().getModel().addChangeListener(e -> maybeLoadNextPage());
+        commitsPanel.add(commitsScrollPane, BorderLayout.CENTER);
 
         // Initialize buttons as they are class members and might be accessed by configureButton
         pullButton = new MaterialButton();
@@ -1192,12 +1209,12 @@ public class GitCommitBrowserPanel extends JPanel implements SettingsChangeListe
     private void loadCommitsForBranchInPanel(String branchName) {
         contextManager.submitBackgroundTask("Fetching commits and state for " + branchName, () -> {
             try {
-                var commits = getRepo().listCommitsDetailed(branchName);
+                var page = getRepo().listCommitsPage(branchName, null, COMMIT_PAGE_SIZE);
                 // branchName here is guaranteed not to be STASHES_VIRTUAL_BRANCH or starting with "Search:"
                 // as those are handled by loadStashesInPanel and searchCommitsInPanel respectively.
                 // The gitWorkflowService.evaluatePushPull method handles branchName.contains("/") internally.
                 var pps = gitWorkflow.evaluatePushPull(branchName);
-                setCommits(commits, pps.unpushedCommitIds(), pps.canPush(), pps.canPull(), branchName);
+                setCommitPage(page, pps.unpushedCommitIds(), pps.canPush(), pps.canPull(), branchName);
             } catch (GitAPIException e) {
                 logger.error(
                         "Error fetching commits or push/pull state for panel (branch: {}): {}",
@@ -1290,6 +1307,8 @@ public class GitCommitBrowserPanel extends JPanel implements SettingsChangeListe
     public void clearCommitView() {
         this.currentBranchOrContextName = null;
         SwingUtil.runOnEdt(() -> {
+            pagedBranch = null;
+            nextPageCursor = null;
             var selectionModel = commitsTable.getSelectionModel();
             selectionModel.setValueIsAdjusting(true);
             try {
@@ -1325,6 +1344,25 @@ public class GitCommitBrowserPanel extends JPanel implements SettingsChangeListe
             boolean canPush,
             boolean canPull,
             String activeBranchOrContextName) {
+        showCommits(commits, null, unpushedCommitIds, canPush, canPull, activeBranchOrContextName);
+    }
+
+    /**
+     * Shows the first page of a branch's history. Later pages are fetched with {@link GitRepo#listCommitsPage} as the
+     * table is scrolled towards its end.
+     */
+    public void setCommitPage(
+            GitRepo.CommitPage page, Set<String> unpushedCommitIds, boolean canPush, boolean canPull, String branch) {
+        showCommits(page.commits(), page.nextCursor(), unpushedCommitIds, canPush, canPull, branch);
+    }
+
+    private void showCommits(
+            List<? extends ICommitInfo> commits,
+            @Nullable String nextCursor,
+            Set<String> unpushedCommitIds,
+            boolean canPush,
+            boolean canPull,
+            String activeBranchOrContextName) {
         this.currentBranchOrContextName = activeBranchOrContextName;
 
         var viewKind = ViewKind.determine(activeBranchOrContextName, getRepo());
@@ -1332,7 +1370,77 @@ public class GitCommitBrowserPanel extends JPanel implements SettingsChangeListe
         var buttonStates =
                 determineButtonStates(viewKind, canPush, canPull, unpushedCommitIds, activeBranchOrContextName);
 
-        SwingUtil.runOnEdt(() -> applyStateToUiComponents(commitRows, buttonStates, viewKind));
+        SwingUtil.runOnEdt(() -> {
+            applyStateToUiComponents(commitRows, buttonStates, viewKind);
+            pagedBranch = nextCursor == null ? null : activeBranchOrContextName;
+            nextPageCursor = nextCursor;
+            pagedUnpushedIds = unpushedCommitIds;
+            loadingPage = false;
+            maybeLoadNextPage(); // the first page may not fill the viewport
+        });
+    }
+
+    /** Fetches the next page once fewer than a quarter page of rows remain below the visible part of the table. */
+    private void maybeLoadNextPage() {
+        var branch = pagedBranch;
+        var cursor = nextPageCursor;
+        if (branch == null || cursor == null || loadingPage) {
+            return;
+        }
+        var scrollModel = commitsScrollPane.getVerticalScrollBar().getModel();
+        int pixelsBelow = scrollModel.getMaximum() - scrollModel.getValue() - scrollModel.getExtent();
+        if (pixelsBelow / Math.max(1, commitsTable.getRowHeight()) > COMMIT_PAGE_SIZE / 4) {
+            return;
+        }
+        loadMoreCommits(branch, cursor, page -> true, () -> {});
+    }
+
+    /**
+     * Fetches pages after {@code cursor} in the background until {@code enough} accepts one (or the history ends),
+     * then appends them on the EDT and runs {@code afterAppend}. Results for a view that has since changed are dropped.
+     */
+    private void loadMoreCommits(
+            String branch, String cursor, Predicate<GitRepo.CommitPage> enough, Runnable afterAppend) {
+        loadingPage = true;
+        var unpushed = pagedUnpushedIds;
+        contextManager.submitBackgroundTask("Fetching more commits for " + branch, () -> {
+            var commits = new ArrayList<ICommitInfo>();
+            @Nullable String next = cursor;
+            try {
+                while (next != null) {
+                    var page = getRepo().listCommitsPage(branch, next, COMMIT_PAGE_SIZE);
+                    commits.addAll(page.commits());
+                    next = page.nextCursor();
+                    if (enough.test(page)) break;
+                }
+            } catch (GitRepo.StaleCursorException e) {
+                // the branch was rewritten under the view; start it over from the new tip
+                logger.info("Reloading commits for branch {}: {}", branch, e.getMessage());
+                SwingUtil.runOnEdt(() -> {
+                    if (branch.equals(pagedBranch) && cursor.equals(nextPageCursor)) {
+                        loadCommitsForBranchInPanel(branch);
+                    }
+                });
+                return null;
+            } catch (GitAPIException e) {
+                logger.warn("Error fetching more commits for branch {}: {}", branch, e.getMessage());
+                next = null;
+            }
+            var rows = buildCommitRows(commits, unpushed);
+            var finalNext = next;
+            SwingUtil.runOnEdt(() -> {
+                if (!branch.equals(pagedBranch) || !cursor.equals(nextPageCursor)) {
+                    return; // the view was replaced while this page loaded
+                }
+                for (Object[] rowData : rows) commitsTableModel.addRow(rowData);
+                nextPageCursor = finalNext;
+                if (finalNext == null) pagedBranch = null;
+                loadingPage = false;
+                afterAppend.run();
+                maybeLoadNextPage();
+            });
+            return null;
+        });
     }
 
     private enum ViewKind {
@@ -1415,7 +1523,7 @@ public class GitCommitBrowserPanel extends JPanel implements SettingsChangeListe
         try {
             // A new local branch has commits but no upstream branch set yet.
             // unpushedCommitIds being empty is a strong indicator if no upstream.
-            return !repo.listCommitsDetailed(branch).isEmpty() && !repo.hasUpstreamBranch(branch);
+            return !repo.listCommitsDetailed(branch, 1).isEmpty() && !repo.hasUpstreamBranch(branch);
         } catch (GitAPIException ex) {
             logger.warn("Could not determine if branch {} is new local with commits: {}", branch, ex.getMessage());
             return false; // Fallback on error
@@ -1741,21 +1849,45 @@ public class GitCommitBrowserPanel extends JPanel implements SettingsChangeListe
 
     public void selectCommitById(String commitId) {
         SwingUtil.runOnEdt(() -> {
-            for (int i = 0; i < commitsTableModel.getRowCount(); i++) {
-                ICommitInfo commitInfo = (ICommitInfo) commitsTableModel.getValueAt(i, COL_COMMIT_OBJ);
-                if (commitInfo != null && commitId.equals(commitInfo.id())) {
-                    commitsTable.setRowSelectionInterval(i, i);
-                    commitsTable.scrollRectToVisible(commitsTable.getCellRect(i, 0, true));
-                    // The selection listener will handle updating changes and revision display
-                    return;
-                }
+            if (selectLoadedCommit(commitId)) {
+                return;
+            }
+            // Not among the pages loaded so far: keep paging through the branch until it turns up
+            var branch = pagedBranch;
+            var cursor = nextPageCursor;
+            if (branch != null && cursor != null && !loadingPage) {
+                loadMoreCommits(
+                        branch,
+                        cursor,
+                        page -> page.commits().stream().anyMatch(c -> c.id().equals(commitId)),
+                        () -> {
+                            if (!selectLoadedCommit(commitId)) notifyCommitNotFound(commitId);
+                        });
+                return;
             }
-            chrome.showNotification(
-                    IConsoleIO.NotificationRole.INFO,
-                    "Commit " + getShortId(commitId) + " not found in current commit browser view.");
+            notifyCommitNotFound(commitId);
         });
     }
 
+    private boolean selectLoadedCommit(String commitId) {
+        for (int i = 0; i < commitsTableModel.getRowCount(); i++) {
+            ICommitInfo commitInfo = (ICommitInfo) commitsTableModel.getValueAt(i, COL_COMMIT_OBJ);
+            if (commitInfo != null && commitId.equals(commitInfo.id())) {
+                commitsTable.setRowSelectionInterval(i, i);
+                commitsTable.scrollRectToVisible(commitsTable.getCellRect(i, 0, true));
+                // The selection listener will handle updating changes and revision display
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void notifyCommitNotFound(String commitId) {
+        chrome.showNotification(
+                IConsoleIO.NotificationRole.INFO,
+                "Commit " + getShortId(commitId) + " not found in current commit browser view.");
+    }
+
     public List<ICommitInfo> getSelectedCommits() {
         int[] selectedRows = commitsTable.getSelectedRows(); // int[] preferred by style guide
         if (selectedRows.length == 0) {
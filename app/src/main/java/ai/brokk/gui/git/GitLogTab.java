@@ -2,7 +2,6 @@ package ai.brokk.gui.git;
 
 import ai.brokk.ContextManager;
 import ai.brokk.IConsoleIO;
-import ai.brokk.git.CommitInfo;
 import ai.brokk.git.GitRepo;
 import ai.brokk.git.ICommitInfo;
 import ai.brokk.gui.Chrome;
@@ -648,7 +647,7 @@ public class GitLogTab extends JPanel {
     private void updateCommitsForBranch(String branchName) {
         contextManager.submitBackgroundTask("Fetching commits for " + branchName, () -> {
             try {
-                List<CommitInfo> commits;
+                GitRepo.CommitPage page;
                 Set<String> unpushedCommitIds = new HashSet<>();
                 boolean canPush = false;
                 boolean canPull = false;
@@ -657,14 +656,14 @@ public class GitLogTab extends JPanel {
                 if (STASHES_VIRTUAL_BRANCH.equals(branchName)) {
                     try {
                         // Directly call listStashes which now returns List<CommitInfo>
-                        commits = getRepo().listStashes();
+                        page = new GitRepo.CommitPage(getRepo().listStashes(), null);
                     } catch (GitAPIException e) {
                         logger.error("Error fetching stashes", e);
-                        commits = List.of(); // Ensure commits is initialized
+                        page = new GitRepo.CommitPage(List.of(), null); // Ensure page is initialized
                     }
                 } else {
                     // Normal branch handling
-                    commits = getRepo().listCommitsDetailed(branchName);
+                    page = getRepo().listCommitsPage(branchName, null, GitCommitBrowserPanel.COMMIT_PAGE_SIZE);
                     var localBranches = getRepo().listLocalBranches();
                     var isLocalBranch = localBranches.contains(branchName);
                     if (isLocalBranch) {
@@ -693,7 +692,7 @@ public class GitLogTab extends JPanel {
                 boolean finalCanPull = canPull;
 
                 // Pass data to the GitCommitBrowserPanel
-                gitCommitBrowserPanel.setCommits(commits, unpushedCommitIds, finalCanPush, finalCanPull, branchName);
+                gitCommitBrowserPanel.setCommitPage(page, unpushedCommitIds, finalCanPush, finalCanPull, branchName);
 
             } catch (Exception e) {
                 logger.error("Error fetching commits for branch: " + branchName, e);
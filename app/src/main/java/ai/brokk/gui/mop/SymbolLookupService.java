@@ -9,6 +9,8 @@ import ai.brokk.analyzer.TypeAliasProvider;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
@@ -179,6 +181,10 @@ public class SymbolLookupService {
                     symbolNames.size(),
                     analyzer.getClass().getSimpleName());
 
+            // Resolve exact FQNs for the whole batch against one analyzer snapshot up front
+            var exactDefinitions = analyzer.getDefinitions(
+                    symbolNames.stream().map(String::trim).collect(Collectors.toSet()));
+
             // Create list for priority processing - exact matches first
             var symbolList = new ArrayList<>(symbolNames);
             var processedCount = 0;
@@ -187,7 +193,7 @@ public class SymbolLookupService {
             for (var symbolName : symbolList) {
                 var symbolStartTime = System.nanoTime();
                 try {
-                    var symbolResult = checkSymbolExists(analyzer, symbolName);
+                    var symbolResult = checkSymbolExists(analyzer, symbolName, exactDefinitions);
                     var symbolProcessingTime = (System.nanoTime() - symbolStartTime) / 1_000_000;
 
                     // Determine if this is a high-priority result (exact match, high confidence)
@@ -267,7 +273,8 @@ public class SymbolLookupService {
         }
     }
 
-    private static SymbolLookupResult checkSymbolExists(IAnalyzer analyzer, String symbolName) {
+    private static SymbolLookupResult checkSymbolExists(
+            IAnalyzer analyzer, String symbolName, Map<String, CodeUnit> exactDefinitions) {
         if (symbolName.trim().isEmpty()) {
             return SymbolLookupResult.notFound(symbolName);
         }
@@ -281,7 +288,7 @@ public class SymbolLookupService {
 
         try {
             // First try exact FQN match
-            var definition = analyzer.getDefinition(trimmed);
+            var definition = Optional.ofNullable(exactDefinitions.get(trimmed));
             if (definition.isPresent() && definition.get().isClass()) {
                 var processingTime = (System.nanoTime() - startTime) / 1_000_000;
                 logger.trace(
@@ -14,7 +14,6 @@ import ai.brokk.analyzer.usages.UsageHit;
 import ai.brokk.context.ContextFragment;
 import ai.brokk.git.CommitInfo;
 import ai.brokk.git.GitRepo;
-import ai.brokk.git.GitRepoFactory;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.data.message.ChatMessageType;
@@ -388,19 +387,17 @@ public class SearchTools {
             logger.warn("Missing reasoning for searchGitCommitMessages call");
         }
 
-        var projectRoot = contextManager.getProject().getRoot();
-        if (!GitRepoFactory.hasGitRepo(projectRoot)) {
+        // The project's repo keeps its commit message index warm between calls
+        if (!(contextManager.getProject().getRepo() instanceof GitRepo gitRepo)) {
             return "Cannot search commit messages: Git repository not found for this project.";
         }
 
         List<CommitInfo> matchingCommits;
-        try (var gitRepo = new GitRepo(projectRoot)) {
-            try {
-                matchingCommits = gitRepo.searchCommits(pattern);
-            } catch (GitAPIException e) {
-                logger.error("Error searching commit messages", e);
-                return "Error searching commit messages: " + e.getMessage();
-            }
+        try {
+            matchingCommits = gitRepo.searchCommits(pattern);
+        } catch (GitAPIException e) {
+            logger.error("Error searching commit messages", e);
+            return "Error searching commit messages: " + e.getMessage();
         }
 
         if (matchingCommits.isEmpty()) {
@@ -12,23 +12,42 @@ import ai.brokk.context.ContextHistory;
 import ai.brokk.context.DtoMapper;
 import ai.brokk.context.FragmentDtos.*;
 import ai.brokk.context.FrozenFragment;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InvalidObjectException;
+import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -48,120 +67,228 @@ public final class HistoryIo {
     private static final String GIT_STATES_FILENAME = "git_states.json";
     private static final String ENTRY_INFOS_FILENAME = "entry_infos.json";
     private static final String IMAGES_DIR_PREFIX = "images/";
+    private static final String SEGMENT_BASE_FILENAME = "segment_base.txt";
+    private static final String MANIFEST_FILENAME = "manifest.json";
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int SEGMENT_MAGIC = 0x42534547; // "BSEG"
+    private static final int SEGMENT_VERSION = 1;
+    private static final byte RECORD_DELTA = 1;
+    private static final byte RECORD_MANIFEST = 2;
+    /** A segment is folded back into its zip once it is larger than both this and the zip. */
+    private static final long MIN_COMPACTION_BYTES = 256 * 1024;
 
     private static final int CURRENT_FORMAT_VERSION = 3;
 
+    // Readers that page content in from a session zip, so that what they still owe their fragments can be pinned
+    // before the zip is rewritten, moved or deleted. Weak: a reader goes with the last fragment that uses it.
+    private static final Map<ContentReader, Boolean> ARCHIVE_READERS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
     private HistoryIo() {}
 
+    /**
+     * Pins in memory whatever live fragments loaded from {@code zip} have not read yet. Call before deleting or moving
+     * a session's files; the fragments stay readable afterwards.
+     */
+    public static void releaseArchive(Path zip) {
+        pinUnless(zip, Set.of(), Set.of());
+    }
+
+    /** Pins the content and images loaded from {@code zip} that are not among the ids a rewrite of it keeps. */
+    private static void pinUnless(Path zip, Set<String> keptContent, Set<String> keptImages) {
+        List<ContentReader> readers;
+        synchronized (ARCHIVE_READERS) {
+            readers = ARCHIVE_READERS.keySet().stream()
+                    .filter(reader -> reader.reads(zip))
+                    .toList();
+        }
+        readers.forEach(reader -> reader.pinUnless(keptContent, keptImages));
+    }
+
+    /**
+     * Reads a session's history. Contexts and fragments are built right away, but the bulk of a session, the text of
+     * frozen fragments and image bytes, stays in the zip and is read with random access when a fragment is first used;
+     * see {@link ContentReader}.
+     */
     public static ContextHistory readZip(Path zip, IContextManager mgr) throws IOException {
         if (!Files.exists(zip)) {
             throw new FileNotFoundException(zip.toString());
         }
 
-        boolean isV3 = false;
-        try (var zis = new ZipInputStream(Files.newInputStream(zip))) {
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
-                if (entry.getName().equals(V3_FRAGMENTS_FILENAME)) isV3 = true;
+        var stamp = ArchiveStamp.of(zip);
+        try (var zipFile = new ZipFile(zip.toFile())) {
+            if (zipFile.getEntry(V3_FRAGMENTS_FILENAME) == null) {
+                throw new InvalidObjectException("History zip file " + zip + " is not in a recognized format");
+            }
+            var stored = readArchive(zipFile);
+            if (stored.segmentBase != null) {
+                for (var record : scanSegment(segmentPath(zip), stored.segmentBase, RECORD_DELTA).records()) {
+                    applyDelta(stored, objectMapper.readValue(gunzip(record.payload()), SegmentDeltaDto.class));
+                }
+            }
+            var reader = new ContentReader(stored.contentBytes, stored.imageBytes, zip, stamp, stored.imageEntries);
+            reader.setContentMetadata(stored.contentMetadata);
+            ARCHIVE_READERS.put(reader, Boolean.TRUE);
+            // everything read while building goes through the zip that is already open
+            reader.open = zipFile;
+            try {
+                return buildHistory(stored, reader, mgr);
+            } finally {
+                reader.open = null;
             }
         }
+    }
 
-        if (isV3) {
-            return readZipV3(zip, mgr);
-        }
-        throw new InvalidObjectException("History zip file {} is not in a recognized format");
+    /**
+     * The structure of a session archive and its segment, before any fragment or context is built. Content and images
+     * in the zip are only listed; those appended to the segment are held in memory.
+     */
+    private static final class StoredHistory {
+        boolean hasFragments;
+        final Map<String, ReferencedFragmentDto> referenced = new HashMap<>();
+        final Map<String, VirtualFragmentDto> virtual = new HashMap<>();
+        final Map<String, TaskFragmentDto> task = new HashMap<>();
+        Map<String, ContentMetadataDto> contentMetadata = new HashMap<>();
+        final Map<String, byte[]> contentBytes = new HashMap<>();
+        final Map<String, byte[]> imageBytes = new HashMap<>();
+        Map<String, String> imageEntries = new HashMap<>();
+        final Map<String, CompactContextDto> contexts = new HashMap<>();
+        List<String> order = new ArrayList<>();
+        List<ContextHistory.ResetEdge> resetEdges = new ArrayList<>();
+        final Map<String, DtoMapper.GitStateDto> gitStates = new HashMap<>();
+        final Map<String, EntryInfoDto> entryInfos = new HashMap<>();
+        @Nullable
+        String segmentBase;
     }
 
-    private static ContextHistory readZipV3(Path zip, IContextManager mgr) throws IOException {
-        AllFragmentsDto allFragmentsDto = null;
-        var compactContextDtoLines = new ArrayList<String>();
-        var imageBytesMap = new HashMap<String, byte[]>();
-        var resetEdges = new ArrayList<ContextHistory.ResetEdge>();
-        Map<String, ContextHistory.GitState> gitStateDtos = new HashMap<>();
-        Map<String, DtoMapper.GitStateDto> rawGitStateDtos = null;
-        Map<String, ContextHistory.ContextHistoryEntryInfo> entryInfoDtos = new HashMap<>();
-        Map<String, ContentMetadataDto> contentMetadata = Map.of();
-        var contentBytesMap = new HashMap<String, byte[]>();
-
-        try (var zis = new ZipInputStream(Files.newInputStream(zip))) {
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
-                switch (entry.getName()) {
-                    case V3_FRAGMENTS_FILENAME -> {
-                        var fragmentJsonBytes = zis.readAllBytes();
-                        // Migration from 'io.github.jbellis' -> 'ai.brokk'
-                        var fragmentJsonString = new String(fragmentJsonBytes, StandardCharsets.UTF_8)
-                                .replace(
-                                        "\"type\":\"io.github.jbellis.brokk.context.FragmentDtos",
-                                        "\"type\":\"ai.brokk.context.FragmentDtos")
-                                .replace(
-                                        "\"@class\":\"io.github.jbellis.brokk.context.FragmentDtos",
-                                        "\"@class\":\"ai.brokk.context.FragmentDtos");
-                        allFragmentsDto = objectMapper.readValue(fragmentJsonString, AllFragmentsDto.class);
-                    }
-                    case CONTENT_FILENAME -> {
-                        var typeRef = new TypeReference<Map<String, ContentMetadataDto>>() {};
-                        contentMetadata = objectMapper.readValue(zis.readAllBytes(), typeRef);
-                    }
-                    case CONTEXTS_FILENAME -> {
-                        var content = new String(zis.readAllBytes(), StandardCharsets.UTF_8);
-                        content.lines().filter(line -> !line.trim().isEmpty()).forEach(compactContextDtoLines::add);
-                    }
-                    case RESET_EDGES_FILENAME -> {
-                        record EdgeDto(String sourceId, String targetId) {}
-                        var list = List.of(objectMapper.readValue(zis.readAllBytes(), EdgeDto[].class));
-                        list.forEach(d -> resetEdges.add(new ContextHistory.ResetEdge(
-                                UUID.fromString(d.sourceId()), UUID.fromString(d.targetId()))));
-                    }
-                    case GIT_STATES_FILENAME -> {
-                        var typeRef = new TypeReference<Map<String, DtoMapper.GitStateDto>>() {};
-                        rawGitStateDtos = objectMapper.readValue(zis.readAllBytes(), typeRef);
-                    }
-                    case ENTRY_INFOS_FILENAME -> {
-                        byte[] bytes = zis.readAllBytes();
-                        var typeRefNew = new TypeReference<Map<String, EntryInfoDto>>() {};
-                        Map<String, EntryInfoDto> dtoMap = objectMapper.readValue(bytes, typeRefNew);
-                        entryInfoDtos = DtoMapper.fromEntryInfosDto(dtoMap);
-                    }
-                    default -> {
-                        if (entry.getName().startsWith(IMAGES_DIR_PREFIX) && !entry.isDirectory()) {
-                            String name = entry.getName().substring(IMAGES_DIR_PREFIX.length());
-                            int dotIndex = name.lastIndexOf('.');
-                            String fragmentIdHash = (dotIndex > 0) ? name.substring(0, dotIndex) : name;
-                            imageBytesMap.put(fragmentIdHash, zis.readAllBytes());
-                        } else if (entry.getName().startsWith(CONTENT_DIR_PREFIX) && !entry.isDirectory()) {
-                            String contentId = entry.getName()
-                                    .substring(CONTENT_DIR_PREFIX.length())
-                                    .replaceFirst("\\.txt$", "");
-                            contentBytesMap.put(contentId, zis.readAllBytes());
-                        }
-                    }
-                }
+    private static StoredHistory readArchive(ZipFile zipFile) throws IOException {
+        var stored = new StoredHistory();
+        var fragmentsEntry = zipFile.getEntry(V3_FRAGMENTS_FILENAME);
+        if (fragmentsEntry != null) {
+            var fragmentJsonBytes = readEntry(zipFile, fragmentsEntry);
+            // Migration from 'io.github.jbellis' -> 'ai.brokk'
+            var fragmentJsonString = new String(fragmentJsonBytes, StandardCharsets.UTF_8)
+                    .replace(
+                            "\"type\":\"io.github.jbellis.brokk.context.FragmentDtos",
+                            "\"type\":\"ai.brokk.context.FragmentDtos")
+                    .replace(
+                            "\"@class\":\"io.github.jbellis.brokk.context.FragmentDtos",
+                            "\"@class\":\"ai.brokk.context.FragmentDtos");
+            var allFragmentsDto = objectMapper.readValue(fragmentJsonString, AllFragmentsDto.class);
+            stored.hasFragments = true;
+            stored.referenced.putAll(allFragmentsDto.referenced());
+            stored.virtual.putAll(allFragmentsDto.virtual());
+            stored.task.putAll(allFragmentsDto.task());
+        }
+        stored.contentMetadata = readContentMetadata(zipFile);
+        var contextsEntry = zipFile.getEntry(CONTEXTS_FILENAME);
+        if (contextsEntry != null) {
+            var content = new String(readEntry(zipFile, contextsEntry), StandardCharsets.UTF_8);
+            for (var line : content.lines().toList()) {
+                if (line.trim().isEmpty()) continue;
+                var compactDto = objectMapper.readValue(line, CompactContextDto.class);
+                // V1 histories have no context ids; key those by position
+                var key = compactDto.id() != null ? compactDto.id() : "#" + stored.order.size();
+                stored.contexts.put(key, compactDto);
+                stored.order.add(key);
             }
         }
+        var resetEdgesEntry = zipFile.getEntry(RESET_EDGES_FILENAME);
+        if (resetEdgesEntry != null) {
+            stored.resetEdges = fromResetEdgeDtos(
+                    List.of(objectMapper.readValue(readEntry(zipFile, resetEdgesEntry), ResetEdgeDto[].class)));
+        }
+        var gitStatesEntry = zipFile.getEntry(GIT_STATES_FILENAME);
+        if (gitStatesEntry != null) {
+            var typeRef = new TypeReference<Map<String, DtoMapper.GitStateDto>>() {};
+            stored.gitStates.putAll(objectMapper.readValue(readEntry(zipFile, gitStatesEntry), typeRef));
+        }
+        var entryInfosEntry = zipFile.getEntry(ENTRY_INFOS_FILENAME);
+        if (entryInfosEntry != null) {
+            var typeRefNew = new TypeReference<Map<String, EntryInfoDto>>() {};
+            stored.entryInfos.putAll(objectMapper.readValue(readEntry(zipFile, entryInfosEntry), typeRefNew));
+        }
+        var segmentBaseEntry = zipFile.getEntry(SEGMENT_BASE_FILENAME);
+        if (segmentBaseEntry != null) {
+            stored.segmentBase = new String(readEntry(zipFile, segmentBaseEntry), StandardCharsets.UTF_8);
+        }
+        stored.imageEntries = listImageEntries(zipFile);
+        return stored;
+    }
 
-        if (allFragmentsDto == null) {
-            throw new InvalidObjectException("No fragments found");
+    private static Map<String, ContentMetadataDto> readContentMetadata(ZipFile zipFile) throws IOException {
+        var entry = zipFile.getEntry(CONTENT_FILENAME);
+        if (entry == null) {
+            return new HashMap<>();
         }
+        var typeRef = new TypeReference<Map<String, ContentMetadataDto>>() {};
+        return new HashMap<>(objectMapper.readValue(readEntry(zipFile, entry), typeRef));
+    }
 
-        var contentReader = new ContentReader(contentBytesMap);
-        contentReader.setContentMetadata(contentMetadata);
+    /** Maps the fragment id of every stored image to its entry name, whatever the image format. */
+    private static Map<String, String> listImageEntries(ZipFile zipFile) {
+        var result = new HashMap<String, String>();
+        zipFile.stream()
+                .filter(entry -> entry.getName().startsWith(IMAGES_DIR_PREFIX) && !entry.isDirectory())
+                .forEach(entry -> {
+                    String name = entry.getName().substring(IMAGES_DIR_PREFIX.length());
+                    int dotIndex = name.lastIndexOf('.');
+                    String fragmentIdHash = (dotIndex > 0) ? name.substring(0, dotIndex) : name;
+                    result.put(fragmentIdHash, entry.getName());
+                });
+        return result;
+    }
 
-        if (rawGitStateDtos != null) {
-            for (var e : rawGitStateDtos.entrySet()) {
-                var dto = e.getValue();
-                String diff = null;
-                if (dto.diffContentId() != null) {
-                    diff = contentReader.readContent(dto.diffContentId());
-                }
-                gitStateDtos.put(e.getKey(), new ContextHistory.GitState(dto.commitHash(), diff));
+    private static byte[] readEntry(ZipFile zipFile, ZipEntry entry) throws IOException {
+        try (var in = zipFile.getInputStream(entry)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static void applyDelta(StoredHistory stored, SegmentDeltaDto delta) {
+        stored.hasFragments = true;
+        stored.referenced.putAll(delta.fragments().referenced());
+        stored.virtual.putAll(delta.fragments().virtual());
+        stored.task.putAll(delta.fragments().task());
+        stored.contentMetadata.putAll(delta.contentMetadata());
+        delta.content().forEach((id, text) -> stored.contentBytes.put(id, text.getBytes(StandardCharsets.UTF_8)));
+        stored.imageBytes.putAll(delta.images());
+        for (var compactDto : delta.contexts()) {
+            stored.contexts.put(Objects.requireNonNull(compactDto.id()), compactDto);
+        }
+        if (delta.order() != null) {
+            stored.order = new ArrayList<>(delta.order());
+        }
+        stored.gitStates.putAll(delta.gitStates());
+        delta.removedGitStates().forEach(stored.gitStates::remove);
+        stored.entryInfos.putAll(delta.entryInfos());
+        delta.removedEntryInfos().forEach(stored.entryInfos::remove);
+        if (delta.resetEdges() != null) {
+            stored.resetEdges = fromResetEdgeDtos(delta.resetEdges());
+        }
+    }
+
+    private static ContextHistory buildHistory(StoredHistory stored, ContentReader contentReader, IContextManager mgr)
+            throws IOException {
+        if (!stored.hasFragments) {
+            throw new InvalidObjectException("No fragments found");
+        }
+
+        var gitStates = new HashMap<UUID, ContextHistory.GitState>();
+        for (var e : stored.gitStates.entrySet()) {
+            var dto = e.getValue();
+            String diff = null;
+            if (dto.diffContentId() != null) {
+                diff = contentReader.readContent(dto.diffContentId());
             }
+            gitStates.put(UUID.fromString(e.getKey()), new ContextHistory.GitState(dto.commitHash(), diff));
         }
 
         Map<String, ContextFragment> fragmentCache = new ConcurrentHashMap<>();
-        final var referencedDtosById = allFragmentsDto.referenced();
-        final var virtualDtosById = allFragmentsDto.virtual();
-        final var taskDtosById = allFragmentsDto.task();
+        final var referencedDtosById = stored.referenced;
+        final var virtualDtosById = stored.virtual;
+        final var taskDtosById = stored.task;
 
         Stream.concat(
                         Stream.concat(referencedDtosById.keySet().stream(), virtualDtosById.keySet().stream()),
@@ -175,7 +302,6 @@ public final class HistoryIo {
                                 virtualDtosById,
                                 taskDtosById,
                                 mgr,
-                                imageBytesMap,
                                 fragmentCache,
                                 contentReader);
                     } catch (Exception e) {
@@ -185,8 +311,11 @@ public final class HistoryIo {
                 }));
 
         var contexts = new ArrayList<Context>();
-        for (String line : compactContextDtoLines) {
-            CompactContextDto compactDto = objectMapper.readValue(line, CompactContextDto.class);
+        for (String key : stored.order) {
+            var compactDto = stored.contexts.get(key);
+            if (compactDto == null) {
+                throw new InvalidObjectException("Missing context " + key);
+            }
             contexts.add(DtoMapper.fromCompactDto(compactDto, mgr, fragmentCache, contentReader));
         }
 
@@ -194,12 +323,11 @@ public final class HistoryIo {
             throw new InvalidObjectException("No contexts found");
         }
 
-        var gitStates = new HashMap<UUID, ContextHistory.GitState>();
-        gitStateDtos.forEach((key, value) -> gitStates.put(UUID.fromString(key), value));
         var entryInfos = new HashMap<UUID, ContextHistory.ContextHistoryEntryInfo>();
-        entryInfoDtos.forEach((key, value) -> entryInfos.put(UUID.fromString(key), value));
+        DtoMapper.fromEntryInfosDto(stored.entryInfos)
+                .forEach((key, value) -> entryInfos.put(UUID.fromString(key), value));
 
-        return new ContextHistory(contexts, resetEdges, gitStates, entryInfos);
+        return new ContextHistory(contexts, stored.resetEdges, gitStates, entryInfos);
     }
 
     private static String summarizeAction(Context ctx) {
@@ -211,127 +339,34 @@ public final class HistoryIo {
     }
 
     public static void writeZip(ContextHistory ch, Path target) throws IOException {
-        var writer = new ContentWriter();
-        var collectedReferencedDtos = new HashMap<String, ReferencedFragmentDto>();
-        var collectedVirtualDtos = new HashMap<String, VirtualFragmentDto>();
-        var collectedTaskDtos = new HashMap<String, TaskFragmentDto>();
-        var imageDomainFragments = new HashSet<FrozenFragment>();
-        var pastedImageFragments = new HashSet<ContextFragment.AnonymousImageFragment>();
-
-        for (Context ctx : ch.getHistory()) {
-            ctx.fileFragments().forEach(fragment -> {
-                if (!collectedReferencedDtos.containsKey(fragment.id())) {
-                    collectedReferencedDtos.put(fragment.id(), DtoMapper.toReferencedFragmentDto(fragment, writer));
-                    if (fragment instanceof FrozenFragment ff && !ff.isText()) {
-                        imageDomainFragments.add(ff);
-                    }
-                }
-            });
-            ctx.virtualFragments().forEach(vf -> {
-                if (vf instanceof ContextFragment.TaskFragment taskFragment
-                        && !(vf instanceof ContextFragment.SearchFragment)) {
-                    if (!collectedTaskDtos.containsKey(taskFragment.id())) {
-                        collectedTaskDtos.put(taskFragment.id(), DtoMapper.toTaskFragmentDto(taskFragment, writer));
-                    }
-                } else if (!collectedVirtualDtos.containsKey(vf.id())) {
-                    collectedVirtualDtos.put(vf.id(), DtoMapper.toVirtualFragmentDto(vf, writer));
-                    if (vf instanceof FrozenFragment ff && !ff.isText()) {
-                        imageDomainFragments.add(ff);
-                    }
-                    if (vf instanceof ContextFragment.AnonymousImageFragment aif) {
-                        pastedImageFragments.add(aif);
-                    }
-                    if (vf instanceof ContextFragment.HistoryFragment hf) {
-                        hf.entries().stream()
-                                .map(TaskEntry::log)
-                                .filter(Objects::nonNull)
-                                .forEach(log -> {
-                                    if (!collectedTaskDtos.containsKey(log.id())) {
-                                        collectedTaskDtos.put(log.id(), DtoMapper.toTaskFragmentDto(log, writer));
-                                    }
-                                });
-                    }
-                }
-            });
-            ctx.getTaskHistory().stream()
-                    .map(TaskEntry::log)
-                    .filter(Objects::nonNull)
-                    .forEach(log -> {
-                        if (!collectedTaskDtos.containsKey(log.id())) {
-                            collectedTaskDtos.put(log.id(), DtoMapper.toTaskFragmentDto(log, writer));
-                        }
-                    });
-            if (ctx.getParsedOutput() != null
-                    && !collectedTaskDtos.containsKey(ctx.getParsedOutput().id())) {
-                collectedTaskDtos.put(
-                        ctx.getParsedOutput().id(), DtoMapper.toTaskFragmentDto(ctx.getParsedOutput(), writer));
-            }
-        }
+        writeArchive(target, new HistoryCollector().collect(ch), Map.of());
+    }
 
+    /** Writes a complete V3 archive from a snapshot collected by a fresh {@link HistoryCollector}. */
+    private static void writeArchive(Path target, SegmentDeltaDto snapshot, Map<String, byte[]> extraEntries)
+            throws IOException {
         // Serialize all JSON content to byte arrays before writing to the zip stream
-        var allFragmentsDto = new AllFragmentsDto(
-                CURRENT_FORMAT_VERSION, collectedReferencedDtos, collectedVirtualDtos, collectedTaskDtos);
-        byte[] fragmentsBytes = objectMapper.writeValueAsBytes(allFragmentsDto);
+        byte[] fragmentsBytes = objectMapper.writeValueAsBytes(snapshot.fragments());
 
+        var contextsById = new HashMap<String, CompactContextDto>();
+        snapshot.contexts().forEach(dto -> contextsById.put(Objects.requireNonNull(dto.id()), dto));
         var contextsJsonlContent = new StringBuilder();
-        for (Context ctx : ch.getHistory()) {
-            var taskEntryRefs = ctx.getTaskHistory().stream()
-                    .map(te -> new TaskEntryRefDto(
-                            te.sequence(),
-                            te.log() != null ? te.log().id() : null,
-                            te.summary() != null ? writer.writeContent(te.summary(), null) : null))
-                    .toList();
-            var compactDto = new CompactContextDto(
-                    ctx.id().toString(),
-                    ctx.fileFragments().map(ContextFragment::id).toList(),
-                    List.of(),
-                    ctx.virtualFragments().map(ContextFragment::id).toList(),
-                    taskEntryRefs,
-                    ctx.getParsedOutput() != null ? ctx.getParsedOutput().id() : null,
-                    summarizeAction(ctx),
-                    ctx.getGroupId() != null ? ctx.getGroupId().toString() : null,
-                    ctx.getGroupLabel());
+        for (String id : Objects.requireNonNull(snapshot.order())) {
             contextsJsonlContent
-                    .append(objectMapper.writeValueAsString(compactDto))
+                    .append(objectMapper.writeValueAsString(contextsById.get(id)))
                     .append('\n');
         }
         byte[] contextsBytes = contextsJsonlContent.toString().getBytes(StandardCharsets.UTF_8);
 
-        byte[] gitStatesBytes = null;
-        var gitStates = ch.getGitStates();
-        if (!gitStates.isEmpty()) {
-            var gitStatesDto = new HashMap<String, DtoMapper.GitStateDto>();
-            for (var entry : gitStates.entrySet()) {
-                var gitState = entry.getValue();
-                String diffContentId = null;
-                if (gitState.diff() != null) {
-                    diffContentId = writer.writeContent(gitState.diff(), null);
-                }
-                gitStatesDto.put(
-                        entry.getKey().toString(), new DtoMapper.GitStateDto(gitState.commitHash(), diffContentId));
-            }
-            gitStatesBytes = objectMapper.writeValueAsBytes(gitStatesDto);
-        }
-
-        byte[] entryInfosBytes = null;
-        var entryInfos = ch.getEntryInfos();
-        if (!entryInfos.isEmpty()) {
-            var entryInfosDto = DtoMapper.toEntryInfosDto(entryInfos);
-            entryInfosBytes = objectMapper.writeValueAsBytes(entryInfosDto);
-        }
-
-        byte[] resetEdgesBytes = null;
-        if (!ch.getResetEdges().isEmpty()) {
-            record EdgeDto(String sourceId, String targetId) {}
-            var dtos = ch.getResetEdges().stream()
-                    .map(e -> new EdgeDto(e.sourceId().toString(), e.targetId().toString()))
-                    .toList();
-            resetEdgesBytes = objectMapper.writeValueAsBytes(dtos);
-        }
+        byte[] gitStatesBytes =
+                snapshot.gitStates().isEmpty() ? null : objectMapper.writeValueAsBytes(snapshot.gitStates());
+        byte[] entryInfosBytes =
+                snapshot.entryInfos().isEmpty() ? null : objectMapper.writeValueAsBytes(snapshot.entryInfos());
+        byte[] resetEdgesBytes = snapshot.resetEdges() == null
+                        || snapshot.resetEdges().isEmpty()
+                ? null
+                : objectMapper.writeValueAsBytes(snapshot.resetEdges());
 
-        final var finalGitStatesBytes = gitStatesBytes;
-        final var finalEntryInfosBytes = entryInfosBytes;
-        final var finalResetEdgesBytes = resetEdgesBytes;
         AtomicWrites.atomicSave(target, out -> {
             try (var zos = new ZipOutputStream(out)) {
                 zos.putNextEntry(new ZipEntry(V3_FRAGMENTS_FILENAME));
@@ -341,13 +376,13 @@ public final class HistoryIo {
                 zos.putNextEntry(new ZipEntry(CONTENT_FILENAME));
                 var typeRef = new TypeReference<Map<String, ContentMetadataDto>>() {};
                 byte[] contentMetadataBytes =
-                        objectMapper.writerFor(typeRef).writeValueAsBytes(writer.getContentMetadata());
+                        objectMapper.writerFor(typeRef).writeValueAsBytes(snapshot.contentMetadata());
                 zos.write(contentMetadataBytes);
                 zos.closeEntry();
 
-                for (var entry : writer.getContentBytes().entrySet()) {
+                for (var entry : snapshot.content().entrySet()) {
                     zos.putNextEntry(new ZipEntry(CONTENT_DIR_PREFIX + entry.getKey() + ".txt"));
-                    zos.write(entry.getValue());
+                    zos.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
                     zos.closeEntry();
                 }
 
@@ -355,79 +390,586 @@ public final class HistoryIo {
                 zos.write(contextsBytes);
                 zos.closeEntry();
 
-                if (finalGitStatesBytes != null) {
+                if (gitStatesBytes != null) {
                     zos.putNextEntry(new ZipEntry(GIT_STATES_FILENAME));
-                    zos.write(finalGitStatesBytes);
+                    zos.write(gitStatesBytes);
                     zos.closeEntry();
                 }
 
-                if (finalEntryInfosBytes != null) {
+                if (entryInfosBytes != null) {
                     zos.putNextEntry(new ZipEntry(ENTRY_INFOS_FILENAME));
-                    zos.write(finalEntryInfosBytes);
+                    zos.write(entryInfosBytes);
                     zos.closeEntry();
                 }
 
-                if (finalResetEdgesBytes != null) {
+                if (resetEdgesBytes != null) {
                     zos.putNextEntry(new ZipEntry(RESET_EDGES_FILENAME));
-                    zos.write(finalResetEdgesBytes);
+                    zos.write(resetEdgesBytes);
                     zos.closeEntry();
                 }
 
-                for (FrozenFragment ff : imageDomainFragments) {
-                    byte[] imageBytes = ff.imageBytesContent();
-                    if (imageBytes != null) {
-                        ZipEntry entry = new ZipEntry(
-                                IMAGES_DIR_PREFIX + ff.id() + ".png"); // Assumes PNG, consider content type if varied
-                        entry.setMethod(ZipEntry.STORED); // For uncompressed images, or DEFLATED if compression desired
-                        entry.setSize(imageBytes.length);
-                        entry.setCompressedSize(imageBytes.length); // If STORED
-                        var crc = new CRC32();
-                        crc.update(imageBytes);
-                        entry.setCrc(crc.getValue());
-                        zos.putNextEntry(entry);
-                        zos.write(imageBytes);
-                        zos.closeEntry();
-                    }
+                for (var image : snapshot.images().entrySet()) {
+                    byte[] imageBytes = image.getValue();
+                    ZipEntry entry = new ZipEntry(IMAGES_DIR_PREFIX + image.getKey() + ".png"); // Assumes PNG
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(imageBytes.length);
+                    entry.setCompressedSize(imageBytes.length); // If STORED
+                    var crc = new CRC32();
+                    crc.update(imageBytes);
+                    entry.setCrc(crc.getValue());
+                    zos.putNextEntry(entry);
+                    zos.write(imageBytes);
+                    zos.closeEntry();
                 }
 
-                for (var aif : pastedImageFragments) {
-                    try {
-                        byte[] imageBytes = aif.imageBytes();
-                        if (imageBytes == null) {
-                            logger.warn("Skipping image fragment {} because imageBytes is null", aif.id());
-                            continue;
+                for (var extra : extraEntries.entrySet()) {
+                    zos.putNextEntry(new ZipEntry(extra.getKey()));
+                    zos.write(extra.getValue());
+                    zos.closeEntry();
+                }
+            }
+        });
+    }
+
+    private record ResetEdgeDto(String sourceId, String targetId) {}
+
+    private static List<ContextHistory.ResetEdge> fromResetEdgeDtos(List<ResetEdgeDto> dtos) {
+        var edges = new ArrayList<ContextHistory.ResetEdge>(dtos.size());
+        dtos.forEach(d -> edges.add(
+                new ContextHistory.ResetEdge(UUID.fromString(d.sourceId()), UUID.fromString(d.targetId()))));
+        return edges;
+    }
+
+    /**
+     * What changed in a history since the previous collection: new fragments, content and images, contexts that are
+     * new or whose DTO changed, and the full context order, git states, entry infos and reset edges wherever they
+     * differ. A fresh collector yields the whole history, which is what a zip holds.
+     */
+    private record SegmentDeltaDto(
+            AllFragmentsDto fragments,
+            Map<String, ContentMetadataDto> contentMetadata,
+            Map<String, String> content,
+            Map<String, byte[]> images,
+            List<CompactContextDto> contexts,
+            @Nullable List<String> order,
+            Map<String, DtoMapper.GitStateDto> gitStates,
+            List<String> removedGitStates,
+            Map<String, EntryInfoDto> entryInfos,
+            List<String> removedEntryInfos,
+            @Nullable List<ResetEdgeDto> resetEdges) {
+
+        @JsonIgnore
+        boolean isEmpty() {
+            return fragments.referenced().isEmpty()
+                    && fragments.virtual().isEmpty()
+                    && fragments.task().isEmpty()
+                    && contentMetadata.isEmpty()
+                    && images.isEmpty()
+                    && contexts.isEmpty()
+                    && order == null
+                    && gitStates.isEmpty()
+                    && removedGitStates.isEmpty()
+                    && entryInfos.isEmpty()
+                    && removedEntryInfos.isEmpty()
+                    && resetEdges == null;
+        }
+    }
+
+    /**
+     * Turns successive states of one history into DTOs, remembering what it already produced so that each call only
+     * returns the difference. Content is written through a single {@link ContentWriter}, so new revisions of a file can
+     * be stored as diffs against revisions from earlier calls.
+     */
+    private static final class HistoryCollector {
+        private final ContentWriter writer = new ContentWriter();
+        private final Set<String> writtenReferenced = new HashSet<>();
+        private final Set<String> writtenVirtual = new HashSet<>();
+        private final Set<String> writtenTasks = new HashSet<>();
+        private final Map<String, CompactContextDto> writtenContexts = new HashMap<>();
+        private List<String> writtenOrder = List.of();
+        private Map<UUID, ContextHistory.GitState> writtenGitStates = Map.of();
+        private Map<UUID, ContextHistory.ContextHistoryEntryInfo> writtenEntryInfos = Map.of();
+        private List<ContextHistory.ResetEdge> writtenResetEdges = List.of();
+
+        SegmentDeltaDto collect(ContextHistory ch) {
+            var referenced = new HashMap<String, ReferencedFragmentDto>();
+            var virtual = new HashMap<String, VirtualFragmentDto>();
+            var tasks = new HashMap<String, TaskFragmentDto>();
+            var images = new HashMap<String, byte[]>();
+            var history = ch.getHistory();
+
+            for (Context ctx : history) {
+                ctx.fileFragments().forEach(fragment -> {
+                    if (writtenReferenced.add(fragment.id())) {
+                        referenced.put(fragment.id(), DtoMapper.toReferencedFragmentDto(fragment, writer));
+                        if (fragment instanceof FrozenFragment ff && !ff.isText()) {
+                            addFrozenImage(ff, images);
+                        }
+                    }
+                });
+                ctx.virtualFragments().forEach(vf -> {
+                    if (vf instanceof ContextFragment.TaskFragment taskFragment
+                            && !(vf instanceof ContextFragment.SearchFragment)) {
+                        collectTask(taskFragment, tasks);
+                    } else if (writtenVirtual.add(vf.id())) {
+                        virtual.put(vf.id(), DtoMapper.toVirtualFragmentDto(vf, writer));
+                        if (vf instanceof FrozenFragment ff && !ff.isText()) {
+                            addFrozenImage(ff, images);
+                        }
+                        if (vf instanceof ContextFragment.AnonymousImageFragment aif) {
+                            addPastedImage(aif, images);
+                        }
+                        if (vf instanceof ContextFragment.HistoryFragment hf) {
+                            hf.entries().stream()
+                                    .map(TaskEntry::log)
+                                    .filter(Objects::nonNull)
+                                    .forEach(log -> collectTask(log, tasks));
                         }
-                        ZipEntry entry = new ZipEntry(IMAGES_DIR_PREFIX + aif.id() + ".png"); // Assumes PNG
-                        entry.setMethod(ZipEntry.STORED);
-                        entry.setSize(imageBytes.length);
-                        entry.setCompressedSize(imageBytes.length); // If STORED
-                        var crc = new CRC32();
-                        crc.update(imageBytes);
-                        entry.setCrc(crc.getValue());
-                        zos.putNextEntry(entry);
-                        zos.write(imageBytes);
-                        zos.closeEntry();
-                    } catch (IOException e) {
-                        logger.warn("Could not write pasted image {} to history zip: {}", aif.id(), e.getMessage());
                     }
+                });
+                ctx.getTaskHistory().stream()
+                        .map(TaskEntry::log)
+                        .filter(Objects::nonNull)
+                        .forEach(log -> collectTask(log, tasks));
+                var parsedOutput = ctx.getParsedOutput();
+                if (parsedOutput != null) {
+                    collectTask(parsedOutput, tasks);
                 }
             }
-        });
+
+            var contexts = new ArrayList<CompactContextDto>();
+            var order = new ArrayList<String>(history.size());
+            for (Context ctx : history) {
+                var compactDto = toCompactDto(ctx);
+                var id = ctx.id().toString();
+                order.add(id);
+                if (!compactDto.equals(writtenContexts.put(id, compactDto))) {
+                    contexts.add(compactDto);
+                }
+            }
+            writtenContexts.keySet().retainAll(order);
+            List<String> changedOrder = order.equals(writtenOrder) ? null : List.copyOf(order);
+            writtenOrder = order;
+
+            var gitStates = ch.getGitStates();
+            var gitStateDtos = new HashMap<String, DtoMapper.GitStateDto>();
+            gitStates.forEach((id, gitState) -> {
+                if (!gitState.equals(writtenGitStates.get(id))) {
+                    String diffContentId = gitState.diff() != null ? writer.writeContent(gitState.diff(), null) : null;
+                    gitStateDtos.put(id.toString(), new DtoMapper.GitStateDto(gitState.commitHash(), diffContentId));
+                }
+            });
+            var removedGitStates = removedKeys(writtenGitStates, gitStates);
+            writtenGitStates = gitStates;
+
+            var entryInfos = ch.getEntryInfos();
+            var changedEntryInfos = new HashMap<UUID, ContextHistory.ContextHistoryEntryInfo>();
+            entryInfos.forEach((id, info) -> {
+                if (!info.equals(writtenEntryInfos.get(id))) {
+                    changedEntryInfos.put(id, info);
+                }
+            });
+            var removedEntryInfos = removedKeys(writtenEntryInfos, entryInfos);
+            writtenEntryInfos = entryInfos;
+
+            var resetEdges = ch.getResetEdges();
+            List<ResetEdgeDto> changedResetEdges = resetEdges.equals(writtenResetEdges)
+                    ? null
+                    : resetEdges.stream()
+                            .map(e -> new ResetEdgeDto(
+                                    e.sourceId().toString(), e.targetId().toString()))
+                            .toList();
+            writtenResetEdges = resetEdges;
+
+            // last, so that content written for git states and task summaries above is included; the writer only
+            // holds bytes for content new since the previous collection, and forgets them once they are handed out
+            var contentMetadata = new HashMap<String, ContentMetadataDto>();
+            var content = new HashMap<String, String>();
+            writer.getContentBytes().forEach((id, bytes) -> {
+                contentMetadata.put(id, writer.getContentMetadata().get(id));
+                content.put(id, new String(bytes, StandardCharsets.UTF_8));
+            });
+            writer.releaseWritten();
+
+            return new SegmentDeltaDto(
+                    new AllFragmentsDto(CURRENT_FORMAT_VERSION, referenced, virtual, tasks),
+                    contentMetadata,
+                    content,
+                    images,
+                    contexts,
+                    changedOrder,
+                    gitStateDtos,
+                    removedGitStates,
+                    DtoMapper.toEntryInfosDto(changedEntryInfos),
+                    removedEntryInfos,
+                    changedResetEdges);
+        }
+
+        private void collectTask(ContextFragment.TaskFragment taskFragment, Map<String, TaskFragmentDto> tasks) {
+            if (writtenTasks.add(taskFragment.id())) {
+                tasks.put(taskFragment.id(), DtoMapper.toTaskFragmentDto(taskFragment, writer));
+            }
+        }
+
+        private CompactContextDto toCompactDto(Context ctx) {
+            var taskEntryRefs = ctx.getTaskHistory().stream()
+                    .map(te -> new TaskEntryRefDto(
+                            te.sequence(),
+                            te.log() != null ? te.log().id() : null,
+                            te.summary() != null ? writer.writeContent(te.summary(), null) : null))
+                    .toList();
+            return new CompactContextDto(
+                    ctx.id().toString(),
+                    ctx.fileFragments().map(ContextFragment::id).toList(),
+                    List.of(),
+                    ctx.virtualFragments().map(ContextFragment::id).toList(),
+                    taskEntryRefs,
+                    ctx.getParsedOutput() != null ? ctx.getParsedOutput().id() : null,
+                    summarizeAction(ctx),
+                    ctx.getGroupId() != null ? ctx.getGroupId().toString() : null,
+                    ctx.getGroupLabel());
+        }
+
+        private static void addFrozenImage(FrozenFragment ff, Map<String, byte[]> images) {
+            byte[] imageBytes = ff.imageBytesContent();
+            if (imageBytes != null) {
+                images.put(ff.id(), imageBytes);
+            }
+        }
+
+        private static void addPastedImage(ContextFragment.AnonymousImageFragment aif, Map<String, byte[]> images) {
+            byte[] imageBytes = aif.imageBytes();
+            if (imageBytes == null) {
+                logger.warn("Skipping image fragment {} because imageBytes is null", aif.id());
+                return;
+            }
+            images.put(aif.id(), imageBytes);
+        }
+
+        private static <V> List<String> removedKeys(Map<UUID, V> before, Map<UUID, V> after) {
+            return before.keySet().stream()
+                    .filter(id -> !after.containsKey(id))
+                    .map(UUID::toString)
+                    .toList();
+        }
     }
 
+    /* ---------- append-only session segments ---------- */
+
+    /** The segment file that holds changes appended to {@code zip} since it was last written in full. */
+    public static Path segmentPath(Path zip) {
+        var name = zip.getFileName().toString();
+        var stem = name.endsWith(".zip") ? name.substring(0, name.length() - 4) : name;
+        return zip.resolveSibling(stem + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Reads a session's manifest: the latest one appended to its segment, else the one stored in the zip.
+     *
+     * @return the manifest JSON, or empty if the session has none.
+     */
+    public static Optional<String> readManifest(Path zip) throws IOException {
+        String manifest = null;
+        String base = null;
+        try (var zipFile = new ZipFile(zip.toFile())) {
+            var manifestEntry = zipFile.getEntry(MANIFEST_FILENAME);
+            if (manifestEntry != null) {
+                manifest = new String(zipFile.getInputStream(manifestEntry).readAllBytes(), StandardCharsets.UTF_8);
+            }
+            var baseEntry = zipFile.getEntry(SEGMENT_BASE_FILENAME);
+            if (baseEntry != null) {
+                base = new String(zipFile.getInputStream(baseEntry).readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+        if (base != null) {
+            var records = scanSegment(segmentPath(zip), base, RECORD_MANIFEST).records();
+            if (!records.isEmpty()) {
+                manifest = new String(records.getLast().payload(), StandardCharsets.UTF_8);
+            }
+        }
+        return Optional.ofNullable(manifest);
+    }
+
+    /**
+     * Persists successive states of one session's history.
+     *
+     * <p>The first save, and any save after the files changed underneath this writer, rewrites the zip in full and
+     * starts a new segment. Later saves append only what changed to the segment, so a save costs roughly the size of
+     * the change rather than the size of the session. Once the segment outgrows the zip it is folded back in by the
+     * next save, which keeps the total rewrite cost proportional to what was appended.
+     *
+     * <p>Entries the history format does not own, such as the manifest and task list, are carried over on every
+     * rewrite. Not thread-safe on its own; callers serialize the work for a session.
+     */
+    public static final class SessionWriter {
+        private final Path zip;
+        private final Path segment;
+        private @Nullable HistoryCollector collector;
+        private String base = "";
+        private long zipModified = -1;
+        private long segmentSize;
+
+        public SessionWriter(Path zip) {
+            this.zip = zip;
+            this.segment = segmentPath(zip);
+        }
+
+        /**
+         * Saves {@code ch}, appending only what changed since the previous save when possible.
+         *
+         * @param manifestJson if non-null, replaces the session manifest.
+         */
+        public synchronized void save(ContextHistory ch, @Nullable String manifestJson) throws IOException {
+            var current = collector;
+            if (current == null || !inSync() || segmentSize > Math.max(MIN_COMPACTION_BYTES, Files.size(zip))) {
+                compact(ch, manifestJson);
+                return;
+            }
+            try {
+                var delta = current.collect(ch);
+                var records = new ArrayList<SegmentRecord>(2);
+                if (!delta.isEmpty()) {
+                    records.add(new SegmentRecord(RECORD_DELTA, gzip(objectMapper.writeValueAsBytes(delta))));
+                }
+                if (manifestJson != null) {
+                    records.add(manifestRecord(manifestJson));
+                }
+                if (!records.isEmpty()) {
+                    segmentSize = appendRecords(segment, base, records);
+                }
+            } catch (IOException | RuntimeException e) {
+                // the collector may be ahead of what reached the disk; start over with a full write next time
+                collector = null;
+                throw e;
+            }
+        }
+
+        /** Replaces the session manifest without touching the history. */
+        public synchronized void writeManifest(String manifestJson) throws IOException {
+            if (collector != null && inSync()) {
+                segmentSize = appendRecords(segment, base, List.of(manifestRecord(manifestJson)));
+                return;
+            }
+
+            String zipBase = readSegmentBase(zip);
+            if (zipBase != null) {
+                var scan = scanSegment(segment, zipBase, (byte) 0);
+                if (!scan.matchesBase()) {
+                    Files.deleteIfExists(segment);
+                } else if (Files.size(segment) > scan.validLength()) {
+                    truncate(segment, scan.validLength());
+                }
+                appendRecords(segment, zipBase, List.of(manifestRecord(manifestJson)));
+            } else {
+                // an archive written before segments existed; nothing can be appended to it yet
+                try (var fs = FileSystems.newFileSystem(
+                        zip, Map.of("create", Files.notExists(zip) ? "true" : "false"))) {
+                    Files.writeString(
+                            fs.getPath(MANIFEST_FILENAME),
+                            manifestJson,
+                            StandardOpenOption.CREATE,
+                            StandardOpenOption.TRUNCATE_EXISTING);
+                }
+            }
+        }
+
+        /** Whether the zip and segment are still exactly as this writer left them. */
+        private boolean inSync() throws IOException {
+            if (!Files.exists(zip)) {
+                return false;
+            }
+            long size = Files.exists(segment) ? Files.size(segment) : 0;
+            if (size != segmentSize) {
+                return false;
+            }
+            long modified = Files.getLastModifiedTime(zip).toMillis();
+            if (modified != zipModified) {
+                // other entries, e.g. the task list, may be rewritten in place; the history is intact if the base is
+                if (!base.equals(readSegmentBase(zip))) {
+                    return false;
+                }
+                zipModified = modified;
+            }
+            return true;
+        }
+
+        private void compact(ContextHistory ch, @Nullable String manifestJson) throws IOException {
+            collector = null;
+            var carried = Files.exists(zip) ? readForeignEntries(zip) : new LinkedHashMap<String, byte[]>();
+            if (manifestJson != null) {
+                carried.put(MANIFEST_FILENAME, manifestJson.getBytes(StandardCharsets.UTF_8));
+            }
+            var newBase = UUID.randomUUID().toString();
+            carried.put(SEGMENT_BASE_FILENAME, newBase.getBytes(StandardCharsets.UTF_8));
+
+            var fresh = new HistoryCollector();
+            var snapshot = fresh.collect(ch);
+            // fragments loaded from the old zip may reference content this history no longer holds
+            pinUnless(zip, snapshot.contentMetadata().keySet(), snapshot.images().keySet());
+            writeArchive(zip, snapshot, carried);
+            // a crash before this delete is harmless: the old segment's base no longer matches the zip
+            Files.deleteIfExists(segment);
+
+            collector = fresh;
+            base = newBase;
+            segmentSize = 0;
+            zipModified = Files.getLastModifiedTime(zip).toMillis();
+        }
+    }
+
+    private record SegmentRecord(byte kind, byte[] payload) {}
+
+    private record SegmentScan(List<SegmentRecord> records, long validLength, boolean matchesBase) {}
+
+    private static SegmentRecord manifestRecord(String manifestJson) {
+        return new SegmentRecord(RECORD_MANIFEST, manifestJson.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the records of kind {@code wantedKind} from a segment, skipping the payloads of other kinds. A segment
+     * written against a different base than {@code base} is stale and yields nothing; a record cut short by an
+     * interrupted append ends the scan.
+     */
+    private static SegmentScan scanSegment(Path segment, String base, byte wantedKind) throws IOException {
+        var records = new ArrayList<SegmentRecord>();
+        if (!Files.exists(segment)) {
+            return new SegmentScan(records, 0, true);
+        }
+        long validLength = 0;
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+            if (in.readInt() != SEGMENT_MAGIC || in.readInt() != SEGMENT_VERSION || !in.readUTF().equals(base)) {
+                logger.debug("Ignoring stale session segment {}", segment);
+                return new SegmentScan(List.of(), 0, false);
+            }
+            validLength = 8 + 2 + base.getBytes(StandardCharsets.UTF_8).length;
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte kind = in.readByte();
+                if (kind == wantedKind) {
+                    var payload = new byte[length];
+                    in.readFully(payload);
+                    records.add(new SegmentRecord(kind, payload));
+                } else {
+                    in.skipNBytes(length);
+                }
+                validLength += 5 + length;
+            }
+        } catch (EOFException e) {
+            logger.debug("Session segment {} ends in a partial record", segment);
+        }
+        return new SegmentScan(records, validLength, true);
+    }
+
+    /** Appends records to a segment, writing its header first if it is new. Returns the segment's new size. */
+    private static long appendRecords(Path segment, String base, List<SegmentRecord> records) throws IOException {
+        boolean fresh = !Files.exists(segment) || Files.size(segment) == 0;
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+                segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)))) {
+            if (fresh) {
+                out.writeInt(SEGMENT_MAGIC);
+                out.writeInt(SEGMENT_VERSION);
+                out.writeUTF(base);
+            }
+            for (var record : records) {
+                out.writeInt(record.payload().length);
+                out.writeByte(record.kind());
+                out.write(record.payload());
+            }
+        }
+        return Files.size(segment);
+    }
+
+    private static void truncate(Path file, long length) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+        }
+    }
+
+    private static @Nullable String readSegmentBase(Path zip) throws IOException {
+        try (var zipFile = new ZipFile(zip.toFile())) {
+            var entry = zipFile.getEntry(SEGMENT_BASE_FILENAME);
+            return entry == null
+                    ? null
+                    : new String(zipFile.getInputStream(entry).readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Entries of {@code zip} that are not part of the history format, with the manifest replaced by the latest one in
+     * the segment. An unreadable zip yields no entries, as it is about to be replaced anyway.
+     */
+    private static Map<String, byte[]> readForeignEntries(Path zip) {
+        var entries = new LinkedHashMap<String, byte[]>();
+        try {
+            try (var zipFile = new ZipFile(zip.toFile())) {
+                for (var entry : Collections.list(zipFile.entries())) {
+                    var name = entry.getName();
+                    if (!entry.isDirectory() && !isHistoryEntry(name)) {
+                        entries.put(name, zipFile.getInputStream(entry).readAllBytes());
+                    }
+                }
+            }
+            readManifest(zip).ifPresent(m -> entries.put(MANIFEST_FILENAME, m.getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            logger.warn("Could not carry over entries of {} into the rewritten zip: {}", zip, e.getMessage());
+        }
+        return entries;
+    }
+
+    private static boolean isHistoryEntry(String name) {
+        return switch (name) {
+            case V3_FRAGMENTS_FILENAME,
+                    CONTEXTS_FILENAME,
+                    CONTENT_FILENAME,
+                    RESET_EDGES_FILENAME,
+                    GIT_STATES_FILENAME,
+                    ENTRY_INFOS_FILENAME,
+                    SEGMENT_BASE_FILENAME -> true;
+            default -> name.startsWith(CONTENT_DIR_PREFIX) || name.startsWith(IMAGES_DIR_PREFIX);
+        };
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        var out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (var gz = new GZIPOutputStream(out)) {
+            gz.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        try (var gz = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return gz.readAllBytes();
+        }
+    }
+
+    /**
+     * A file revision is stored as a diff against the previous one at most this many times in a row; the next
+     * revision is stored in full, so reading any revision replays a bounded number of diffs.
+     */
+    static final int MAX_DIFF_CHAIN = 16;
+
     public static class ContentWriter {
         private final Map<String, ContentMetadataDto> contentMetadata = new HashMap<>();
         private final Map<String, byte[]> contentBytes = new HashMap<>();
         private final Map<String, String> fileKeyToLastContentId = new HashMap<>();
         private final Map<String, String> idToFullContent = new HashMap<>();
+        private final Map<String, Integer> diffChainLength = new HashMap<>();
 
         public String writeContent(String content, @Nullable String fileKey) {
             byte[] fullContentBytes = content.getBytes(StandardCharsets.UTF_8);
             var contentId = UUID.nameUUIDFromBytes(fullContentBytes).toString();
 
-            if (idToFullContent.containsKey(contentId)) {
+            if (contentMetadata.containsKey(contentId)) {
                 if (fileKey != null) {
                     fileKeyToLastContentId.put(fileKey, contentId);
+                    // it may have been released; as the file's latest revision it is the base for the next one
+                    idToFullContent.putIfAbsent(contentId, content);
                 }
                 return contentId;
             }
@@ -443,12 +985,16 @@ public final class HistoryIo {
                     var lastMetadata = contentMetadata.get(lastContentId);
                     if (lastContent != null && lastMetadata != null) {
                         revision = lastMetadata.revision() + 1;
-                        var diff = ContentDiffUtils.diff(lastContent, content);
-                        var diffRatio = (double) diff.length() / content.length();
-                        if (diffRatio < 0.75) {
-                            contentMetadata.put(contentId, new DiffContentMetadataDto(revision, lastContentId));
-                            contentBytes.put(contentId, diff.getBytes(StandardCharsets.UTF_8));
-                            return contentId;
+                        int chainLength = diffChainLength.getOrDefault(lastContentId, 0) + 1;
+                        if (chainLength <= MAX_DIFF_CHAIN) {
+                            var diff = ContentDiffUtils.diff(lastContent, content);
+                            var diffRatio = (double) diff.length() / content.length();
+                            if (diffRatio < 0.75) {
+                                contentMetadata.put(contentId, new DiffContentMetadataDto(revision, lastContentId));
+                                contentBytes.put(contentId, diff.getBytes(StandardCharsets.UTF_8));
+                                diffChainLength.put(contentId, chainLength);
+                                return contentId;
+                            }
                         }
                     }
                 }
@@ -467,46 +1013,285 @@ public final class HistoryIo {
         public Map<String, byte[]> getContentBytes() {
             return contentBytes;
         }
+
+        /**
+         * Drops the stored bytes of everything written so far, and the full text of all but each file's latest
+         * revision, which the next revision may still be diffed against. Content ids and metadata are kept, so content
+         * seen again is not written again.
+         */
+        void releaseWritten() {
+            contentBytes.clear();
+            idToFullContent.keySet().retainAll(Set.copyOf(fileKeyToLastContentId.values()));
+        }
     }
 
+    /** Size and modification time of a session zip, used to notice that it was rewritten. */
+    private record ArchiveStamp(long size, long modified) {
+        static ArchiveStamp of(Path zip) throws IOException {
+            var attrs = Files.readAttributes(zip, BasicFileAttributes.class);
+            return new ArchiveStamp(attrs.size(), attrs.lastModifiedTime().toMillis());
+        }
+    }
+
+    /**
+     * Materializes stored content by id. Revisions are cached, up to a bound, so a diff chain is usually replayed at
+     * most once, and later revisions of the same file start from the nearest cached one. Safe for concurrent use,
+     * since fragments read their content lazily after loading.
+     *
+     * <p>A reader created by {@link #readZip} pages content and images in from the session zip on demand, opening it
+     * for each read. Content ids are hashes of the content, so if the zip has been rewritten since loading, the same
+     * ids are found in the new zip, possibly encoded against other bases; its content metadata is then reloaded.
+     */
     public static class ContentReader {
+        private static final long MAX_CACHED_CONTENT_CHARS = 16L * 1024 * 1024;
+        private static final long MAX_CACHED_IMAGE_BYTES = 32L * 1024 * 1024;
+
         private final Map<String, byte[]> contentBytes;
-        private Map<String, ContentMetadataDto> contentMetadata = Map.of();
-        private final Map<String, String> contentCache = new HashMap<>();
+        private final Map<String, byte[]> imageBytes;
+        private volatile Map<String, ContentMetadataDto> contentMetadata = Map.of();
+        private final Cache<String, String> contentCache = CacheBuilder.newBuilder()
+                .maximumWeight(MAX_CACHED_CONTENT_CHARS)
+                .weigher((String id, String content) -> content.length())
+                .build();
+        private final Cache<String, byte[]> imageCache = CacheBuilder.newBuilder()
+                .maximumWeight(MAX_CACHED_IMAGE_BYTES)
+                .weigher((String id, byte[] bytes) -> bytes.length)
+                .build();
+
+        // Paging from the archive; all guarded by this
+        private final @Nullable Path zip;
+        private @Nullable ArchiveStamp stamp;
+        private Map<String, String> imageEntries;
+        private @Nullable ZipFile open;
+        // Guarded by itself
+        private final Set<PagedValue<?>> pagedValues = Collections.newSetFromMap(new WeakHashMap<>());
 
         public ContentReader(Map<String, byte[]> contentBytes) {
+            this(contentBytes, Map.of(), null, null, Map.of());
+        }
+
+        private ContentReader(
+                Map<String, byte[]> contentBytes,
+                Map<String, byte[]> imageBytes,
+                @Nullable Path zip,
+                @Nullable ArchiveStamp stamp,
+                Map<String, String> imageEntries) {
             this.contentBytes = contentBytes;
+            this.imageBytes = imageBytes;
+            this.zip = zip;
+            this.stamp = stamp;
+            this.imageEntries = imageEntries;
         }
 
         public void setContentMetadata(Map<String, ContentMetadataDto> contentMetadata) {
             this.contentMetadata = contentMetadata;
         }
 
+        /**
+         * The content with {@code contentId}, read when first asked for and then softly held. If the archive is
+         * about to lose it, it is pinned first; see {@link HistoryIo#releaseArchive}.
+         */
+        public Supplier<@Nullable String> lazyContent(String contentId) {
+            return track(new PagedValue<>(contentId, false, () -> readContent(contentId)));
+        }
+
+        /** Like {@link #lazyContent}, for the stored image of a fragment. */
+        public Supplier<byte @Nullable []> lazyImage(String fragmentId) {
+            return track(new PagedValue<>(fragmentId, true, () -> readImage(fragmentId)));
+        }
+
+        private <T> PagedValue<T> track(PagedValue<T> value) {
+            if (zip != null) {
+                synchronized (pagedValues) {
+                    pagedValues.add(value);
+                }
+            }
+            return value;
+        }
+
+        private boolean reads(Path archive) {
+            return zip != null
+                    && zip.toAbsolutePath().normalize().equals(archive.toAbsolutePath().normalize());
+        }
+
+        private void pinUnless(Set<String> keptContent, Set<String> keptImages) {
+            List<PagedValue<?>> live;
+            synchronized (pagedValues) {
+                live = List.copyOf(pagedValues);
+            }
+            int pinned = 0;
+            for (var value : live) {
+                if (!(value.image ? keptImages : keptContent).contains(value.id)) {
+                    value.pin();
+                    pinned++;
+                }
+            }
+            if (pinned > 0) {
+                logger.debug("Pinned {} values loaded from {} before it changes", pinned, zip);
+            }
+        }
+
+        /**
+         * Content or an image that a fragment reads on demand. Softly held once read, so memory stays bounded, and
+         * held strongly once pinned, when the archive can no longer supply it.
+         */
+        private static final class PagedValue<T> implements Supplier<@Nullable T> {
+            private final String id;
+            private final boolean image;
+            private final Supplier<@Nullable T> read;
+            private @Nullable SoftReference<T> cached;
+            private boolean isPinned;
+            private @Nullable T pinned;
+
+            PagedValue(String id, boolean image, Supplier<@Nullable T> read) {
+                this.id = id;
+                this.image = image;
+                this.read = read;
+            }
+
+            @Override
+            public synchronized @Nullable T get() {
+                if (isPinned) {
+                    return pinned;
+                }
+                var ref = cached;
+                T value = ref != null ? ref.get() : null;
+                if (value == null) {
+                    value = read.get();
+                    cached = value != null ? new SoftReference<>(value) : null;
+                }
+                return value;
+            }
+
+            synchronized void pin() {
+                if (isPinned) {
+                    return;
+                }
+                try {
+                    pinned = get();
+                    isPinned = true;
+                    cached = null;
+                } catch (RuntimeException e) {
+                    logger.warn("Unable to pin {} {} before its archive changes", image ? "image" : "content", id, e);
+                }
+            }
+        }
+
         public String readContent(String contentId) {
-            var cached = contentCache.get(contentId);
+            var cached = contentCache.getIfPresent(contentId);
             if (cached != null) {
                 return cached;
             }
+            if (zip == null) {
+                return resolve(contentId, null);
+            }
+            return fromArchive(zipFile -> resolve(contentId, zipFile));
+        }
 
-            var metadata = contentMetadata.get(contentId);
-            if (metadata == null) throw new IllegalStateException("No metadata for content ID: " + contentId);
+        /** The stored image of a fragment, or null if there is none. */
+        public byte @Nullable [] readImage(String fragmentId) {
+            var bytes = imageBytes.get(fragmentId);
+            if (bytes != null || zip == null) {
+                return bytes;
+            }
+            bytes = imageCache.getIfPresent(fragmentId);
+            if (bytes != null) {
+                return bytes;
+            }
+            var read = fromArchive(zipFile -> {
+                var entryName = imageEntries.get(fragmentId);
+                var entry = entryName != null ? zipFile.getEntry(entryName) : null;
+                return entry != null ? readEntry(zipFile, entry) : null;
+            });
+            if (read != null) {
+                imageCache.put(fragmentId, read);
+            }
+            return read;
+        }
 
-            byte[] bytes = contentBytes.get(contentId);
-            if (bytes == null) {
-                throw new IllegalStateException("Content not found for ID: " + contentId);
+        private interface ArchiveRead<T> {
+            T read(ZipFile zipFile) throws IOException;
+        }
+
+        private synchronized <T> T fromArchive(ArchiveRead<T> action) {
+            var path = Objects.requireNonNull(zip);
+            try {
+                if (open != null) {
+                    return action.read(open);
+                }
+                var current = ArchiveStamp.of(path);
+                try (var zipFile = new ZipFile(path.toFile())) {
+                    if (!current.equals(stamp)) {
+                        reload(zipFile);
+                        stamp = current;
+                    }
+                    return action.read(zipFile);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to read session content from " + path, e);
             }
-            String content = new String(bytes, StandardCharsets.UTF_8);
+        }
 
-            String result;
-            if (metadata instanceof DiffContentMetadataDto d) {
-                String baseContent = readContent(d.appliesTo());
-                result = ContentDiffUtils.applyDiff(content, baseContent);
-            } else {
-                result = content;
+        /** Switches to the metadata of a rewritten zip, keeping what came from the segment and is not in the zip. */
+        private void reload(ZipFile zipFile) throws IOException {
+            var reloaded = readContentMetadata(zipFile);
+            var previous = contentMetadata;
+            for (var id : contentBytes.keySet()) {
+                var metadata = previous.get(id);
+                if (metadata != null) reloaded.put(id, metadata);
             }
+            contentMetadata = reloaded;
+            imageEntries = listImageEntries(zipFile);
+            logger.debug("Reloaded content metadata from rewritten session zip {}", zip);
+        }
 
-            contentCache.put(contentId, result);
+        private String resolve(String contentId, @Nullable ZipFile zipFile) {
+            // Walk back to a cached or full revision, then apply the diffs forward. Iterative, so that chains written
+            // before keyframes existed cannot overflow the stack.
+            var metadataById = contentMetadata;
+            var chain = new ArrayList<String>();
+            String id = contentId;
+            @Nullable String base = contentCache.getIfPresent(id);
+            while (base == null) {
+                var metadata = metadataById.get(id);
+                if (metadata == null) throw new IllegalStateException("No metadata for content ID: " + id);
+                if (metadata instanceof DiffContentMetadataDto d) {
+                    chain.add(id);
+                    id = d.appliesTo();
+                    base = contentCache.getIfPresent(id);
+                } else {
+                    base = new String(bytesOf(id, zipFile), StandardCharsets.UTF_8);
+                    contentCache.put(id, base);
+                }
+            }
+
+            String result = base;
+            for (int i = chain.size() - 1; i >= 0; i--) {
+                var diffId = chain.get(i);
+                var diff = new String(bytesOf(diffId, zipFile), StandardCharsets.UTF_8);
+                result = ContentDiffUtils.applyDiff(diff, result);
+                contentCache.put(diffId, result);
+            }
             return result;
         }
+
+        private byte[] bytesOf(String contentId, @Nullable ZipFile zipFile) {
+            byte[] bytes = contentBytes.get(contentId);
+            if (bytes == null && zipFile != null) {
+                var entry = zipFile.getEntry(CONTENT_DIR_PREFIX + contentId + ".txt");
+                if (entry == null) entry = zipFile.getEntry(CONTENT_DIR_PREFIX + contentId);
+                if (entry != null) {
+                    try {
+                        bytes = readEntry(zipFile, entry);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }
+            if (bytes == null) {
+                throw new IllegalStateException("Content not found for ID: " + contentId);
+            }
+            return bytes;
+        }
     }
 }
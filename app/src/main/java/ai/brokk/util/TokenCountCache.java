@@ -0,0 +1,87 @@
+package ai.brokk.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Process-wide token counts keyed by text content rather than by whoever asked, so the same file text counted by the
+ * token bar, the context agent and a BlitzForge run is encoded once. Only the counts are kept, never the texts, and the
+ * least recently used entries go first once the cache is full.
+ */
+final class TokenCountCache {
+    /** Shorter texts encode faster than they hash and look up. */
+    static final int MIN_CACHED_LENGTH = 1024;
+
+    private static final int MAX_ENTRIES = 8192;
+
+    /** Length, String hash and a 64-bit FNV-1a hash together make a collision between distinct texts negligible. */
+    private record Key(int length, int stringHash, long contentHash) {}
+
+    private final Map<Key, Integer> counts = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Integer> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private long hits;
+    private long misses;
+
+    int count(String text, ToIntFunction<String> encoder) {
+        if (text.length() < MIN_CACHED_LENGTH) {
+            return encoder.applyAsInt(text);
+        }
+
+        var key = new Key(text.length(), text.hashCode(), fnv1a(text));
+        synchronized (this) {
+            var cached = counts.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+        // Encode outside the lock; racing callers may both encode, and agree on the result
+        int count = encoder.applyAsInt(text);
+        synchronized (this) {
+            counts.put(key, count);
+        }
+        return count;
+    }
+
+    /** The count cached for {@code text}, or -1 when it has not been counted; never encodes. */
+    int cachedCount(String text) {
+        if (text.length() < MIN_CACHED_LENGTH) {
+            return -1;
+        }
+        var key = new Key(text.length(), text.hashCode(), fnv1a(text));
+        synchronized (this) {
+            var cached = counts.get(key);
+            return cached == null ? -1 : cached;
+        }
+    }
+
+    synchronized long hits() {
+        return hits;
+    }
+
+    synchronized long misses() {
+        return misses;
+    }
+
+    synchronized void clear() {
+        counts.clear();
+        hits = 0;
+        misses = 0;
+    }
+
+    private static long fnv1a(String text) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -13,16 +13,27 @@ import java.util.Map;
 
 public class HttpRequest {
 
+    /** A body produced only when the request is sent, written straight to bytes rather than through a String. */
+    public interface LazyBody {
+
+        byte[] toBytes();
+
+        /** The body as text for request logging, which may be formatted for reading rather than as sent. */
+        String toLogString();
+    }
+
     private final HttpMethod method;
     private final String url;
     private final Map<String, List<String>> headers;
     private final String body;
+    private final LazyBody lazyBody;
 
     public HttpRequest(Builder builder) {
         this.method = ensureNotNull(builder.method, "method");
         this.url = ensureNotBlank(builder.url, "url");
         this.headers = copy(builder.headers);
         this.body = builder.body;
+        this.lazyBody = builder.lazyBody;
     }
 
     public HttpMethod method() {
@@ -38,9 +49,16 @@ public class HttpRequest {
     }
 
     public String body() {
+        if (body == null && lazyBody != null) {
+            return lazyBody.toLogString();
+        }
         return body;
     }
 
+    public LazyBody lazyBody() {
+        return lazyBody;
+    }
+
     public static Builder builder() {
         return new Builder();
     }
@@ -51,6 +69,7 @@ public class HttpRequest {
         private String url;
         private Map<String, List<String>> headers;
         private String body;
+        private LazyBody lazyBody;
 
         private Builder() {}
 
@@ -107,6 +126,13 @@ public class HttpRequest {
 
         public Builder body(String body) {
             this.body = body;
+            this.lazyBody = null;
+            return this;
+        }
+
+        public Builder body(LazyBody body) {
+            this.lazyBody = body;
+            this.body = null;
             return this;
         }
 
@@ -104,7 +104,9 @@ public class JdkHttpClient implements HttpClient {
         });
 
         BodyPublisher bodyPublisher;
-        if (request.body() != null) {
+        if (request.lazyBody() != null) {
+            bodyPublisher = BodyPublishers.ofByteArray(request.lazyBody().toBytes());
+        } else if (request.body() != null) {
             bodyPublisher = BodyPublishers.ofString(request.body());
         } else {
             bodyPublisher = BodyPublishers.noBody();
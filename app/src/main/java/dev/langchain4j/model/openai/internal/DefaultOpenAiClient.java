@@ -78,7 +78,7 @@ public class DefaultOpenAiClient extends OpenAiClient {
                 .url(baseUrl, "chat/completions")
                 .addHeader("Content-Type", "application/json")
                 .addHeaders(defaultHeaders)
-                .body(Json.toJson(ChatCompletionRequest.builder().from(request).stream(false)
+                .body(Json.toJsonBody(ChatCompletionRequest.builder().from(request).stream(false)
                         .build()))
                 .build();
 
@@ -87,7 +87,7 @@ public class DefaultOpenAiClient extends OpenAiClient {
                 .url(baseUrl, "chat/completions")
                 .addHeader("Content-Type", "application/json")
                 .addHeaders(defaultHeaders)
-                .body(Json.toJson(ChatCompletionRequest.builder().from(request).stream(true)
+                .body(Json.toJsonBody(ChatCompletionRequest.builder().from(request).stream(true)
                         .build()))
                 .build();
 
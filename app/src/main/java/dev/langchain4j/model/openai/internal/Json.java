@@ -1,15 +1,18 @@
 package dev.langchain4j.model.openai.internal;
 
 import static com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_IGNORED_PROPERTIES;
-import static com.fasterxml.jackson.databind.SerializationFeature.INDENT_OUTPUT;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import dev.langchain4j.http.client.HttpRequest;
 
 public class Json {
 
-    static final ObjectMapper OBJECT_MAPPER =
-            new ObjectMapper().enable(INDENT_OUTPUT).disable(FAIL_ON_IGNORED_PROPERTIES);
+    static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().disable(FAIL_ON_IGNORED_PROPERTIES);
+
+    // Requests go over the wire compact; indentation is only for people reading the debug logs
+    private static final ObjectWriter PRETTY_WRITER = OBJECT_MAPPER.writerWithDefaultPrettyPrinter();
 
     public static String toJson(Object o) {
         try {
@@ -19,6 +22,36 @@ public class Json {
         }
     }
 
+    public static String toPrettyJson(Object o) {
+        try {
+            return PRETTY_WRITER.writeValueAsString(o);
+        } catch (JsonProcessingException jpe) {
+            throw new RuntimeException(jpe);
+        }
+    }
+
+    /**
+     * A request body serialized only when the request is sent, compact and straight to UTF-8 bytes; request logging
+     * gets it indented.
+     */
+    public static HttpRequest.LazyBody toJsonBody(Object o) {
+        return new HttpRequest.LazyBody() {
+            @Override
+            public byte[] toBytes() {
+                try {
+                    return OBJECT_MAPPER.writeValueAsBytes(o);
+                } catch (JsonProcessingException jpe) {
+                    throw new RuntimeException(jpe);
+                }
+            }
+
+            @Override
+            public String toLogString() {
+                return toPrettyJson(o);
+            }
+        };
+    }
+
     static <T> T fromJson(String json, Class<T> type) {
         try {
             return OBJECT_MAPPER.readValue(json, type);
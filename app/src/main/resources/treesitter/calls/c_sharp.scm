@@ -0,0 +1,19 @@
+; Call sites: @call.name is the invoked identifier, @call.receiver a plain-identifier receiver when present,
+; @call.super a receiver that is only kept when it is the base keyword
+
+(invocation_expression
+  function: (identifier) @call.name)
+
+(invocation_expression
+  function: (member_access_expression
+    expression: (identifier) @call.receiver
+    name: (identifier) @call.name))
+
+(invocation_expression
+  function: (member_access_expression
+    expression: (_) @call.super
+    name: (identifier) @call.name))
+
+(invocation_expression
+  function: (member_access_expression
+    name: (identifier) @call.name))
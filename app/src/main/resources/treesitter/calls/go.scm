@@ -0,0 +1,13 @@
+; Call sites: @call.name is the invoked identifier, @call.receiver a plain-identifier receiver when present
+
+(call_expression
+  function: (identifier) @call.name)
+
+(call_expression
+  function: (selector_expression
+    operand: (identifier) @call.receiver
+    field: (field_identifier) @call.name))
+
+(call_expression
+  function: (selector_expression
+    field: (field_identifier) @call.name))
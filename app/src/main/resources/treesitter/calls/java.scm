@@ -0,0 +1,21 @@
+; Call sites: @call.name is the invoked identifier, @call.receiver a plain-identifier receiver when present,
+; @call.super a receiver that is only kept when it is the super keyword
+
+(method_invocation
+  object: (identifier) @call.receiver
+  name: (identifier) @call.name)
+
+(method_invocation
+  object: (_) @call.super
+  name: (identifier) @call.name)
+
+(method_invocation
+  name: (identifier) @call.name)
+
+; constructor calls: the created type is both the invoked name and the receiver
+(object_creation_expression
+  type: (type_identifier) @call.name @call.receiver)
+
+(object_creation_expression
+  type: (generic_type
+    (type_identifier) @call.name @call.receiver))
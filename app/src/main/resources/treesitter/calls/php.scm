@@ -0,0 +1,11 @@
+; Call sites: @call.name is the invoked identifier, @call.receiver a plain-identifier receiver when present
+
+(function_call_expression
+  function: (name) @call.name)
+
+(member_call_expression
+  name: (name) @call.name)
+
+(scoped_call_expression
+  scope: (name) @call.receiver
+  name: (name) @call.name)
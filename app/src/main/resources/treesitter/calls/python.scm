@@ -0,0 +1,20 @@
+; Call sites: @call.name is the invoked identifier, @call.receiver a plain-identifier receiver when present,
+; @call.super the callee of a call receiver, only kept when it is super()
+
+(call
+  function: (identifier) @call.name)
+
+(call
+  function: (attribute
+    object: (identifier) @call.receiver
+    attribute: (identifier) @call.name))
+
+(call
+  function: (attribute
+    object: (call
+      function: (identifier) @call.super)
+    attribute: (identifier) @call.name))
+
+(call
+  function: (attribute
+    attribute: (identifier) @call.name))
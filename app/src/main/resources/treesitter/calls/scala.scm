@@ -0,0 +1,13 @@
+; Call sites: @call.name is the invoked identifier, @call.receiver a plain-identifier receiver when present
+
+(call_expression
+  function: (identifier) @call.name)
+
+(call_expression
+  function: (field_expression
+    value: (identifier) @call.receiver
+    field: (identifier) @call.name))
+
+(call_expression
+  function: (field_expression
+    field: (identifier) @call.name))
@@ -0,0 +1,13 @@
+; Call sites: @call.name is the invoked identifier, @call.receiver a plain-identifier receiver when present
+
+(call_expression
+  function: (identifier) @call.name)
+
+(call_expression
+  function: (member_expression
+    object: (identifier) @call.receiver
+    property: (property_identifier) @call.name))
+
+(call_expression
+  function: (member_expression
+    property: (property_identifier) @call.name))
@@ -0,0 +1,85 @@
+package ai.brokk;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class LlmTranscriptWriterTest {
+    private static final ObjectMapper objectMapper =
+            new ObjectMapper().setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void repeatedLargeMessagesAreWrittenOnceAndReferenced() throws Exception {
+        var workspace = SystemMessage.from("workspace file contents\n".repeat(400));
+        var first = ChatRequest.builder()
+                .messages(workspace, UserMessage.from("first question"))
+                .build();
+        var second = ChatRequest.builder()
+                .messages(workspace, UserMessage.from("second question"))
+                .build();
+
+        var writer = new LlmTranscriptWriter(tempDir, objectMapper);
+        writer.writeRequest(first, 1, "10-00.00");
+        writer.writeResult("test-model", first, null, 1, "10-00.01");
+        writer.writeRequest(second, 2, "10-00.02");
+        writer.writeResult("test-model", second, null, 2, "10-00.03");
+        LlmTranscriptWriter.flush();
+
+        var firstJson = readGzip(tempDir.resolve("10-00.00 001-request.json.gz"));
+        var secondJson = readGzip(tempDir.resolve("10-00.02 002-request.json.gz"));
+        assertTrue(firstJson.contains("workspace file contents"));
+        assertFalse(secondJson.contains("workspace file contents"));
+        assertTrue(secondJson.contains("\"firstIn\":\"10-00.00 001-request.json.gz\""), secondJson);
+        assertTrue(secondJson.contains("second question"));
+        assertFalse(firstJson.contains("\n"), "request JSON is compact");
+
+        var firstLog = Files.readString(tempDir.resolve("10-00.01 001-Cancelled.log"));
+        var secondLog = Files.readString(tempDir.resolve("10-00.03 002-Cancelled.log"));
+        assertTrue(firstLog.contains("workspace file contents"));
+        assertFalse(secondLog.contains("workspace file contents"));
+        assertTrue(secondLog.contains("in 10-00.01 001-Cancelled.log]"), secondLog);
+        assertTrue(secondLog.contains("second question"));
+    }
+
+    @Test
+    void messagesAreNotReferencedToATranscriptThatFailedToWrite() throws Exception {
+        var workspace = SystemMessage.from("workspace file contents\n".repeat(400));
+        var first = ChatRequest.builder()
+                .messages(workspace, UserMessage.from("first question"))
+                .build();
+        var second = ChatRequest.builder()
+                .messages(workspace, UserMessage.from("second question"))
+                .build();
+        // transcripts are created new, so an existing file makes the first write fail
+        Files.writeString(tempDir.resolve("10-00.00 001-request.json.gz"), "taken");
+
+        var writer = new LlmTranscriptWriter(tempDir, objectMapper);
+        writer.writeRequest(first, 1, "10-00.00");
+        writer.writeRequest(second, 2, "10-00.02");
+        LlmTranscriptWriter.flush();
+
+        var secondJson = readGzip(tempDir.resolve("10-00.02 002-request.json.gz"));
+        assertTrue(secondJson.contains("workspace file contents"));
+        assertFalse(secondJson.contains("firstIn"), secondJson);
+    }
+
+    private static String readGzip(Path path) throws Exception {
+        try (var in = new GZIPInputStream(Files.newInputStream(path))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
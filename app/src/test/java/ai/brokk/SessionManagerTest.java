@@ -20,6 +20,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
@@ -448,4 +449,103 @@ public class SessionManagerTest {
 
         project.close();
     }
+
+    @Test
+    void rapidSavesAreCoalescedIntoOneWrite() throws Exception {
+        MainProject project = new MainProject(tempDir);
+        var sessionManager = project.getSessionManager();
+        SessionInfo session = sessionManager.newSession("Busy Session");
+        var before = sessionManager.getSaveStats();
+
+        var history = new ContextHistory(new Context(mockContextManager, "Welcome"));
+        for (int i = 0; i < 20; i++) {
+            var text = "fragment " + i;
+            history.push(ctx -> ctx.addVirtualFragment(new ContextFragment.StringFragment(
+                    mockContextManager, text, text, SyntaxConstants.SYNTAX_STYLE_NONE)));
+            sessionManager.saveHistory(history, session.id());
+        }
+        assertEquals(1, sessionManager.getSaveStats().pendingSessions(), "one snapshot queued, not twenty");
+
+        sessionManager.flushHistory(session.id()).get();
+        var after = sessionManager.getSaveStats();
+        assertEquals(0, after.pendingSessions());
+        assertEquals(20, after.savesRequested() - before.savesRequested());
+        assertEquals(1, after.savesWritten() - before.savesWritten());
+        assertTrue(after.maxSaveLagMs() >= after.lastSaveLagMs());
+
+        var loaded = sessionManager.loadHistory(session.id(), mockContextManager);
+        assertEquals(history.getHistory().size(), loaded.getHistory().size());
+
+        project.close();
+    }
+
+    @Test
+    void releasedSessionsKeepSavingCorrectly() throws Exception {
+        MainProject project = new MainProject(tempDir);
+        var sessionManager = project.getSessionManager();
+        SessionInfo session = sessionManager.newSession("Released Session");
+
+        var history = new ContextHistory(new Context(mockContextManager, "Welcome"));
+        for (int i = 0; i < 3; i++) {
+            var text = "fragment " + i;
+            history.push(ctx -> ctx.addVirtualFragment(new ContextFragment.StringFragment(
+                    mockContextManager, text, text, SyntaxConstants.SYNTAX_STYLE_NONE)));
+            sessionManager.saveHistory(history, session.id());
+            sessionManager.flushHistory(session.id()).get();
+        }
+        history.push(ctx -> ctx.addVirtualFragment(new ContextFragment.StringFragment(
+                mockContextManager, "pending", "pending", SyntaxConstants.SYNTAX_STYLE_NONE)));
+        sessionManager.saveHistory(history, session.id());
+        sessionManager.releaseSession(session.id()).get();
+        assertEquals(0, sessionManager.getSaveStats().pendingSessions(), "release writes the pending snapshot");
+
+        // a save after the release starts from a fresh writer
+        history.push(ctx -> ctx.addVirtualFragment(new ContextFragment.StringFragment(
+                mockContextManager, "after", "after", SyntaxConstants.SYNTAX_STYLE_NONE)));
+        sessionManager.saveHistory(history, session.id());
+        var loaded = sessionManager.loadHistory(session.id(), mockContextManager);
+        assertEquals(history.getHistory().size(), loaded.getHistory().size());
+        assertContextsEqual(history.getHistory().getLast(), loaded.getHistory().getLast());
+
+        project.close();
+    }
+
+    @Test
+    void sessionsAreListedFromTheIndexUntilTheirZipChanges() throws Exception {
+        Path sessionsDir = tempDir.resolve(".brokk").resolve("sessions");
+        UUID id;
+        try (var sessionManager = new SessionManager(sessionsDir)) {
+            id = sessionManager.newSession("Indexed").id();
+        }
+        Path indexPath = sessionsDir.resolve(SessionManager.SESSION_INDEX_FILE);
+        assertTrue(Files.exists(indexPath));
+
+        // An index entry whose stamp still matches the zip is trusted without opening the zip
+        var index = AbstractProject.objectMapper.readValue(indexPath.toFile(), SessionManager.SessionIndex.class);
+        var entry = index.sessions().getFirst();
+        var edited = new SessionManager.SessionIndexEntry(
+                entry.id(),
+                "From index",
+                entry.created(),
+                entry.modified(),
+                entry.size(),
+                entry.zipModified(),
+                entry.segmentModified());
+        Files.writeString(
+                indexPath,
+                AbstractProject.objectMapper.writeValueAsString(
+                        new SessionManager.SessionIndex(index.version(), List.of(edited))));
+        try (var sessionManager = new SessionManager(sessionsDir)) {
+            assertEquals("From index", sessionManager.listSessions().getFirst().name());
+        }
+
+        // once the zip is touched, its manifest is read again and the index is rewritten
+        Path zip = sessionsDir.resolve(id + ".zip");
+        Files.setLastModifiedTime(zip, FileTime.fromMillis(Files.getLastModifiedTime(zip).toMillis() + 5_000));
+        try (var sessionManager = new SessionManager(sessionsDir)) {
+            assertEquals("Indexed", sessionManager.listSessions().getFirst().name());
+        }
+        var rewritten = AbstractProject.objectMapper.readValue(indexPath.toFile(), SessionManager.SessionIndex.class);
+        assertEquals("Indexed", rewritten.sessions().getFirst().name());
+    }
 }
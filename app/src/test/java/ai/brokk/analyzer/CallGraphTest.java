@@ -0,0 +1,254 @@
+package ai.brokk.analyzer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ai.brokk.AnalyzerUtil;
+import ai.brokk.IProject;
+import ai.brokk.analyzer.update.UpdateTestUtil;
+import ai.brokk.testutil.TestProject;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class CallGraphTest {
+
+    private TestProject project;
+
+    @AfterEach
+    void tearDown() {
+        if (project != null) project.close();
+    }
+
+    private TestProject javaProject() throws IOException {
+        var rootDir = UpdateTestUtil.newTempDir();
+        UpdateTestUtil.writeFile(
+                rootDir,
+                "p/A.java",
+                """
+                package p;
+
+                public class A {
+                  public void start() {
+                    prepare();
+                    B.create().finish();
+                  }
+
+                  private void prepare() {
+                    Runnable r = () -> log("prepared");
+                  }
+
+                  private void log(String message) {}
+                }
+                """);
+        UpdateTestUtil.writeFile(
+                rootDir,
+                "p/B.java",
+                """
+                package p;
+
+                public class B {
+                  public static B create() { return new B(); }
+
+                  public void finish() {
+                    log();
+                  }
+
+                  private void log() {}
+                }
+                """);
+        project = UpdateTestUtil.newTestProject(rootDir, Languages.JAVA);
+        return project;
+    }
+
+    @Test
+    void javaCallsResolveAgainstTheSymbolIndex() throws IOException {
+        var analyzer = new JavaAnalyzer(javaProject());
+
+        var from = AnalyzerUtil.getCallgraphFrom(analyzer, "p.A.start", 1);
+        assertEquals(Set.of("p.A.start"), from.keySet());
+        assertEquals(Set.of("p.A.prepare", "p.B.create", "p.B.finish"), targets(from.get("p.A.start")));
+        assertTrue(from.get("p.A.start").stream().anyMatch(site -> site.sourceLine().equals("prepare();")));
+
+        // the lambda's call belongs to the enclosing method, and log() resolves within each caller's own class
+        var prepare = AnalyzerUtil.getCallgraphFrom(analyzer, "p.A.prepare", 1);
+        assertEquals(Set.of("p.A.log"), targets(prepare.get("p.A.prepare")));
+        var finish = AnalyzerUtil.getCallgraphFrom(analyzer, "p.B.finish", 1);
+        assertEquals(Set.of("p.B.log"), targets(finish.get("p.B.finish")));
+
+        var to = AnalyzerUtil.getCallgraphTo(analyzer, "p.B.log", 3);
+        assertEquals(Set.of("p.B.finish"), targets(to.get("p.B.log")));
+        assertEquals(Set.of("p.A.start"), targets(to.get("p.B.finish")));
+        assertFalse(to.containsKey("p.A.start"), "start has no callers");
+        assertEquals(
+                Set.of("p.B.log"),
+                AnalyzerUtil.getCallgraphTo(analyzer, "p.B.log", 1).keySet(),
+                "depth limits the walk");
+    }
+
+    @Test
+    void superCallsResolveToTheSupertypeAndConstructorsAreCalls() throws IOException {
+        var rootDir = UpdateTestUtil.newTempDir();
+        UpdateTestUtil.writeFile(
+                rootDir,
+                "p/Base.java",
+                """
+                package p;
+
+                public class Base {
+                  public void run() {}
+                }
+                """);
+        UpdateTestUtil.writeFile(
+                rootDir,
+                "p/Child.java",
+                """
+                package p;
+
+                public class Child extends Base {
+                  public Child(int size) {}
+
+                  @Override
+                  public void run() {
+                    super.run();
+                  }
+
+                  public static Child make() {
+                    return new Child(1);
+                  }
+                }
+                """);
+        project = UpdateTestUtil.newTestProject(rootDir, Languages.JAVA);
+        var analyzer = new JavaAnalyzer(project);
+
+        var run = AnalyzerUtil.getCallgraphFrom(analyzer, "p.Child.run", 1);
+        assertEquals(Set.of("p.Base.run"), targets(run.get("p.Child.run")));
+        var make = AnalyzerUtil.getCallgraphFrom(analyzer, "p.Child.make", 1);
+        assertEquals(Set.of("p.Child.Child"), targets(make.get("p.Child.make")));
+    }
+
+    @Test
+    void incrementalUpdatesMatchFreshAnalysis() throws IOException {
+        IAnalyzer analyzer = new JavaAnalyzer(javaProject());
+        var root = project.getRoot();
+
+        UpdateTestUtil.writeFile(
+                root,
+                "p/B.java",
+                """
+                package p;
+
+                public class B {
+                  public static B create() { return new B(); }
+
+                  public void finish() {}
+
+                  public void prepare() {}
+                }
+                """);
+        analyzer = analyzer.update(Set.of(new ProjectFile(root, "p/B.java")));
+        var fresh = new JavaAnalyzer(project);
+
+        for (var method : List.of("p.A.start", "p.A.prepare", "p.B.finish")) {
+            assertEquals(
+                    AnalyzerUtil.getCallgraphFrom(fresh, method, 2),
+                    AnalyzerUtil.getCallgraphFrom(analyzer, method, 2),
+                    method);
+        }
+        assertEquals(
+                AnalyzerUtil.getCallgraphTo(fresh, "p.B.finish", 2),
+                AnalyzerUtil.getCallgraphTo(analyzer, "p.B.finish", 2));
+        assertTrue(AnalyzerUtil.getCallgraphTo(analyzer, "p.B.log", 2).isEmpty());
+
+        Files.delete(root.resolve("p/A.java"));
+        analyzer = analyzer.update(Set.of(new ProjectFile(root, "p/A.java")));
+        assertTrue(AnalyzerUtil.getCallgraphTo(analyzer, "p.B.finish", 2).isEmpty());
+    }
+
+    static Stream<Arguments> languages() {
+        return Stream.of(
+                Arguments.of(
+                        Languages.PYTHON,
+                        (Function<IProject, IAnalyzer>) PythonAnalyzer::new,
+                        "m.py",
+                        "def callee():\n    pass\n\ndef caller():\n    callee()\n"),
+                Arguments.of(
+                        Languages.GO,
+                        (Function<IProject, IAnalyzer>) GoAnalyzer::new,
+                        "main.go",
+                        "package main\n\nfunc callee() {}\n\nfunc caller() {\n\tcallee()\n}\n"),
+                Arguments.of(
+                        Languages.JAVASCRIPT,
+                        (Function<IProject, IAnalyzer>) JavascriptAnalyzer::new,
+                        "m.js",
+                        "function callee() {}\nfunction caller() { callee(); }\n"),
+                Arguments.of(
+                        Languages.TYPESCRIPT,
+                        (Function<IProject, IAnalyzer>) TypescriptAnalyzer::new,
+                        "m.ts",
+                        "function callee(): void {}\nfunction caller(): void { callee(); }\n"),
+                Arguments.of(
+                        Languages.C_SHARP,
+                        (Function<IProject, IAnalyzer>) CSharpAnalyzer::new,
+                        "C.cs",
+                        "namespace N { class C { void callee() {} void caller() { callee(); } } }\n"),
+                Arguments.of(
+                        Languages.CPP_TREESITTER,
+                        (Function<IProject, IAnalyzer>) CppAnalyzer::new,
+                        "m.cpp",
+                        "void callee() {}\nvoid caller() { callee(); }\n"),
+                Arguments.of(
+                        Languages.RUST,
+                        (Function<IProject, IAnalyzer>) RustAnalyzer::new,
+                        "lib.rs",
+                        "fn callee() {}\nfn caller() { callee(); }\n"),
+                Arguments.of(
+                        Languages.PHP,
+                        (Function<IProject, IAnalyzer>) PhpAnalyzer::new,
+                        "m.php",
+                        "<?php\nfunction callee() {}\nfunction caller() { callee(); }\n"),
+                Arguments.of(
+                        Languages.SCALA,
+                        (Function<IProject, IAnalyzer>) ScalaAnalyzer::new,
+                        "O.scala",
+                        "object O {\n  def callee(): Unit = {}\n  def caller(): Unit = { callee() }\n}\n"));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("languages")
+    void everyLanguageExtractsCalls(
+            Language language, Function<IProject, IAnalyzer> factory, String fileName, String source)
+            throws IOException {
+        var rootDir = UpdateTestUtil.newTempDir();
+        UpdateTestUtil.writeFile(rootDir, fileName, source);
+        project = UpdateTestUtil.newTestProject(rootDir, language);
+        var analyzer = factory.apply(project);
+
+        var caller = function(analyzer, "caller");
+        var callee = function(analyzer, "callee");
+        var provider = analyzer.as(CallGraphProvider.class).orElseThrow();
+        var from = provider.getCallgraphFrom(caller, 1);
+        assertEquals(Set.of(callee.fqName()), targets(from.getOrDefault(caller.fqName(), List.of())));
+        var to = provider.getCallgraphTo(callee, 1);
+        assertEquals(Set.of(caller.fqName()), targets(to.getOrDefault(callee.fqName(), List.of())));
+    }
+
+    private static CodeUnit function(IAnalyzer analyzer, String identifier) {
+        return analyzer.searchDefinitions(identifier).stream()
+                .filter(cu -> cu.isFunction() && cu.identifier().equals(identifier))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no function " + identifier));
+    }
+
+    private static Set<String> targets(List<CallSite> sites) {
+        return sites.stream().map(site -> site.target().fqName()).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,87 @@
+package ai.brokk.analyzer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ai.brokk.analyzer.update.UpdateTestUtil;
+import ai.brokk.testutil.TestProject;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class IdentifierIndexTest {
+
+    private TestProject project;
+
+    @AfterEach
+    void tearDown() {
+        if (project != null) project.close();
+    }
+
+    @Test
+    void tokenizeKeepsDistinctWordsThatCanFollowAWordBoundary() {
+        var tokens = IdentifierIndex.tokenize(
+                "foo.bar(x_1, 42, 9lives) // héllo foo".getBytes(StandardCharsets.UTF_8));
+        assertEquals(List.of("bar", "foo", "h", "llo", "x_1"), List.of(tokens));
+        assertSame(tokens[1], IdentifierIndex.tokenize("foo".getBytes(StandardCharsets.UTF_8))[0]);
+    }
+
+    @Test
+    void lookupsMatchTokenPrefixes() throws IOException {
+        var a = new ProjectFile(UpdateTestUtil.newTempDir(), "A.java");
+        var b = new ProjectFile(a.getRoot(), "B.java");
+        var index = IdentifierIndex.EMPTY
+                .withFile(a, IdentifierIndex.tokenize("getFoo() + bar".getBytes(StandardCharsets.UTF_8)))
+                .withFile(b, IdentifierIndex.tokenize("get".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(Set.of(a, b), index.filesWithPrefix("get"));
+        assertEquals(Set.of(a), index.filesWithPrefix("getF"));
+        assertEquals(Set.of(), index.filesWithPrefix("getFooBar"));
+        assertEquals(Set.of(b), index.withoutFile(a).filesWithPrefix("get"));
+
+        // replacing a file retracts the postings of its previous tokens
+        var replaced = index.withFile(a, IdentifierIndex.tokenize("bar".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(Set.of(b), replaced.filesWithPrefix("get"));
+        assertEquals(Set.of(a), replaced.filesWithPrefix("ba"));
+        assertEquals(IdentifierIndex.of(replaced.byFile()).filesWithPrefix("g"), replaced.filesWithPrefix("g"));
+
+        assertTrue(IdentifierIndex.isIndexable("_x1"));
+        assertFalse(IdentifierIndex.isIndexable("1x"));
+        assertFalse(IdentifierIndex.isIndexable("operator+"));
+        assertFalse(IdentifierIndex.isIndexable(""));
+    }
+
+    @Test
+    void updatesNarrowSearchesLikeAFreshAnalysis() throws IOException {
+        var root = UpdateTestUtil.newTempDir();
+        UpdateTestUtil.writeFile(root, "p/A.java", "package p;\npublic class A { void target() {} }\n");
+        UpdateTestUtil.writeFile(root, "p/B.java", "package p;\npublic class B { void b() { new A().target(); } }\n");
+        UpdateTestUtil.writeFile(root, "notes.txt", "target\n");
+        project = UpdateTestUtil.newTestProject(root, Languages.JAVA);
+        var a = new ProjectFile(root, "p/A.java");
+        var b = new ProjectFile(root, "p/B.java");
+        var notes = new ProjectFile(root, "notes.txt");
+        var all = Set.of(a, b, notes);
+
+        IAnalyzer analyzer = new JavaAnalyzer(project);
+        assertEquals(all, narrow(analyzer, "target", all));
+        assertEquals(Set.of(notes), narrow(analyzer, "missing", all), "unindexed files are always searched");
+        assertEquals(all, narrow(analyzer, "not-a-word", all));
+
+        UpdateTestUtil.writeFile(root, "p/B.java", "package p;\npublic class B { void b() {} }\n");
+        analyzer = analyzer.update(Set.of(b));
+        assertEquals(Set.of(a, notes), narrow(analyzer, "target", all));
+        assertEquals(narrow(new JavaAnalyzer(project), "target", all), narrow(analyzer, "target", all));
+
+        Files.delete(a.absPath());
+        analyzer = analyzer.update(Set.of(a));
+        assertEquals(Set.of(a, notes), narrow(analyzer, "target", all), "deleted files are no longer indexed");
+    }
+
+    private static Set<ProjectFile> narrow(IAnalyzer analyzer, String identifier, Set<ProjectFile> files) {
+        return analyzer.as(IdentifierIndexProvider.class).orElseThrow().filesToSearch(identifier, files);
+    }
+}
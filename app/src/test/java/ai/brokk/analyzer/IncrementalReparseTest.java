@@ -0,0 +1,121 @@
+package ai.brokk.analyzer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ai.brokk.AnalyzerUtil;
+import ai.brokk.analyzer.update.UpdateTestUtil;
+import ai.brokk.testutil.TestProject;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class IncrementalReparseTest {
+
+    private static final String ORIGINAL =
+            """
+            package p;
+
+            public class A {
+              public int one() { return 1; }
+
+              public int two() { return 2; }
+            }
+            """;
+
+    private TestProject project;
+    private ProjectFile file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var rootDir = UpdateTestUtil.newTempDir();
+        UpdateTestUtil.writeFile(rootDir, "p/A.java", ORIGINAL);
+        project = UpdateTestUtil.newTestProject(rootDir, Languages.JAVA);
+        file = new ProjectFile(rootDir, "p/A.java");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (project != null) project.close();
+    }
+
+    @Test
+    void computeEditSpansTheChangedBytes() {
+        var oldBytes = "ab\ncd\nef".getBytes(StandardCharsets.UTF_8);
+        var newBytes = "ab\ncXYd\nef".getBytes(StandardCharsets.UTF_8);
+
+        var edit = ReparseHints.computeEdit(oldBytes, newBytes);
+        assertNotNull(edit);
+        assertEquals(4, edit.getStartByte());
+        assertEquals(4, edit.getOldEndByte());
+        assertEquals(6, edit.getNewEndByte());
+        assertEquals(1, edit.getStartPoint().getRow());
+        assertEquals(1, edit.getStartPoint().getColumn());
+        assertEquals(1, edit.getNewEndPoint().getRow());
+        assertEquals(3, edit.getNewEndPoint().getColumn());
+
+        assertNull(ReparseHints.computeEdit(oldBytes, oldBytes.clone()));
+    }
+
+    @Test
+    void computeEditKeepsMultibyteCharactersWhole() {
+        // "é" and "è" share their first UTF-8 byte
+        var edit = ReparseHints.computeEdit(
+                "xéy".getBytes(StandardCharsets.UTF_8), "xèy".getBytes(StandardCharsets.UTF_8));
+        assertNotNull(edit);
+        assertEquals(1, edit.getStartByte());
+        assertEquals(3, edit.getOldEndByte());
+        assertEquals(3, edit.getNewEndByte());
+    }
+
+    @Test
+    void hintedUpdateMatchesFreshAnalysis() throws IOException {
+        IAnalyzer analyzer = new JavaAnalyzer(project);
+
+        var updated = ORIGINAL.replace(
+                "  public int two() { return 2; }",
+                "  public int two() { return 2; }\n\n  public String three() { return \"3\"; }");
+        ReparseHints.recordPreviousContent(file, ORIGINAL);
+        Files.writeString(file.absPath(), updated);
+        analyzer = analyzer.update(Set.of(file));
+
+        var fresh = new JavaAnalyzer(project);
+        assertTrue(analyzer.getDefinition("p.A.three").isPresent());
+        assertEquals(AnalyzerUtil.getSkeleton(fresh, "p.A"), AnalyzerUtil.getSkeleton(analyzer, "p.A"));
+        for (var method : Set.of("p.A.one", "p.A.two", "p.A.three")) {
+            assertEquals(
+                    AnalyzerUtil.getMethodSource(fresh, method, true),
+                    AnalyzerUtil.getMethodSource(analyzer, method, true),
+                    method);
+        }
+    }
+
+    @Test
+    void staleHintFallsBackToFullParse() throws IOException {
+        IAnalyzer analyzer = new JavaAnalyzer(project);
+
+        // the hint does not describe what the analyzer parsed, so it must be ignored
+        ReparseHints.recordPreviousContent(file, "class Unrelated {}");
+        Files.writeString(file.absPath(), ORIGINAL.replace("one()", "uno()"));
+        analyzer = analyzer.update(Set.of(file));
+
+        assertTrue(analyzer.getDefinition("p.A.uno").isPresent());
+        assertTrue(analyzer.getDefinition("p.A.one").isEmpty());
+        assertEquals(
+                AnalyzerUtil.getSkeleton(new JavaAnalyzer(project), "p.A"), AnalyzerUtil.getSkeleton(analyzer, "p.A"));
+    }
+
+    @Test
+    void hintsAreEvictedOnceTheyExceedTheCharacterBound() {
+        var large = "x".repeat(5 * 1024 * 1024);
+        var other = new ProjectFile(project.getRoot(), "p/B.java");
+        ReparseHints.recordPreviousContent(file, large);
+        ReparseHints.recordPreviousContent(other, large);
+
+        assertNull(ReparseHints.take(file), "the oldest hint goes first");
+        assertEquals(large, ReparseHints.take(other));
+    }
+}
@@ -7,6 +7,8 @@ import ai.brokk.testutil.TestProject;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.junit.jupiter.api.AfterAll;
@@ -351,6 +353,22 @@ public class JavaAnalyzerSearchTest {
         assertTrue(cu.isEmpty(), "Empty range should return null as per contract");
     }
 
+    @Test
+    public void testEnclosingBatchMatchesSingleLookups() throws IOException {
+        for (var name : List.of("A.java", "C.java", "D.java")) {
+            var pf = getFileByName(name);
+            int length = Files.readAllBytes(pf.absPath()).length;
+            var ranges = new ArrayList<IAnalyzer.Range>();
+            for (int start = 0; start < length; start += 7) {
+                ranges.add(new IAnalyzer.Range(start, Math.min(length, start + 5), 0, 0, start));
+            }
+            var expected = ranges.stream()
+                    .map(range -> analyzer.enclosingCodeUnit(pf, range))
+                    .toList();
+            assertEquals(expected, analyzer.enclosingCodeUnits(pf, ranges), name);
+        }
+    }
+
     // --------------- helpers (moved from JavaTreeSitterAnalyzerEnclosingTest) ---------------
 
     private ProjectFile getFileByName(String fileName) {
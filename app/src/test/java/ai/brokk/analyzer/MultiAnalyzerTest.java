@@ -6,6 +6,7 @@ import ai.brokk.testutil.TestProject;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -60,6 +61,15 @@ public class MultiAnalyzerTest {
         assertTrue(topLevelUnits.get(0).isClass());
     }
 
+    @Test
+    public void testGetDefinitionsBatch() {
+        var definitions = multiAnalyzer.getDefinitions(List.of("TestClass", "TestClass.testMethod", "Missing"));
+
+        assertEquals(Set.of("TestClass", "TestClass.testMethod"), definitions.keySet());
+        assertTrue(definitions.get("TestClass").isClass());
+        assertTrue(definitions.get("TestClass.testMethod").isFunction());
+    }
+
     @Test
     public void testGetTopLevelDeclarationsUnsupportedLanguageReturnsEmpty() {
         var pythonFile = new ProjectFile(tempDir, "test.py");
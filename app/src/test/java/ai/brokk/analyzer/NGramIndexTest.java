@@ -0,0 +1,101 @@
+package ai.brokk.analyzer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class NGramIndexTest {
+
+    @Test
+    void candidatesAreASupersetOfSubstringMatches() {
+        var keys = List.of("com.acme.FooService", "com.acme.BarService", "org.other.Foo", "Baz");
+        var index = NGramIndex.trigrams(keys);
+
+        var candidates = Set.copyOf(index.candidates("service"));
+        assertTrue(candidates.containsAll(Set.of("com.acme.FooService", "com.acme.BarService")));
+        assertFalse(candidates.contains("Baz"));
+
+        assertEquals(List.of(), List.copyOf(index.candidates("nothing")));
+        assertNull(index.candidates("fo"), "needles shorter than a trigram require a full scan");
+    }
+
+    @Test
+    void withChangesOnlyAffectsChangedKeys() {
+        var index = NGramIndex.trigrams(List.of("alphaOne", "alphaTwo", "beta"));
+        var next = index.withChanges(List.of("alphaOne"), List.of("alphaThree"));
+
+        assertEquals(Set.of("alphaTwo", "alphaThree"), Set.copyOf(next.candidates("alpha")));
+        assertEquals(Set.of("alphaOne", "alphaTwo"), Set.copyOf(index.candidates("alpha")), "original is unchanged");
+        assertEquals(List.of(), List.copyOf(next.candidates("one")));
+    }
+
+    @Test
+    void requiredLiteralsAreConservative() {
+        assertEquals(List.of("foo", "bar"), NGramIndex.requiredLiterals("(?i).*Foo.*Bar.*"));
+        assertEquals(List.of("a.b"), NGramIndex.requiredLiterals("(?i).*" + Pattern.quote("A.b") + ".*"));
+        assertEquals(List.of("service"), NGramIndex.requiredLiterals("Services?"));
+        assertEquals(List.of("get", "alue"), NGramIndex.requiredLiterals("get[A-Z]\\walue"));
+        assertEquals(List.of(), NGramIndex.requiredLiterals("foo|bar"));
+        assertEquals(List.of(), NGramIndex.requiredLiterals("(foo)?bar"));
+    }
+
+    @Test
+    void letterPairCandidatesMatchAFullCamelCaseScan() {
+        var keys = List.of(
+                "FooBar", "fabric", "FOO_BAR", "BarFoo", "foo.bar", "HttpOutputProvider", "hop", "x_h2o_p", "Baz");
+        var index = NGramIndex.letterPairs(keys);
+
+        for (var query : List.of("FB", "HOP", "BF", "OO", "ZZ")) {
+            var camelCase = Pattern.compile(String.join("[a-z0-9_]*", query.split("")), Pattern.CASE_INSENSITIVE);
+            var lower = query.toLowerCase(Locale.ROOT);
+            var scanned = keys.stream()
+                    .filter(key -> key.toLowerCase(Locale.ROOT).contains(lower) || camelCase.matcher(key).find())
+                    .collect(Collectors.toSet());
+            var indexed = index.candidates(lower).stream()
+                    .filter(key -> camelCase.matcher(key).find())
+                    .collect(Collectors.toSet());
+            assertEquals(scanned, indexed, query);
+        }
+        assertEquals(Set.of("FooBar", "fabric", "FOO_BAR"), Set.copyOf(index.candidates("fb")));
+        assertNull(index.candidates("f"), "a single letter has no pair");
+    }
+
+    @Test
+    void characterClassesEndAtTheirOwnBracket() {
+        assertEquals(List.of("abc"), NGramIndex.requiredLiterals("[\\]x]abc"));
+        assertEquals(List.of("xyz"), NGramIndex.requiredLiterals("[a-c&&[^b]]xyz"));
+        assertEquals(List.of("ab"), NGramIndex.requiredLiterals("[]x]ab"));
+        assertEquals(List.of(), NGramIndex.requiredLiterals("foo[a-c"), "an unclosed class falls back to a full scan");
+        assertTrue(Pattern.compile("[\\]x]abc").matcher("xabc").matches());
+        assertTrue(Pattern.compile("[a-c&&[^b]]xyz").matcher("axyz").matches());
+    }
+
+    @Test
+    void escapeParametersAreNotRequiredLiterals() {
+        assertEquals(List.of("foo", "bar"), NGramIndex.requiredLiterals("foo\\x41bar"));
+        assertEquals(List.of("foo", "bar"), NGramIndex.requiredLiterals("foo\\x{41}bar"));
+        assertEquals(List.of("foo", "bar"), NGramIndex.requiredLiterals("foo\\u0041bar"));
+        assertEquals(List.of("foo", "bar"), NGramIndex.requiredLiterals("foo\\0101bar"));
+        assertEquals(List.of("foo", "bar"), NGramIndex.requiredLiterals("foo\\cAbar"));
+        assertEquals(List.of("foo", "bar"), NGramIndex.requiredLiterals("foo\\p{Lu}bar"));
+        assertEquals(List.of("foo", "bar"), NGramIndex.requiredLiterals("foo\\pLbar"));
+
+        // each literal really occurs in a matching string, so the prefilter cannot drop it
+        var examples = Map.of(
+                "get\\x41ll", "getAll",
+                "id\\u0030\\u00311", "id011",
+                "tab\\011ed", "tab\ted");
+        examples.forEach((regex, matching) -> {
+            assertTrue(Pattern.compile(regex).matcher(matching).matches(), regex);
+            for (var literal : NGramIndex.requiredLiterals(regex)) {
+                assertTrue(matching.toLowerCase(Locale.ROOT).contains(literal), regex + " requires " + literal);
+            }
+        });
+    }
+}
@@ -0,0 +1,121 @@
+package ai.brokk.analyzer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ai.brokk.AnalyzerUtil;
+import ai.brokk.analyzer.update.UpdateTestUtil;
+import ai.brokk.testutil.TestProject;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Objects;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TreeLessModeTest {
+
+    private static final String SOURCE =
+            """
+            package p;
+
+            public class A {
+              public int one() { return 1; }
+            }
+            """;
+
+    private TestProject project;
+    private ProjectFile fileA;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var rootDir = UpdateTestUtil.newTempDir();
+        UpdateTestUtil.writeFile(rootDir, "p/A.java", SOURCE);
+        UpdateTestUtil.writeFile(rootDir, "p/B.java", "package p;\npublic class B { void b() {} }\n");
+        project = UpdateTestUtil.newTestProject(rootDir, Languages.JAVA);
+        fileA = new ProjectFile(rootDir, "p/A.java");
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty(TreeSitterAnalyzer.TREELESS_PROPERTY);
+        if (project != null) project.close();
+    }
+
+    @Test
+    void treesAreDroppedAndReparsedOnDemand() {
+        var retaining = new JavaAnalyzer(project);
+        System.setProperty(TreeSitterAnalyzer.TREELESS_PROPERTY, "true");
+        var lean = new JavaAnalyzer(project);
+
+        assertTrue(retaining.retainsTrees());
+        assertFalse(lean.retainsTrees());
+        assertFalse(hasRetainedTrees(lean));
+        assertEquals(0, lean.memoryUsage().parsedTrees());
+
+        var tree = lean.treeOf(fileA);
+        assertNotNull(tree);
+        assertEquals(
+                Objects.requireNonNull(retaining.treeOf(fileA)).getRootNode().toString(),
+                tree.getRootNode().toString());
+        assertSame(tree, lean.treeOf(fileA), "on-demand parses are cached");
+        assertEquals(1, lean.memoryUsage().parsedTrees());
+        assertNull(lean.treeOf(new ProjectFile(project.getRoot(), "p/Missing.java")));
+
+        assertEquals(AnalyzerUtil.getSkeleton(retaining, "p.A"), AnalyzerUtil.getSkeleton(lean, "p.A"));
+        assertEquals(
+                retaining.enclosingCodeUnit(fileA, new IAnalyzer.Range(40, 45, 3, 3, 0)),
+                lean.enclosingCodeUnit(fileA, new IAnalyzer.Range(40, 45, 3, 3, 0)));
+    }
+
+    @Test
+    void metricsReportMemoryPerLanguage() {
+        var retaining = new JavaAnalyzer(project);
+        var usage = retaining.getMetrics().memoryByLanguage().get(Languages.JAVA);
+        assertNotNull(usage);
+        assertEquals(2, usage.parsedTrees());
+        assertTrue(usage.nativeBytes() > 0);
+        assertTrue(usage.heapBytes() > 0);
+
+        System.setProperty(TreeSitterAnalyzer.TREELESS_PROPERTY, "true");
+        var lean = new JavaAnalyzer(project).getMetrics();
+        assertEquals(0, lean.nativeBytes());
+        assertEquals(usage.heapBytes(), lean.heapBytes());
+        assertEquals(retaining.getMetrics().numberOfDeclarations(), lean.numberOfDeclarations());
+    }
+
+    @Test
+    void updatesInTreeLessModeMatchFreshAnalysis() throws IOException {
+        System.setProperty(TreeSitterAnalyzer.TREELESS_PROPERTY, "true");
+        var analyzer = new JavaAnalyzer(project);
+        assertNotNull(analyzer.treeOf(fileA));
+
+        var updated = SOURCE.replace("public int one()", "public int uno()");
+        ReparseHints.recordPreviousContent(fileA, SOURCE);
+        Files.writeString(fileA.absPath(), updated);
+        var next = (JavaAnalyzer) analyzer.update(Set.of(fileA));
+
+        assertTrue(next.getDefinition("p.A.uno").isPresent());
+        assertTrue(next.getDefinition("p.A.one").isEmpty());
+        assertFalse(hasRetainedTrees(next));
+        assertEquals(
+                AnalyzerUtil.getSkeleton(new JavaAnalyzer(project), "p.A"), AnalyzerUtil.getSkeleton(next, "p.A"));
+    }
+
+    @Test
+    void fileEditedSinceTheSnapshotIsNotReparsedAgainstIt() throws IOException {
+        System.setProperty(TreeSitterAnalyzer.TREELESS_PROPERTY, "true");
+        var analyzer = new JavaAnalyzer(project);
+
+        Files.writeString(fileA.absPath(), "// shifts every byte range\n" + SOURCE);
+        assertNull(analyzer.treeOf(fileA), "the snapshot's ranges describe the content it analyzed");
+
+        var next = (JavaAnalyzer) analyzer.update(Set.of(fileA));
+        assertNotNull(next.treeOf(fileA));
+    }
+
+    private static boolean hasRetainedTrees(TreeSitterAnalyzer analyzer) {
+        return analyzer.<Boolean>withFileProperties(
+                props -> props.values().stream().anyMatch(p -> p.parsedTree() != null));
+    }
+}
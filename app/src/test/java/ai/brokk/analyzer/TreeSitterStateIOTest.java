@@ -0,0 +1,172 @@
+package ai.brokk.analyzer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ai.brokk.AnalyzerUtil;
+import ai.brokk.analyzer.update.UpdateTestUtil;
+import ai.brokk.testutil.TestProject;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TreeSitterStateIOTest {
+
+    private TestProject project;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var rootDir = UpdateTestUtil.newTempDir();
+        UpdateTestUtil.writeFile(
+                rootDir,
+                "pkg/A.java",
+                """
+        package pkg;
+
+        import java.util.List;
+
+        public class A {
+          /** Says hello. */
+          public int method1() { return 1; }
+
+          public static class Inner {
+            public void run() { new A().method1(); }
+          }
+        }
+        """);
+        project = UpdateTestUtil.newTestProject(rootDir, Languages.JAVA);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (project != null) project.close();
+    }
+
+    @Test
+    void roundTripPreservesSymbols() throws IOException {
+        var original = new JavaAnalyzer(project);
+        original.saveState();
+        assertTrue(Files.exists(Languages.JAVA.getStoragePath(project)));
+
+        var restored = Languages.JAVA.loadAnalyzer(project);
+        assertInstanceOf(JavaAnalyzer.class, restored);
+
+        assertEquals(
+                original.getAllDeclarations().stream().map(CodeUnit::fqName).sorted().toList(),
+                restored.getAllDeclarations().stream().map(CodeUnit::fqName).sorted().toList());
+        assertTrue(restored.getDefinition("pkg.A.method1").isPresent());
+        assertTrue(restored.getDefinition("pkg.A.Inner.run").isPresent());
+        assertEquals(AnalyzerUtil.getSkeleton(original, "pkg.A"), AnalyzerUtil.getSkeleton(restored, "pkg.A"));
+        assertEquals(
+                AnalyzerUtil.getMethodSource(original, "pkg.A.method1", true),
+                AnalyzerUtil.getMethodSource(restored, "pkg.A.method1", true));
+
+        var file = new ProjectFile(project.getRoot(), "pkg/A.java");
+        assertEquals(original.importStatementsOf(file), restored.importStatementsOf(file));
+
+        var callers = AnalyzerUtil.getCallgraphTo(original, "pkg.A.method1", 1);
+        assertFalse(callers.isEmpty());
+        assertEquals(callers, AnalyzerUtil.getCallgraphTo(restored, "pkg.A.method1", 1));
+
+        var provider = restored.as(IdentifierIndexProvider.class).orElseThrow();
+        assertEquals(Set.of(file), provider.filesToSearch("method", Set.of(file)));
+        assertEquals(Set.of(), provider.filesToSearch("absent", Set.of(file)));
+    }
+
+    @Test
+    void loadReconcilesFilesChangedSinceSave() throws IOException {
+        new JavaAnalyzer(project).saveState();
+
+        UpdateTestUtil.writeFile(
+                project.getRoot(),
+                "pkg/A.java",
+                """
+        package pkg;
+
+        public class A {
+          public int method2() { return 2; }
+        }
+        """);
+        // make sure the edit is newer than the snapshot regardless of filesystem timestamp granularity
+        Files.setLastModifiedTime(
+                project.getRoot().resolve("pkg/A.java"), FileTime.from(Instant.now().plusSeconds(5)));
+        UpdateTestUtil.writeFile(project.getRoot(), "pkg/B.java", "package pkg;\npublic class B {}\n");
+        Files.setLastModifiedTime(
+                project.getRoot().resolve("pkg/B.java"), FileTime.from(Instant.now().plusSeconds(5)));
+
+        var restored = Languages.JAVA.loadAnalyzer(project);
+        assertTrue(restored.getDefinition("pkg.A.method2").isPresent());
+        assertTrue(restored.getDefinition("pkg.A.method1").isEmpty());
+        assertTrue(restored.getDefinition("pkg.B").isPresent());
+    }
+
+    @Test
+    void corruptSnapshotIsRejected() throws IOException {
+        var storage = Languages.JAVA.getStoragePath(project);
+        Files.createDirectories(storage.getParent());
+        Files.write(storage, new byte[] {1, 2, 3, 4});
+
+        assertThrows(RuntimeException.class, () -> Languages.JAVA.loadAnalyzer(project));
+    }
+
+    @Test
+    void outOfRangeFileIndexIsAnIOException() throws IOException {
+        new JavaAnalyzer(project).saveState();
+        var storage = Languages.JAVA.getStoragePath(project);
+
+        // Point the first code unit at a file past the end of the file table
+        var header = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(storage)));
+        int magic = header.readInt();
+        int version = header.readInt();
+        var language = header.readUTF();
+        long epochNanos = header.readLong();
+        var payload = ByteBuffer.wrap(new GZIPInputStream(header).readAllBytes());
+        int strings = payload.getInt();
+        for (int i = 0; i < strings; i++) payload.position(payload.position() + 4 + payload.getInt());
+        int files = payload.getInt();
+        payload.position(payload.position() + files * 8);
+        assertTrue(payload.getInt() > 0, "the snapshot has code units");
+        payload.putInt(payload.position(), files + 7);
+
+        var corrupt = new ByteArrayOutputStream();
+        var out = new DataOutputStream(corrupt);
+        out.writeInt(magic);
+        out.writeInt(version);
+        out.writeUTF(language);
+        out.writeLong(epochNanos);
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write(payload.array());
+        }
+        Files.write(storage, corrupt.toByteArray());
+
+        var e = assertThrows(UncheckedIOException.class, () -> Languages.JAVA.loadAnalyzer(project));
+        assertTrue(e.getCause().getMessage().contains("file index"), e.getCause().getMessage());
+    }
+
+    @Test
+    void snapshotFromAnotherRootIsRejected() throws IOException {
+        new JavaAnalyzer(project).saveState();
+
+        var otherRoot = UpdateTestUtil.newTempDir();
+        var storage = Languages.JAVA.getStoragePath(project);
+        var otherStorage = otherRoot.resolve(project.getRoot().relativize(storage));
+        Files.createDirectories(otherStorage.getParent());
+        Files.copy(storage, otherStorage);
+        UpdateTestUtil.writeFile(otherRoot, "pkg/A.java", "package pkg;\npublic class A {}\n");
+
+        var otherProject = UpdateTestUtil.newTestProject(otherRoot, Languages.JAVA);
+        assertThrows(RuntimeException.class, () -> Languages.JAVA.loadAnalyzer(otherProject));
+    }
+}
@@ -0,0 +1,153 @@
+package ai.brokk.analyzer.update;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ai.brokk.analyzer.CodeUnit;
+import ai.brokk.analyzer.IAnalyzer;
+import ai.brokk.analyzer.JavaAnalyzer;
+import ai.brokk.analyzer.Languages;
+import ai.brokk.analyzer.ProjectFile;
+import ai.brokk.testutil.TestProject;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Checks that incremental updates leave the analyzer in the same state as a from-scratch analysis. */
+class IncrementalStateUpdateTest {
+
+    private TestProject project;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var rootDir = UpdateTestUtil.newTempDir();
+        UpdateTestUtil.writeFile(
+                rootDir,
+                "p/Alpha.java",
+                """
+        package p;
+        public class Alpha {
+          public int alphaOne() { return 1; }
+          public static class AlphaInner { void run() {} }
+        }
+        """);
+        UpdateTestUtil.writeFile(
+                rootDir,
+                "p/Beta.java",
+                """
+        package p;
+        public class Beta {
+          public void shared() {}
+        }
+        """);
+        UpdateTestUtil.writeFile(
+                rootDir,
+                "q/Beta.java",
+                """
+        package q;
+        public class Beta {
+          public void shared() {}
+          public void betaOnly() {}
+        }
+        """);
+        project = UpdateTestUtil.newTestProject(rootDir, Languages.JAVA);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (project != null) project.close();
+    }
+
+    @Test
+    void modifyDeleteAndAddMatchFreshAnalysis() throws IOException {
+        IAnalyzer analyzer = new JavaAnalyzer(project);
+        var root = project.getRoot();
+
+        UpdateTestUtil.writeFile(
+                root,
+                "p/Alpha.java",
+                """
+        package p;
+        public class Alpha {
+          public int alphaTwo() { return 2; }
+        }
+        """);
+        Files.delete(root.resolve("q/Beta.java"));
+        UpdateTestUtil.writeFile(
+                root,
+                "r/Gamma.java",
+                """
+        package r;
+        public class Gamma {
+          public void shared() {}
+        }
+        """);
+
+        analyzer = analyzer.update(Set.of(
+                new ProjectFile(root, "p/Alpha.java"),
+                new ProjectFile(root, "q/Beta.java"),
+                new ProjectFile(root, "r/Gamma.java")));
+        var fresh = new JavaAnalyzer(project);
+
+        assertEquals(fqNames(fresh.getAllDeclarations()), fqNames(analyzer.getAllDeclarations()));
+        assertTrue(analyzer.getDefinition("p.Alpha.alphaOne").isEmpty());
+        assertTrue(analyzer.getDefinition("p.Alpha.AlphaInner").isEmpty());
+        assertTrue(analyzer.getDefinition("q.Beta.betaOnly").isEmpty());
+        assertTrue(analyzer.getDefinition("r.Gamma.shared").isPresent());
+
+        for (var query : Set.of("alpha", "Beta", "shared", "gam", "BETAONLY")) {
+            assertEquals(
+                    fqNames(fresh.searchDefinitions(query)),
+                    fqNames(analyzer.searchDefinitions(query)),
+                    "search: " + query);
+            assertEquals(
+                    fqNames(fresh.autocompleteDefinitions(query)),
+                    fqNames(analyzer.autocompleteDefinitions(query)),
+                    "autocomplete: " + query);
+        }
+        var allNames = new HashSet<>(fqNames(fresh.getAllDeclarations().stream()
+                .flatMap(cu -> Stream.concat(Stream.of(cu), fresh.directChildren(cu).stream()))
+                .toList()));
+        allNames.addAll(Set.of("p.Alpha.alphaOne", "p.Alpha.AlphaInner", "q.Beta", "q.Beta.betaOnly"));
+        assertEquals(fresh.getDefinitions(allNames), analyzer.getDefinitions(allNames));
+        for (var cu : fresh.getAllDeclarations()) {
+            assertEquals(fqNames(fresh.directChildren(cu)), fqNames(analyzer.directChildren(cu)), cu.fqName());
+        }
+    }
+
+    @Test
+    void repeatedUpdatesOfOneFileDoNotAccumulateEntries() throws IOException {
+        IAnalyzer analyzer = new JavaAnalyzer(project);
+        var root = project.getRoot();
+        var alpha = new ProjectFile(root, "p/Alpha.java");
+
+        for (int i = 0; i < 3; i++) {
+            UpdateTestUtil.writeFile(
+                    root,
+                    "p/Alpha.java",
+                    """
+            package p;
+            public class Alpha {
+              public int m%d() { return %d; }
+            }
+            """
+                            .formatted(i, i));
+            analyzer = analyzer.update(Set.of(alpha));
+        }
+
+        var alphaClass = analyzer.getDefinition("p.Alpha").orElseThrow();
+        assertEquals(Set.of("p.Alpha.m2"), fqNames(analyzer.directChildren(alphaClass)));
+        assertEquals(Set.of("p.Alpha.m2"), fqNames(analyzer.searchDefinitions("Alpha.m")));
+        assertEquals(fqNames(new JavaAnalyzer(project).getAllDeclarations()), fqNames(analyzer.getAllDeclarations()));
+    }
+
+    private static Set<String> fqNames(Collection<CodeUnit> cus) {
+        return cus.stream().map(CodeUnit::fqName).collect(Collectors.toSet());
+    }
+}
@@ -7,7 +7,9 @@ import ai.brokk.analyzer.*;
 import ai.brokk.analyzer.JavaAnalyzer;
 import ai.brokk.analyzer.ProjectFile;
 import ai.brokk.analyzer.TreeSitterAnalyzer;
+import ai.brokk.analyzer.update.UpdateTestUtil;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
@@ -241,4 +243,44 @@ public class FuzzyUsageFinderJavaTest {
         assertTrue(files.contains("XExtendsY.java"), "Expected usage in XExtendsY.java; actual: " + files);
         assertTrue(files.contains("MethodReturner.java"), "Expected usage in MethodReturner.java; actual: " + files);
     }
+
+    @Test
+    public void offsetScannerTracksBytesAndLinesInOnePass() {
+        var content = "héllo\r\nwörld 😀 x\nthird\rfourth\n";
+        var scanner = new FuzzyUsageFinder.OffsetScanner(content);
+
+        int x = content.indexOf('x');
+        assertEquals(content.substring(0, x).getBytes(StandardCharsets.UTF_8).length, scanner.advanceTo(x));
+        assertEquals(1, scanner.line());
+        int fourth = content.indexOf("fourth");
+        assertEquals(content.substring(0, fourth).getBytes(StandardCharsets.UTF_8).length, scanner.advanceTo(fourth));
+        assertEquals(3, scanner.line());
+
+        assertEquals(String.join("\n", content.split("\\R", -1)), scanner.snippet(3, 3));
+        assertEquals("wörld 😀 x\nthird", scanner.snippet(1, 0) + "\n" + scanner.snippet(2, 0));
+    }
+
+    @Test
+    public void usageHitsUseCharOffsetsByteRangesAndLinesOfCrlfFiles() throws IOException {
+        var root = UpdateTestUtil.newTempDir();
+        UpdateTestUtil.writeFile(
+                root, "p/Target.java", "package p;\r\npublic class Target {\r\n  public static void ping() {}\r\n}\r\n");
+        UpdateTestUtil.writeFile(
+                root,
+                "p/Caller.java",
+                "package p;\r\n// ünïcödé\r\npublic class Caller {\r\n  void first() {}\r\n"
+                        + "  void call() {\r\n    Target.ping();\r\n    Target.ping();\r\n  }\r\n}\r\n");
+        try (var project = UpdateTestUtil.newTestProject(root, Languages.JAVA)) {
+            var finder = new FuzzyUsageFinder(project, new JavaAnalyzer(project), null, null);
+            var hits = finder.findUsages("p.Target.ping").toEither().getUsages();
+
+            assertEquals(1, hits.size(), "both calls share one enclosing unit");
+            var hit = hits.iterator().next();
+            assertEquals("p.Caller.call", hit.enclosing().fqName());
+            assertEquals(6, hit.line());
+            var content = Files.readString(root.resolve("p/Caller.java"));
+            assertEquals(content.indexOf("ping();"), hit.startOffset());
+            assertTrue(hit.snippet().startsWith("public class Caller {\n  void first() {}"), hit.snippet());
+        }
+    }
 }
@@ -0,0 +1,60 @@
+package ai.brokk.context;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ai.brokk.analyzer.ProjectFile;
+import ai.brokk.testutil.NoOpConsoleIO;
+import ai.brokk.testutil.TestContextManager;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ContextDiffTest {
+    @TempDir
+    Path tempDir;
+
+    private TestContextManager contextManager;
+
+    @BeforeEach
+    void setup() {
+        FrozenFragment.clearInternPoolForTesting();
+        contextManager = new TestContextManager(tempDir, new NoOpConsoleIO());
+    }
+
+    @Test
+    void onlyFragmentsWhoseContentChangedAreDiffed() throws Exception {
+        var files = new ArrayList<ProjectFile>();
+        for (int i = 0; i < 8; i++) {
+            var file = new ProjectFile(tempDir, "F" + i + ".java");
+            Files.writeString(file.absPath(), "class F" + i + " {\n}\n");
+            files.add(file);
+        }
+        var live = new Context(contextManager, "start")
+                .addPathFragments(files.stream()
+                        .map(f -> new ContextFragment.ProjectPathFragment(f, contextManager))
+                        .toList());
+        var before = live.freeze();
+
+        Files.writeString(files.get(2).absPath(), "class F2 {\n    int x;\n}\n");
+        Files.writeString(files.get(5).absPath(), "class F5 {\n    int y;\n}\n");
+        var after = live.freeze();
+
+        var diffs = after.getDiff(before);
+        assertEquals(
+                List.of("F2.java", "F5.java"),
+                diffs.stream()
+                        .map(d -> d.fragment().files().iterator().next().getFileName())
+                        .sorted()
+                        .toList());
+        for (var diff : diffs) {
+            assertEquals(1, diff.linesAdded());
+            assertEquals(0, diff.linesDeleted());
+        }
+        assertSame(diffs, after.getDiff(before), "diffs are cached per other context");
+        assertEquals(List.of(), before.getDiff(before));
+    }
+}
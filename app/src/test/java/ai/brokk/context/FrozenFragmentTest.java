@@ -0,0 +1,74 @@
+package ai.brokk.context;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ai.brokk.analyzer.CodeUnit;
+import ai.brokk.analyzer.Languages;
+import ai.brokk.analyzer.ProjectFile;
+import ai.brokk.testutil.NoOpConsoleIO;
+import ai.brokk.testutil.TestAnalyzer;
+import ai.brokk.testutil.TestContextManager;
+import ai.brokk.testutil.TestProject;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FrozenFragmentTest {
+    @TempDir
+    Path tempDir;
+
+    private final AtomicInteger skeletonRequests = new AtomicInteger();
+    private TestContextManager contextManager;
+    private ProjectFile file;
+
+    @BeforeEach
+    void setup() throws Exception {
+        FrozenFragment.clearInternPoolForTesting();
+        file = new ProjectFile(tempDir, "A.java");
+        Files.writeString(file.absPath(), "class A { void run() { } }");
+
+        var analyzer = new TestAnalyzer() {
+            @Override
+            public Map<CodeUnit, String> getSkeletons(ProjectFile projectFile) {
+                skeletonRequests.incrementAndGet();
+                return Map.of(CodeUnit.cls(projectFile, "", "A"), "class A { void run(); }");
+            }
+        };
+        contextManager = new TestContextManager(
+                new TestProject(tempDir, Languages.JAVA), new NoOpConsoleIO(), new HashSet<>(), analyzer);
+    }
+
+    @Test
+    void unchangedInputsReuseThePreviousFrozenFragment() throws Exception {
+        var live = new ContextFragment.SkeletonFragment(
+                contextManager, List.of("A.java"), ContextFragment.SummaryType.FILE_SKELETONS);
+
+        var first = FrozenFragment.freeze(live, contextManager);
+        int requests = skeletonRequests.get();
+        assertTrue(requests > 0);
+
+        assertSame(first, FrozenFragment.freeze(live, contextManager));
+        assertEquals(requests, skeletonRequests.get(), "skeletons were not fetched again");
+    }
+
+    @Test
+    void changedFileRecomputesTheFragment() throws Exception {
+        var live = new ContextFragment.SkeletonFragment(
+                contextManager, List.of("A.java"), ContextFragment.SummaryType.FILE_SKELETONS);
+
+        FrozenFragment.freeze(live, contextManager);
+        int requests = skeletonRequests.get();
+
+        var modified = Files.getLastModifiedTime(file.absPath()).toMillis();
+        Files.setLastModifiedTime(file.absPath(), FileTime.fromMillis(modified + 5_000));
+        FrozenFragment.freeze(live, contextManager);
+        assertTrue(skeletonRequests.get() > requests);
+    }
+}
@@ -0,0 +1,111 @@
+package ai.brokk.difftool.ui;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ai.brokk.AbstractProject;
+import ai.brokk.difftool.ui.BlameService.BlameInfo;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class BlameServiceTest {
+    private Path tempDir;
+    private Path brokkDir;
+    private Path file;
+    private String firstSha; // short shas, as BlameInfo reports them
+    private String secondSha;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        tempDir = Files.createTempDirectory("brokk-blame-");
+        brokkDir = tempDir.resolve(AbstractProject.BROKK_DIR);
+        file = tempDir.resolve("A.java");
+        try (var git = Git.init().setDirectory(tempDir.toFile()).call()) {
+            var cfg = git.getRepository().getConfig();
+            cfg.setString("user", null, "name", "Test User");
+            cfg.setString("user", null, "email", "test@example.com");
+            cfg.save();
+
+            Files.writeString(file, "one\ntwo\nthree\n", StandardCharsets.UTF_8);
+            git.add().addFilepattern("A.java").call();
+            firstSha = git.commit().setMessage("first").setSign(false).call().getName().substring(0, 8);
+
+            Files.writeString(file, "one\ntwo\nthree\nfour\n", StandardCharsets.UTF_8);
+            git.add().addFilepattern("A.java").call();
+            secondSha = git.commit().setMessage("second").setSign(false).call().getName().substring(0, 8);
+        }
+    }
+
+    @AfterEach
+    public void cleanup() throws Exception {
+        if (Files.exists(tempDir)) {
+            try (var walk = Files.walk(tempDir)) {
+                walk.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    @Test
+    public void workingTreeEditsAreUncommittedAndTheRestKeepsHeadBlame() throws Exception {
+        Files.writeString(file, "one\nTWO\nthree\nfour\nfive\n", StandardCharsets.UTF_8);
+        try (var git = Git.open(tempDir.toFile())) {
+            var blame = new BlameService(git).requestBlame(file).get();
+            var uncommitted = BlameService.NOT_COMMITTED_YET;
+            assertEquals(List.of(firstSha, uncommitted, firstSha, secondSha, uncommitted), commits(blame));
+            assertEquals("Test User", blame.get(1).author());
+            assertNull(blame.get(6));
+        }
+    }
+
+    @Test
+    public void lineEndingsAreNotEditsInEitherDirection() throws Exception {
+        try (var git = Git.open(tempDir.toFile())) {
+            Files.writeString(file, "one\r\ntwo\r\nthree\r\nfour\r\n", StandardCharsets.UTF_8);
+            git.add().addFilepattern("A.java").call();
+            var crlfSha = git.commit().setMessage("crlf").setSign(false).call().getName().substring(0, 8);
+
+            Files.writeString(file, "one\ntwo\nthree\nfour\n", StandardCharsets.UTF_8);
+            var service = new BlameService(git);
+            assertEquals(List.of(crlfSha, crlfSha, crlfSha, crlfSha), commits(service.requestBlame(file).get()));
+
+            Files.writeString(file, "one\r\nTWO\r\nthree\r\nfour\r\n", StandardCharsets.UTF_8);
+            service.clearCacheFor(file);
+            var uncommitted = BlameService.NOT_COMMITTED_YET;
+            assertEquals(List.of(crlfSha, uncommitted, crlfSha, crlfSha), commits(service.requestBlame(file).get()));
+        }
+    }
+
+    @Test
+    public void committedBlameIsPersistedAndReused() throws Exception {
+        try (var git = Git.open(tempDir.toFile())) {
+            var blame = new BlameService(git, brokkDir).requestBlameForRevision(file, "HEAD").get();
+            assertEquals(List.of(firstSha, firstSha, firstSha, secondSha), commits(blame));
+        }
+        var logPath = brokkDir.resolve(BlameCache.LOG_FILE);
+        assertTrue(Files.size(logPath) > 0);
+
+        // an unshared cache over the same log answers without running blame
+        var cache = new BlameCache(logPath);
+        try (var git = Git.open(tempDir.toFile())) {
+            var head = git.getRepository().resolve("HEAD");
+            var cached = cache.get(head, "A.java");
+            assertNotNull(cached);
+            assertEquals(4, cached.lineCommits().length);
+            assertEquals(secondSha, cache.commit(cached.lineCommits()[3]).shortSha());
+        }
+    }
+
+    private static List<String> commits(Map<Integer, BlameInfo> blame) {
+        return blame.values().stream()
+                .map(info -> info.shortSha().isEmpty() ? info.author() : info.shortSha())
+                .toList();
+    }
+}
@@ -0,0 +1,187 @@
+package ai.brokk.git;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ai.brokk.AbstractProject;
+import ai.brokk.analyzer.ProjectFile;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CoChangeIndexTest {
+    private Path tempDir;
+    private Path logPath;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        tempDir = Files.createTempDirectory("brokk-cochange-");
+        logPath = tempDir.resolve(AbstractProject.BROKK_DIR).resolve(CoChangeIndex.LOG_FILE);
+        try (var git = Git.init().setDirectory(tempDir.toFile()).call()) {
+            var cfg = git.getRepository().getConfig();
+            cfg.setString("user", null, "name", "Test User");
+            cfg.setString("user", null, "email", "test@example.com");
+            cfg.save();
+
+            write("A.java", "class A { }");
+            write("Service.java", "class Service { }");
+            commit(git, "add A + service", "A.java", "Service.java");
+
+            write("A.java", "class A { }\n// touch");
+            write("Service.java", "class Service { }\n// touch");
+            commit(git, "touch A + service", "A.java", "Service.java");
+
+            Files.move(tempDir.resolve("A.java"), tempDir.resolve("B.java"));
+            git.rm().addFilepattern("A.java").call();
+            commit(git, "rename A->B", "B.java");
+
+            write("D.java", "class D { }");
+            commit(git, "add D", "D.java");
+
+            // path recycling: the B.java below is a different file from the renamed A
+            Files.move(tempDir.resolve("B.java"), tempDir.resolve("C.java"));
+            git.rm().addFilepattern("B.java").call();
+            commit(git, "rename B->C", "C.java");
+            Files.move(tempDir.resolve("D.java"), tempDir.resolve("B.java"));
+            git.rm().addFilepattern("D.java").call();
+            commit(git, "rename D->B", "B.java");
+        }
+    }
+
+    @AfterEach
+    public void cleanup() throws Exception {
+        if (Files.exists(tempDir)) {
+            try (var walk = Files.walk(tempDir)) {
+                walk.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    @Test
+    public void matrixCanonicalizesPathsToTheTip() throws Exception {
+        try (var repo = new GitRepo(tempDir)) {
+            var matrix = repo.coChangeIndex().matrix(100);
+            assertEquals(6, matrix.commitCount());
+
+            var service = file("Service.java");
+            var serviceCommits = matrix.commitsContaining(service);
+            assertEquals(2, serviceCommits.length);
+            for (int commit : serviceCommits) {
+                assertEquals(Set.of(service, file("C.java")), Set.copyOf(matrix.filesIn(commit)));
+            }
+            assertEquals(4, matrix.documentFrequency(file("C.java")), "A and its renames count as one file");
+            assertEquals(2, matrix.documentFrequency(file("B.java")), "the recycled B.java is the former D.java");
+            assertEquals(0, matrix.documentFrequency(file("A.java")));
+
+            assertSame(matrix, repo.coChangeIndex().matrix(100), "unchanged tip reuses the matrix");
+            assertEquals(2, repo.coChangeIndex().matrix(2).commitCount());
+        }
+    }
+
+    @Test
+    public void advancingTheTipCarriesRowsThroughNewRenames() throws Exception {
+        try (var repo = new GitRepo(tempDir)) {
+            var before = repo.coChangeIndex().matrix(100);
+            assertEquals(4, before.documentFrequency(file("C.java")));
+
+            try (var git = Git.open(tempDir.toFile())) {
+                Files.move(tempDir.resolve("C.java"), tempDir.resolve("E.java"));
+                git.rm().addFilepattern("C.java").call();
+                commit(git, "rename C->E", "E.java");
+            }
+            var after = repo.coChangeIndex().matrix(100);
+            assertEquals(7, after.commitCount());
+            assertEquals(5, after.documentFrequency(file("E.java")), "older rows follow the new rename");
+            assertEquals(0, after.documentFrequency(file("C.java")));
+            assertEquals(Set.of(file("Service.java"), file("E.java")), Set.copyOf(after.filesIn(6)));
+        }
+    }
+
+    @Test
+    public void existenceIsCheckedWhenQueried() throws Exception {
+        try (var repo = new GitRepo(tempDir)) {
+            var matrix = repo.coChangeIndex().matrix(100);
+            assertEquals(2, matrix.documentFrequency(file("Service.java")));
+
+            Files.delete(tempDir.resolve("Service.java"));
+            assertEquals(0, matrix.documentFrequency(file("Service.java")));
+            assertEquals(List.of(file("C.java")), matrix.filesIn(matrix.commitsContaining(file("C.java"))[3]));
+
+            write("Service.java", "class Service { }");
+            assertEquals(2, matrix.documentFrequency(file("Service.java")));
+        }
+    }
+
+    @Test
+    public void changesArePersistedAndOnlyNewCommitsAreAppended() throws Exception {
+        List<CommitInfo> commits;
+        long logSize;
+        try (var repo = new GitRepo(tempDir)) {
+            commits = repo.listCommitsDetailed(repo.getCurrentBranch());
+            var changes = repo.coChangeIndex().changes(commits);
+            assertEquals(commits.size(), changes.size());
+            for (var commit : commits) {
+                var expected = repo.listFilesChangedInCommit(commit.id()).stream()
+                        .map(IGitRepo.ModifiedFile::file)
+                        .toList();
+                assertEquals(expected, changes.get(commit.id()).files(), commit.message());
+            }
+            logSize = Files.size(logPath);
+        }
+
+        try (var repo = new GitRepo(tempDir)) {
+            var reloaded = repo.coChangeIndex().changes(commits);
+            assertEquals(commits.size(), reloaded.size());
+            assertEquals(logSize, Files.size(logPath), "known commits are not diffed or written again");
+
+            try (var git = Git.open(tempDir.toFile())) {
+                write("Service.java", "class Service { }\n// again");
+                commit(git, "touch service", "Service.java");
+            }
+            var matrix = repo.coChangeIndex().matrix(100);
+            assertEquals(7, matrix.commitCount());
+            assertEquals(List.of(file("Service.java")), matrix.filesIn(0));
+            assertTrue(Files.size(logPath) > logSize);
+        }
+    }
+
+    @Test
+    public void tornTailIsDroppedOnLoad() throws Exception {
+        List<CommitInfo> commits;
+        try (var repo = new GitRepo(tempDir)) {
+            commits = repo.listCommitsDetailed(repo.getCurrentBranch());
+            repo.coChangeIndex().changes(commits);
+        }
+        long intact = Files.size(logPath);
+        Files.write(logPath, new byte[] {0, 0, 1, 0, 42}, StandardOpenOption.APPEND);
+
+        try (var repo = new GitRepo(tempDir)) {
+            assertEquals(commits.size(), repo.coChangeIndex().changes(commits).size());
+        }
+        assertEquals(intact, Files.size(logPath));
+    }
+
+    private ProjectFile file(String name) {
+        return new ProjectFile(tempDir, Path.of(name));
+    }
+
+    private void write(String path, String content) throws IOException {
+        Files.writeString(tempDir.resolve(path), content, StandardCharsets.UTF_8);
+    }
+
+    private static void commit(Git git, String message, String... paths) throws Exception {
+        var add = git.add();
+        for (var path : paths) add.addFilepattern(path);
+        add.call();
+        git.commit().setMessage(message).setSign(false).call();
+    }
+}
@@ -0,0 +1,129 @@
+package ai.brokk.git;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ai.brokk.AbstractProject;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CommitMessageIndexTest {
+    private Path tempDir;
+    private Path logPath;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        tempDir = Files.createTempDirectory("brokk-messages-");
+        logPath = tempDir.resolve(AbstractProject.BROKK_DIR).resolve(CommitMessageIndex.LOG_FILE);
+        try (var git = Git.init().setDirectory(tempDir.toFile()).call()) {
+            var cfg = git.getRepository().getConfig();
+            cfg.setString("user", null, "name", "Test User");
+            cfg.setString("user", null, "email", "test@example.com");
+            cfg.save();
+
+            commit(git, "Add the parser");
+            commit(git, "Fix NullPointerException in parser");
+            commit(git, "Docs: explain the lexer");
+        }
+    }
+
+    @AfterEach
+    public void cleanup() throws Exception {
+        if (Files.exists(tempDir)) {
+            try (var walk = Files.walk(tempDir)) {
+                walk.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    @Test
+    public void requiredWordsKeepOnlyLiteralsEveryMatchContains() {
+        assertEquals(Set.of("nullpointer", "parser"), CommitMessageIndex.requiredWords("(?i).*NullPointer.*parser.*"));
+        assertEquals(Set.of("bug", "ix"), CommitMessageIndex.requiredWords("bug.ix"));
+        assertEquals(Set.of("colo"), CommitMessageIndex.requiredWords("colou?r"));
+        assertEquals(Set.of("fix"), CommitMessageIndex.requiredWords("\\bfix(es|ed)?\\b"));
+        assertEquals(Set.of("a1b2"), CommitMessageIndex.requiredWords("\\Qa1b2\\E"));
+        assertEquals(Set.of("issue"), CommitMessageIndex.requiredWords("issue\\s+#\\d+"));
+        assertEquals(Set.of("end"), CommitMessageIndex.requiredWords("\\u0041end"));
+        assertEquals(Set.of(), CommitMessageIndex.requiredWords("fix|feat"));
+        assertEquals(Set.of(), CommitMessageIndex.requiredWords("(?x)fix parser"));
+        assertEquals(Set.of(), CommitMessageIndex.requiredWords("[a-z]+\\d*"));
+    }
+
+    @Test
+    public void searchReadsOnlyCandidatesAndMatchesAFullScan() throws Exception {
+        try (var repo = new GitRepo(tempDir)) {
+            assertEquals(
+                    List.of("Fix NullPointerException in parser", "Add the parser"),
+                    messages(repo.searchCommits("parser")));
+            assertEquals(
+                    List.of("Fix NullPointerException in parser"), messages(repo.searchCommits("pointer.*PARSER")));
+            assertEquals(3, messages(repo.searchCommits("test@example")).size());
+            assertEquals(List.of("Docs: explain the lexer"), messages(repo.searchCommits("lex|docs")));
+            // fragments are found anywhere inside an indexed word, not only at its start
+            assertEquals(List.of("Fix NullPointerException in parser"), messages(repo.searchCommits("interexc")));
+            assertEquals(List.of(), messages(repo.searchCommits("zqx")));
+            assertEquals(3, repo.commitMessageIndex().size());
+        }
+    }
+
+    @Test
+    public void indexIsPersistedAndExtendedAsHeadMoves() throws Exception {
+        long logSize;
+        try (var repo = new GitRepo(tempDir)) {
+            repo.searchCommits("parser");
+            logSize = Files.size(logPath);
+        }
+
+        try (var git = Git.open(tempDir.toFile())) {
+            var base = git.getRepository().resolve("HEAD~1").getName();
+            git.checkout().setCreateBranch(true).setName("side").setStartPoint(base).call();
+            commit(git, "Rewrite the parser on a side branch");
+        }
+
+        try (var repo = new GitRepo(tempDir)) {
+            assertEquals(
+                    List.of(
+                            "Rewrite the parser on a side branch",
+                            "Fix NullPointerException in parser",
+                            "Add the parser"),
+                    messages(repo.searchCommits("parser")));
+            assertEquals(4, repo.commitMessageIndex().size(), "only the new commit was indexed");
+            assertTrue(Files.size(logPath) > logSize);
+
+            // commits off the current branch are indexed but not returned
+            assertEquals(List.of(), messages(repo.searchCommits("lexer")));
+        }
+    }
+
+    @Test
+    public void tornTailIsDroppedOnLoad() throws Exception {
+        try (var repo = new GitRepo(tempDir)) {
+            repo.searchCommits("parser");
+        }
+        long intact = Files.size(logPath);
+        Files.write(logPath, new byte[] {0, 0, 1, 0, 42}, StandardOpenOption.APPEND);
+
+        try (var repo = new GitRepo(tempDir)) {
+            assertEquals(2, repo.searchCommits("parser").size());
+            assertEquals(3, repo.commitMessageIndex().size());
+        }
+        assertEquals(intact, Files.size(logPath));
+    }
+
+    private static List<String> messages(List<CommitInfo> commits) {
+        return commits.stream().map(CommitInfo::message).toList();
+    }
+
+    private static void commit(Git git, String message) throws Exception {
+        git.commit().setMessage(message).setAllowEmpty(true).setSign(false).call();
+    }
+}
@@ -7,11 +7,13 @@ import ai.brokk.analyzer.ProjectFile;
 import ai.brokk.util.Environment;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.lib.ObjectId;
@@ -290,6 +292,56 @@ public class GitRepoTest {
                 .call();
     }
 
+    @Test
+    void testListCommitsPage_pagesMatchFullListing() throws Exception {
+        for (int i = 1; i <= 6; i++) createCommit("file" + i + ".txt", "content " + i, "Commit " + i);
+        var branch = repo.getCurrentBranch();
+        var expected = repo.listCommitsDetailed(branch).stream().map(CommitInfo::id).toList();
+        assertEquals(7, expected.size());
+
+        var paged = new ArrayList<String>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            var page = repo.listCommitsPage(branch, cursor, 3);
+            page.commits().forEach(c -> paged.add(c.id()));
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+        assertEquals(expected, paged);
+        assertEquals(3, pages);
+
+        // A cursor the retained walk did not just produce is resumed by walking again from the tip
+        var resumed = repo.listCommitsPage(branch, expected.get(1), 2);
+        assertEquals(expected.subList(2, 4), resumed.commits().stream().map(CommitInfo::id).toList());
+        assertEquals(expected.get(3), resumed.nextCursor());
+
+        // A moved tip restarts the walk, so the next page is still relative to the cursor
+        createCommit("file7.txt", "content 7", "Commit 7");
+        var afterMove = repo.listCommitsPage(branch, expected.get(3), 10);
+        assertEquals(expected.subList(4, 7), afterMove.commits().stream().map(CommitInfo::id).toList());
+        assertNull(afterMove.nextCursor());
+    }
+
+    @Test
+    void testListCommitsPage_cursorDroppedByRewriteIsStale() throws Exception {
+        for (int i = 1; i <= 4; i++) createCommit("file" + i + ".txt", "content " + i, "Commit " + i);
+        var branch = repo.getCurrentBranch();
+        var firstPage = repo.listCommitsPage(branch, null, 2);
+        var cursor = firstPage.nextCursor();
+        assertNotNull(cursor);
+
+        // rewrite the branch so that the cursor commit is no longer part of it
+        repo.getGit().reset().setMode(ResetCommand.ResetType.HARD).setRef("HEAD~3").call();
+        createCommit("other.txt", "other", "Rewritten");
+
+        assertThrows(GitRepo.StaleCursorException.class, () -> repo.listCommitsPage(branch, cursor, 2));
+        assertThrows(
+                GitRepo.StaleCursorException.class,
+                () -> repo.listCommitsPage(branch, "0123456789abcdef0123456789abcdef01234567", 2));
+        assertEquals(3, repo.listCommitsPage(branch, null, 10).commits().size());
+    }
+
     @Test
     void testGetCommitMessagesBetween_sameBranch() throws Exception {
         List<String> messages = repo.getCommitMessagesBetween(repo.getCurrentBranch(), repo.getCurrentBranch());
@@ -0,0 +1,134 @@
+package ai.brokk.git;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ai.brokk.analyzer.ProjectFile;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class GitStatusCacheTest {
+    private Path tempDir;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        tempDir = Files.createTempDirectory("brokk-status-");
+        try (var git = Git.init().setDirectory(tempDir.toFile()).call()) {
+            var cfg = git.getRepository().getConfig();
+            cfg.setString("user", null, "name", "Test User");
+            cfg.setString("user", null, "email", "test@example.com");
+            cfg.save();
+
+            Files.writeString(tempDir.resolve("A.java"), "class A { }", StandardCharsets.UTF_8);
+            Files.writeString(tempDir.resolve("B.java"), "class B { }", StandardCharsets.UTF_8);
+            git.add().addFilepattern("A.java").addFilepattern("B.java").call();
+            git.commit().setMessage("initial").setSign(false).call();
+        }
+    }
+
+    @AfterEach
+    public void cleanup() throws Exception {
+        if (Files.exists(tempDir)) {
+            try (var walk = Files.walk(tempDir)) {
+                walk.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    @Test
+    public void watcherReportedPathsAreRecheckedWithoutAFullScan() throws Exception {
+        try (var repo = new GitRepo(tempDir)) {
+            var cache = repo.statusCache();
+            assertEquals(Set.of(), modifiedPaths(repo));
+            assertEquals(1, cache.fullScans());
+
+            Files.writeString(tempDir.resolve("A.java"), "class A { int x; }", StandardCharsets.UTF_8);
+            repo.markFilesChanged(List.of(file("A.java")));
+            assertEquals(Set.of("A.java"), modifiedPaths(repo));
+
+            Files.delete(tempDir.resolve("B.java"));
+            repo.markFilesChanged(List.of(file("B.java")));
+            assertEquals(Set.of("A.java", "B.java"), modifiedPaths(repo));
+
+            Files.writeString(tempDir.resolve("A.java"), "class A { }", StandardCharsets.UTF_8);
+            repo.markFilesChanged(List.of(file("A.java")));
+            assertEquals(Set.of("B.java"), modifiedPaths(repo));
+
+            assertEquals(1, cache.fullScans());
+            assertEquals(3, cache.incrementalScans());
+        }
+    }
+
+    @Test
+    public void indexChangesAndOverflowsForceAFullScan() throws Exception {
+        try (var repo = new GitRepo(tempDir)) {
+            var cache = repo.statusCache();
+            modifiedPaths(repo);
+
+            // staged outside the watcher's view of the working tree: the index stamp gives it away
+            Files.writeString(tempDir.resolve("C.java"), "class C { }", StandardCharsets.UTF_8);
+            repo.add(List.of(file("C.java")));
+            assertEquals(Set.of("C.java"), modifiedPaths(repo));
+            assertEquals(2, cache.fullScans());
+
+            Files.writeString(tempDir.resolve("A.java"), "class A { int y; }", StandardCharsets.UTF_8);
+            repo.invalidateStatus();
+            assertEquals(Set.of("A.java", "C.java"), modifiedPaths(repo));
+            assertEquals(3, cache.fullScans());
+            assertEquals(0, cache.incrementalScans());
+        }
+    }
+
+    @Test
+    public void unwatchedRepoIsNeverServedAStaleStatus() throws Exception {
+        try (var repo = new GitRepo(tempDir)) {
+            var cache = repo.statusCache();
+            assertEquals(Set.of(), modifiedPaths(repo));
+
+            // no watcher reports this edit, as in a headless run
+            Files.writeString(tempDir.resolve("A.java"), "class A { int z; }", StandardCharsets.UTF_8);
+            assertEquals(Set.of("A.java"), modifiedPaths(repo));
+
+            // reporting our own writes does not make the cache trust that it hears about everything else
+            repo.markFilesWritten(List.of(file("A.java")));
+            Files.writeString(tempDir.resolve("B.java"), "class B { int z; }", StandardCharsets.UTF_8);
+            assertEquals(Set.of("A.java", "B.java"), modifiedPaths(repo));
+            assertEquals(3, cache.fullScans());
+            assertEquals(0, cache.incrementalScans());
+        }
+    }
+
+    @Test
+    public void ownWritesAreRecheckedBeforeTheWatcherReportsThem() throws Exception {
+        try (var repo = new GitRepo(tempDir)) {
+            var cache = repo.statusCache();
+            repo.markFilesChanged(List.of());
+            assertEquals(Set.of(), modifiedPaths(repo));
+
+            Files.writeString(tempDir.resolve("B.java"), "class B { int w; }", StandardCharsets.UTF_8);
+            repo.markFilesWritten(List.of(file("B.java")));
+            assertEquals(Set.of("B.java"), modifiedPaths(repo));
+            assertEquals(1, cache.fullScans());
+            assertEquals(1, cache.incrementalScans());
+        }
+    }
+
+    private ProjectFile file(String name) {
+        return new ProjectFile(tempDir, Path.of(name));
+    }
+
+    private static Set<String> modifiedPaths(GitRepo repo) throws Exception {
+        return repo.getModifiedFiles().stream()
+                .map(m -> m.file().getRelPath().toString())
+                .collect(Collectors.toSet());
+    }
+}
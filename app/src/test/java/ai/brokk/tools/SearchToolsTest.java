@@ -103,6 +103,9 @@ public class SearchToolsTest {
                             // return the mutable list we populate in individual tests
                             return mockProjectFiles;
                         }
+                        case "getRepo" -> {
+                            return repo;
+                        }
                         default -> throw new UnsupportedOperationException("Unexpected call: " + method.getName());
                     }
                 });
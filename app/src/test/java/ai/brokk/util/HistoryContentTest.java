@@ -0,0 +1,70 @@
+package ai.brokk.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ai.brokk.context.ContentDtos.ContentMetadataDto;
+import ai.brokk.context.ContentDtos.DiffContentMetadataDto;
+import ai.brokk.context.ContentDtos.FullContentMetadataDto;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class HistoryContentTest {
+
+    @Test
+    void diffChainsAreCutByPeriodicKeyframes() {
+        var writer = new HistoryIo.ContentWriter();
+        var revisions = revisions(3 * HistoryIo.MAX_DIFF_CHAIN);
+        var ids = revisions.stream().map(r -> writer.writeContent(r, "Foo.java")).toList();
+
+        int longestChain = 0;
+        int chain = 0;
+        for (var id : ids) {
+            var metadata = writer.getContentMetadata().get(id);
+            chain = metadata instanceof DiffContentMetadataDto ? chain + 1 : 0;
+            longestChain = Math.max(longestChain, chain);
+        }
+        assertEquals(HistoryIo.MAX_DIFF_CHAIN, longestChain);
+        assertTrue(
+                writer.getContentMetadata().get(ids.get(HistoryIo.MAX_DIFF_CHAIN + 1))
+                        instanceof FullContentMetadataDto);
+
+        var reader = new HistoryIo.ContentReader(writer.getContentBytes());
+        reader.setContentMetadata(writer.getContentMetadata());
+        for (int i = ids.size() - 1; i >= 0; i--) {
+            assertEquals(revisions.get(i), reader.readContent(ids.get(i)));
+        }
+    }
+
+    @Test
+    void longChainsFromOlderSessionsAreReadWithoutRecursion() {
+        var revisions = revisions(5_000);
+        var metadata = new HashMap<String, ContentMetadataDto>();
+        var bytes = new HashMap<String, byte[]>();
+        metadata.put("r0", new FullContentMetadataDto(1));
+        bytes.put("r0", revisions.getFirst().getBytes(StandardCharsets.UTF_8));
+        for (int i = 1; i < revisions.size(); i++) {
+            metadata.put("r" + i, new DiffContentMetadataDto(i + 1, "r" + (i - 1)));
+            var diff = ContentDiffUtils.diff(revisions.get(i - 1), revisions.get(i));
+            bytes.put("r" + i, diff.getBytes(StandardCharsets.UTF_8));
+        }
+
+        var reader = new HistoryIo.ContentReader(bytes);
+        reader.setContentMetadata(metadata);
+        assertEquals(revisions.getLast(), reader.readContent("r" + (revisions.size() - 1)));
+        assertEquals(revisions.get(2_500), reader.readContent("r2500"));
+    }
+
+    private static List<String> revisions(int count) {
+        var result = new ArrayList<String>();
+        var lines = new ArrayList<String>();
+        for (int i = 0; i < 40; i++) lines.add("line " + i);
+        for (int r = 0; r < count; r++) {
+            lines.set(r % lines.size(), "edit " + r);
+            result.add(String.join("\n", lines) + "\n");
+        }
+        return result;
+    }
+}
@@ -0,0 +1,211 @@
+package ai.brokk.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ai.brokk.IContextManager;
+import ai.brokk.analyzer.ExternalFile;
+import ai.brokk.context.Context;
+import ai.brokk.context.ContextFragment;
+import ai.brokk.context.ContextHistory;
+import ai.brokk.context.FrozenFragment;
+import ai.brokk.testutil.NoOpConsoleIO;
+import ai.brokk.testutil.TestContextManager;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import org.fife.ui.rsyntaxtextarea.SyntaxConstants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HistorySessionWriterTest {
+    @TempDir
+    Path tempDir;
+
+    private IContextManager contextManager;
+    private Path zip;
+
+    @BeforeEach
+    void setup() {
+        contextManager = new TestContextManager(tempDir, new NoOpConsoleIO());
+        FrozenFragment.clearInternPoolForTesting();
+        zip = tempDir.resolve(UUID.randomUUID() + ".zip");
+    }
+
+    @Test
+    void laterSavesAppendToTheSegmentWithoutRewritingTheZip() throws Exception {
+        var history = new ContextHistory(new Context(contextManager, "Welcome"));
+        var writer = new HistoryIo.SessionWriter(zip);
+        writer.save(history, "{\"name\":\"first\"}");
+        var segment = HistoryIo.segmentPath(zip);
+        assertFalse(Files.exists(segment), "the first save writes the zip in full");
+        var zipModified = Files.getLastModifiedTime(zip);
+        var zipSize = Files.size(zip);
+
+        push(history, "one", "first fragment");
+        writer.save(history, null);
+        push(history, "two", "second fragment");
+        writer.save(history, "{\"name\":\"renamed\"}");
+
+        assertTrue(Files.exists(segment));
+        assertEquals(zipModified, Files.getLastModifiedTime(zip));
+        assertEquals(zipSize, Files.size(zip));
+
+        var loaded = HistoryIo.readZip(zip, contextManager);
+        assertEquals(descriptions(history), descriptions(loaded));
+        assertEquals(
+                "second fragment",
+                loaded.topContext().virtualFragments().filter(f -> f.description().equals("two")).findFirst()
+                        .orElseThrow()
+                        .text());
+        assertEquals("{\"name\":\"renamed\"}", HistoryIo.readManifest(zip).orElseThrow());
+
+        long segmentSize = Files.size(segment);
+        writer.save(history, null);
+        assertEquals(segmentSize, Files.size(segment), "an unchanged history appends nothing");
+    }
+
+    @Test
+    void segmentIsFoldedIntoTheZipOnceItOutgrowsIt() throws Exception {
+        var history = new ContextHistory(new Context(contextManager, "Welcome"));
+        var writer = new HistoryIo.SessionWriter(zip);
+        writer.save(history, "{\"name\":\"session\"}");
+        writeTaskList("{\"tasks\":[]}");
+
+        var random = new Random(42);
+        for (int i = 0; i < 4; i++) {
+            var text = new StringBuilder();
+            while (text.length() < 300_000) text.append(Long.toHexString(random.nextLong()));
+            push(history, "big" + i, text.toString());
+            writer.save(history, null);
+        }
+
+        var segment = HistoryIo.segmentPath(zip);
+        assertTrue(Files.size(zip) > 300_000, "earlier fragments were folded into the zip");
+        assertTrue(Files.size(segment) < 256 * 1024, "only the changes since then remain in the segment");
+        assertEquals(descriptions(history), descriptions(HistoryIo.readZip(zip, contextManager)));
+        assertEquals("{\"name\":\"session\"}", HistoryIo.readManifest(zip).orElseThrow());
+        assertEquals("{\"tasks\":[]}", readTaskList(), "entries outside the history survive a rewrite");
+    }
+
+    @Test
+    void newWriterRewritesTheZipAndStaleSegmentsAreIgnored() throws Exception {
+        var history = new ContextHistory(new Context(contextManager, "Welcome"));
+        var writer = new HistoryIo.SessionWriter(zip);
+        writer.save(history, "{\"name\":\"session\"}");
+        push(history, "one", "first fragment");
+        writer.save(history, null);
+
+        var segment = HistoryIo.segmentPath(zip);
+        var staleSegment = Files.readAllBytes(segment);
+
+        // e.g. after a restart: the writer knows nothing about the files, so it starts over with a full zip
+        var restarted = new HistoryIo.SessionWriter(zip);
+        push(history, "two", "second fragment");
+        restarted.save(history, null);
+        assertFalse(Files.exists(segment));
+
+        // a segment left behind by a crash between the zip rewrite and its deletion must not be replayed
+        Files.write(segment, staleSegment);
+        assertEquals(descriptions(history), descriptions(HistoryIo.readZip(zip, contextManager)));
+        assertEquals("{\"name\":\"session\"}", HistoryIo.readManifest(zip).orElseThrow());
+
+        // writing a manifest replaces the stale segment with one based on the current zip
+        restarted.writeManifest("{\"name\":\"renamed\"}");
+        assertEquals("{\"name\":\"renamed\"}", HistoryIo.readManifest(zip).orElseThrow());
+        assertEquals(descriptions(history), descriptions(HistoryIo.readZip(zip, contextManager)));
+    }
+
+    @Test
+    void frozenFragmentTextIsReadFromTheZipWhenUsed() throws Exception {
+        var external = tempDir.resolve("notes.txt");
+        Files.writeString(external, "original notes");
+        var fragment = new ContextFragment.ExternalPathFragment(new ExternalFile(external), contextManager);
+        var history = new ContextHistory(new Context(contextManager, "Welcome").addPathFragments(List.of(fragment)));
+        new HistoryIo.SessionWriter(zip).save(history, "{\"name\":\"session\"}");
+        Files.writeString(external, "edited notes");
+
+        FrozenFragment.clearInternPoolForTesting();
+        var loaded = HistoryIo.readZip(zip, contextManager);
+        var frozen = (FrozenFragment) loaded.topContext().allFragments().findFirst().orElseThrow();
+        assertEquals("original notes", frozen.text());
+
+        // a rewrite of the zip keeps the content addressable, for this reader and for a new one
+        new HistoryIo.SessionWriter(zip).save(loaded, null);
+        assertEquals("original notes", frozen.text());
+        FrozenFragment.clearInternPoolForTesting();
+        var reloaded = HistoryIo.readZip(zip, contextManager);
+        assertEquals("original notes", reloaded.topContext().allFragments().findFirst().orElseThrow().text());
+    }
+
+    @Test
+    void loadedFragmentsStayReadableAfterTheirZipIsDeleted() throws Exception {
+        var frozen = loadFrozenNotes();
+        Files.writeString(tempDir.resolve("notes.txt"), "original notes");
+        assertNotSame(
+                frozen,
+                FrozenFragment.freeze(
+                        new ContextFragment.ExternalPathFragment(
+                                new ExternalFile(tempDir.resolve("notes.txt")), contextManager),
+                        contextManager),
+                "fragments paged in from a session zip are not shared through the intern pool");
+
+        // as SessionManager does before deleting or quarantining a session
+        HistoryIo.releaseArchive(zip);
+        Files.delete(zip);
+        assertEquals("original notes", frozen.text());
+    }
+
+    @Test
+    void loadedFragmentsStayReadableAfterACompactionDropsTheirContent() throws Exception {
+        var frozen = loadFrozenNotes();
+
+        new HistoryIo.SessionWriter(zip).save(new ContextHistory(new Context(contextManager, "Welcome")), null);
+        assertEquals("original notes", frozen.text());
+    }
+
+    /** Saves a session holding a file fragment, edits the file, and returns the fragment as loaded, still unread. */
+    private FrozenFragment loadFrozenNotes() throws Exception {
+        var external = tempDir.resolve("notes.txt");
+        Files.writeString(external, "original notes");
+        var fragment = new ContextFragment.ExternalPathFragment(new ExternalFile(external), contextManager);
+        var history = new ContextHistory(new Context(contextManager, "Welcome").addPathFragments(List.of(fragment)));
+        new HistoryIo.SessionWriter(zip).save(history, "{\"name\":\"session\"}");
+        Files.writeString(external, "edited notes");
+
+        FrozenFragment.clearInternPoolForTesting();
+        var loaded = HistoryIo.readZip(zip, contextManager);
+        return (FrozenFragment) loaded.topContext().allFragments().findFirst().orElseThrow();
+    }
+
+    private void push(ContextHistory history, String description, String text) {
+        history.push(ctx -> ctx.addVirtualFragment(new ContextFragment.StringFragment(
+                contextManager, text, description, SyntaxConstants.SYNTAX_STYLE_NONE)));
+    }
+
+    private static List<List<String>> descriptions(ContextHistory history) {
+        return history.getHistory().stream()
+                .map(ctx -> ctx.virtualFragments()
+                        .map(ContextFragment::description)
+                        .sorted()
+                        .toList())
+                .toList();
+    }
+
+    private void writeTaskList(String json) throws IOException {
+        try (var fs = FileSystems.newFileSystem(zip, Map.of())) {
+            Files.writeString(fs.getPath("tasklist.json"), json);
+        }
+    }
+
+    private String readTaskList() throws IOException {
+        try (var fs = FileSystems.newFileSystem(zip, Map.of())) {
+            return Files.readString(fs.getPath("tasklist.json"));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ai.brokk.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class MessagesTokenCountTest {
+    private static final String JAVA_SOURCE =
+            """
+            package com.example.orders;
+
+            import java.util.List;
+            import java.util.Map;
+
+            /** Computes order totals, applying the customer's discount. */
+            public final class OrderTotals {
+                private final Map<String, Double> discountsByCustomer;
+
+                public OrderTotals(Map<String, Double> discountsByCustomer) {
+                    this.discountsByCustomer = discountsByCustomer;
+                }
+
+                public double total(String customerId, List<LineItem> items) {
+                    double subtotal = 0;
+                    for (var item : items) {
+                        subtotal += item.unitPrice() * item.quantity();
+                    }
+                    var discount = discountsByCustomer.getOrDefault(customerId, 0.0);
+                    return subtotal * (1.0 - discount);
+                }
+            }
+            """;
+
+    @BeforeEach
+    void setup() {
+        Messages.tokenCounts.clear();
+    }
+
+    @Test
+    void repeatedCountsOfTheSameContentHitTheCache() {
+        var text = JAVA_SOURCE.repeat(4);
+        int first = Messages.getApproximateTokens(text);
+        // an equal but distinct String instance is found by content
+        int second = Messages.getApproximateTokens(new String(text.toCharArray()));
+
+        assertEquals(first, second);
+        assertEquals(1, Messages.tokenCounts.misses());
+        assertEquals(1, Messages.tokenCounts.hits());
+        assertEquals(first, Messages.getDisplayTokens(text), "display count uses the exact cached count");
+    }
+
+    @Test
+    void chunkedEncodingOfLargeTextsMatchesEncodingTheParts() {
+        int perCopy = Messages.getApproximateTokens(JAVA_SOURCE);
+        int copies = 400_000 / JAVA_SOURCE.length() + 1;
+        int whole = Messages.getApproximateTokens(JAVA_SOURCE.repeat(copies));
+
+        assertEquals(perCopy * copies, whole, 0.01 * whole);
+    }
+
+    @Test
+    void displayEstimateIsCloseToTheEncodedCount() {
+        int exact = Messages.getApproximateTokens(JAVA_SOURCE);
+        int estimate = Messages.estimateTokens(JAVA_SOURCE);
+        assertEquals(exact, estimate, 0.2 * exact, "exact=" + exact + " estimate=" + estimate);
+    }
+}